@@ -10,7 +10,7 @@ import util.ToolIO;
 
 public class TLAplusParserTokenManager implements TLAplusParserConstants
 {
-  static int bracketCount = 0;
+  int bracketCount = 0;
   public  java.io.PrintStream debugStream = System.out;
   public  void setDebugStream(java.io.PrintStream ds) { debugStream = ds; }
 private final int jjStopStringLiteralDfa_0(int pos, long active0)
@@ -272,7 +272,7 @@ public class SANY {
 
         // if semantic analysis has not already been done on this module
         if (externalModuleTable.getContext( UniqueString.uniqueStringOf( moduleStringName)) == null ) {
-          parseUnit = (ParseUnit)spec.parseUnitContext.get(moduleStringName);;
+          parseUnit = spec.parseUnitContext.get(moduleStringName);;
       
           // get reference to the syntax tree for the module
           syntaxTreeRoot = parseUnit.getParseTree();
@@ -21,10 +21,14 @@ package tla2sany.modanalyzer;
 // ParseUnit keeps track of whether or not a syntactic unit needs to be 
 // reparsed.  This can be tested with isLoaded(), and done with parseFile().
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 
+import tla2sany.parser.ParseTreeCache;
 import tla2sany.semantic.AbortException;
 import tla2sany.semantic.Errors;
 import tla2sany.st.Location;
@@ -32,8 +36,10 @@ import tla2sany.st.ParseTree;
 import tla2sany.st.TreeNode;
 import tla2sany.utilities.Vector;
 import util.FileUtil;
+import util.InternTable;
 import util.NamedInputStream;
 import util.ToolIO;
+import util.UniqueString;
 
 /**
  * This class represents a parse unit, i.e. a file containing a
@@ -65,6 +71,14 @@ public class ParseUnit {
     // The String name of the ParseUnit, and also of its root module
   private ParseUnitRelatives parseUnitRelatives = new ParseUnitRelatives();
     // The ParseUnits this one is related to by EXTENTION and INSTANCE
+  private boolean            parsedAhead = false;
+    // true iff parseAhead() has run the parser, but parseFile() has
+    //   not yet analyzed the resulting parse tree
+  private boolean            parseAheadSuccess = false;
+    // The parser's result if parsedAhead
+  private Collection<UniqueString> parseAheadStrings = null;
+    // The strings whose tokens parseAhead() has deferred, in the order
+    //   in which the parser has looked them up
   // Constructor
   public ParseUnit( SpecObj spec, NamedInputStream source ) {
     this.spec = spec;
@@ -222,7 +236,7 @@ public class ParseUnit {
     public final void parseFile(Errors errors, boolean firstCall) throws AbortException
     {
         // Has it already been parsed since last modified? If yes, then no need to parse again
-        if (parseStamp > nis.sourceFile().lastModified())
+        if (!parsedAhead && parseStamp > nis.sourceFile().lastModified())
             return;
 
         // Does the file exist? If not abort cleanly. Of course the file could be deleted
@@ -250,32 +264,20 @@ public class ParseUnit {
             ToolIO.out.println("Parsing module " + nis.getModuleName() + " in file " + nis.sourceFile());
         }
 
-        boolean parseSuccess; 
-        try 
+        // Reuse the result of parseAhead() if it has run.  The tokens of the
+        // strings it has created are assigned here, where parse() would have
+        // created them, so that they are in the same order as without
+        // parsing ahead.
+        boolean parseSuccess;
+        if (parsedAhead)
         {
-            // create parser object
-            parseTree = new tla2sany.parser.TLAplusParser(nis);
-
-            // Here is the one true REAL call to the parseTree.parse() for a file;
-            // The root node of the parse tree is left in parseTree.
-            parseSuccess = parseTree.parse();
-
-            // set the parse time stamp
-            parseStamp = System.currentTimeMillis();
-        } finally 
+            UniqueString.internTbl.assignTokens(parseAheadStrings);
+            parseAheadStrings = null;
+            parseSuccess = parseAheadSuccess;
+            parsedAhead = false;
+        } else
         {
-            try
-            {
-                // SZ Aug 6, 2009: close the stream and release the OS resources
-                // this is Ok, since the repeated call of the parse method will
-                // return due to the fact, that the parse time stamp is newer 
-                // then the file time stamp
-                nis.close();
-            } catch (IOException e)
-            {
-                // eventually it is a good place to inform the user that the resources are
-                // not released 
-            }
+            parseSuccess = parse();
         }
         
         if (!parseSuccess)
@@ -316,6 +318,88 @@ public class ParseUnit {
         }
     }
 
+    /**
+     * Runs the parser on the source in THIS.nis and returns true iff
+     * parsing succeeded.  It only modifies THIS ParseUnit and can thus
+     * run concurrently for distinct ParseUnits.
+     */
+    private final boolean parse()
+    {
+        boolean parseSuccess; 
+        try 
+        {
+            final ParseTreeCache cache = ParseTreeCache.getDefault();
+            byte[] source = null;
+            if (cache != null)
+            {
+                // The cache is keyed by the contents of the source, hence
+                // read it in full first.  If this fails, the parser below
+                // reports the problem.
+                try
+                {
+                    source = ParseTreeCache.readFully(nis);
+                } catch (IOException e)
+                {
+                }
+                parseTree = (source != null ? cache.get(nis.getModuleName(), source) : null);
+                if (parseTree != null)
+                {
+                    parseStamp = System.currentTimeMillis();
+                    return true;
+                }
+            }
+
+            // create parser object
+            parseTree = new tla2sany.parser.TLAplusParser(source != null ? new ByteArrayInputStream(source) : nis);
+
+            // Here is the one true REAL call to the parseTree.parse() for a file;
+            // The root node of the parse tree is left in parseTree.
+            parseSuccess = parseTree.parse();
+
+            if (parseSuccess && source != null)
+            {
+                cache.put(nis.getModuleName(), source, parseTree);
+            }
+
+            // set the parse time stamp
+            parseStamp = System.currentTimeMillis();
+        } finally 
+        {
+            try
+            {
+                // SZ Aug 6, 2009: close the stream and release the OS resources
+                // this is Ok, since the repeated call of the parse method will
+                // return due to the fact, that the parse time stamp is newer 
+                // then the file time stamp
+                nis.close();
+            } catch (IOException e)
+            {
+                // eventually it is a good place to inform the user that the resources are
+                // not released 
+            }
+        }
+        return parseSuccess;
+    }
+
+    /**
+     * Runs the parser on the source in THIS.nis ahead of the call to
+     * parseFile(), which then only analyzes the resulting parse tree.
+     * Used by SpecObj to parse modules in parallel.
+     */
+    final void parseAhead()
+    {
+        parseAheadStrings = new LinkedHashSet<UniqueString>();
+        InternTable.deferTokens(parseAheadStrings);
+        try
+        {
+            parseAheadSuccess = parse();
+        } finally
+        {
+            InternTable.deferTokens(null);
+        }
+        parsedAhead = true;
+    }
+
   private void handleExtensions(ModulePointer currentModule, ModulePointer otherModule) {
     /*
     // Debugging
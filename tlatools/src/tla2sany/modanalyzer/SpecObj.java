@@ -3,8 +3,16 @@
 package tla2sany.modanalyzer;
 
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import tla2sany.semantic.AbortException;
 import tla2sany.semantic.Errors;
@@ -38,7 +46,7 @@ public class SpecObj
     // must be done, i.e. if MODULE A references B, A is lower
     // on the stack. The same module name can occur multiple times.
 
-    public Hashtable parseUnitContext = new Hashtable();
+    public Hashtable<String, ParseUnit> parseUnitContext = new Hashtable<String, ParseUnit>();
     // Holds all known ParseUnit objects, i.e external, top-level
     // modules that have so far been encountered, keyed by module
     // (parseUnit) string name
@@ -67,6 +75,19 @@ public class SpecObj
     private FilenameToStream resolver = null;
 
 
+    static int parserThreads = Integer.getInteger(SpecObj.class.getName() + ".parserThreads",
+            Runtime.getRuntime().availableProcessors());
+    // Number of threads that parse modules ahead of loadSpec; modules
+    // are parsed one after another if this is less than 2
+
+    private ExecutorService parserPool = null;
+    // Parses the modules referenced by the ParseUnits loaded so far while
+    // loadSpec resolves them one at a time; null outside of loadSpec
+
+    private final Map<String, Future<ParseUnit>> parsedAhead = new HashMap<String, Future<ParseUnit>>();
+    // The ParseUnits submitted to parserPool, keyed by module name, that
+    // have not yet been put into parseUnitContext
+
     ParseUnit rootParseUnit = null;
     // The ParseUnit object for the first (i.e. "root") file, roughly
     // the file that is named in the command line; null until the root
@@ -238,7 +259,7 @@ public class SpecObj
         while (enumerate.hasMoreElements())
         {
             String key = (String) enumerate.nextElement();
-            ToolIO.out.println("  " + key + "-->" + ((ParseUnit) parseUnitContext.get(key)).getName());
+            ToolIO.out.println("  " + key + "-->" + parseUnitContext.get(key).getName());
         }
     }
 
@@ -256,7 +277,17 @@ public class SpecObj
         ParseUnit parseUnit;
 
         // See if ParseUnit "name" is already in parseUnitContext table
-        parseUnit = (ParseUnit) parseUnitContext.get(name);
+        parseUnit = parseUnitContext.get(name);
+
+        // if not, it might have been parsed ahead
+        if (parseUnit == null)
+        {
+            parseUnit = takeParsedAhead(name);
+            if (parseUnit != null)
+            {
+                parseUnitContext.put(parseUnit.getName(), parseUnit);
+            }
+        }
 
         // if not, then we have to get it from the file system
         if (parseUnit == null)
@@ -295,11 +326,99 @@ public class SpecObj
         // has already been parsed)
         parseUnit.parseFile(errors, firstCall);
 
+        // Start parsing the modules it references while the caller
+        // resolves them one after another
+        if (parserPool != null && parseUnit.getRootModule() != null)
+        {
+            HashSet<String> innerModuleNames = new HashSet<String>();
+            collectInnerModuleNames(parseUnit.getRootModule(), innerModuleNames);
+            parseAhead(parseUnit.getRootModule(), innerModuleNames);
+        }
+
         return parseUnit;
         // return a non-null "parseUnit" iff named module has been found,
         // either already parsed or in the file system
     }
 
+    // Submits to parserPool a ParseUnit for each module name that the
+    // EXTENDS and INSTANCE statements of module, and its inner modules,
+    // mention and that is neither known nor being parsed yet. Names of
+    // the inner modules of the ParseUnit are skipped, since they may
+    // resolve to the inner module rather than to a file.  The file lookup
+    // stays on this thread, since resolvers need not be thread-safe.
+    private void parseAhead(ModulePointer module, HashSet<String> innerModuleNames)
+    {
+        ModuleRelatives relatives = module.getRelatives();
+        Vector names = new Vector();
+        names.appendNoRepeats(relatives.directlyExtendedModuleNames);
+        names.appendNoRepeats(relatives.directlyInstantiatedModuleNames);
+        for (int i = 0; i < names.size(); i++)
+        {
+            String name = (String) names.elementAt(i);
+            if (parseUnitContext.get(name) != null || parsedAhead.containsKey(name)
+                    || innerModuleNames.contains(name))
+            {
+                continue;
+            }
+            NamedInputStream nis = FileUtil.createNamedInputStream(name, this.resolver);
+            if (nis == null)
+            {
+                continue;
+            }
+            final ParseUnit parseUnit = new ParseUnit(this, nis);
+            parsedAhead.put(name, parserPool.submit(new Callable<ParseUnit>() {
+                public ParseUnit call()
+                {
+                    parseUnit.parseAhead();
+                    return parseUnit;
+                }
+            }));
+        }
+        for (int i = 0; i < relatives.directInnerModules.size(); i++)
+        {
+            parseAhead((ModulePointer) relatives.directInnerModules.elementAt(i), innerModuleNames);
+        }
+    }
+
+    // Adds the names of the inner modules of module, at any depth, to names
+    private static void collectInnerModuleNames(ModulePointer module, HashSet<String> names)
+    {
+        Vector inner = module.getRelatives().directInnerModules;
+        for (int i = 0; i < inner.size(); i++)
+        {
+            ModulePointer innerModule = (ModulePointer) inner.elementAt(i);
+            names.add(innerModule.getName());
+            collectInnerModuleNames(innerModule, names);
+        }
+    }
+
+    // Returns the ParseUnit "name" once parsed ahead, or null if it has
+    // not been submitted to parserPool.
+    private ParseUnit takeParsedAhead(String name) throws AbortException
+    {
+        Future<ParseUnit> future = parsedAhead.remove(name);
+        if (future == null)
+        {
+            return null;
+        }
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            throw new AbortException();
+        } catch (ExecutionException e)
+        {
+            // Rethrow what the parser threw on this thread
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
     // Fill the Vector used to drive the semantic analysis of external
     // modules. The basic requirement is that if ParseUnit A extends or
     // instances ParseUnit B, then A must have a higher index in the
@@ -879,6 +998,33 @@ public class SpecObj
      * modules it references via EXTENDS and INSTANCE statements.
      */
     public boolean loadSpec(String rootExternalModuleName, Errors errors) throws AbortException
+    {
+        if (parserThreads > 1)
+        {
+            parserPool = Executors.newFixedThreadPool(parserThreads, new ThreadFactory() {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "SANY parser");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        try
+        {
+            return loadSpecInner(rootExternalModuleName, errors);
+        } finally
+        {
+            if (parserPool != null)
+            {
+                parserPool.shutdown();
+                parserPool = null;
+            }
+            parsedAhead.clear();
+        }
+    }
+
+    private boolean loadSpecInner(String rootExternalModuleName, Errors errors) throws AbortException
     {
         // If rootExternalModuleName" has *not* already been parsed, then
         // go to the file system and find the file containing it, create a
@@ -913,7 +1059,7 @@ public class SpecObj
             } else
             {
                 // or find it in the known parseUnitContext
-                nextExtentionOrInstantiationParseUnit = (ParseUnit) parseUnitContext.get(nextParseUnitName);
+                nextExtentionOrInstantiationParseUnit = parseUnitContext.get(nextParseUnitName);
             }
 
             // Record that extenderOrInstancerParseUnit EXTENDs or INSTANCEs
@@ -0,0 +1,444 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tla2sany.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tla2sany.st.ParseTree;
+import tla2sany.st.TreeNode;
+import util.UniqueString;
+
+/**
+ * An on-disk cache of parse trees.  An entry is keyed by the name of the
+ * module and a SHA-1 digest of the contents of its source file.  Since a
+ * parse tree depends on nothing but the source it was parsed from, an
+ * unchanged module (e.g. Naturals or Sequences) is read back from the
+ * cache instead of being run through the parser again.  Semantic analysis
+ * still runs on every invocation, because its result depends on the
+ * modules a module EXTENDS or INSTANCEs.
+ * <p>
+ * Only successfully parsed trees are cached.  Entries are written to a
+ * temporary file first and then renamed, so concurrent SANY runs sharing
+ * a cache directory never see a partially written entry.  A corrupt or
+ * unreadable entry is treated as a miss.
+ * <p>
+ * An entry is never invalidated, a changed source just yields a new key.
+ * To keep stale entries from accumulating, the cache is bounded by
+ * <code>-Dtla2sany.parser.ParseTreeCache.maxSize</code> (in megabytes,
+ * 64 by default).  Whenever an entry is added beyond that bound, the least
+ * recently used entries are deleted.  A hit refreshes the modification
+ * time of its entry, which thus serves as the time of its last use.
+ * <p>
+ * Enabled by pointing <code>-Dtla2sany.parser.ParseTreeCache.dir</code> at
+ * a directory.
+ */
+public class ParseTreeCache {
+
+  private static final String DIR = System.getProperty(ParseTreeCache.class.getName() + ".dir");
+  private static final long MAX_SIZE = Integer.getInteger(ParseTreeCache.class.getName() + ".maxSize", 64)
+      .longValue() << 20;
+
+  /*************************************************************************
+  * The cache format.  Has to be incremented whenever the format or the    *
+  * shape of the trees produced by the parser (tla+.jj) changes, since     *
+  * the key does not cover the parser itself.                              *
+  *************************************************************************/
+  private static final int VERSION = 1;
+  private static final int MAGIC = 0x53545243; // "STRC"
+  private static final String SUFFIX = ".stc";
+
+  private static ParseTreeCache defaultCache;
+
+  private final File dir;
+  private final long maxSize;
+
+  public ParseTreeCache(File dir) {
+    this(dir, MAX_SIZE);
+  }
+
+  public ParseTreeCache(File dir, long maxSize) {
+    this.dir = dir;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the cache selected by the system property, or null if there
+   * is none.
+   */
+  public static synchronized ParseTreeCache getDefault() {
+    if (defaultCache == null && DIR != null) {
+      defaultCache = new ParseTreeCache(new File(DIR));
+    }
+    return defaultCache;
+  }
+
+  /**
+   * Returns the parse tree cached for the given source, or null if there
+   * is none.
+   */
+  public final ParseTree get(String moduleName, byte[] source) {
+    final File file = this.fileFor(moduleName, source);
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      final DataInputStream dis =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      final ParseTree tree;
+      try {
+        tree = read(dis);
+      } finally {
+        dis.close();
+      }
+      file.setLastModified(System.currentTimeMillis());
+      return tree;
+    } catch (IOException e) {
+      // The entry is corrupt or has been truncated; parse again
+      file.delete();
+      return null;
+    } catch (RuntimeException e) {
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Adds the given, successfully parsed tree for source to the cache.
+   * Failing to do so is not an error, the module is just parsed again
+   * next time.
+   */
+  public final void put(String moduleName, byte[] source, ParseTree tree) {
+    final File file = this.fileFor(moduleName, source);
+    File tmp = null;
+    try {
+      if (!this.dir.isDirectory() && !this.dir.mkdirs() && !this.dir.isDirectory()) {
+        return;
+      }
+      tmp = File.createTempFile(moduleName, ".tmp", this.dir);
+      final DataOutputStream dos =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        write(tree, dos);
+      } finally {
+        dos.close();
+      }
+      if (tmp.renameTo(file)) {
+        tmp = null;
+        this.evict(file);
+      }
+    } catch (IOException e) {
+      // Ignored, see above
+    } finally {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries other than keep until the
+   * entries fit into maxSize.  Concurrent SANY runs might delete the same
+   * or each other's entries, which at worst costs a parse.
+   */
+  private final void evict(File keep) {
+    final File[] entries = this.dir.listFiles();
+    if (entries == null) {
+      return;
+    }
+    long size = 0;
+    final List<File> candidates = new ArrayList<File>(entries.length);
+    for (int i = 0; i < entries.length; i++) {
+      if (entries[i].getName().endsWith(SUFFIX)) {
+        size += entries[i].length();
+        if (!entries[i].equals(keep)) {
+          candidates.add(entries[i]);
+        }
+      }
+    }
+    if (size <= this.maxSize) {
+      return;
+    }
+    final long[] lastModified = new long[candidates.size()];
+    for (int i = 0; i < lastModified.length; i++) {
+      lastModified[i] = candidates.get(i).lastModified();
+    }
+    final Integer[] order = new Integer[lastModified.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = Integer.valueOf(i);
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+        final long l1 = lastModified[o1.intValue()];
+        final long l2 = lastModified[o2.intValue()];
+        return (l1 < l2) ? -1 : ((l1 == l2) ? 0 : 1);
+      }
+    });
+    for (int i = 0; i < order.length && size > this.maxSize; i++) {
+      final File entry = candidates.get(order[i].intValue());
+      final long length = entry.length();
+      if (entry.delete()) {
+        size -= length;
+      }
+    }
+  }
+
+  private final File fileFor(String moduleName, byte[] source) {
+    return new File(this.dir, moduleName + "_" + digest(source) + SUFFIX);
+  }
+
+  /**
+   * Returns the remaining contents of in.  Used to compute the key of a
+   * source before (if at all) the parser reads it.
+   */
+  public static byte[] readFully(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    final byte[] buf = new byte[8192];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  private static String digest(byte[] source) {
+    try {
+      final MessageDigest md = MessageDigest.getInstance("SHA-1");
+      md.update((byte) VERSION);
+      final byte[] hash = md.digest(source);
+      final StringBuffer sb = new StringBuffer(2 * hash.length);
+      for (int i = 0; i < hash.length; i++) {
+        sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+        sb.append(Character.forDigit(hash[i] & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1
+      throw new RuntimeException(e);
+    }
+  }
+
+  /*************************************************************************
+  * The format is: a header, the table of all strings in the tree, and     *
+  * the nodes in post-order, i.e. every node after its heirs.  Heirs are   *
+  * referred to by their index in that order, which preserves nodes        *
+  * shared by several parents.                                             *
+  *************************************************************************/
+
+  public static void write(ParseTree tree, DataOutputStream dos) throws IOException {
+    final Writer writer = new Writer();
+    final int root = writer.node((SyntaxTreeNode) tree.rootNode());
+
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    writeString(dos, tree.moduleName());
+    final String[] deps = tree.dependencies();
+    dos.writeInt(deps.length);
+    for (int i = 0; i < deps.length; i++) {
+      writeString(dos, deps[i]);
+    }
+    dos.writeInt(writer.strings.size());
+    for (int i = 0; i < writer.strings.size(); i++) {
+      writeString(dos, writer.strings.get(i));
+    }
+    dos.writeInt(writer.nodeCnt);
+    dos.writeInt(root);
+    writer.nodes.flush();
+    writer.bytes.writeTo(dos);
+  }
+
+  public static ParseTree read(DataInputStream dis) throws IOException {
+    if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+      throw new IOException("Not a parse tree cache entry of version " + VERSION);
+    }
+    final String moduleName = readString(dis);
+    final String[] deps = new String[dis.readInt()];
+    for (int i = 0; i < deps.length; i++) {
+      deps[i] = readString(dis);
+    }
+    final String[] strings = new String[dis.readInt()];
+    final UniqueString[] uniqueStrings = new UniqueString[strings.length];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(dis);
+    }
+    final SyntaxTreeNode[] nodes = new SyntaxTreeNode[dis.readInt()];
+    final int root = dis.readInt();
+    for (int i = 0; i < nodes.length; i++) {
+      final int kind = dis.readInt();
+      final UniqueString image = uniqueString(dis.readInt(), strings, uniqueStrings);
+      final UniqueString originalImage = uniqueString(dis.readInt(), strings, uniqueStrings);
+      final UniqueString fn = uniqueString(dis.readInt(), strings, uniqueStrings);
+      final int[] location = new int[4];
+      for (int j = 0; j < location.length; j++) {
+        location[j] = dis.readInt();
+      }
+      final String[] preComment = new String[dis.readInt()];
+      for (int j = 0; j < preComment.length; j++) {
+        preComment[j] = strings[dis.readInt()];
+      }
+      final SyntaxTreeNode[] zero = readHeirs(dis, nodes);
+      final SyntaxTreeNode[] one = readHeirs(dis, nodes);
+      nodes[i] = new SyntaxTreeNode(kind, image, originalImage, fn, location, preComment, zero, one);
+    }
+    return new CachedParseTree(moduleName, deps, nodes[root]);
+  }
+
+  private static SyntaxTreeNode[] readHeirs(DataInputStream dis, SyntaxTreeNode[] nodes) throws IOException {
+    final int len = dis.readInt();
+    if (len == -1) {
+      return null;
+    }
+    final SyntaxTreeNode[] heirs = new SyntaxTreeNode[len];
+    for (int i = 0; i < len; i++) {
+      final int idx = dis.readInt();
+      heirs[i] = (idx == -1) ? null : nodes[idx];
+    }
+    return heirs;
+  }
+
+  private static UniqueString uniqueString(int idx, String[] strings, UniqueString[] uniqueStrings) {
+    if (idx == -1) {
+      return null;
+    }
+    if (uniqueStrings[idx] == null) {
+      uniqueStrings[idx] = UniqueString.uniqueStringOf(strings[idx]);
+    }
+    return uniqueStrings[idx];
+  }
+
+  /*
+   * DataOutputStream#writeUTF is limited to 64K bytes, which a comment can
+   * exceed.
+   */
+  private static void writeString(DataOutputStream dos, String s) throws IOException {
+    final byte[] bytes = s.getBytes("UTF-8");
+    dos.writeInt(bytes.length);
+    dos.write(bytes);
+  }
+
+  private static String readString(DataInputStream dis) throws IOException {
+    final byte[] bytes = new byte[dis.readInt()];
+    dis.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  private static final class Writer {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream nodes = new DataOutputStream(this.bytes);
+    private final IdentityHashMap<SyntaxTreeNode, Integer> nodeIds = new IdentityHashMap<SyntaxTreeNode, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    private int nodeCnt = 0;
+
+    private int node(SyntaxTreeNode node) throws IOException {
+      if (node == null) {
+        return -1;
+      }
+      final Integer id = this.nodeIds.get(node);
+      if (id != null) {
+        return id.intValue();
+      }
+      final int[] zero = this.heirs(node.zero);
+      final int[] one = this.heirs(node.one);
+
+      this.nodes.writeInt(node.kind);
+      this.nodes.writeInt(this.string(node.image));
+      this.nodes.writeInt(this.string(node.originalImage));
+      this.nodes.writeInt(this.string(node.getFN()));
+      for (int i = 0; i < 4; i++) {
+        this.nodes.writeInt(node.location[i]);
+      }
+      final String[] preComment = node.getPreComments();
+      this.nodes.writeInt(preComment.length);
+      for (int i = 0; i < preComment.length; i++) {
+        this.nodes.writeInt(this.string(preComment[i]));
+      }
+      this.writeHeirs(zero);
+      this.writeHeirs(one);
+
+      this.nodeIds.put(node, Integer.valueOf(this.nodeCnt));
+      return this.nodeCnt++;
+    }
+
+    private int[] heirs(SyntaxTreeNode[] heirs) throws IOException {
+      if (heirs == null) {
+        return null;
+      }
+      final int[] ids = new int[heirs.length];
+      for (int i = 0; i < heirs.length; i++) {
+        ids[i] = this.node(heirs[i]);
+      }
+      return ids;
+    }
+
+    private void writeHeirs(int[] ids) throws IOException {
+      if (ids == null) {
+        this.nodes.writeInt(-1);
+        return;
+      }
+      this.nodes.writeInt(ids.length);
+      for (int i = 0; i < ids.length; i++) {
+        this.nodes.writeInt(ids[i]);
+      }
+    }
+
+    private int string(UniqueString us) {
+      return (us == null) ? -1 : this.string(us.toString());
+    }
+
+    private int string(String s) {
+      final Integer id = this.stringIds.get(s);
+      if (id != null) {
+        return id.intValue();
+      }
+      this.strings.add(s);
+      this.stringIds.put(s, Integer.valueOf(this.strings.size() - 1));
+      return this.strings.size() - 1;
+    }
+  }
+
+  private static final class CachedParseTree implements ParseTree {
+    private final String moduleName;
+    private final String[] dependencies;
+    private final SyntaxTreeNode root;
+
+    private CachedParseTree(String moduleName, String[] dependencies, SyntaxTreeNode root) {
+      this.moduleName = moduleName;
+      this.dependencies = dependencies;
+      this.root = root;
+    }
+
+    public String[] dependencies() {
+      return this.dependencies;
+    }
+
+    public TreeNode rootNode() {
+      return this.root;
+    }
+
+    public String moduleName() {
+      return this.moduleName;
+    }
+
+    public boolean parse() {
+      // Has been parsed before it was cached
+      return true;
+    }
+  }
+}
@@ -272,6 +272,26 @@ public class SyntaxTreeNode implements TreeNode, SyntaxTreeConstants,
   }
 
 
+  /*************************************************************************
+  * This constructor is used only by ParseTreeCache to recreate a node     *
+  * read back from the cache.  Empty heir arrays are shared as they are    *
+  * in a freshly parsed tree, but a null zero field stays null, because    *
+  * that is what local() tests.                                            *
+  *************************************************************************/
+  SyntaxTreeNode(int kind, UniqueString image, UniqueString originalImage,
+                 UniqueString fn, int[] location, String[] preComment,
+                 SyntaxTreeNode[] zero, SyntaxTreeNode[] one) {
+    this.kind = kind;
+    this.image = image;
+    this.originalImage = originalImage;
+    this.fileName = fn;
+    this.location = location;
+    this.preComment = (preComment.length == 0) ? ns : preComment;
+    this.zero = (zero != null && zero.length == 0) ? nullArray : zero;
+    this.one = (one != null && one.length == 0) ? nullArray : one;
+  }
+
+
   public final int       getKind()         { return kind; }
 
 
@@ -20,6 +20,7 @@ import tlc2.tool.management.TLCStandardMBean;
 import tlc2.util.FP64;
 import tlc2.util.RandomGenerator;
 import tlc2.value.Value;
+import util.Codec;
 import util.DebugPrinter;
 import util.FileUtil;
 import util.FilenameToStream;
@@ -125,6 +126,8 @@ public class TLC
      *  o -dfid num: use depth-first iterative deepening with initial depth num
      *  o -cleanup: clean up the states directory
      *  o -dump file: dump all the states into file
+     *  o -dumpbinary file: dump all the states into file and its segments
+     *    in a binary format read by tlc2.util.StateDumpReader
      *  o -difftrace: when printing trace, show only
      *                the differences between successive states
      *    Defaults to printing full state descriptions if not specified
@@ -141,8 +144,12 @@ public class TLC
      *  o -fp num: use the num'th irreducible polynomial from the list
      *    stored in the class FP64.
      *  o -view: apply VIEW (if provided) when printing out states.
-     *  o -gzip: control if gzip is applied to value input/output stream.
-     *    Defaults to use gzip.
+     *  o -traceexpr op1,op2: evaluate the operators on the states of error
+     *    traces and print their values along with the states.
+     *  o -gzip: control if value input/output streams are compressed.
+     *    Defaults to compress.
+     *  o -codec name: the codec compressing value output streams,
+     *    lz, gzip or none. Defaults to lz.
      *  o -debug: debbuging information (non-production use)
      *  o -tool: tool mode (put output codes on console)
      *  o -checkpoint num: interval for check pointing (in minutes)
@@ -214,6 +221,18 @@ public class TLC
             {
                 index++;
                 TLCGlobals.useGZIP = false;
+            } else if (args[index].equals("-codec"))
+            {
+                index++;
+                if (index < args.length && Codec.get(args[index]) != null)
+                {
+                    TLCGlobals.codec = Codec.get(args[index]);
+                    index++;
+                } else
+                {
+                    printErrorMsg("Error: expect lz, gzip or none for -codec option.");
+                    return false;
+                }
             } else if (args[index].equals("-terse"))
             {
                 index++;
@@ -226,6 +245,18 @@ public class TLC
             {
                 index++;
                 TLCGlobals.useView = true;
+            } else if (args[index].equals("-traceexpr"))
+            {
+                index++;
+                if (index < args.length)
+                {
+                    TLCGlobals.traceExpressions = args[index].split(",");
+                    index++;
+                } else
+                {
+                    printErrorMsg("Error: expect a comma-separated list of operators for -traceexpr option.");
+                    return false;
+                }
             } else if (args[index].equals("-debug"))
             {
                 index++;
@@ -255,8 +286,9 @@ public class TLC
                     printErrorMsg("Error: expect a file name for -config option.");
                     return false;
                 }
-            } else if (args[index].equals("-dump"))
+            } else if (args[index].equals("-dump") || args[index].equals("-dumpbinary"))
             {
+                TLCGlobals.dumpBinary = args[index].equals("-dumpbinary");
                 index++;
                 if (index < args.length)
                 {
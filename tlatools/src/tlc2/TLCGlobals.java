@@ -4,6 +4,7 @@ package tlc2;
 
 import tla2sany.semantic.FrontEnd;
 import tlc2.tool.ModelChecker;
+import util.Codec;
 
 /**
  * Globals
@@ -123,9 +124,22 @@ public class TLCGlobals
     // The flag to control if VIEW is applied when printing out states.
     public static boolean useView = false;
 
-    // The flag to control if gzip is applied to Value input/output stream.
+    // The operators evaluated on the states of error traces, null if none.
+    public static String[] traceExpressions = null;
+
+    // The flag to control if -dump writes states in the binary format of BinaryStateWriter.
+    public static boolean dumpBinary = false;
+
+    // The flag to control if Value input/output streams are compressed.
     public static boolean useGZIP = true;
 
+    // The codec that compresses Value output streams (see util.Codec).
+    public static Codec codec = Codec.LZ;
+
+    public static Codec getCodec() {
+        return useGZIP ? codec : Codec.NONE;
+    }
+
     // The tool id number for TLC2.
     public static int ToolId = FrontEnd.getToolId();
 
@@ -716,6 +716,9 @@ public class MP
 		case EC.TLC_DISTRIBUTED_SERVER_FPSET_WAITING:
 			b.append("Waiting for %1% FPSet server(s) to register (").append(SDF.format(new Date())).append(")");
 			break;
+		case EC.TLC_DISTRIBUTED_SERVER_FPSET_JOINED:
+			b.append("FPSet server %1% joined, fingerprints rebalanced over %2% FPSet server(s) (").append(SDF.format(new Date())).append(")");
+			break;
             
         /*------------------------------------------- */
         case EC.TLC_STARTING:
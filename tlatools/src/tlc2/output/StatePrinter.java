@@ -16,6 +16,15 @@ public class StatePrinter
      * if the TLC runs in print-diff-only mode and the last state is set, it will print the diff only 
      */
     public static void printState(TLCState currentState, TLCState lastState, int num)
+    {
+        printState(currentState, lastState, num, "");
+    }
+
+    /**
+     * Prints the state followed by the values of trace expressions
+     * (as formatted by {@link tlc2.tool.TraceExpressionEvaluator})
+     */
+    public static void printState(TLCState currentState, TLCState lastState, int num, String traceExpressions)
     {
         String stateString;
         /* Added by rjoshi. */
@@ -26,7 +35,7 @@ public class StatePrinter
         {
             stateString = currentState.toString();
         }
-        MP.printState(EC.TLC_STATE_PRINT1, new String[] { String.valueOf(num), stateString });
+        MP.printState(EC.TLC_STATE_PRINT1, new String[] { String.valueOf(num), stateString + traceExpressions });
     }
 
     /**
@@ -50,6 +59,15 @@ public class StatePrinter
      * if the TLC runs in print-diff-only mode and the last state is set, it will print the diff only 
      */
     public static void printState(TLCStateInfo currentStateInfo, TLCState lastState, int num)
+    {
+        printState(currentStateInfo, lastState, num, "");
+    }
+
+    /**
+     * Prints the state information followed by the values of trace expressions
+     * (as formatted by {@link tlc2.tool.TraceExpressionEvaluator})
+     */
+    public static void printState(TLCStateInfo currentStateInfo, TLCState lastState, int num, String traceExpressions)
     {
         String stateString;
 
@@ -62,7 +80,7 @@ public class StatePrinter
             stateString = currentStateInfo.state.toString();
         }
         MP.printState(EC.TLC_STATE_PRINT2, new String[] { String.valueOf(num), currentStateInfo.info.toString(),
-                stateString });
+                stateString + traceExpressions });
     }
 
     /**
@@ -1,5 +1,6 @@
 package tlc2.tool;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -10,6 +11,7 @@ import tlc2.output.EC;
 import tlc2.output.MP;
 import tlc2.util.IdThread;
 import tlc2.util.ObjLongTable;
+import tlc2.util.BinaryStateWriter;
 import tlc2.util.StateWriter;
 import util.FileUtil;
 import util.FilenameToStream;
@@ -39,6 +41,7 @@ public abstract class AbstractChecker implements Cancelable
     public Action[] actions;
     protected StateWriter allStateWriter;
     protected boolean cancellationFlag;
+    protected Profiler profiler;
 
     /**
      * Constructor of the abstract model checker
@@ -86,7 +89,7 @@ public abstract class AbstractChecker implements Cancelable
         // Initialize dumpFile:
         if (dumpFile != null)
         {
-            this.allStateWriter = new StateWriter(dumpFile);
+            this.allStateWriter = TLCGlobals.dumpBinary ? new BinaryStateWriter(dumpFile) : new StateWriter(dumpFile);
         }
 
         this.impliedInits = this.tool.getImpliedInits(); // implied-inits to be checked
@@ -94,6 +97,11 @@ public abstract class AbstractChecker implements Cancelable
         this.impliedActions = this.tool.getImpliedActions(); // implied-actions to be checked
         this.actions = this.tool.getActions(); // the sub-actions
 
+        if (Profiler.ENABLED)
+        {
+            this.profiler = new Profiler(this.actions, new File(specDir + specFile + "_profile.json"));
+            this.tool.setProfiler(this.profiler);
+        }
     }
 
     public final void setDone()
@@ -121,6 +129,17 @@ public abstract class AbstractChecker implements Cancelable
         return true;
     }
 
+    /**
+     * Stops model checking because the given state is part of a liveness
+     * violation found while the workers run (see LiveCheck.ON_THE_FLY).
+     * The caller holds the lock of this checker and reports the violation.
+     * Returns false iff model checking has already stopped.
+     */
+    public boolean setLiveErrState(TLCState state)
+    {
+        return this.setErrState(state, null, false);
+    }
+
     /**
      * Responsible for printing the coverage information
      * @param workers
@@ -154,6 +173,17 @@ public abstract class AbstractChecker implements Cancelable
         }
     }
 
+    /**
+     * Responsible for printing the profile if profiling is enabled
+     */
+    protected void reportProfile()
+    {
+        if (this.profiler != null)
+        {
+            this.profiler.report();
+        }
+    }
+
     /**
      * Initialize the model checker
      * @return
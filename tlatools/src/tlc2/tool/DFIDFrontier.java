@@ -0,0 +1,95 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The states a frontier-resuming {@link DFIDModelChecker} expands in an
+ * iteration. These are the states the previous iteration has found first,
+ * i.e. the states whose depth is the depth of the previous iteration plus
+ * one. The workers take the states from the frontier concurrently and
+ * collect the states they find first into the frontier of the next
+ * iteration.
+ * <p>
+ * A {@link Node} keeps its state only until it has been expanded. The path
+ * from an initial state to a node is kept as a chain of fingerprints, from
+ * which the states are reconstructed for an error trace.
+ */
+public final class DFIDFrontier {
+
+	static final class Node {
+		TLCState state;
+		final long fp;
+		final Node pred;
+		final int depth;
+
+		Node(final TLCState state, final long fp, final Node pred) {
+			this.state = state;
+			this.fp = fp;
+			this.pred = pred;
+			this.depth = pred == null ? 0 : pred.depth + 1;
+		}
+
+		/**
+		 * @return The nodes from an initial state to this node
+		 */
+		Node[] getPath() {
+			final Node[] path = new Node[this.depth + 1];
+			for (Node n = this; n != null; n = n.pred) {
+				path[n.depth] = n;
+			}
+			return path;
+		}
+	}
+
+	private final Node[] nodes;
+	private final AtomicInteger next = new AtomicInteger(0);
+
+	/**
+	 * Creates the frontier of the initial states
+	 */
+	DFIDFrontier(final TLCState[] states, final long[] fps) {
+		this.nodes = new Node[states.length];
+		for (int i = 0; i < states.length; i++) {
+			this.nodes[i] = new Node(states[i], fps[i], null);
+		}
+	}
+
+	/**
+	 * Creates the frontier from the nodes the workers have collected
+	 */
+	DFIDFrontier(final List<List<Node>> collected) {
+		int size = 0;
+		for (int i = 0; i < collected.size(); i++) {
+			size += collected.get(i).size();
+		}
+		this.nodes = new Node[size];
+		int idx = 0;
+		for (int i = 0; i < collected.size(); i++) {
+			final List<Node> nodes = collected.get(i);
+			for (int j = 0; j < nodes.size(); j++) {
+				this.nodes[idx++] = nodes.get(j);
+			}
+		}
+	}
+
+	/**
+	 * @return The next node to be expanded or null if all nodes have been
+	 *         handed out
+	 */
+	Node next() {
+		final int idx = this.next.getAndIncrement();
+		if (idx < this.nodes.length) {
+			final Node node = this.nodes[idx];
+			// The frontier must not keep the node's state after its expansion
+			this.nodes[idx] = null;
+			return node;
+		}
+		return null;
+	}
+
+	int size() {
+		return this.nodes.length;
+	}
+}
@@ -3,6 +3,8 @@
 package tlc2.tool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import tla2sany.modanalyzer.SpecObj;
@@ -10,8 +12,10 @@ import tla2sany.semantic.ExprNode;
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.tool.fp.dfid.ConcurrentFPIntSet;
 import tlc2.tool.fp.dfid.FPIntSet;
 import tlc2.tool.fp.dfid.MemFPIntSet;
+import tlc2.tool.fp.dfid.OffHeapDiskFPIntSet;
 import tlc2.tool.liveness.LiveCheck;
 import tlc2.tool.liveness.LiveException;
 import tlc2.util.IdThread;
@@ -19,6 +23,7 @@ import tlc2.util.LongVec;
 import tlc2.util.ObjLongTable;
 import util.FileUtil;
 import util.FilenameToStream;
+import util.TLCRuntime;
 import util.UniqueString;
 
 /** 
@@ -32,11 +37,24 @@ import util.UniqueString;
 
 public class DFIDModelChecker extends AbstractChecker
 {
+    /**
+     * Iff true, an iteration does not restart the depth-first search from
+     * the initial states but resumes it from the states the previous
+     * iteration has found first (see {@link DFIDFrontier}). The states up to
+     * the previous depth are thus not generated again. The set of reachable
+     * states is a lock-free {@link ConcurrentFPIntSet} then, unless the
+     * disk-backed {@link OffHeapDiskFPIntSet} has been enabled.
+     * <p>
+     * Resuming requires the frontier, which is not checkpointed. A run
+     * recovered from a checkpoint hence restarts each iteration.
+     */
+    public static final boolean RESUME = Boolean.getBoolean(DFIDModelChecker.class.getName() + ".resume");
 
     public TLCState[] theInitStates; // the set of initial states
     public long[] theInitFPs; // ... and their fps
     public FPIntSet theFPSet; // the set of reachable states (SZ: note the type)
     protected DFIDWorker[] workers; // the workers
+    protected DFIDFrontier frontier; // the states to resume from, null if restarting
 
     /** 
      * Constructor for running DFID   
@@ -50,7 +68,16 @@ public class DFIDModelChecker extends AbstractChecker
 
         this.theInitStates = null;
         this.theInitFPs = null;
-        this.theFPSet = new MemFPIntSet(); // init the state set
+        // init the state set
+        if (OffHeapDiskFPIntSet.ENABLED)
+        {
+            // Leave half of the direct memory to other buffers
+            this.theFPSet = new OffHeapDiskFPIntSet(TLCRuntime.getInstance().getNonHeapPhysicalMemory() / 2L);
+        } else
+        {
+            this.theFPSet = RESUME ? new ConcurrentFPIntSet(TLCRuntime.getInstance().getFPMemSize(.25d))
+                    : new MemFPIntSet();
+        }
         this.theFPSet.init(TLCGlobals.getNumWorkers(), this.metadir, specFile);
 
         // Initialize all the workers:
@@ -121,6 +148,11 @@ public class DFIDModelChecker extends AbstractChecker
             return;
         }
 
+        if (RESUME && !recovered)
+        {
+            this.frontier = new DFIDFrontier(this.theInitStates, this.theInitFPs);
+        }
+
         boolean success = false;
         try
         {
@@ -171,6 +203,17 @@ public class DFIDModelChecker extends AbstractChecker
                 if (!success)
                     return;
 
+                if (this.frontier != null)
+                {
+                    // Resume from the states found first at this level:
+                    final List<List<DFIDFrontier.Node>> nodes = new ArrayList<List<DFIDFrontier.Node>>();
+                    for (int i = 0; i < this.workers.length; i++)
+                    {
+                        nodes.add(this.workers[i].getFrontier());
+                    }
+                    this.frontier = new DFIDFrontier(nodes);
+                }
+
                 // Check if we should stop at this level:
                 for (int i = 0; i < this.workers.length; i++)
                 {
@@ -270,7 +313,7 @@ public class DFIDModelChecker extends AbstractChecker
                         // Write out the state if asked
                         if (this.allStateWriter != null)
                         {
-                            this.allStateWriter.writeState(curState);
+                            this.allStateWriter.writeState(curState, fp);
                         }
 
                         // build behavior graph for liveness checking
@@ -351,6 +394,7 @@ public class DFIDModelChecker extends AbstractChecker
             liveNextStates = new StateVec(2);
             liveNextFPs = new LongVec(2);
         }
+        final Profiler.Counters counters = (this.profiler == null) ? null : this.profiler.getCounters();
 
         try
         {
@@ -399,11 +443,16 @@ public class DFIDModelChecker extends AbstractChecker
                         // Write out the state when new and asked:
                         if (status == FPIntSet.NEW && this.allStateWriter != null)
                         {
-                            this.allStateWriter.writeState(succState);
+                            this.allStateWriter.writeState(succState, fp);
+                        }
+                        if (status == FPIntSet.NEW && counters != null)
+                        {
+                            counters.addDistinct(i);
                         }
 
-                        // Remember succState if it has not been completed at this level:
-                        if (!FPIntSet.isCompleted(status))
+                        // Remember succState if it has not been completed at this level
+                        // or, when resuming, if it has been found first:
+                        if ((this.frontier != null) ? status == FPIntSet.NEW : !FPIntSet.isCompleted(status))
                         {
                             states.addElement(succState);
                             fps.addElement(fp);
@@ -633,7 +682,13 @@ public class DFIDModelChecker extends AbstractChecker
                 {
                     return false;
                 }
-                nextLiveCheck = (stateNum < 600000) ? stateNum * 2 : stateNum + 200000;
+                if (LiveCheck.INCREMENTAL)
+                {
+                    nextLiveCheck = stateNum + LiveCheck.getNextCheckDistance();
+                } else
+                {
+                    nextLiveCheck = (stateNum < 600000) ? stateNum * 2 : stateNum + 200000;
+                }
             }
 
             // Checkpoint:
@@ -692,6 +747,7 @@ public class DFIDModelChecker extends AbstractChecker
     public final void printSummary(boolean success) throws IOException
     {
         this.reportCoverage(this.workers);
+        this.reportProfile();
 
         /*
          * This allows the toolbox to easily display the last set
@@ -722,6 +778,10 @@ public class DFIDModelChecker extends AbstractChecker
      */
     protected IdThread[] startWorkers(AbstractChecker checker, int checkIndex)
     {
+        // Reset before the workers start, otherwise the notification of a
+        // worker that is done right away would be lost and this level would
+        // wait for the progress interval to pass.
+        this.done = false;
         for (int i = 0; i < this.workers.length; i++)
         {
             this.workers[i] = new DFIDWorker(i, checkIndex, checker);
@@ -735,7 +795,7 @@ public class DFIDModelChecker extends AbstractChecker
      */
     protected void runTLCPreLoop()
     {
-        this.done = false;
+        // nothing to do in this implementation, see startWorkers
     }
 
     /**
@@ -2,10 +2,12 @@
 
 package tlc2.tool;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
-import tlc2.output.StatePrinter;
 import tlc2.tool.fp.dfid.FPIntSet;
 import tlc2.util.IdThread;
 import tlc2.util.LongVec;
@@ -34,6 +36,10 @@ public class DFIDWorker extends IdThread implements IWorker {
   private int curLevel;
   private int stopCode;
   private boolean moreLevel;
+  // The frontier expanded and collected when resuming, see DFIDFrontier
+  private final DFIDFrontier frontier;
+  private final List<DFIDFrontier.Node> nextFrontier;
+  private DFIDFrontier.Node node;
 
   // SZ Feb 20, 2009: changes due to the introduced super type
   public DFIDWorker(int id, int toLevel, AbstractChecker tlc) {
@@ -60,6 +66,8 @@ public class DFIDWorker extends IdThread implements IWorker {
     this.curLevel = 0;
     this.stopCode = 0;
     this.moreLevel = false;
+    this.frontier = this.tlc.frontier;
+    this.nextFrontier = new ArrayList<DFIDFrontier.Node>();
   }
 
   public final ObjLongTable getCounts() { return this.astCounts; }
@@ -69,6 +77,11 @@ public class DFIDWorker extends IdThread implements IWorker {
   public final boolean isTerminated() { return this.stopCode == 2; }
 
   public final boolean hasMoreLevel() { return this.moreLevel; }
+
+  /**
+   * Returns the states this worker has found first when resuming.
+   */
+  public final List<DFIDFrontier.Node> getFrontier() { return this.nextFrontier; }
   
   /**
    * Choose a random initial state that has not been done. Return the
@@ -131,15 +144,39 @@ public class DFIDWorker extends IdThread implements IWorker {
   {
       MP.printError(errorCode, parameters);
       MP.printError(EC.TLC_BEHAVIOR_UP_TO_THIS_POINT);
+      final TracePrinter printer = new TracePrinter(this.tlc.tool);
       int idx = 0;
-      while (idx < this.curLevel) 
+      if (this.node != null)
+      {
+          // Reconstruct the states the frontier has only kept the
+          // fingerprints of:
+          final DFIDFrontier.Node[] path = this.node.getPath();
+          TLCState state = null;
+          for (; idx < path.length; idx++)
+          {
+              TLCState next = path[idx].state;
+              if (next == null)
+              {
+                  next = (state == null) ? this.tlc.tool.getState(path[idx].fp).state
+                          : this.tlc.tool.getState(path[idx].fp, state).state;
+              }
+              state = next;
+              printer.print(state, null, idx + 1);
+          }
+      } else
       {
-          StatePrinter.printState(this.stateStack[idx], ++idx);
+          // s1 is being expanded at curLevel, below its predecessors:
+          while (idx < this.curLevel) 
+          {
+              printer.print(this.stateStack[idx], null, ++idx);
+          }
+          printer.print(s1, null, ++idx);
       }
       if (s2 != null) 
       {
-          StatePrinter.printState(s2, idx+1);
+          printer.print(s2, null, idx+1);
       }
+      printer.flush(null);
   }
 
   /* This method does a depth-first search up to the depth of toLevel. */
@@ -147,6 +184,10 @@ public class DFIDWorker extends IdThread implements IWorker {
     TLCState curState = null;
 
     try {
+      if (this.frontier != null) {
+        this.runFrontier();
+        return;
+      }
       while (this.stopCode == 0) {
 	// Choose a random initial state and compute its successors:
 	int index = this.getInit();
@@ -165,6 +206,7 @@ public class DFIDWorker extends IdThread implements IWorker {
 	this.fpStack[0] = cfp;
 	this.succStateStack[0].reset();
 	this.succFPStack[0].reset();
+	this.curLevel = 0;
 	boolean isLeaf = this.toLevel < 2;
 	boolean noLeaf = this.tlc.doNext(curState, cfp, isLeaf,
 					 this.astCounts,
@@ -217,4 +259,50 @@ public class DFIDWorker extends IdThread implements IWorker {
     }
   }
 
+  /**
+   * This method expands the states of the frontier, which are all leaves at
+   * toLevel except for the initial states in the first iteration. The
+   * states found first from a leaf make up the next frontier.
+   */
+  private final void runFrontier() throws Throwable {
+    final List<DFIDFrontier.Node> pending = new ArrayList<DFIDFrontier.Node>();
+    final StateVec succStates = this.succStateStack[0];
+    final LongVec succFPs = this.succFPStack[0];
+    while (this.stopCode == 0) {
+      if (pending.isEmpty()) {
+	final DFIDFrontier.Node next = this.frontier.next();
+	if (next == null) {
+	  break;
+	}
+	pending.add(next);
+      }
+      this.node = pending.remove(pending.size() - 1);
+      succStates.reset();
+      succFPs.reset();
+      // Every state is expanded exactly once, so it is always a leaf for
+      // liveness checking.
+      this.tlc.doNext(this.node.state, this.node.fp, true, this.astCounts, succStates, succFPs);
+      for (int i = 0; i < succStates.size(); i++) {
+	final DFIDFrontier.Node succ = new DFIDFrontier.Node(succStates.elementAt(i), succFPs.elementAt(i),
+	    this.node);
+	if (succ.depth < this.toLevel - 1) {
+	  pending.add(succ);
+	} else {
+	  this.nextFrontier.add(succ);
+	  this.moreLevel = true;
+	}
+      }
+      if (this.stopCode == 0) {
+	this.node.state = null;
+	this.node = null;
+      }
+    }
+    // Unlike run, other workers may still expand states they have taken
+    // from the frontier. The model checker waits for them.
+    synchronized(this.tlc) {
+      this.tlc.setDone();
+      this.tlc.notifyAll();
+    }
+  }
+
 }
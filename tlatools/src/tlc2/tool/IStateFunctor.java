@@ -0,0 +1,16 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+/**
+ * An <code>IStateFunctor</code> is handed the states generated by
+ * {@link Tool#getInitStates(IStateFunctor)} one at a time as they are
+ * generated. Unlike a {@link StateVec}, it does not have to keep them.
+ */
+public interface IStateFunctor {
+
+	/**
+	 * @param state
+	 *            A copy of the generated state, which the functor may keep
+	 */
+	Object addElement(TLCState state);
+}
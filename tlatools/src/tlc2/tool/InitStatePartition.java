@@ -0,0 +1,51 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+/**
+ * An <code>InitStatePartition</code> restricts
+ * {@link Tool#getInitStates(IStateFunctor)} to one of several disjoint
+ * partitions of the initial states, so that the partitions can be generated
+ * concurrently.
+ * <p>
+ * The elements of the outermost domain <code>S</code> of a conjunct
+ * <code>x \in S</code> are dealt out to the partitions round-robin. A state
+ * generated without enumerating such a domain belongs to the first
+ * partition. Thus, each initial state is generated by exactly one partition.
+ */
+final class InitStatePartition implements IStateFunctor {
+
+	private final IStateFunctor functor;
+	private final int part;
+	private final int parts;
+
+	/**
+	 * True while the elements of a domain below the outermost one are
+	 * enumerated
+	 */
+	boolean partitioned = false;
+
+	/**
+	 * @param part
+	 *            The partition in 0..parts-1
+	 */
+	InitStatePartition(final IStateFunctor functor, final int part, final int parts) {
+		this.functor = functor;
+		this.part = part;
+		this.parts = parts;
+	}
+
+	/**
+	 * @return true iff the i-th element of the outermost domain belongs to
+	 *         this partition
+	 */
+	final boolean owns(final int i) {
+		return i % this.parts == this.part;
+	}
+
+	public Object addElement(final TLCState state) {
+		if (this.partitioned || this.part == 0) {
+			return this.functor.addElement(state);
+		}
+		return null;
+	}
+}
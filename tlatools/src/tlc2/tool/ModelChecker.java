@@ -6,6 +6,14 @@
 package tlc2.tool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
 import tla2sany.modanalyzer.SpecObj;
@@ -18,10 +26,13 @@ import tlc2.tool.fp.FPSetConfiguration;
 import tlc2.tool.fp.FPSetFactory;
 import tlc2.tool.liveness.LiveCheck;
 import tlc2.tool.queue.DiskStateQueue;
+import tlc2.tool.queue.StripedDiskStateQueue;
 import tlc2.tool.queue.IStateQueue;
+import tlc2.util.Cache;
 import tlc2.util.IdThread;
 import tlc2.util.LongVec;
 import tlc2.util.ObjLongTable;
+import tlc2.util.SetAssociativeCache;
 import tlc2.value.Value;
 import util.DebugPrinter;
 import util.FileUtil;
@@ -42,6 +53,40 @@ public class ModelChecker extends AbstractChecker
     public IStateQueue theStateQueue; // the state queue
     public TLCTrace trace; // the trace file
     protected Worker[] workers; // the workers
+    /**
+     * An optional cache of the fingerprints in theFPSet, sized in megabytes by
+     * -Dtlc2.tool.ModelChecker.fpCache. Saves the lookups in a disk-backed
+     * FPSet of successors seen recently.
+     */
+    private final Cache fpCache;
+    /**
+     * Generates the successors of a single state concurrently while there are
+     * fewer states in the queue than workers (see doNext). Enabled with
+     * -Dtlc2.tool.ModelChecker.splitSuccessors and more than one worker.
+     * TLCGet and TLCSet evaluated by its threads behave as outside of a
+     * worker. Since the worker that splits the successors generates a
+     * partition itself, the executor has one thread less than workers.
+     */
+    private final ExecutorService successorExecutor;
+    /**
+     * The actions whose successors are split (see Tool#isSplittable), or
+     * null if no successors are split
+     */
+    private final boolean[] splitActions;
+    /**
+     * The number of partitions the successors of each split action are
+     * divided into
+     */
+    private final int successorParts;
+    /**
+     * Generates the initial states in a partition per worker (see
+     * InitStatePartition). Enabled with -Dtlc2.tool.ModelChecker.splitInit
+     * and more than one worker. The order of the initial states in the queue
+     * and thus in traces is then nondeterministic. Each worker evaluates the
+     * conjuncts of Init up to the outermost domain, and enumerates the whole
+     * domain, in full.
+     */
+    private static final boolean SPLIT_INIT = Boolean.getBoolean(ModelChecker.class.getName() + ".splitInit");
     // used to calculate the spm metric
     public long distinctStatesPerMinute, statesPerMinute = 0L;
     protected long oldNumOfGenStates, oldFPSetSize = 0L;
@@ -61,7 +106,11 @@ public class ModelChecker extends AbstractChecker
         super(specFile, configFile, dumpFile, deadlock, fromChkpt, true, resolver, specObj);
 
         // SZ Feb 20, 2009: this is a selected alternative
-        this.theStateQueue = new DiskStateQueue(this.metadir);
+        if (StripedDiskStateQueue.ENABLED) {
+            this.theStateQueue = new StripedDiskStateQueue(this.metadir, TLCGlobals.getNumWorkers());
+        } else {
+            this.theStateQueue = new DiskStateQueue(this.metadir);
+        }
         // this.theStateQueue = new MemStateQueue(this.metadir);
 
         //TODO why used to div by 20?
@@ -70,8 +119,46 @@ public class ModelChecker extends AbstractChecker
         // initialize the set
         this.theFPSet.init(TLCGlobals.getNumWorkers(), this.metadir, specFile);
 
+        final int fpCacheSize = Integer.getInteger(ModelChecker.class.getName() + ".fpCache", 0);
+        this.fpCache = fpCacheSize > 0 ? new SetAssociativeCache(fpCacheSize) : null;
+
+        int splittable = 0;
+        boolean[] splitActions = null;
+        if (Boolean.getBoolean(ModelChecker.class.getName() + ".splitSuccessors") && TLCGlobals.getNumWorkers() > 1)
+        {
+            splitActions = new boolean[this.actions.length];
+            for (int i = 0; i < this.actions.length; i++)
+            {
+                splitActions[i] = this.tool.isSplittable(this.actions[i]);
+                if (splitActions[i])
+                {
+                    splittable++;
+                }
+            }
+        }
+        if (splittable > 0)
+        {
+            this.splitActions = splitActions;
+            this.successorParts = Math.max(2, (TLCGlobals.getNumWorkers() + splittable - 1) / splittable);
+            this.successorExecutor = Executors.newFixedThreadPool(TLCGlobals.getNumWorkers() - 1, new ThreadFactory() {
+                public Thread newThread(Runnable r)
+                {
+                    final Thread t = new Thread(r, "TLC Successor Generator");
+                    // Must not keep the JVM from exiting
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        } else
+        {
+            this.splitActions = null;
+            this.successorParts = 1;
+            this.successorExecutor = null;
+        }
+
         // Finally, initialize the trace file:
         this.trace = new TLCTrace(this.metadir, specFile, this.tool);
+        this.trace.setTraceExpressions(this.tool.getTraceExpressionEvaluator());
 
         // Initialize all the workers:
         this.workers = new Worker[TLCGlobals.getNumWorkers()];
@@ -175,6 +262,11 @@ public class ModelChecker extends AbstractChecker
                 MP.printMessage(EC.TLC_INIT_GENERATED1, new String[] { String.valueOf(this.numOfGenStates),
                         String.valueOf(this.theFPSet.size()) });
             }
+
+            if (this.checkLiveness)
+            {
+                LiveCheck.startOnTheFly(this);
+            }
         }
 
         report("init processed");
@@ -285,82 +377,207 @@ public class ModelChecker extends AbstractChecker
             return false;
         }
 
-        TLCState curState = null;
-
+        // Generate the initial states and check them as they are generated.
+        // The error replay has to generate them in the same thread.
+        final DoInitFunctor functor = new DoInitFunctor();
+        final int numWorkers = ignoreCancel || !SPLIT_INIT ? 1 : TLCGlobals.getNumWorkers();
         try
         {
-            // Generate the initial states:
-            StateVec theInitStates = this.tool.getInitStates();
-            this.numOfGenStates.set(theInitStates.size());
-            for (int i = 0; i < theInitStates.size(); i++)
+            if (numWorkers == 1)
             {
-                curState = theInitStates.elementAt(i);
-                // Check if the state is a legal state
-                if (!this.tool.isGoodState(curState))
+                try
                 {
-                    MP.printError(EC.TLC_INITIAL_STATE, curState.toString());
-                    return false;
+                    this.tool.getInitStates(functor);
+                } catch (InitAbortedException e)
+                {
+                    // The functor has recorded why
                 }
-                boolean inModel = this.tool.isInModel(curState);
-                boolean seen = false;
-                if (inModel)
+            } else
+            {
+                // Each worker generates a partition of the initial states:
+                final Thread[] threads = new Thread[numWorkers];
+                for (int i = 0; i < numWorkers; i++)
                 {
-                    long fp = curState.fingerPrint();
-                    seen = this.theFPSet.put(fp);
-                    if (!seen)
-                    {
-                        if (this.allStateWriter != null)
+                    final InitStatePartition partition = new InitStatePartition(functor, i, numWorkers);
+                    threads[i] = new Thread("TLC Init Worker " + i) {
+                        public void run()
                         {
-                            this.allStateWriter.writeState(curState);
+                            try
+                            {
+                                tool.getInitStates(partition);
+                            } catch (InitAbortedException e)
+                            {
+                                // Another worker has failed
+                            } catch (Throwable e)
+                            {
+                                functor.abort(e);
+                            }
                         }
-                        curState.uid = this.trace.writeState(fp);
-                        this.theStateQueue.enqueue(curState);
+                    };
+                    threads[i].start();
+                }
+                for (int i = 0; i < numWorkers; i++)
+                {
+                    threads[i].join();
+                }
+            }
+            if (functor.exception != null)
+            {
+                throw functor.exception;
+            }
+        } catch (Throwable e)
+        {
+            // Assert.printStack(e);
+            if (e instanceof OutOfMemoryError)
+            {
+                MP.printError(EC.SYSTEM_OUT_OF_MEMORY_TOO_MANY_INIT);
+                return false;
+            }
+            throw e;
+        }
+        return !functor.aborted;
+    }
 
-                        // build behavior graph for liveness checking
-                        if (this.checkLiveness)
-                        {
-                            LiveCheck.addInitState(curState, fp);
-                        }
+    /**
+     * Checks an initial state, enqueues it if it is new, and checks its
+     * properties.
+     * @return false iff the state violates a property and the checking should stop
+     */
+    private final boolean doInit(final TLCState curState, final DoInitFunctor functor) throws Throwable
+    {
+        // Check if the state is a legal state
+        if (!this.tool.isGoodState(curState))
+        {
+            if (functor.abort(null))
+            {
+                MP.printError(EC.TLC_INITIAL_STATE, curState.toString());
+            }
+            return false;
+        }
+        boolean inModel = this.tool.isInModel(curState);
+        boolean seen = false;
+        if (inModel)
+        {
+            long fp = curState.fingerPrint();
+            seen = this.theFPSet.put(fp);
+            if (!seen)
+            {
+                if (this.allStateWriter != null)
+                {
+                    this.allStateWriter.writeState(curState, fp);
+                }
+                curState.uid = this.trace.writeState(fp);
+                // Other workers may enqueue initial states concurrently
+                this.theStateQueue.sEnqueue(curState);
+
+                // build behavior graph for liveness checking
+                if (this.checkLiveness)
+                {
+                    synchronized (LiveCheck.class)
+                    {
+                        LiveCheck.addInitState(curState, fp);
                     }
                 }
-                // Check properties of the state:
-                if (!seen)
+            }
+        }
+        // Check properties of the state:
+        if (!seen)
+        {
+            for (int j = 0; j < this.invariants.length; j++)
+            {
+                if (!this.tool.isValid(this.invariants[j], curState))
                 {
-                    for (int j = 0; j < this.invariants.length; j++)
+                    // We get here because of invariant violation:
+                    if (TLCGlobals.continuation)
+                    {
+                        MP.printError(EC.TLC_INVARIANT_VIOLATED_INITIAL, new String[] {
+                                this.tool.getInvNames()[j].toString(), curState.toString() });
+                    } else
                     {
-                        if (!this.tool.isValid(this.invariants[j], curState))
+                        if (functor.abort(null))
                         {
-                            // We get here because of invariant violation:
                             MP.printError(EC.TLC_INVARIANT_VIOLATED_INITIAL, new String[] {
                                     this.tool.getInvNames()[j].toString(), curState.toString() });
-                            if (!TLCGlobals.continuation)
-                                return false;
                         }
+                        return false;
                     }
-                    for (int j = 0; j < this.impliedInits.length; j++)
+                }
+            }
+            for (int j = 0; j < this.impliedInits.length; j++)
+            {
+                if (!this.tool.isValid(this.impliedInits[j], curState))
+                {
+                    // We get here because of implied-inits violation:
+                    if (functor.abort(null))
                     {
-                        if (!this.tool.isValid(this.impliedInits[j], curState))
-                        {
-                            // We get here because of implied-inits violation:
-                            MP.printError(EC.TLC_PROPERTY_VIOLATED_INITIAL, new String[] {
-                                    this.tool.getImpliedInitNames()[j], curState.toString() });
-                            return false;
-                        }
+                        MP.printError(EC.TLC_PROPERTY_VIOLATED_INITIAL, new String[] {
+                                this.tool.getImpliedInitNames()[j], curState.toString() });
                     }
+                    return false;
                 }
             }
-        } catch (Throwable e)
+        }
+        return true;
+    }
+
+    /**
+     * Hands the initial states to {@link #doInit(TLCState, DoInitFunctor)} as
+     * they are generated, possibly by several threads at once. The first
+     * thread to fail aborts the generation in all threads.
+     */
+    private final class DoInitFunctor implements IStateFunctor
+    {
+        private volatile boolean aborted = false;
+        private Throwable exception = null;
+
+        public Object addElement(final TLCState curState)
         {
-            // Assert.printStack(e);
-            if (e instanceof OutOfMemoryError)
+            if (this.aborted)
+            {
+                throw new InitAbortedException();
+            }
+            numOfGenStates.incrementAndGet();
+            try
+            {
+                if (doInit(curState, this))
+                {
+                    return null;
+                }
+            } catch (InitAbortedException e)
+            {
+                throw e;
+            } catch (Throwable e)
+            {
+                if (this.abort(e))
+                {
+                    errState = curState;
+                }
+            }
+            throw new InitAbortedException();
+        }
+
+        /**
+         * @param e The exception to rethrow from doInit or null
+         * @return true iff this is the first abort, which is the one to report
+         */
+        private final synchronized boolean abort(final Throwable e)
+        {
+            if (this.aborted)
             {
-                MP.printError(EC.SYSTEM_OUT_OF_MEMORY_TOO_MANY_INIT);
                 return false;
             }
-            this.errState = curState;
-            throw e;
+            this.aborted = true;
+            this.exception = e;
+            return true;
         }
-        return true;
+    }
+
+    /**
+     * Unwinds the generation of the initial states once it has been aborted.
+     */
+    private static final class InitAbortedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
     }
 
     /**
@@ -389,9 +606,12 @@ public class ModelChecker extends AbstractChecker
             liveNextStates = new StateVec(2);
             liveNextFPs = new LongVec(2);
         }
+        final Profiler.Counters counters = (this.profiler == null) ? null : this.profiler.getCounters();
 
         try
         {
+            final List<Future<StateVec>> successors = this.forkNextStates(curState);
+            int forked = 0;
             int k = 0;
             // <--
             // <--
@@ -403,7 +623,16 @@ public class ModelChecker extends AbstractChecker
                     return false;
                 }
 
-                StateVec nextStates = this.tool.getNextStates(this.actions[i], curState);
+                StateVec nextStates;
+                if (successors == null || !this.splitActions[i])
+                {
+                    nextStates = this.tool.getNextStates(this.actions[i], curState);
+                } else
+                {
+                    nextStates = this.joinNextStates(this.actions[i], curState, successors.subList(forked, forked
+                            + this.successorParts - 1));
+                    forked += this.successorParts - 1;
+                }
                 int sz = nextStates.size();
                 this.incNumOfGenStates(sz);
                 deadLocked = deadLocked && (sz == 0);
@@ -437,18 +666,23 @@ public class ModelChecker extends AbstractChecker
                     if (inModel)
                     {
                         long fp = succState.fingerPrint();
-                        seen = this.theFPSet.put(fp);
+                        // A cache hit implies that fp has been put before
+                        seen = (this.fpCache != null && this.fpCache.hit(fp)) || this.theFPSet.put(fp);
                         if (!seen)
                         {
                             // Write out succState when needed:
                             if (this.allStateWriter != null)
                             {
-                                this.allStateWriter.writeState(succState);
+                                this.allStateWriter.writeState(succState, fp);
                             }
                             // Enqueue succState only if it satisfies the model constraints:
-                            long loc = this.trace.writeState(curState, fp);
+                            long loc = this.trace.writeState(curState, fp, i);
                             succState.uid = loc;
                             this.theStateQueue.sEnqueue(succState);
+                            if (counters != null)
+                            {
+                                counters.addDistinct(i);
+                            }
                         }
                         // For liveness checking:
                         if (this.checkLiveness)
@@ -623,6 +857,91 @@ public class ModelChecker extends AbstractChecker
         }
     }
 
+    /**
+     * Starts to generate the successors of curState concurrently if there are
+     * fewer states in the queue than workers, which would otherwise be idle.
+     * The successors by each split action are divided into successorParts
+     * partitions by the bindings of its outermost existential quantifier. All
+     * partitions but the first are generated by tasks of their own.
+     * 
+     * @return The tasks generating the partitions 1..successorParts-1 of each
+     *         split action in the order of the actions, or null if the
+     *         calling worker generates the successors on its own
+     */
+    private final List<Future<StateVec>> forkNextStates(final TLCState curState)
+    {
+        // The error replay records its call stack in the calling worker.
+        if (this.successorExecutor == null || this.tool.getCallStack() != null
+                || this.theStateQueue.size() >= this.workers.length)
+        {
+            return null;
+        }
+        final int parts = this.successorParts;
+        final List<Future<StateVec>> successors = new ArrayList<Future<StateVec>>();
+        for (int i = 0; i < this.actions.length; i++)
+        {
+            if (!this.splitActions[i])
+            {
+                continue;
+            }
+            final Action action = this.actions[i];
+            for (int j = 1; j < parts; j++)
+            {
+                final int part = j;
+                successors.add(this.successorExecutor.submit(new Callable<StateVec>() {
+                    public StateVec call()
+                    {
+                        return tool.getNextStates(action, curState, part, parts);
+                    }
+                }));
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * Generates the first partition of the successors of curState by the
+     * given action and joins the partitions generated by the given tasks.
+     * 
+     * @return The successors of curState by the action
+     * @throws Throwable
+     *             The exception the generation of the successors failed with
+     */
+    private final StateVec joinNextStates(final Action action, final TLCState curState,
+            final List<Future<StateVec>> partitions) throws Throwable
+    {
+        final StateVec nextStates = this.tool.getNextStates(action, curState, 0, this.successorParts);
+        try
+        {
+            for (int j = 0; j < partitions.size(); j++)
+            {
+                final StateVec partition = partitions.get(j).get();
+                for (int i = 0; i < partition.size(); i++)
+                {
+                    nextStates.addElement(partition.elementAt(i));
+                }
+            }
+            return nextStates;
+        } catch (ExecutionException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see tlc2.tool.AbstractChecker#setLiveErrState(tlc2.tool.TLCState)
+     */
+    public boolean setLiveErrState(TLCState state)
+    {
+        if (!super.setLiveErrState(state))
+        {
+            return false;
+        }
+        this.theStateQueue.finishAll();
+        this.notify();
+        return true;
+    }
+
     /**
      * Things need to be done here:
      * Check liveness: check liveness properties on the partial state graph.
@@ -641,7 +960,13 @@ public class ModelChecker extends AbstractChecker
                 MP.printMessage(EC.TLC_CHECKING_TEMPORAL_PROPS, "current");
                 if (!LiveCheck.check())
                     return false;
-                nextLiveCheck = (stateNum <= 640000) ? stateNum * 2 : stateNum + 640000;
+                if (LiveCheck.INCREMENTAL)
+                {
+                    nextLiveCheck = stateNum + LiveCheck.getNextCheckDistance();
+                } else
+                {
+                    nextLiveCheck = (stateNum <= 640000) ? stateNum * 2 : stateNum + 640000;
+                }
             }
 
             // Checkpoint:
@@ -695,6 +1020,8 @@ public class ModelChecker extends AbstractChecker
 
     private final void cleanup(boolean success) throws IOException
     {
+        if (this.successorExecutor != null)
+            this.successorExecutor.shutdownNow();
         this.theFPSet.close();
         this.trace.close();
         if (this.checkLiveness)
@@ -707,6 +1034,7 @@ public class ModelChecker extends AbstractChecker
     public final void printSummary(boolean success, final long startTime) throws IOException
     {
         super.reportCoverage(this.workers);
+        super.reportProfile();
         
         /*
          * This allows the toolbox to easily display the last set
@@ -720,6 +1048,10 @@ public class ModelChecker extends AbstractChecker
 
         MP.printMessage(EC.TLC_STATS, new String[] { String.valueOf(this.numOfGenStates),
                 String.valueOf(this.theFPSet.size()), String.valueOf(this.theStateQueue.size()) });
+        if (this.fpCache != null)
+        {
+            MP.printMessage(EC.GENERAL, "Fingerprint cache hit ratio: " + this.fpCache.getHitRatioAsString());
+        }
         if (success)
         {
             MP.printMessage(EC.TLC_SEARCH_DEPTH, String.valueOf(this.trace.getLevelForReporting()));
@@ -0,0 +1,51 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+/**
+ * A <code>NextStatePartition</code> collects one of several disjoint
+ * partitions of the successors of a state by an action, so that the
+ * partitions can be generated concurrently (see
+ * {@link Tool#getNextStates(Action, TLCState, int, int)}).
+ * <p>
+ * The bindings of the outermost existential quantifier
+ * <code>\E x \in S : A</code> are dealt out to the partitions round-robin.
+ * A successor generated without enumerating such bindings belongs to the
+ * first partition. This is the analog of {@link InitStatePartition} for the
+ * next-state relation.
+ */
+final class NextStatePartition extends StateVec {
+
+	private final int part;
+	private final int parts;
+
+	/**
+	 * True while the bindings of an existential quantifier below the
+	 * outermost one are enumerated
+	 */
+	boolean partitioned = false;
+
+	/**
+	 * @param part
+	 *            The partition in 0..parts-1
+	 */
+	NextStatePartition(final int part, final int parts) {
+		super(0);
+		this.part = part;
+		this.parts = parts;
+	}
+
+	/**
+	 * @return true iff the i-th binding of the outermost existential
+	 *         quantifier belongs to this partition
+	 */
+	final boolean owns(final int i) {
+		return i % this.parts == this.part;
+	}
+
+	/**
+	 * @return true iff a successor generated now belongs to this partition
+	 */
+	final boolean keeps() {
+		return this.partitioned || this.part == 0;
+	}
+}
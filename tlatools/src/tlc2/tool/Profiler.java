@@ -0,0 +1,337 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tla2sany.semantic.SymbolNode;
+import tlc2.output.EC;
+import tlc2.output.MP;
+
+/**
+ * A low-overhead profiler of model checking, which is an alternative to the
+ * coverage reported with <code>-coverage</code>. Contrary to coverage, it
+ * neither changes the representation of states nor does it allocate during
+ * checking. It counts, per action, the successor states generated and the
+ * distinct successor states found as well as, per operator, its evaluations.
+ * The time spent in actions and operators is sampled: Only every
+ * {@link #SAMPLE_RATE}th call of a thread is timed. The time of a call
+ * includes the time of the operators it calls. Since a timed call may include
+ * a pause of the virtual machine, e.g. for garbage collection, estimated times
+ * are only meaningful for runs much longer than such pauses.
+ * <p>
+ * Each thread counts into counters of its own, which are summed up only when
+ * the profile is reported. Enable the profiler with
+ * <code>-Dtlc2.tool.Profiler.enabled=true</code>.
+ */
+public final class Profiler {
+
+	public static final boolean ENABLED = Boolean.getBoolean(Profiler.class.getName() + ".enabled");
+	/**
+	 * The ratio of calls to timed calls. Rounded down to a power of two.
+	 */
+	public static final int SAMPLE_RATE = Integer.getInteger(Profiler.class.getName() + ".sampleRate", 64);
+	/**
+	 * The number of operators reported by {@link #report()}. The JSON file
+	 * lists all operators.
+	 */
+	private static final int TOP = Integer.getInteger(Profiler.class.getName() + ".top", 20);
+
+	/**
+	 * The counters of one thread.
+	 */
+	final static class Counters {
+		private final int mask;
+		private int tick;
+
+		private final long[] calls;
+		private final long[] generated;
+		private final long[] distinct;
+		private final long[] actionSamples;
+		private final long[] actionNanos;
+
+		/**
+		 * Operator counters are indexed by the unique id of the operator's
+		 * {@link SymbolNode}.
+		 */
+		private SymbolNode[] ops = new SymbolNode[1024];
+		private long[] opEvals = new long[1024];
+		private long[] opSamples = new long[1024];
+		private long[] opNanos = new long[1024];
+
+		private Counters(final int actionCnt, final int mask) {
+			this.mask = mask;
+			this.calls = new long[actionCnt];
+			this.generated = new long[actionCnt];
+			this.distinct = new long[actionCnt];
+			this.actionSamples = new long[actionCnt];
+			this.actionNanos = new long[actionCnt];
+		}
+
+		/**
+		 * @return true iff the next call is to be timed
+		 */
+		final boolean sample() {
+			return (++this.tick & this.mask) == 0;
+		}
+
+		final void addSuccessors(final int action, final int n) {
+			this.calls[action]++;
+			this.generated[action] += n;
+		}
+
+		final void addSuccessors(final int action, final int n, final long nanos) {
+			this.addSuccessors(action, n);
+			this.actionSamples[action]++;
+			this.actionNanos[action] += nanos;
+		}
+
+		final void addDistinct(final int action) {
+			this.distinct[action]++;
+		}
+
+		final void addEvaluation(final SymbolNode op) {
+			final int uid = op.getUid();
+			if (uid >= this.ops.length || this.ops[uid] == null) {
+				this.register(op);
+			}
+			this.opEvals[uid]++;
+		}
+
+		final void addEvaluation(final SymbolNode op, final long nanos) {
+			this.addEvaluation(op);
+			final int uid = op.getUid();
+			this.opSamples[uid]++;
+			this.opNanos[uid] += nanos;
+		}
+
+		private void register(final SymbolNode op) {
+			final int uid = op.getUid();
+			if (uid >= this.ops.length) {
+				final int len = Math.max(uid + 1, 2 * this.ops.length);
+				final SymbolNode[] tmp = new SymbolNode[len];
+				System.arraycopy(this.ops, 0, tmp, 0, this.ops.length);
+				this.ops = tmp;
+				this.opEvals = grow(this.opEvals, len);
+				this.opSamples = grow(this.opSamples, len);
+				this.opNanos = grow(this.opNanos, len);
+			}
+			this.ops[uid] = op;
+		}
+
+		private static long[] grow(final long[] arr, final int len) {
+			final long[] tmp = new long[len];
+			System.arraycopy(arr, 0, tmp, 0, arr.length);
+			return tmp;
+		}
+	}
+
+	/**
+	 * The summed up counters of an action or operator.
+	 */
+	private static final class Entry {
+		private final String name;
+		private final String location;
+		private long calls;
+		/**
+		 * The number of generated states of an action
+		 */
+		private long count;
+		private long distinct;
+		private long samples;
+		private long nanos;
+
+		private Entry(final String name, final String location) {
+			this.name = name;
+			this.location = location;
+		}
+
+		/**
+		 * @return The estimated time of all calls in nanoseconds
+		 */
+		private long getNanos() {
+			return this.samples == 0 ? 0L : (long) ((double) this.nanos / this.samples * this.calls);
+		}
+	}
+
+	private final Action[] actions;
+	private final Map<Action, Integer> index = new IdentityHashMap<Action, Integer>();
+	private final int mask;
+	private final File file;
+	private final List<Counters> counters = new ArrayList<Counters>();
+
+	private final ThreadLocal<Counters> local = new ThreadLocal<Counters>() {
+		protected Counters initialValue() {
+			final Counters c = new Counters(actions.length, mask);
+			synchronized (Profiler.this.counters) {
+				Profiler.this.counters.add(c);
+			}
+			return c;
+		}
+	};
+
+	/**
+	 * @param actions
+	 *            The actions whose successors are counted
+	 * @param file
+	 *            The file the profile is written to in JSON format
+	 */
+	public Profiler(final Action[] actions, final File file) {
+		this.actions = actions;
+		for (int i = 0; i < actions.length; i++) {
+			this.index.put(actions[i], Integer.valueOf(i));
+		}
+		this.mask = Integer.highestOneBit(Math.max(1, SAMPLE_RATE)) - 1;
+		this.file = file;
+	}
+
+	/**
+	 * @return The counters of the calling thread
+	 */
+	final Counters getCounters() {
+		return this.local.get();
+	}
+
+	/**
+	 * @return The index of the given action or -1 if it is not profiled
+	 */
+	final int indexOf(final Action action) {
+		final Integer idx = this.index.get(action);
+		return idx == null ? -1 : idx.intValue();
+	}
+
+	/**
+	 * Prints the profile and writes it to the JSON file. Must not be called
+	 * while states are being generated.
+	 */
+	public final void report() {
+		final Entry[] acts = new Entry[this.actions.length];
+		for (int i = 0; i < acts.length; i++) {
+			acts[i] = new Entry(null, this.actions[i].pred.getLocation().toString());
+		}
+		final Map<SymbolNode, Entry> ops = new IdentityHashMap<SymbolNode, Entry>();
+		synchronized (this.counters) {
+			for (int i = 0; i < this.counters.size(); i++) {
+				final Counters c = this.counters.get(i);
+				for (int j = 0; j < acts.length; j++) {
+					acts[j].calls += c.calls[j];
+					acts[j].count += c.generated[j];
+					acts[j].distinct += c.distinct[j];
+					acts[j].samples += c.actionSamples[j];
+					acts[j].nanos += c.actionNanos[j];
+				}
+				for (int uid = 0; uid < c.ops.length; uid++) {
+					final SymbolNode op = c.ops[uid];
+					if (op != null) {
+						Entry e = ops.get(op);
+						if (e == null) {
+							e = new Entry(op.getName().toString(), op.getLocation().toString());
+							ops.put(op, e);
+						}
+						e.calls += c.opEvals[uid];
+						e.samples += c.opSamples[uid];
+						e.nanos += c.opNanos[uid];
+					}
+				}
+			}
+		}
+
+		final DecimalFormat df = new DecimalFormat("###,###.###");
+		final StringBuffer buf = new StringBuffer("Profile of " + acts.length + " action(s):");
+		for (int i = 0; i < acts.length; i++) {
+			final Entry e = acts[i];
+			buf.append("\n  ").append(e.location).append(": ").append(e.count).append(" generated, ")
+					.append(e.distinct).append(" distinct (").append(df.format(ratio(e.distinct, e.count)))
+					.append("), ").append(e.calls).append(" calls, ").append(df.format(e.getNanos() / 1e6))
+					.append(" ms");
+		}
+		final Entry[] sorted = ops.values().toArray(new Entry[ops.size()]);
+		Arrays.sort(sorted, new Comparator<Entry>() {
+			public int compare(final Entry e1, final Entry e2) {
+				final long t1 = e1.getNanos();
+				final long t2 = e2.getNanos();
+				return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+			}
+		});
+		final int top = Math.min(TOP, sorted.length);
+		buf.append("\nTop ").append(top).append(" of ").append(sorted.length).append(" operator(s) by estimated time:");
+		for (int i = 0; i < top; i++) {
+			final Entry e = sorted[i];
+			buf.append("\n  ").append(e.name).append(" (").append(e.location).append("): ").append(e.calls)
+					.append(" evaluations, ").append(df.format(e.getNanos() / 1e6)).append(" ms");
+		}
+		MP.printMessage(EC.GENERAL, buf.toString());
+
+		try {
+			this.write(acts, sorted);
+			MP.printMessage(EC.GENERAL, "Profile written to " + this.file.getAbsolutePath());
+		} catch (IOException e) {
+			MP.printError(EC.GENERAL, "writing the profile to " + this.file.getAbsolutePath(), e);
+		}
+	}
+
+	private void write(final Entry[] acts, final Entry[] ops) throws IOException {
+		final StringBuffer json = new StringBuffer();
+		json.append("{\n  \"sampleRate\": ").append(this.mask + 1);
+		json.append(",\n  \"actions\": [");
+		for (int i = 0; i < acts.length; i++) {
+			final Entry e = acts[i];
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"location\": ").append(quote(e.location));
+			json.append(", \"generated\": ").append(e.count);
+			json.append(", \"distinct\": ").append(e.distinct);
+			json.append(", \"distinctRatio\": ").append(ratio(e.distinct, e.count));
+			json.append(", \"calls\": ").append(e.calls);
+			json.append(", \"sampledCalls\": ").append(e.samples);
+			json.append(", \"sampledNanos\": ").append(e.nanos);
+			json.append(", \"estimatedNanos\": ").append(e.getNanos()).append("}");
+		}
+		json.append("\n  ],\n  \"operators\": [");
+		for (int i = 0; i < ops.length; i++) {
+			final Entry e = ops[i];
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"name\": ").append(quote(e.name));
+			json.append(", \"location\": ").append(quote(e.location));
+			json.append(", \"evaluations\": ").append(e.calls);
+			json.append(", \"sampledEvaluations\": ").append(e.samples);
+			json.append(", \"sampledNanos\": ").append(e.nanos);
+			json.append(", \"estimatedNanos\": ").append(e.getNanos()).append("}");
+		}
+		json.append("\n  ]\n}\n");
+
+		final Writer out = new FileWriter(this.file);
+		try {
+			out.write(json.toString());
+		} finally {
+			out.close();
+		}
+	}
+
+	private static double ratio(final long n, final long d) {
+		return d == 0L ? 0d : n / (double) d;
+	}
+
+	static String quote(final String s) {
+		final StringBuffer buf = new StringBuffer("\"");
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			} else if (c < 0x20) {
+				buf.append(String.format("\\u%04x", (int) c));
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+}
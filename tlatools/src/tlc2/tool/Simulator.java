@@ -282,13 +282,15 @@ public class Simulator implements Cancelable
           StatePrinter.printState(state);
       } else {
           MP.printError(EC.TLC_BEHAVIOR_UP_TO_THIS_POINT);
+          final TracePrinter printer = new TracePrinter(this.tool);
           TLCState lastState = null;
           for (int i = 0; i < traceIdx; i++) 
           {
-              StatePrinter.printState(this.stateTrace[i], lastState, i+1);
+              printer.print(this.stateTrace[i], lastState, i+1);
               lastState = this.stateTrace[i];
           }
-          StatePrinter.printState(state, null, traceIdx+1);
+          printer.print(state, null, traceIdx+1);
+          printer.flush(null);
       }
       this.printSummary();
   }
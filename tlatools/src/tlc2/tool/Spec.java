@@ -1459,6 +1459,38 @@ public class Spec implements ValueConstants, ToolGlobals, Serializable
         return this.nextPred;
     }
 
+    /**
+     * Get the definitions of the trace expressions with the given names,
+     * which are evaluated on the states of error traces.
+     */
+    public final OpDefNode[] getTraceExpressions(String[] names)
+    {
+        OpDefNode[] res = new OpDefNode[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            Object expr = this.defns.get(names[i]);
+            if (expr == null)
+            {
+                Assert.fail(EC.TLC_CONFIG_SPECIFIED_NOT_DEFINED, new String[] { "trace expression", names[i] });
+            }
+            if (!(expr instanceof OpDefNode))
+            {
+                Assert.fail(EC.TLC_CONFIG_ID_MUST_NOT_BE_CONSTANT, new String[] { "trace expression", names[i] });
+            }
+            res[i] = (OpDefNode) expr;
+            if (res[i].getArity() != 0)
+            {
+                Assert.fail(EC.TLC_CONFIG_ID_REQUIRES_NO_ARG, new String[] { "trace expression", names[i] });
+            }
+            if (res[i].getBody().getLevel() > 2)
+            {
+                Assert.fail(EC.GENERAL, "The trace expression " + names[i]
+                        + " is a temporal formula, which cannot be evaluated on the states of a trace.");
+            }
+        }
+        return res;
+    }
+
     /** 
      * Get the view mapping for the specification. 
      */
@@ -18,7 +18,7 @@ import util.UniqueString;
  * updates are used for improved performance and reduced
  * allocation.
  */
-public final class StateVec {
+public class StateVec implements IStateFunctor {
   private TLCState v[];
   private int size;
 
@@ -39,6 +39,15 @@ public abstract class TLCState implements Cloneable, Serializable {
       //UniqueString.setVariables(varNames);
   }
 
+  /* Returns the names of the state variables in the order of their declaration. */
+  public static UniqueString[] getVarNames() {
+    UniqueString[] names = new UniqueString[vars.length];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = vars[i].getName();
+    }
+    return names;
+  }
+
   public void read(ValueInputStream vis) throws IOException {
     this.uid = vis.readLongNat();
   }
@@ -47,6 +56,25 @@ public abstract class TLCState implements Cloneable, Serializable {
     vos.writeLongNat(this.uid);
   }
 
+  /**
+   * Reads a state written by {@link TLCState#write(ValueOutputStream, TLCState)}.
+   * @param prev The state read just before this one from the same stream or
+   *        <code>null</code> if this is the first one.
+   */
+  public void read(ValueInputStream vis, TLCState prev) throws IOException {
+    this.read(vis);
+  }
+
+  /**
+   * Writes this state delta encoded against prev, the state written just
+   * before it to the same stream (<code>null</code> if this is the first
+   * one). Subclasses omit the values shared with prev. The default
+   * implementation simply writes the full state.
+   */
+  public void write(ValueOutputStream vos, TLCState prev) throws IOException {
+    this.write(vos);
+  }
+
   public abstract TLCState bind(UniqueString name, Value value, SemanticNode expr);
   public abstract TLCState bind(SymbolNode id, Value value, SemanticNode expr);  
   public abstract TLCState unbind(UniqueString name);
@@ -222,6 +222,51 @@ public final class TLCStateMut extends TLCState implements Cloneable, Serializab
       vos.write(this.values[i]);
     }
   }
+
+  /*
+   * The values are written in groups of eight, each preceded by a byte
+   * whose bits mark the values that are the very same objects as in prev.
+   * Successors of the same state are written next to each other and share
+   * the values of all variables their action left unchanged.
+   */
+  public final void read(ValueInputStream vis, TLCState prev) throws IOException {
+    super.read(vis);
+    Value[] prevValues = (prev == null) ? null : ((TLCStateMut)prev).values;
+    int len = this.values.length;
+    for (int i = 0; i < len; i += 8) {
+      int mask = vis.readByte();
+      for (int j = i; j < len && j < i + 8; j++) {
+	if ((mask & (1 << (j - i))) != 0) {
+	  this.values[j] = prevValues[j];
+	}
+	else {
+	  this.values[j] = vis.read();
+	}
+      }
+    }
+  }
+
+  public final void write(ValueOutputStream vos, TLCState prev) throws IOException {
+    super.write(vos);
+    Value[] prevValues = (prev instanceof TLCStateMut) ? ((TLCStateMut)prev).values : null;
+    int len = this.values.length;
+    for (int i = 0; i < len; i += 8) {
+      int mask = 0;
+      if (prevValues != null) {
+	for (int j = i; j < len && j < i + 8; j++) {
+	  if (this.values[j] == prevValues[j]) {
+	    mask |= 1 << (j - i);
+	  }
+	}
+      }
+      vos.writeByte((byte)mask);
+      for (int j = i; j < len && j < i + 8; j++) {
+	if ((mask & (1 << (j - i))) == 0) {
+	  vos.write(this.values[j]);
+	}
+      }
+    }
+  }
   
   /* Returns a string representation of this state.  */
   public final String toString() {
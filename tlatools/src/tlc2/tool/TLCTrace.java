@@ -10,22 +10,51 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
 import tlc2.output.StatePrinter;
 import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.LongVec;
+import util.Assert;
 import util.FileUtil;
 
+/**
+ * The trace file records, for each distinct state, the location of its
+ * predecessor, its fingerprint and the index (plus one) of the action
+ * that generated it. The action index lets the reconstruction of a trace
+ * evaluate only that action instead of all actions. It is
+ * {@link #UNKNOWN_ACTION} for initial states and if the writer does not
+ * know the action, in which case all actions are evaluated.
+ */
 public class TLCTrace {
 
+  public static final int UNKNOWN_ACTION = -1;
+
+  /**
+   * Starts the checkpoint of a trace file whose entries store the action.
+   * Trace files written before cannot be read any longer. Their
+   * checkpoints start with the file position instead, whose high word is
+   * zero, so recovering from them fails with a clear error.
+   */
+  private static final int CHKPT_MAGIC = 0x54524302;
+
   private static String filename;
   private BufferedRandomAccessFile raf;
   private long lastPtr;
   private TraceApp tool;
+  private TraceExpressionEvaluator traceExpressions;
 
   public TLCTrace(String metadir, String specFile, TraceApp tool)
   throws IOException {
@@ -42,7 +71,7 @@ public class TLCTrace {
    */
   public final synchronized long writeState(final long aFingerprint)
   throws IOException {
-	  return writeState(1, aFingerprint);
+	  return writeState(1, aFingerprint, UNKNOWN_ACTION);
   }
 
   /**
@@ -53,24 +82,46 @@ public class TLCTrace {
    */
   public final synchronized long writeState(final TLCState predecessor, final long aFingerprint)
   throws IOException {
-	  return writeState(predecessor.uid, aFingerprint);
+	  return writeState(predecessor.uid, aFingerprint, UNKNOWN_ACTION);
+  }
+
+  /**
+   * @param predecessor The predecessor state
+   * @param fp A finger print
+   * @param action The index of the action generating the state from its predecessor
+   * @return The new location (pointer) for the given finger print (state)
+   * @throws IOException
+   */
+  public final synchronized long writeState(final TLCState predecessor, final long aFingerprint, final int action)
+  throws IOException {
+	  return writeState(predecessor.uid, aFingerprint, action);
   }
   
   /**
    * @param predecessorLoc The location of the state predecessor
    * @param fp A finger print
+   * @param action The index of the action or {@link #UNKNOWN_ACTION}
    * @return The new location (pointer) for the given finger print (state)
    * @throws IOException
    */
-  private final synchronized long writeState(long predecessorLoc, long fp)
+  private final synchronized long writeState(long predecessorLoc, long fp, int action)
   throws IOException {
 	//TODO Remove synchronization as all threads content for this lock
     this.lastPtr = this.raf.getFilePointer();
     this.raf.writeLongNat(predecessorLoc);
     this.raf.writeLong(fp);
+    this.raf.writeNat(action + 1);
     return this.lastPtr;
   }
 
+  /**
+   * Skips the action index of the entry whose fingerprint has just been
+   * read from the given trace file.
+   */
+  public static void skipAction(final RandomAccessFile braf) throws IOException {
+    if (braf.readShort() < 0) braf.readShort();
+  }
+
   public final void close() throws IOException {
     this.raf.close();
   }
@@ -86,6 +137,13 @@ public class TLCTrace {
     return this.raf.readLong();
   }
 
+  private synchronized int getAction(long loc) throws IOException {
+    this.raf.seek(loc);
+    this.raf.readLongNat();    /*drop*/
+    this.raf.readLong();       /*drop*/
+    return this.raf.readNat() - 1;
+  }
+
   /**
    * Returns the level (monotonically increasing)!
    * 
@@ -152,49 +210,88 @@ public class TLCTrace {
   }
   
   /**
-   * @return All states in the trace file
+   * @return All states in the trace file. The states of a level of the
+   *         state tree only depend on the states of the previous level and
+   *         are thus reconstructed in parallel.
    * @throws IOException
    */
   public final TLCStateInfo[] getTrace() throws IOException {
-		final Map<Long, TLCStateInfo> locToState = new HashMap<Long, TLCStateInfo>();
+		final LongVec locs = new LongVec();
+		final LongVec predecessors = new LongVec();
+		final LongVec fps = new LongVec();
+		final LongVec actions = new LongVec();
 
 		synchronized (this) {
 			final long curLoc = this.raf.getFilePointer();
 			try {
-				long length = this.raf.length();
+				final long length = this.raf.length();
 				// go to first byte
 				this.raf.seek(0);
-				
-				// read init state
-				this.raf.readLongNat(); /* drop predecessor of init state*/
-				TLCStateInfo state = this.tool.getState(this.raf.readLong());
-				locToState.put(0L, state);
-				
-				for (long location = 12; location < length; location+=12) {
-					final long predecessorLocation = this.raf.readLongNat();
-					final long fp = this.raf.readLong();
-					
-					// read predecessor from map
-					final TLCStateInfo predecessor = locToState.get(predecessorLocation);
-
-					// reconstruct current state
-					state = this.tool.getState(fp, predecessor.state);
-
-					// chain to predecessor
-					state.predecessorState = predecessor;
-					state.stateNumber = location / 12;
-					
-					// store in map
-					locToState.put(location, state);
+				while (this.raf.getFilePointer() < length) {
+					locs.addElement(this.raf.getFilePointer());
+					predecessors.addElement(this.raf.readLongNat());
+					fps.addElement(this.raf.readLong());
+					actions.addElement(this.raf.readNat() - 1);
 				}
-
 			} finally {
 				// rewind
 				this.raf.seek(curLoc);
 			}
 		}
-		
-		return locToState.values().toArray(new TLCStateInfo[locToState.size()]);
+
+		// A predecessor is written before its successors. Thus, the entries
+		// of a level are found by a single pass in file order.
+		final int len = locs.size();
+		final TLCStateInfo[] res = new TLCStateInfo[len];
+		final int[] levels = new int[len];
+		final List<List<Integer>> byLevel = new ArrayList<List<Integer>>();
+		final Map<Long, Integer> locToIdx = new HashMap<Long, Integer>();
+		for (int i = 0; i < len; i++) {
+			locToIdx.put(locs.elementAt(i), i);
+			final Integer pred = locToIdx.get(predecessors.elementAt(i));
+			levels[i] = (pred == null) ? 0 : levels[pred] + 1;
+			if (levels[i] == byLevel.size()) {
+				byLevel.add(new ArrayList<Integer>());
+			}
+			byLevel.get(levels[i]).add(i);
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(TLCGlobals.getNumWorkers());
+		try {
+			for (int l = 0; l < byLevel.size(); l++) {
+				final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+				for (final Integer idx : byLevel.get(l)) {
+					futures.add(pool.submit(new Callable<Void>() {
+						public Void call() throws Exception {
+							final int i = idx.intValue();
+							final Integer pred = locToIdx.get(predecessors.elementAt(i));
+							final TLCStateInfo state;
+							if (pred == null) {
+								state = tool.getState(fps.elementAt(i));
+							} else {
+								// reconstruct current state and chain to its predecessor
+								state = tool.getState(fps.elementAt(i), res[pred].state,
+										(int) actions.elementAt(i));
+								state.predecessorState = res[pred];
+							}
+							state.stateNumber = i;
+							res[i] = state;
+							return null;
+						}
+					}));
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					futures.get(i).get();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e.getMessage());
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause().getMessage());
+		} finally {
+			pool.shutdown();
+		}
+		return res;
   }
   
   /**
@@ -206,12 +303,14 @@ public class TLCTrace {
   public final TLCStateInfo[] getTrace(long loc, boolean included)
   throws IOException {
     LongVec fps = new LongVec();
+    LongVec actions = new LongVec();
 
     synchronized(this) {
       long curLoc = this.raf.getFilePointer();
       long loc1 = (included) ? loc : this.getPrev(loc);
       for (long ploc = loc1; ploc != 1; ploc = this.getPrev(ploc)) {
 	fps.addElement(this.getFP(ploc));
+	actions.addElement(this.getAction(ploc));
       }
       this.raf.seek(curLoc);
     }
@@ -231,7 +330,7 @@ public class TLCTrace {
       res[stateNum++] = sinfo;
       for (int i = len - 2; i >= 0; i--) {
 	fp = fps.elementAt(i);
-	sinfo = this.tool.getState(fp, sinfo.state);
+	sinfo = this.tool.getState(fp, sinfo.state, (int) actions.elementAt(i));
 	if (sinfo == null) {
 	    /*
 	     * The following error message is misleading, because it's triggered
@@ -248,10 +347,58 @@ public class TLCTrace {
     return res;
   }
 
+  /**
+   * @param loc The location (pointer) of the last state of the trace
+   * @param included true if the state at loc should be included
+   * @param window The number of states the stream keeps in memory
+   * @return The states of the trace from an initial state, which are
+   *         reconstructed as they are streamed
+   * @throws IOException
+   */
+  final TraceStream getTraceStream(long loc, boolean included, int window)
+  throws IOException {
+    LongVec locs = new LongVec();
+    synchronized(this) {
+      long curLoc = this.raf.getFilePointer();
+      long loc1 = (included) ? loc : this.getPrev(loc);
+      for (long ploc = loc1; ploc != 1; ploc = this.getPrev(ploc)) {
+	locs.addElement(ploc);
+      }
+      this.raf.seek(curLoc);
+    }
+    return new TraceStream(this, this.tool, locs, window);
+  }
+
+  /**
+   * @return The fingerprint and the action index of the state at loc
+   */
+  final synchronized long[] getEntry(long loc) throws IOException {
+    long curLoc = this.raf.getFilePointer();
+    try {
+      this.raf.seek(loc);
+      this.raf.readLongNat();    /*drop*/
+      return new long[] { this.raf.readLong(), this.raf.readNat() - 1 };
+    } finally {
+      this.raf.seek(curLoc);
+    }
+  }
+
+  /**
+   * Evaluates the given trace expressions on the states of the traces
+   * printed by {@link #printTrace(TLCState, TLCState)}.
+   */
+  public final void setTraceExpressions(TraceExpressionEvaluator traceExpressions) {
+    this.traceExpressions = traceExpressions;
+  }
+
   /**
    * Write out a sequence of states that reaches s2 from an initial
    * state, according to the spec. s2 is a next state of s1.
    * 
+   * The states are reconstructed as they are printed. Only the state
+   * printed last and its successor, which the trace expressions may refer
+   * to, are kept in memory.
+   * 
    * @param s1 may not be null.
    * @param s2 may be null.
    * @throws IOException
@@ -261,38 +408,43 @@ public class TLCTrace {
   throws IOException, WorkerException 
   {
       MP.printError(EC.TLC_BEHAVIOR_UP_TO_THIS_POINT);
-      // Print the prefix leading to s1:
-      long loc1 = s1.uid; 
+      // Print the prefix leading to s1, each state once its successor is known:
+      final TraceStream stream = this.getTraceStream(s1.uid, true, 2);
       TLCState lastState = null;
-      TLCStateInfo[] prefix = this.getTrace(loc1, false);
+      TLCStateInfo sinfo = null;
       int idx = 0;
-      while (idx < prefix.length) 
+      while (stream.hasNext()) 
       {
-          StatePrinter.printState(prefix[idx], lastState, idx+1);
-          lastState = prefix[idx].state;
-          idx++;
-      }
-
-      // Print s1:
-      TLCStateInfo sinfo;
-      if (prefix.length == 0) {
-          sinfo = this.tool.getState(s1.fingerPrint());
-          if (sinfo == null) 
+          final boolean last = stream.size() - 1 == idx;
+          final TLCStateInfo next = stream.next();
+          if (next == null)
           {
               MP.printError(EC.TLC_FAILED_TO_RECOVER_INIT);
-              MP.printError(EC.TLC_BUG, "3");
+              MP.printError(EC.TLC_BUG, last ? (idx == 0 ? "3" : "4") : (idx == 0 ? "1" : "2"));
+              if (last && idx > 0) 
+              {
+                  StatePrinter.printState(s1);
+              }
               System.exit(1);
           }
+          if (sinfo != null)
+          {
+              this.printState(sinfo, lastState, idx, next.state);
+              lastState = sinfo.state;
+          }
+          sinfo = next;
+          idx++;
       }
-      else 
-      {
-          TLCState s0 = prefix[prefix.length-1].state;
-          sinfo = this.tool.getState(s1.fingerPrint(), s0);
-          if (sinfo == null) 
+
+      // Print s1:
+      TLCStateInfo s2info = null;
+      if (s2 != null) {
+          s2info = this.tool.getState(s2, s1);
+          if (s2info == null) 
           {
               MP.printError(EC.TLC_FAILED_TO_RECOVER_INIT);
-              MP.printError(EC.TLC_BUG, "4");
-              StatePrinter.printState(s1); 
+              MP.printError(EC.TLC_BUG, "5");
+              StatePrinter.printState(s2);
               System.exit(1);
           }
       }
@@ -300,23 +452,21 @@ public class TLCTrace {
       { 
           lastState = null; 
       }
-      StatePrinter.printState(sinfo, lastState, ++idx);
-      lastState = sinfo.state;
+      this.printState(sinfo, lastState, idx, (s2info == null) ? null : s2info.state);
 
       // Print s2:
-      if (s2 != null) {
-          sinfo = this.tool.getState(s2, s1);
-          if (sinfo == null) 
-          {
-              MP.printError(EC.TLC_FAILED_TO_RECOVER_INIT);
-              MP.printError(EC.TLC_BUG, "5");
-              StatePrinter.printState(s2);
-              System.exit(1);
-          }
-          StatePrinter.printState(sinfo, null, ++idx);
+      if (s2info != null) {
+          this.printState(s2info, null, ++idx, null);
       }
   }
 
+  private final void printState(TLCStateInfo sinfo, TLCState lastState, int num, TLCState successor) {
+      if (this.traceExpressions == null) {
+          StatePrinter.printState(sinfo, lastState, num);
+      } else {
+          StatePrinter.printState(sinfo, lastState, num, this.traceExpressions.evaluate(sinfo.state, successor));
+      }
+  }
 
   /**
    * Returns a sequence of states that reaches, but excludes the
@@ -329,6 +479,7 @@ public class TLCTrace {
     this.raf.readLongNat();    /*drop*/
 
     while (this.raf.readLong() != fp) {
+      this.raf.readNat();      /*drop*/
       this.raf.readLongNat();  /*drop*/
     }
     
@@ -349,6 +500,7 @@ public class TLCTrace {
     this.raf.flush();
     // SZ Feb 24, 2009: FileUtil introduced
     DataOutputStream dos = FileUtil.newDFOS(filename + ".tmp");
+    dos.writeInt(CHKPT_MAGIC);
     dos.writeLong(this.raf.getFilePointer());
     dos.writeLong(this.lastPtr);
     dos.close();
@@ -364,8 +516,7 @@ public class TLCTrace {
   }
 
   public final void recover() throws IOException {
-    // SZ Feb 24, 2009: FileUtil introduced
-    DataInputStream dis = FileUtil.newDFIS(filename + ".chkpt");
+    DataInputStream dis = openChkpt();
     long filePos = dis.readLong();
     this.lastPtr = dis.readLong();
     dis.close();
@@ -375,18 +526,33 @@ public class TLCTrace {
   public static String getFilename() { return filename; }
 
   public static long getRecoverPtr() throws IOException {
-      // SZ Feb 24, 2009: FileUtil introduced
-    DataInputStream dis = FileUtil.newDFIS(filename + ".chkpt");
+    DataInputStream dis = openChkpt();
     long res = dis.readLong();
     dis.close();
     return res;
   }
 
+  /**
+   * Opens the checkpoint of the trace file and checks that it has been
+   * written in the current format.
+   */
+  private static DataInputStream openChkpt() throws IOException {
+    // SZ Feb 24, 2009: FileUtil introduced
+    DataInputStream dis = FileUtil.newDFIS(filename + ".chkpt");
+    if (dis.readInt() != CHKPT_MAGIC) {
+      dis.close();
+      Assert.fail(EC.SYSTEM_CHECKPOINT_RECOVERY_CORRUPT, "The trace file " + filename
+          + " has been written by an older version of TLC in a format that can no longer be read."
+          + " Please model check the spec again from the start.");
+    }
+    return dis;
+  }
+
   @SuppressWarnings("unused")
   private long[] addBlock(long fp[], long prev[]) throws IOException {
     // Reuse prev.
     for (int i = 0; i < fp.length; i++) {
-      prev[i] = this.writeState(prev[i], fp[i]);
+      prev[i] = this.writeState(prev[i], fp[i], UNKNOWN_ACTION);
     }
     return prev;
   }
@@ -421,7 +587,9 @@ public class TLCTrace {
 
     final long nextFP() throws IOException {
       this.enumRaf.readLongNat();    /*drop*/
-      return this.enumRaf.readLong();
+      final long fp = this.enumRaf.readLong();
+      this.enumRaf.readNat();        /*drop*/
+      return fp;
     }
   }
 
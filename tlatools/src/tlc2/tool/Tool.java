@@ -77,6 +77,8 @@ public class Tool
 {
   protected Action[] actions;     // the list of TLA actions.
   private CallStack callStack;    // the call stack.
+  private Profiler profiler;      // null unless profiling.
+  private TraceExpressionEvaluator traceExpressions; // null unless -traceexpr.
 
   private Vect actionVec = new Vect(10);
   
@@ -121,6 +123,19 @@ public class Tool
 
       // Finally, process the config file.
       super.processConfig();
+
+      if (TLCGlobals.traceExpressions != null) {
+          this.traceExpressions = new TraceExpressionEvaluator(this, TLCGlobals.traceExpressions);
+      }
+  }
+
+  /**
+   * @return The evaluator of the trace expressions given with -traceexpr,
+   *         or null if there are none
+   */
+  public final TraceExpressionEvaluator getTraceExpressionEvaluator()
+  {
+      return this.traceExpressions;
   }
 
   public final void setCallStack() 
@@ -132,6 +147,16 @@ public class Tool
   {
       return this.callStack;
   }
+
+  public final void setProfiler(Profiler profiler)
+  {
+      this.profiler = profiler;
+  }
+
+  public final Profiler getProfiler()
+  {
+      return this.profiler;
+  }
    
   /**
    * This method returns the set of all possible actions of the 
@@ -304,9 +329,19 @@ public class Tool
    * probably make tools like TLC useless.
    */
   public final StateVec getInitStates() {
+    StateVec initStates = new StateVec(0);
+    this.getInitStates(initStates);
+    return initStates;
+  }
+
+  /**
+   * Hands the initial states to the functor as they are generated rather
+   * than collecting them. Passing an {@link InitStatePartition} generates
+   * only the initial states of that partition.
+   */
+  public final void getInitStates(IStateFunctor functor) {
     Vect init = this.getInitStateSpec();
     ActionItemList acts = ActionItemList.Empty;
-    StateVec initStates = new StateVec(0);
     for (int i = 1; i < init.size(); i++) {
       Action elem = (Action)init.elementAt(i);
       acts = acts.cons(elem.pred, elem.con, -1);
@@ -314,9 +349,8 @@ public class Tool
     if (init.size() != 0) {
       Action elem = (Action)init.elementAt(0);
       TLCState ps = TLCState.Empty.createEmpty();
-      this.getInitStates(elem.pred, acts, elem.con, ps, initStates);
+      this.getInitStates(elem.pred, acts, elem.con, ps, functor);
     }
-    return initStates;
   }
 
   /* Create the state specified by pred.  */
@@ -336,7 +370,7 @@ public class Tool
   }
 
   private final void getInitStates(SemanticNode init, ActionItemList acts,
-                                   Context c, TLCState ps, StateVec states) {
+                                   Context c, TLCState ps, IStateFunctor states) {
     switch (init.getKind()) {
     case OpApplKind:
       {
@@ -394,7 +428,7 @@ public class Tool
     }
   }
 
-  private final void getInitStates(ActionItemList acts, TLCState ps, StateVec states) {
+  private final void getInitStates(ActionItemList acts, TLCState ps, IStateFunctor states) {
     if (acts.isEmpty()) {
       states.addElement(ps.copy());
     }
@@ -406,7 +440,7 @@ public class Tool
   }
 
   private final void getInitStatesAppl(OpApplNode init, ActionItemList acts,
-                                       Context c, TLCState ps, StateVec states) {
+                                       Context c, TLCState ps, IStateFunctor states) {
     ExprOrOpArgNode[] args = init.getArgs();
     int alen = args.length;
     SymbolNode opNode = init.getOperator();
@@ -642,6 +676,21 @@ public class Tool
             }
             ValueEnumeration Enum = ((Enumerable)rval).elements();
             Value elem;
+            if (states instanceof InitStatePartition &&
+                !((InitStatePartition)states).partitioned) {
+              // The outermost domain: only enumerate the elements of the partition.
+              InitStatePartition partition = (InitStatePartition)states;
+              partition.partitioned = true;
+              for (int i = 0; (elem = Enum.nextElement()) != null; i++) {
+                if (partition.owns(i)) {
+                  ps.bind(varName, elem, init);
+                  this.getInitStates(acts, ps, states);
+                  ps.unbind(varName);
+                }
+              }
+              partition.partitioned = false;
+              return;
+            }
             while ((elem = Enum.nextElement()) != null) {
               ps.bind(varName, elem, init);
               this.getInitStates(acts, ps, states);
@@ -702,10 +751,114 @@ public class Tool
     ActionItemList acts = ActionItemList.Empty;
     TLCState s1 = TLCState.Empty.createEmpty();
     StateVec nss = new StateVec(0);
+    final int idx = (this.profiler == null) ? -1 : this.profiler.indexOf(action);
+    if (idx == -1) {
+      this.getNextStates(action.pred, acts, action.con, state, s1, nss);
+    }
+    else {
+      final Profiler.Counters counters = this.profiler.getCounters();
+      if (counters.sample()) {
+        final long start = System.nanoTime();
+        this.getNextStates(action.pred, acts, action.con, state, s1, nss);
+        counters.addSuccessors(idx, nss.size(), System.nanoTime() - start);
+      }
+      else {
+        this.getNextStates(action.pred, acts, action.con, state, s1, nss);
+        counters.addSuccessors(idx, nss.size());
+      }
+    }
+    return nss;
+  }
+
+  /**
+   * This method returns one of several disjoint partitions of the next
+   * states when taking the action in the given state. The partitions are
+   * meant to be generated concurrently for actions with many successors.
+   * Partitioned calls are not counted by the profiler.
+   */
+  public final StateVec getNextStates(Action action, TLCState state, int part, int parts) {
+    if (parts == 1) {
+      return this.getNextStates(action, state);
+    }
+    ActionItemList acts = ActionItemList.Empty;
+    TLCState s1 = TLCState.Empty.createEmpty();
+    StateVec nss = new NextStatePartition(part, parts);
     this.getNextStates(action.pred, acts, action.con, state, s1, nss);
     return nss;
   }
 
+  /**
+   * Returns true iff the action generates each of its successors below an
+   * existential quantifier, whose bindings getNextStates(Action, TLCState,
+   * int, int) splits. Otherwise, every partition would evaluate the action
+   * in full. The check follows conjunctions, disjunctions and the
+   * definitions of operators up to a fixed depth, and answers false if in
+   * doubt.
+   */
+  public final boolean isSplittable(Action action) {
+    return this.isSplittable(action.pred, action.con, 0);
+  }
+
+  private final boolean isSplittable(SemanticNode pred, Context c, int depth) {
+    if (depth > 32) return false;
+    switch (pred.getKind()) {
+    case LetInKind:
+      return this.isSplittable(((LetInNode)pred).getBody(), c, depth + 1);
+    case SubstInKind:
+      return this.isSplittable(((SubstInNode)pred).getBody(), c, depth + 1);
+    case OpApplKind:
+      break;
+    default:
+      return false;
+    }
+    OpApplNode pred1 = (OpApplNode)pred;
+    ExprOrOpArgNode[] args = pred1.getArgs();
+    SymbolNode opNode = pred1.getOperator();
+    int opcode = BuiltInOPs.getOpCode(opNode.getName());
+    if (opcode == 0) {
+      Object val = this.lookup(opNode, c, false);
+      if (val instanceof OpDefNode &&
+          BuiltInOPs.getOpCode(((OpDefNode)val).getName()) == 0) {
+        return this.isSplittable(((OpDefNode)val).getBody(), c, depth + 1);
+      }
+      return false;
+    }
+    switch (opcode) {
+    case OPCODE_be:     // BoundedExists
+      return true;
+    case OPCODE_cl:     // ConjList
+    case OPCODE_land:
+      {
+        // Every successor passes through every conjunct.
+        for (int i = 0; i < args.length; i++) {
+          if (this.isSplittable(args[i], c, depth + 1)) return true;
+        }
+        return false;
+      }
+    case OPCODE_dl:     // DisjList
+    case OPCODE_lor:
+      {
+        for (int i = 0; i < args.length; i++) {
+          if (!this.isSplittable(args[i], c, depth + 1)) return false;
+        }
+        return true;
+      }
+    case OPCODE_ite:    // IfThenElse
+      return (this.isSplittable(args[1], c, depth + 1) &&
+              this.isSplittable(args[2], c, depth + 1));
+    case OPCODE_case:   // Case
+      {
+        for (int i = 0; i < args.length; i++) {
+          ExprOrOpArgNode[] pairArgs = ((OpApplNode)args[i]).getArgs();
+          if (!this.isSplittable(pairArgs[1], c, depth + 1)) return false;
+        }
+        return true;
+      }
+    default:
+      return false;
+    }
+  }
+
   private final TLCState getNextStates(SemanticNode pred, ActionItemList acts, Context c,
                                        TLCState s0, TLCState s1, StateVec nss) {
     switch (pred.getKind()) {
@@ -768,8 +921,10 @@ public class Tool
     TLCState resState = s1;
 
     if (acts.isEmpty()) {
-      nss.addElement(s1);
-      resState = s1.copy();
+      if (!(nss instanceof NextStatePartition) || ((NextStatePartition)nss).keeps()) {
+        nss.addElement(s1);
+        resState = s1.copy();
+      }
     }
     else {
       int kind = acts.carKind();
@@ -904,6 +1059,19 @@ public class Tool
         SemanticNode body = args[0];
         ContextEnumerator Enum = this.contexts(pred, c, s0, s1, EvalControl.Clear);
         Context c1;
+        if (nss instanceof NextStatePartition &&
+            !((NextStatePartition)nss).partitioned) {
+          // The outermost quantifier: only enumerate the bindings of the partition.
+          NextStatePartition partition = (NextStatePartition)nss;
+          partition.partitioned = true;
+          for (int i = 0; (c1 = Enum.nextElement()) != null; i++) {
+            if (partition.owns(i)) {
+              resState = this.getNextStates(body, acts, c1, s0, resState, nss);
+            }
+          }
+          partition.partitioned = false;
+          return resState;
+        }
         while ((c1 = Enum.nextElement()) != null) {
           resState = this.getNextStates(body, acts, c1, s0, resState, nss);
         }
@@ -1296,6 +1464,22 @@ public class Tool
 
   public final Value evalAppl(OpApplNode expr, Context c, TLCState s0,
                               TLCState s1, int control) {
+    if (this.profiler == null) {
+      return this.evalApplImpl(expr, c, s0, s1, control);
+    }
+    final Profiler.Counters counters = this.profiler.getCounters();
+    if (counters.sample()) {
+      final long start = System.nanoTime();
+      final Value res = this.evalApplImpl(expr, c, s0, s1, control);
+      counters.addEvaluation(expr.getOperator(), System.nanoTime() - start);
+      return res;
+    }
+    counters.addEvaluation(expr.getOperator());
+    return this.evalApplImpl(expr, c, s0, s1, control);
+  }
+
+  private final Value evalApplImpl(OpApplNode expr, Context c, TLCState s0,
+                                   TLCState s1, int control) {
     ExprOrOpArgNode[] args = expr.getArgs();
     SymbolNode opNode = expr.getOperator();
     int opcode = BuiltInOPs.getOpCode(opNode.getName());
@@ -2730,6 +2914,26 @@ public class Tool
     return null;
   }
 
+  /**
+   * Reconstruct the next state of state s whose fingerprint is fp by
+   * evaluating only the action with the given index. Falls back to all
+   * actions if the index is unknown or if that action does not generate
+   * the state.
+   */
+  public final TLCStateInfo getState(long fp, TLCState s, int action) {
+    if (action >= 0 && action < this.actions.length) {
+      Action curAction = this.actions[action];
+      StateVec nextStates = this.getNextStates(curAction, s);
+      for (int j = 0; j < nextStates.size(); j++) {
+        TLCState state = nextStates.elementAt(j);
+        if (fp == state.fingerPrint()) {
+          return new TLCStateInfo(state, curAction.getLocation());
+        }
+      }
+    }
+    return this.getState(fp, s);
+  }
+
   /* Reconstruct the info for s1.   */
   public final TLCStateInfo getState(TLCState s1, TLCState s) {
     for (int i = 0; i < this.actions.length; i++) {
@@ -13,6 +13,10 @@ public interface TraceApp {
   /* Reconstruct the next state of state s whose fingerprint is fp. */
   public TLCStateInfo getState(long fp, TLCState s);
 
+  /* Reconstruct the next state of state s whose fingerprint is fp,
+     evaluating only the action with the given index if it is known. */
+  public TLCStateInfo getState(long fp, TLCState s, int action);
+
   /* Reconstruct the info for the transition from s to s1. */
   public TLCStateInfo getState(TLCState s1, TLCState s);
 
@@ -0,0 +1,58 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import tla2sany.semantic.OpDefNode;
+import tlc2.util.Context;
+import tlc2.value.Value;
+
+/**
+ * A <code>TraceExpressionEvaluator</code> evaluates trace expressions
+ * incrementally on the states of an error trace as they are printed. Unlike
+ * the trace explorer, which runs TLC again on a spec built from the whole
+ * trace, it needs no more than a state and its successor in the trace.
+ * <p>
+ * A state-level expression is evaluated on a state, an action-level one on
+ * a state and its successor in the trace. The values are formatted like the
+ * values of variables so that they appear as additional variables of the
+ * printed state.
+ */
+public class TraceExpressionEvaluator {
+
+	private final Tool tool;
+	private final OpDefNode[] defs;
+
+	public TraceExpressionEvaluator(final Tool tool, final String[] names) {
+		this.tool = tool;
+		this.defs = tool.getTraceExpressions(names);
+	}
+
+	/**
+	 * @param s1
+	 *            The successor of s0 in the trace or null if s0 is the last
+	 *            state of the trace. The action-level expressions are not
+	 *            evaluated then.
+	 * @return The values of the trace expressions in s0, one per line
+	 */
+	public final String evaluate(final TLCState s0, final TLCState s1) {
+		final StringBuffer result = new StringBuffer();
+		for (int i = 0; i < this.defs.length; i++) {
+			final boolean action = this.defs[i].getBody().getLevel() == 2;
+			if (action && s1 == null) {
+				continue;
+			}
+			String val;
+			try {
+				final Value value = this.tool.eval(this.defs[i].getBody(), Context.Empty, s0,
+						action ? s1 : TLCState.Empty, EvalControl.Clear);
+				val = Value.ppr(value.toString());
+			} catch (RuntimeException e) {
+				// Report the error in place of the value and go on with the others
+				val = "<error: " + e.getMessage() + ">";
+			}
+			result.append("/\\ ");
+			result.append(this.defs[i].getName().toString());
+			result.append(" = " + val + "\n");
+		}
+		return result.toString();
+	}
+}
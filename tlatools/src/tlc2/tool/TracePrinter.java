@@ -0,0 +1,91 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import tlc2.output.StatePrinter;
+
+/**
+ * A <code>TracePrinter</code> prints the states of a trace one after the
+ * other along with the values of the trace expressions (see
+ * {@link Tool#getTraceExpressionEvaluator()}). Action-level trace
+ * expressions are evaluated on a state and its successor in the trace.
+ * Thus, a state is only printed once the next state of the trace has been
+ * handed to the printer or the trace ends with {@link #flush(TLCState)}.
+ * Without trace expressions, each state is printed right away.
+ */
+public final class TracePrinter {
+
+	private final TraceExpressionEvaluator evaluator;
+
+	/**
+	 * The state held back until its successor is known, if any
+	 */
+	private TLCState pending;
+	/**
+	 * The info of the pending state or null if it is printed without
+	 */
+	private TLCStateInfo pendingInfo;
+	private TLCState pendingLast;
+	private int pendingNum;
+
+	public TracePrinter(final Tool tool) {
+		this.evaluator = tool.getTraceExpressionEvaluator();
+	}
+
+	/**
+	 * Prints the state with the given info, or holds it back until its
+	 * successor is known.
+	 *
+	 * @see StatePrinter#printState(TLCStateInfo, TLCState, int)
+	 */
+	public final void print(final TLCStateInfo sinfo, final TLCState lastState, final int num) {
+		this.print(sinfo.state, sinfo, lastState, num);
+	}
+
+	/**
+	 * Prints the state, or holds it back until its successor is known.
+	 *
+	 * @see StatePrinter#printState(TLCState, TLCState, int)
+	 */
+	public final void print(final TLCState state, final TLCState lastState, final int num) {
+		this.print(state, null, lastState, num);
+	}
+
+	private final void print(final TLCState state, final TLCStateInfo sinfo, final TLCState lastState, final int num) {
+		if (this.evaluator == null) {
+			if (sinfo == null) {
+				StatePrinter.printState(state, lastState, num);
+			} else {
+				StatePrinter.printState(sinfo, lastState, num);
+			}
+			return;
+		}
+		this.flush(state);
+		this.pending = state;
+		this.pendingInfo = sinfo;
+		this.pendingLast = lastState;
+		this.pendingNum = num;
+	}
+
+	/**
+	 * Prints the state held back, if any.
+	 *
+	 * @param successor
+	 *            The successor of the state held back in the trace, e.g. the
+	 *            state a cycle leads back to, or null if the trace ends with
+	 *            it
+	 */
+	public final void flush(final TLCState successor) {
+		if (this.pending == null) {
+			return;
+		}
+		final String values = this.evaluator.evaluate(this.pending, successor);
+		if (this.pendingInfo == null) {
+			StatePrinter.printState(this.pending, this.pendingLast, this.pendingNum, values);
+		} else {
+			StatePrinter.printState(this.pendingInfo, this.pendingLast, this.pendingNum, values);
+		}
+		this.pending = null;
+		this.pendingInfo = null;
+		this.pendingLast = null;
+	}
+}
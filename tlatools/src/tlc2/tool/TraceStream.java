@@ -0,0 +1,97 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.IOException;
+
+import tlc2.util.LongVec;
+
+/**
+ * A <code>TraceStream</code> reconstructs the states of a trace one after
+ * the other, each from its predecessor. Unlike
+ * {@link TLCTrace#getTrace(long, boolean)}, it does not keep all states of
+ * the trace in memory, only a sliding window of the most recently
+ * reconstructed ones. This bounds the memory needed for traces with
+ * hundreds of thousands of states.
+ * <p>
+ * The {@link TLCStateInfo#predecessorState} of a state returned by
+ * {@link #next()} is its predecessor, whose own predecessor link is cut.
+ * Chaining all states would keep them in memory.
+ */
+public class TraceStream {
+
+	private final TLCTrace trace;
+	private final TraceApp tool;
+	/**
+	 * The locations of the states in the trace file from the last to the
+	 * first state of the trace
+	 */
+	private final LongVec locs;
+	private final TLCStateInfo[] window;
+	private int next = 0;
+
+	/**
+	 * @param window
+	 *            The number of the most recently reconstructed states kept in
+	 *            memory, at least two
+	 */
+	TraceStream(final TLCTrace trace, final TraceApp tool, final LongVec locs, final int window) {
+		this.trace = trace;
+		this.tool = tool;
+		this.locs = locs;
+		this.window = new TLCStateInfo[Math.max(2, window)];
+	}
+
+	/**
+	 * @return The number of states in the trace
+	 */
+	public final int size() {
+		return this.locs.size();
+	}
+
+	public final boolean hasNext() {
+		return this.next < this.locs.size();
+	}
+
+	/**
+	 * @return The next state of the trace or null if the state cannot be
+	 *         reconstructed from its predecessor
+	 */
+	public final TLCStateInfo next() throws IOException {
+		final long[] entry = this.trace.getEntry(this.locs.elementAt(this.locs.size() - 1 - this.next));
+		final TLCStateInfo sinfo;
+		if (this.next == 0) {
+			sinfo = this.tool.getState(entry[0]);
+		} else {
+			final TLCStateInfo pred = this.window[(this.next - 1) % this.window.length];
+			sinfo = this.tool.getState(entry[0], pred.state, (int) entry[1]);
+			if (sinfo != null) {
+				pred.predecessorState = null;
+				sinfo.predecessorState = pred;
+			}
+		}
+		if (sinfo == null) {
+			return null;
+		}
+		sinfo.stateNumber = this.next;
+		this.window[this.next % this.window.length] = sinfo;
+		this.next++;
+		return sinfo;
+	}
+
+	/**
+	 * @return The i-th state of the trace, which has to have been returned by
+	 *         {@link #next()} already
+	 * @throws IllegalArgumentException
+	 *             if the state has not been returned yet or has left the
+	 *             window
+	 */
+	public final TLCStateInfo get(final int i) {
+		if (i >= this.next || i < 0) {
+			throw new IllegalArgumentException("State " + i + " has not been reconstructed yet.");
+		}
+		if (i < this.next - this.window.length) {
+			throw new IllegalArgumentException("State " + i + " has left the window of the trace.");
+		}
+		return this.window[i % this.window.length];
+	}
+}
@@ -0,0 +1,367 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.rmi.NotBoundException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.output.StatePrinter;
+import tlc2.tool.ModelChecker;
+import tlc2.tool.TLCState;
+import tlc2.tool.TLCStateInfo;
+import tlc2.tool.WorkerException;
+import tlc2.tool.distributed.fp.IFPSetManager;
+import tlc2.tool.distributed.fp.NonDistributedFPSetManager;
+import tlc2.tool.fp.FPSet;
+import tlc2.tool.fp.MemFPSet;
+import tlc2.util.LongVec;
+
+/**
+ * A {@link TLCServer} for {@link TLCPeer}s which exchange states among each
+ * other. The server computes the initial states and hands them to their
+ * owners. Afterwards, it only detects termination (see
+ * {@link TerminationDetector}), reports progress and reconstructs the
+ * counterexample from the peers' traces upon a violation.
+ * <p>
+ * Neither checkpoints nor recovery are supported in this mode.
+ */
+@SuppressWarnings("serial")
+public class DecentralizedTLCServer extends TLCServer implements DecentralizedTLCServerRMI {
+
+	/**
+	 * The interval in which the server polls the peers for termination
+	 */
+	private static final int POLL_INTERVAL = Integer.getInteger(DecentralizedTLCServer.class.getName() + ".poll", 1000);
+
+	private final CountDownLatch latch;
+	private final int expectedPeerCount;
+	private final List<TLCPeerRMI> peers = new ArrayList<TLCPeerRMI>();
+
+	private WorkerException error;
+	private long initStatesGenerated;
+	private long[][] statistics = new long[0][];
+
+	public DecentralizedTLCServer(final TLCApp work, final int expectedPeerCount) throws IOException,
+			NotBoundException {
+		super(work);
+		this.expectedPeerCount = expectedPeerCount;
+		this.latch = new CountDownLatch(expectedPeerCount);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServer#getFPSetManagerImpl(tlc2.tool.distributed.TLCApp, java.lang.String, int)
+	 */
+	protected IFPSetManager getFPSetManagerImpl(final TLCApp work, final String metadir, final int fpsetCount)
+			throws IOException {
+		// The fingerprints are stored by the peers
+		final FPSet fpSet = new MemFPSet();
+		fpSet.init(1, metadir, work.getFileName());
+		return new NonDistributedFPSetManager(fpSet, InetAddress.getLocalHost().getCanonicalHostName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.DecentralizedTLCServerRMI#registerPeer(tlc2.tool.distributed.TLCPeerRMI)
+	 */
+	public synchronized void registerPeer(final TLCPeerRMI peer) throws IOException {
+		if (latch.getCount() == 0) {
+			throw new IllegalStateException("All " + expectedPeerCount + " peers have registered already");
+		}
+		peers.add(peer);
+		latch.countDown();
+		MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_REGISTERED, peer.getURI().toString());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.DecentralizedTLCServerRMI#reportError(tlc2.tool.WorkerException)
+	 */
+	public synchronized void reportError(final WorkerException e) {
+		if (setErrState(e.state1, e.keepCallStack)) {
+			this.error = e;
+			this.notifyAll();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServer#modelCheck()
+	 */
+	protected void modelCheck() throws IOException, InterruptedException, NotBoundException {
+		if (work.canRecover()) {
+			MP.printError(EC.GENERAL, "Recovery from a checkpoint is not supported with TLC peers.");
+			close(false);
+			return;
+		}
+
+		// Compute the initial states before the peers register
+		MP.printMessage(EC.TLC_COMPUTING_INIT);
+		final List<TLCState> initStates = new ArrayList<TLCState>();
+		final LongVec initFPs = new LongVec();
+		if (!doInit(initStates, initFPs)) {
+			close(false);
+			return;
+		}
+		MP.printMessage(EC.TLC_INIT_GENERATED1, new String[] { String.valueOf(initStates.size()), "(s)" });
+
+		final String hostname = InetAddress.getLocalHost().getHostName();
+		final Registry rg = LocateRegistry.createRegistry(Port);
+		rg.rebind("TLCServer", this);
+		MP.printMessage(EC.TLC_DISTRIBUTED_SERVER_RUNNING, hostname);
+
+		MP.printMessage(EC.GENERAL, "Waiting for " + expectedPeerCount + " peers to register.");
+		latch.await();
+		final TLCPeerRMI[] peers = this.peers.toArray(new TLCPeerRMI[this.peers.size()]);
+		for (int i = 0; i < peers.length; i++) {
+			peers[i].start(peers, i);
+		}
+
+		// Hand the initial states over to their owners
+		final long sent = initStates.size();
+		for (int i = 0; i < peers.length; i++) {
+			final List<TLCState> states = new ArrayList<TLCState>();
+			final LongVec fps = new LongVec();
+			for (int j = 0; j < initStates.size(); j++) {
+				if (TLCPeer.getOwner(initFPs.elementAt(j), peers.length) == i) {
+					states.add(initStates.get(j));
+					fps.addElement(initFPs.elementAt(j));
+				}
+			}
+			final long[] fpsArray = new long[fps.size()];
+			final int[] levels = new int[fps.size()];
+			for (int j = 0; j < fpsArray.length; j++) {
+				fpsArray[j] = fps.elementAt(j);
+				levels[j] = 1;
+			}
+			peers[i].receive(new StateBlock(states.toArray(new TLCState[states.size()])), fpsArray, levels);
+		}
+
+		// Wait for termination or an error, but print out progress report
+		// periodically.
+		final TerminationDetector detector = new TerminationDetector();
+		long lastReport = System.currentTimeMillis();
+		long oldNumOfGenStates = 0;
+		long oldFPSetSize = 0;
+		while (true) {
+			synchronized (this) {
+				if (error != null) {
+					break;
+				}
+				wait(POLL_INTERVAL);
+				if (error != null) {
+					break;
+				}
+			}
+			final long[][] statistics = new long[peers.length][];
+			for (int i = 0; i < peers.length; i++) {
+				statistics[i] = peers[i].getStatistics();
+			}
+			synchronized (this) {
+				this.statistics = statistics;
+			}
+			if (detector.isTerminated(statistics, sent)) {
+				setDone();
+				break;
+			}
+			final long now = System.currentTimeMillis();
+			if (now - lastReport >= REPORT_INTERVAL) {
+				final long numOfGenStates = getStatesGenerated();
+				final long fpSetSize = getDistinctStates();
+				final double factor = (now - lastReport) / 60000d;
+				MP.printMessage(EC.TLC_PROGRESS_STATS, new String[] { String.valueOf(getLevel()),
+						String.valueOf(numOfGenStates), String.valueOf(fpSetSize), String.valueOf(getNewStates()),
+						String.valueOf((long) ((numOfGenStates - oldNumOfGenStates) / factor)),
+						String.valueOf((long) ((fpSetSize - oldFPSetSize) / factor)) });
+				lastReport = now;
+				oldNumOfGenStates = numOfGenStates;
+				oldFPSetSize = fpSetSize;
+			}
+		}
+
+		for (int i = 0; i < peers.length; i++) {
+			peers[i].stop();
+		}
+		final boolean success = error == null;
+		if (!success) {
+			MP.printError(EC.GENERAL, error);
+			if (error.state1 != null) {
+				try {
+					printTrace(peers, error.state1, error.state2);
+				} catch (Exception e) {
+					MP.printError(EC.GENERAL, e);
+				}
+			}
+		}
+
+		// Collect model checking results before exiting the peers
+		final long[][] statistics = new long[peers.length][];
+		double actualProb = 0d;
+		for (int i = 0; i < peers.length; i++) {
+			statistics[i] = peers[i].getStatistics();
+			if (success) {
+				actualProb = Math.max(actualProb, peers[i].checkFPs());
+			}
+		}
+		synchronized (this) {
+			this.statistics = statistics;
+		}
+		finalNumberOfDistinctStates = getDistinctStates();
+		final long statesGenerated = getStatesGenerated();
+		final int level = getLevel();
+		for (int i = 0; i < peers.length; i++) {
+			MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_STATS, new String[] { peers[i].getURI().toString(),
+					Long.toString(statistics[i][TLCPeerRMI.SENT]),
+					Long.toString(statistics[i][TLCPeerRMI.RECEIVED]), "n/a" });
+			peers[i].exit();
+		}
+
+		if (success) {
+			ModelChecker.reportSuccess(finalNumberOfDistinctStates, actualProb, statesGenerated);
+		}
+		printSummary(level, statesGenerated, getNewStates(), finalNumberOfDistinctStates, success);
+		MP.printMessage(EC.TLC_FINISHED);
+		MP.flush();
+
+		close(success);
+
+		rg.unbind("TLCServer");
+		UnicastRemoteObject.unexportObject(this, false);
+	}
+
+	/**
+	 * Computes the (distinct) initial states.
+	 *
+	 * @return false iff an initial state violates an invariant or an error
+	 *         occurred
+	 */
+	private boolean doInit(final List<TLCState> states, final LongVec fps) {
+		TLCState curState = null;
+		try {
+			final TLCState[] initStates = work.getInitStates();
+			initStatesGenerated = initStates.length;
+			final Set<Long> set = new HashSet<Long>();
+			for (int i = 0; i < initStates.length; i++) {
+				curState = initStates[i];
+				if (work.isInModel(curState)) {
+					final long fp = curState.fingerPrint();
+					if (set.add(fp)) {
+						curState.uid = PeerTrace.NONE;
+						states.add(curState);
+						fps.addElement(fp);
+						work.checkState(null, curState);
+					}
+				} else {
+					work.checkState(null, curState);
+				}
+			}
+			return true;
+		} catch (Exception e) {
+			setErrState(curState, true);
+			MP.printError(EC.GENERAL, "initializing the server", e);
+			if (curState != null) {
+				MP.printMessage(EC.TLC_INITIAL_STATE, "While working on the initial state: " + curState);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Write out a sequence of states that reaches s2 from an initial state,
+	 * according to the spec. The fingerprints of the states leading to s1 are
+	 * looked up in the traces of the peers owning them.
+	 *
+	 * @see tlc2.tool.TLCTrace#printTrace(TLCState, TLCState)
+	 */
+	private void printTrace(final TLCPeerRMI[] peers, final TLCState s1, final TLCState s2) throws IOException {
+		MP.printError(EC.TLC_BEHAVIOR_UP_TO_THIS_POINT);
+
+		// The fingerprints from s1 back to an initial state
+		final LongVec fps = new LongVec();
+		for (long loc = s1.uid; loc != PeerTrace.NONE;) {
+			final long[] entry = peers[PeerTrace.getPeer(loc)].getTraceEntry(loc);
+			fps.addElement(entry[1]);
+			loc = entry[0];
+		}
+
+		TLCStateInfo sinfo = null;
+		TLCState lastState = null;
+		int idx = 0;
+		for (int i = fps.size() - 1; i >= 0; i--) {
+			sinfo = lastState == null ? work.getState(fps.elementAt(i)) : work.getState(fps.elementAt(i),
+					lastState);
+			if (sinfo == null) {
+				MP.printError(EC.TLC_FAILED_TO_RECOVER_INIT);
+				return;
+			}
+			StatePrinter.printState(sinfo, s2 == null && i == 0 ? null : lastState, ++idx);
+			lastState = sinfo.state;
+		}
+
+		if (s2 != null) {
+			sinfo = work.getState(s2, s1);
+			if (sinfo == null) {
+				MP.printError(EC.TLC_FAILED_TO_RECOVER_INIT);
+				StatePrinter.printState(s2);
+				return;
+			}
+			StatePrinter.printState(sinfo, null, ++idx);
+		}
+	}
+
+	/**
+	 * @return The maximum level of the states found by the peers
+	 */
+	private int getLevel() {
+		long level = 0;
+		final long[][] statistics = getStatistics();
+		for (int i = 0; i < statistics.length; i++) {
+			level = Math.max(level, statistics[i][TLCPeerRMI.LEVEL]);
+		}
+		return (int) level;
+	}
+
+	private synchronized long[][] getStatistics() {
+		return statistics;
+	}
+
+	private long sum(final int idx) {
+		final long[][] statistics = getStatistics();
+		long sum = 0L;
+		for (int i = 0; i < statistics.length; i++) {
+			sum += statistics[i][idx];
+		}
+		return sum;
+	}
+
+	private long getDistinctStates() {
+		return sum(TLCPeerRMI.DISTINCT);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServer#getStatesGenerated()
+	 */
+	public long getStatesGenerated() {
+		return initStatesGenerated + sum(TLCPeerRMI.GENERATED);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServer#getNewStates()
+	 */
+	public long getNewStates() {
+		return sum(TLCPeerRMI.QUEUE);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCServer#getWorkerCount()
+	 */
+	public synchronized int getWorkerCount() {
+		return peers.size();
+	}
+}
@@ -0,0 +1,21 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+
+import tlc2.tool.WorkerException;
+
+/**
+ * The remote interface of a {@link DecentralizedTLCServer} used by the
+ * {@link TLCPeerRMI}s.
+ */
+public interface DecentralizedTLCServerRMI extends TLCServerRMI {
+
+	public void registerPeer(TLCPeerRMI peer) throws IOException;
+
+	/**
+	 * Called by a {@link TLCPeerRMI} upon a violation or an error.
+	 */
+	public void reportError(WorkerException e) throws RemoteException;
+}
@@ -68,6 +68,14 @@ public abstract class DistApp implements TraceApp {
 	 */
 	public abstract TLCStateInfo getState(long fp, TLCState s);
 
+	// Reconstruct the next state of state s whose fingerprint is fp by
+	// evaluating the given action.
+	// TLCTrace
+	/* (non-Javadoc)
+	 * @see tlc2.tool.TraceApp#getState(long, tlc2.tool.TLCState, int)
+	 */
+	public abstract TLCStateInfo getState(long fp, TLCState s, int action);
+
 	// Reconstruct the info for the transition from s to s1. /
 	// TLCTrace
 	/* (non-Javadoc)
@@ -60,6 +60,12 @@ public class DistributedFPSetTLCServer extends TLCServer {
 	 */
 	public synchronized void registerFPSet(FPSetRMI fpSet, String hostname) throws RemoteException {
 		this.fpSetManager.register(fpSet, hostname);
+		if (latch.getCount() == 0) {
+			// Only possible with a rebalancing DynamicFPSetManager
+			MP.printMessage(EC.TLC_DISTRIBUTED_SERVER_FPSET_JOINED,
+					new String[] { hostname, Integer.toString(this.fpSetManager.numOfAliveServers()) });
+			return;
+		}
 		latch.countDown();
 		
 		long diff = this.expectedFPSetCount - latch.getCount();
@@ -1,8 +1,12 @@
 // Copyright (c) 2012 Microsoft Corporation.  All rights reserved.
 package tlc2.tool.distributed;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
+import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateVec;
 import tlc2.util.LongVec;
 
@@ -11,17 +15,32 @@ public class NextStateResult implements Serializable {
 
 	private final long computationTime;
 	private final long statesComputed;
-	private final TLCStateVec[] nextStates;
-	private final LongVec[] nextFingerprints;
-	
-	public NextStateResult(TLCStateVec[] nextStates, LongVec[] nextFingerprints, 
+	/**
+	 * The time the invocation waited at the worker for a previous (prefetched)
+	 * invocation to finish.
+	 */
+	private final long waitTime;
+	/**
+	 * Serialized with the {@link StateBlockCodec} by
+	 * {@link #writeObject(ObjectOutputStream)}.
+	 */
+	private transient TLCStateVec[] nextStates;
+	private transient LongVec[] nextFingerprints;
+
+	public NextStateResult(TLCStateVec[] nextStates, LongVec[] nextFingerprints,
 			long computationTime, long statesComputed) {
+		this(nextStates, nextFingerprints, computationTime, statesComputed, 0L);
+	}
+
+	public NextStateResult(TLCStateVec[] nextStates, LongVec[] nextFingerprints,
+			long computationTime, long statesComputed, long waitTime) {
 		this.nextStates = nextStates;
 		this.nextFingerprints = nextFingerprints;
 		this.computationTime = computationTime;
 		this.statesComputed = statesComputed;
+		this.waitTime = waitTime;
 	}
-	
+
 	public long getStatesComputedDelta() {
 		return statesComputed - nextStates.length;
 	}
@@ -30,6 +49,21 @@ public class NextStateResult implements Serializable {
 		return computationTime;
 	}
 
+	public long getWaitTime() {
+		return waitTime;
+	}
+
+	/**
+	 * @return The number of next states
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; nextStates != null && i < nextStates.length; i++) {
+			size += nextStates[i].size();
+		}
+		return size;
+	}
+
 	public LongVec[] getNextFingerprints() {
 		return nextFingerprints;
 	}
@@ -37,4 +71,50 @@ public class NextStateResult implements Serializable {
 	public TLCStateVec[] getNextStates() {
 		return nextStates;
 	}
+
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeBoolean(nextStates != null);
+		if (nextStates == null) {
+			return;
+		}
+		final TLCState[][] blocks = new TLCState[nextStates.length][];
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = new TLCState[nextStates[i].size()];
+			for (int j = 0; j < blocks[i].length; j++) {
+				blocks[i][j] = nextStates[i].elementAt(j);
+			}
+		}
+		StateBlockCodec.write(out, blocks);
+		for (int i = 0; i < nextFingerprints.length; i++) {
+			final LongVec fps = nextFingerprints[i];
+			out.writeInt(fps.size());
+			for (int j = 0; j < fps.size(); j++) {
+				out.writeLong(fps.elementAt(j));
+			}
+		}
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (!in.readBoolean()) {
+			return;
+		}
+		final TLCState[][] blocks = StateBlockCodec.read(in);
+		nextStates = new TLCStateVec[blocks.length];
+		for (int i = 0; i < blocks.length; i++) {
+			nextStates[i] = new TLCStateVec(Math.max(blocks[i].length, 1));
+			for (int j = 0; j < blocks[i].length; j++) {
+				nextStates[i].addElement(blocks[i][j]);
+			}
+		}
+		nextFingerprints = new LongVec[blocks.length];
+		for (int i = 0; i < nextFingerprints.length; i++) {
+			final int size = in.readInt();
+			nextFingerprints[i] = new LongVec(Math.max(size, 1));
+			for (int j = 0; j < size; j++) {
+				nextFingerprints[i].addElement(in.readLong());
+			}
+		}
+	}
 }
@@ -0,0 +1,79 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.File;
+import java.io.IOException;
+
+import tlc2.util.BufferedRandomAccessFile;
+
+/**
+ * The trace of the states owned by a {@link TLCPeer}. Contrary to
+ * {@link tlc2.tool.TLCTrace}, a predecessor might be owned by another peer.
+ * A trace location thus encodes the peer in its upper bits and the index of
+ * the entry in the peer's trace file in its lower {@link #INDEX_BITS} bits.
+ * Each entry is the location of the predecessor (or {@link #NONE}) and the
+ * fingerprint.
+ */
+final class PeerTrace {
+
+	static final int INDEX_BITS = 40;
+	/**
+	 * The location of the (non-existing) predecessor of an initial state.
+	 * Locations are non-negative, as the uid of a {@link tlc2.tool.TLCState}
+	 * is serialized as a natural number.
+	 */
+	static final long NONE = Long.MAX_VALUE;
+	private static final int ENTRY_SIZE = 16;
+
+	private final int peer;
+	private final File file;
+	private final BufferedRandomAccessFile raf;
+
+	PeerTrace(final int peer, final String metadir) throws IOException {
+		this.peer = peer;
+		this.file = new File(metadir, "peer" + peer + ".st");
+		this.raf = new BufferedRandomAccessFile(this.file, "rw");
+	}
+
+	/**
+	 * @return The location of the new entry
+	 */
+	synchronized long writeState(final long predecessor, final long fp) throws IOException {
+		final long index = this.raf.getFilePointer() / ENTRY_SIZE;
+		this.raf.writeLong(predecessor);
+		this.raf.writeLong(fp);
+		return getLocation(this.peer, index);
+	}
+
+	/**
+	 * @return The location of the predecessor and the fingerprint of the
+	 *         state at loc
+	 */
+	synchronized long[] getEntry(final long loc) throws IOException {
+		if (getPeer(loc) != this.peer) {
+			throw new IllegalArgumentException("Location " + loc + " not owned by peer " + this.peer);
+		}
+		final long curLoc = this.raf.getFilePointer();
+		this.raf.seek(getIndex(loc) * ENTRY_SIZE);
+		final long[] entry = new long[] { this.raf.readLong(), this.raf.readLong() };
+		this.raf.seek(curLoc);
+		return entry;
+	}
+
+	synchronized void close() throws IOException {
+		this.raf.close();
+		this.file.delete();
+	}
+
+	static long getLocation(final int peer, final long index) {
+		return ((long) peer << INDEX_BITS) | index;
+	}
+
+	static int getPeer(final long loc) {
+		return (int) (loc >>> INDEX_BITS);
+	}
+
+	static long getIndex(final long loc) {
+		return loc & ((1L << INDEX_BITS) - 1);
+	}
+}
@@ -0,0 +1,39 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import tlc2.tool.TLCState;
+
+/**
+ * A unit of work sent from {@link TLCServerThread} to a
+ * {@link TLCWorkerRMI}. It is serialized with the {@link StateBlockCodec}.
+ */
+@SuppressWarnings("serial")
+public class StateBlock implements Serializable {
+
+	private transient TLCState[] states;
+
+	public StateBlock(final TLCState[] states) {
+		this.states = states;
+	}
+
+	public TLCState[] getStates() {
+		return states;
+	}
+
+	public int size() {
+		return states.length;
+	}
+
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		StateBlockCodec.write(out, new TLCState[][] { states });
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		states = StateBlockCodec.read(in)[0];
+	}
+}
@@ -0,0 +1,115 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import tlc2.tool.TLCState;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+import util.WrongInvocationException;
+
+/**
+ * Encodes the blocks of states exchanged between {@link TLCServer} and
+ * {@link TLCWorker} with the {@link ValueOutputStream} encoding instead of
+ * default Java serialization. Java serialization writes class descriptors
+ * and field names for the deep {@link tlc2.value.Value} graphs of every
+ * state, whereas a {@link ValueOutputStream} writes each value as a kind
+ * tag plus its payload and every string (variable and record field names
+ * included) only once per block. Values shared by several states of a
+ * block, e.g. the unchanged variables of successor states, are written
+ * once too.
+ * <p>
+ * The encoded block can additionally be deflated with
+ * <code>-Dtlc2.tool.distributed.StateBlockCodec.compress=true</code>, which
+ * trades CPU time for network bandwidth.
+ * <p>
+ * A block with a value the {@link ValueOutputStream} cannot pickle is
+ * transferred with Java serialization as before.
+ */
+final class StateBlockCodec {
+
+	static final boolean COMPRESS = Boolean.getBoolean(StateBlockCodec.class.getName() + ".compress");
+
+	private static final byte JAVA = 0;
+	private static final byte COMPACT = 1;
+	private static final byte DEFLATED = 2;
+
+	private StateBlockCodec() {
+		// no instances
+	}
+
+	static void write(final ObjectOutputStream out, final TLCState[][] blocks) throws IOException {
+		final byte[] bytes;
+		try {
+			bytes = encode(blocks, COMPRESS);
+		} catch (WrongInvocationException e) {
+			out.writeByte(JAVA);
+			out.writeObject(blocks);
+			return;
+		}
+		out.writeByte(COMPRESS ? DEFLATED : COMPACT);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static TLCState[][] read(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		final byte mode = in.readByte();
+		if (mode == JAVA) {
+			return (TLCState[][]) in.readObject();
+		}
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return decode(bytes, mode == DEFLATED);
+	}
+
+	static byte[] encode(final TLCState[][] blocks, final boolean compress) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+		final Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+		try {
+			final OutputStream os = compress ? new DeflaterOutputStream(bytes, deflater) : bytes;
+			final ValueOutputStream vos = new ValueOutputStream(os);
+			vos.writeNat(blocks.length);
+			for (int i = 0; i < blocks.length; i++) {
+				final TLCState[] block = blocks[i];
+				vos.writeNat(block.length);
+				for (int j = 0; j < block.length; j++) {
+					block[j].write(vos);
+				}
+			}
+			vos.close();
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	static TLCState[][] decode(final byte[] bytes, final boolean compressed) throws IOException {
+		InputStream is = new ByteArrayInputStream(bytes);
+		if (compressed) {
+			is = new InflaterInputStream(is);
+		}
+		final ValueInputStream vis = new ValueInputStream(is);
+		final TLCState[][] blocks = new TLCState[vis.readNat()][];
+		for (int i = 0; i < blocks.length; i++) {
+			final TLCState[] block = new TLCState[vis.readNat()];
+			for (int j = 0; j < block.length; j++) {
+				block[j] = TLCState.Empty.createEmpty();
+				block[j].read(vis);
+			}
+			blocks[i] = block;
+		}
+		vis.close();
+		return blocks;
+	}
+}
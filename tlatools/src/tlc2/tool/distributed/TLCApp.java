@@ -245,6 +245,13 @@ public class TLCApp extends DistApp {
 		return this.tool.getState(fp, s);
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.DistApp#getState(long, tlc2.tool.TLCState, int)
+	 */
+	public final TLCStateInfo getState(long fp, TLCState s, int action) {
+		return this.tool.getState(fp, s, action);
+	}
+
 	/* Reconstruct the info for the transition from s to s1. */
 	/* (non-Javadoc)
 	 * @see tlc2.tool.distributed.DistApp#getState(tlc2.tool.TLCState, tlc2.tool.TLCState)
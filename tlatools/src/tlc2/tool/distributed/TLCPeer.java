@@ -0,0 +1,478 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.rmi.ConnectException;
+import java.rmi.Naming;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.TLCState;
+import tlc2.tool.WorkerException;
+import tlc2.tool.fp.FPSet;
+import tlc2.tool.fp.FPSetConfiguration;
+import tlc2.tool.fp.FPSetFactory;
+import tlc2.tool.queue.DiskStateQueue;
+import tlc2.tool.queue.IStateQueue;
+import tlc2.util.Cache;
+import tlc2.util.FP64;
+import tlc2.util.LongVec;
+import tlc2.util.MemIntQueue;
+import tlc2.util.SetAssociativeCache;
+import util.FileUtil;
+import util.ToolIO;
+import util.UniqueString;
+
+/**
+ * A {@link TLCPeer} explores the states owned by its partition of the
+ * fingerprint space. Contrary to a {@link TLCWorker}, which returns all
+ * successor states to the {@link TLCServer}, a peer checks the successors
+ * and sends them directly to the peer that owns them. The owner adds unseen
+ * states to its {@link FPSet}, its {@link PeerTrace} and its state queue.
+ * Thus, the server neither queues nor dedupes states and the fingerprint
+ * lookups are local to the owner.
+ * <p>
+ * Successors are buffered per owner and sent once {@link #BATCH_SIZE} states
+ * have been buffered or when the peer runs out of work.
+ * <p>
+ * A peer is started with <code>java tlc2.tool.distributed.TLCPeer host</code>
+ * against a server started with
+ * <code>-Dtlc2.tool.distributed.TLCServer.expectedPeerCount=N</code>.
+ */
+@SuppressWarnings("serial")
+public class TLCPeer extends UnicastRemoteObject implements TLCPeerRMI {
+
+	/**
+	 * The amount of successor states buffered for an owner before they are
+	 * sent to it.
+	 */
+	static final int BATCH_SIZE = Integer.getInteger(TLCPeer.class.getName() + ".batchSize", 1024);
+
+	private final DecentralizedTLCServerRMI server;
+	private final DistApp work;
+	private final String metadir;
+	private final FPSet fpSet;
+	private final IStateQueue queue;
+	/**
+	 * The levels of the states in queue in the same order. Guarded by this.
+	 */
+	private final MemIntQueue levels;
+	private final URI uri;
+
+	private final Thread[] threads;
+	private TLCPeerRMI[] peers;
+	private int index;
+	private PeerTrace trace;
+	private Outbox[] outboxes;
+
+	/**
+	 * The number of threads not waiting for states. Guarded by this.
+	 */
+	private int busy = 0;
+	/**
+	 * Guarded by this.
+	 */
+	private boolean running = true;
+	/**
+	 * The maximum level of the states owned by this peer. Guarded by this.
+	 */
+	private int maxLevel = 0;
+
+	/**
+	 * Filters the successors seen before by any thread of this peer
+	 */
+	private final Cache cache = new SetAssociativeCache();
+
+	private final AtomicLong sent = new AtomicLong(0L);
+	private final AtomicLong received = new AtomicLong(0L);
+	private final AtomicLong generated = new AtomicLong(0L);
+
+	public TLCPeer(final DecentralizedTLCServerRMI server, final DistApp work, final int numThreads, final String hostname)
+			throws IOException {
+		this.server = server;
+		this.work = work;
+		this.metadir = System.getProperty("java.io.tmpdir") + File.separator + "TLCPeer"
+				+ System.currentTimeMillis() + "-" + System.identityHashCode(this);
+		new File(this.metadir).mkdirs();
+		this.fpSet = FPSetFactory.getFPSet(new FPSetConfiguration());
+		this.fpSet.init(numThreads, this.metadir, "peer");
+		this.queue = new DiskStateQueue(this.metadir);
+		this.levels = new MemIntQueue(this.metadir, "levels");
+		this.uri = URI.create("rmi://" + hostname + "/" + this.metadir.hashCode());
+		this.threads = new Thread[numThreads];
+	}
+
+	/**
+	 * @return The index of the peer owning the given fingerprint. This is the
+	 *         same partitioning as
+	 *         {@link tlc2.tool.distributed.fp.FPSetManager#getFPSetIndex(long)}.
+	 */
+	static int getOwner(final long fp, final int numOfPeers) {
+		return (int) ((fp & 0x7FFFFFFFFFFFFFFFL) % numOfPeers);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#start(tlc2.tool.distributed.TLCPeerRMI[], int)
+	 */
+	public synchronized void start(final TLCPeerRMI[] peers, final int index) throws IOException {
+		this.peers = peers;
+		this.index = index;
+		this.trace = new PeerTrace(index, this.metadir);
+		this.outboxes = new Outbox[peers.length];
+		for (int i = 0; i < this.outboxes.length; i++) {
+			this.outboxes[i] = new Outbox();
+		}
+		this.busy = this.threads.length;
+		for (int i = 0; i < this.threads.length; i++) {
+			this.threads[i] = new Thread(new PeerRunnable(), TLCServer.THREAD_NAME_PREFIX + String.format("%03d", i));
+			this.threads[i].start();
+		}
+		ToolIO.out.println("TLC peer " + index + " of " + peers.length + " started at: " + new Date());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#receive(tlc2.tool.distributed.StateBlock, long[], int[])
+	 */
+	public void receive(final StateBlock states, final long[] fps, final int[] levels) throws IOException {
+		deliver(states.getStates(), fps, levels);
+		received.addAndGet(fps.length);
+	}
+
+	private void deliver(final TLCState[] states, final long[] fps, final int[] levels) throws IOException {
+		final int[] unseen = new int[states.length];
+		int cnt = 0;
+		for (int i = 0; i < states.length; i++) {
+			if (!this.fpSet.put(fps[i])) {
+				// Replace the location of the predecessor by the state's own
+				states[i].uid = this.trace.writeState(states[i].uid, fps[i]);
+				unseen[cnt++] = i;
+			}
+		}
+		if (cnt > 0) {
+			synchronized (this) {
+				for (int i = 0; i < cnt; i++) {
+					this.queue.enqueue(states[unseen[i]]);
+					this.levels.enqueueInt(levels[unseen[i]]);
+					this.maxLevel = Math.max(this.maxLevel, levels[unseen[i]]);
+				}
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @return The next state to explore or null if the peer has been stopped.
+	 *         Sends all buffered states before it waits for new states. The
+	 *         calling thread only counts as idle while it waits.
+	 */
+	private TLCState next(final PeerRunnable runnable) throws IOException {
+		synchronized (this) {
+			if (this.running && !this.queue.isEmpty()) {
+				return dequeue(runnable);
+			}
+		}
+		for (int i = 0; i < this.outboxes.length; i++) {
+			flush(i);
+		}
+		synchronized (this) {
+			if (this.running && this.queue.isEmpty()) {
+				this.busy--;
+				try {
+					while (this.running && this.queue.isEmpty()) {
+						this.wait();
+					}
+				} catch (InterruptedException e) {
+					return null;
+				} finally {
+					this.busy++;
+				}
+			}
+			if (!this.running) {
+				return null;
+			}
+			return dequeue(runnable);
+		}
+	}
+
+	private TLCState dequeue(final PeerRunnable runnable) {
+		runnable.level = this.levels.dequeueInt();
+		return this.queue.dequeue();
+	}
+
+	private void flush(final int owner) throws IOException {
+		final Outbox outbox = this.outboxes[owner];
+		final TLCState[] states;
+		final long[] fps;
+		final int[] levels;
+		synchronized (outbox) {
+			if (outbox.fps.size() == 0) {
+				return;
+			}
+			states = outbox.states.toArray(new TLCState[outbox.states.size()]);
+			fps = new long[outbox.fps.size()];
+			levels = new int[fps.length];
+			for (int i = 0; i < fps.length; i++) {
+				fps[i] = outbox.fps.elementAt(i);
+				levels[i] = (int) outbox.levels.elementAt(i);
+			}
+			outbox.clear();
+			if (owner != this.index) {
+				// Count the states as sent before they leave the outbox.
+				// Otherwise, this peer might appear idle while the states
+				// are still in transit to the owner.
+				sent.addAndGet(fps.length);
+			}
+		}
+		if (owner == this.index) {
+			deliver(states, fps, levels);
+		} else {
+			this.peers[owner].receive(new StateBlock(states), fps, levels);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#getStatistics()
+	 */
+	public long[] getStatistics() throws RemoteException {
+		final long[] statistics = new long[LEVEL + 1];
+		boolean idle;
+		synchronized (this) {
+			idle = this.busy == 0 && this.queue.isEmpty();
+			statistics[QUEUE] = this.queue.size();
+			statistics[LEVEL] = this.maxLevel;
+		}
+		for (int i = 0; idle && i < this.outboxes.length; i++) {
+			synchronized (this.outboxes[i]) {
+				idle = this.outboxes[i].fps.size() == 0;
+			}
+		}
+		statistics[IDLE] = idle ? 1 : 0;
+		statistics[SENT] = sent.get();
+		statistics[RECEIVED] = received.get();
+		statistics[GENERATED] = generated.get();
+		statistics[DISTINCT] = this.fpSet.size();
+		return statistics;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#getTraceEntry(long)
+	 */
+	public long[] getTraceEntry(final long loc) throws IOException {
+		return this.trace.getEntry(loc);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#checkFPs()
+	 */
+	public double checkFPs() throws IOException {
+		return this.fpSet.checkFPs();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#stop()
+	 */
+	public synchronized void stop() {
+		this.running = false;
+		this.notifyAll();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#exit()
+	 */
+	public void exit() throws IOException {
+		stop();
+		ToolIO.out.println(uri.getHost() + ", work completed at: " + new Date() + " Computed: " + generated.get()
+				+ ", Thank you!");
+		if (this.trace != null) {
+			this.trace.close();
+		}
+		this.fpSet.close();
+		this.fpSet.unexportObject(true);
+		FileUtil.deleteDir(new File(this.metadir), true);
+		UnicastRemoteObject.unexportObject(this, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.TLCPeerRMI#getURI()
+	 */
+	public URI getURI() throws RemoteException {
+		return this.uri;
+	}
+
+	/**
+	 * Explores states until the peer is stopped and reports the first
+	 * violation or error to the server.
+	 */
+	private class PeerRunnable implements Runnable {
+
+		private TLCState state1;
+		private TLCState state2;
+		/**
+		 * The level of state1
+		 */
+		private int level;
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			try {
+				while ((state1 = next(this)) != null) {
+					explore(state1);
+				}
+			} catch (Throwable e) {
+				final WorkerException we = e instanceof WorkerException ? (WorkerException) e
+						: new WorkerException(e.getMessage(), e, state1, state2, true);
+				try {
+					server.reportError(we);
+				} catch (RemoteException e1) {
+					MP.printError(EC.GENERAL, e1);
+				}
+				stop();
+			}
+		}
+
+		private void explore(final TLCState s1) throws Exception {
+			state2 = null;
+			final TLCState[] nstates = work.getNextStates(s1);
+			generated.addAndGet(nstates.length);
+			for (int i = 0; i < nstates.length; i++) {
+				state2 = nstates[i];
+				if (!work.isInModel(state2) || !work.isInActions(s1, state2)) {
+					continue;
+				}
+				final long fp = state2.fingerPrint();
+				if (cache.hit(fp)) {
+					continue;
+				}
+				work.checkState(s1, state2);
+				final int owner = getOwner(fp, peers.length);
+				state2.uid = s1.uid;
+				if (outboxes[owner].add(state2, fp, level + 1)) {
+					flush(owner);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The successor states buffered for an owner. Guarded by itself.
+	 */
+	private static final class Outbox {
+		private final List<TLCState> states = new ArrayList<TLCState>(BATCH_SIZE);
+		private final LongVec fps = new LongVec(BATCH_SIZE);
+		private final LongVec levels = new LongVec(BATCH_SIZE);
+
+		/**
+		 * @return true iff the outbox is full
+		 */
+		synchronized boolean add(final TLCState state, final long fp, final int level) {
+			states.add(state);
+			fps.addElement(fp);
+			levels.addElement(level);
+			return fps.size() >= BATCH_SIZE;
+		}
+
+		void clear() {
+			states.clear();
+			fps.reset();
+			levels.reset();
+		}
+	}
+
+	public static void main(String args[]) {
+		ToolIO.out.println("TLC Peer " + TLCGlobals.versionOfTLC);
+
+		// Must have exactly one arg: a hostname (spec is read from the server
+		// connecting to).
+		if (args.length != 1) {
+			ToolIO.out.println("Error: Missing hostname of the TLC server to be contacted.");
+			return;
+		}
+		final String serverName = args[0];
+		final String url = "//" + serverName + ":" + TLCServer.Port + "/TLCServer";
+
+		try {
+			// try to repeatedly connect to the server until it becomes available
+			int i = 1;
+			DecentralizedTLCServerRMI server = null;
+			while (true) {
+				try {
+					final Remote remote = Naming.lookup(url);
+					if (!(remote instanceof DecentralizedTLCServerRMI)) {
+						ToolIO.out.println("Error: The TLC server " + serverName
+								+ " has not been started for peers (-D" + TLCServer.class.getName()
+								+ ".expectedPeerCount).");
+						return;
+					}
+					server = (DecentralizedTLCServerRMI) remote;
+					break;
+				} catch (ConnectException e) {
+					if (!(e.getCause() instanceof java.net.ConnectException)) {
+						throw e;
+					}
+					long sleep = (long) Math.sqrt(i);
+					ToolIO.out.println("Server " + serverName + " unreachable, sleeping " + sleep
+							+ "s for server to come online...");
+					Thread.sleep(sleep * 1000);
+					i *= 2;
+				}
+			}
+
+			FP64.Init(server.getIrredPolyForFP());
+
+			// this call has to be made before the first UniqueString gets
+			// created! Otherwise peers and server end up creating different
+			// unique strings for the same String value.
+			UniqueString.setSource((InternRMI) server);
+
+			final RMIFilenameToStreamResolver fts = new RMIFilenameToStreamResolver();
+			fts.setTLCServer(server);
+			final DistApp work = new TLCApp(server.getSpecFileName(), server.getConfigFileName(),
+					server.getCheckDeadlock(), server.getPreprocess(), fts);
+
+			final int numThreads = Integer.getInteger(TLCPeer.class.getName() + ".threadCount", Runtime
+					.getRuntime().availableProcessors());
+			final TLCPeer peer = new TLCPeer(server, work, numThreads, InetAddress.getLocalHost()
+					.getCanonicalHostName());
+			server.registerPeer(peer);
+
+			// periodically (60s) check server aliveness
+			final Timer keepAliveTimer = new Timer("TLCPeer KeepAlive Timer", true);
+			keepAliveTimer.schedule(new TimerTask() {
+				public void run() {
+					try {
+						((TLCServerRMI) Naming.lookup(url)).isDone();
+					} catch (Exception e) {
+						MP.printError(EC.TLC_DISTRIBUTED_SERVER_NOT_RUNNING, e);
+						try {
+							peer.exit();
+						} catch (IOException e1) {
+							MP.printError(EC.GENERAL, e1);
+						}
+						keepAliveTimer.cancel();
+					}
+				}
+			}, TLCTimerTask.PERIOD, TLCTimerTask.PERIOD);
+
+			ToolIO.out.println("TLC peer with " + numThreads + " threads ready at: " + new Date());
+		} catch (Throwable e) {
+			MP.printError(EC.GENERAL, e);
+			ToolIO.out.println("Error: Failed to start peer for server " + serverName + ".\n" + e.getMessage());
+		}
+		ToolIO.out.flush();
+	}
+}
@@ -0,0 +1,91 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.IOException;
+import java.net.URI;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * A {@link TLCPeerRMI} owns a partition of the fingerprint space together
+ * with the state queue and the trace of the states in that partition. Peers
+ * send successor states directly to the peer owning their fingerprint (see
+ * {@link TLCPeer#getOwner(long, int)}) instead of returning them to the
+ * {@link TLCServer}. The {@link DecentralizedTLCServer} only detects
+ * termination and reconstructs counterexamples.
+ */
+public interface TLCPeerRMI extends Remote {
+
+	/**
+	 * Indices into the array returned by {@link #getStatistics()}
+	 */
+	public static final int IDLE = 0;
+	public static final int SENT = 1;
+	public static final int RECEIVED = 2;
+	public static final int GENERATED = 3;
+	public static final int DISTINCT = 4;
+	public static final int QUEUE = 5;
+	public static final int LEVEL = 6;
+
+	/**
+	 * Starts the exploration of the states owned by this peer.
+	 *
+	 * @param peers
+	 *            All peers (including this one) ordered by partition
+	 * @param index
+	 *            The partition owned by this peer
+	 */
+	public void start(TLCPeerRMI[] peers, int index) throws IOException;
+
+	/**
+	 * Hands states owned by this peer over to it. States not yet seen by
+	 * this peer are added to its trace and queue.
+	 *
+	 * @param states
+	 *            The states owned by this peer. The uid of a state is the
+	 *            trace location of its predecessor or {@link PeerTrace#NONE}
+	 *            for an initial state.
+	 * @param fps
+	 *            The fingerprints of states
+	 * @param levels
+	 *            The levels of states, the level of an initial state is 1
+	 */
+	public void receive(StateBlock states, long[] fps, int[] levels) throws IOException;
+
+	/**
+	 * @return A snapshot of this peer's counters indexed by {@link #IDLE},
+	 *         {@link #SENT}, {@link #RECEIVED}, {@link #GENERATED},
+	 *         {@link #DISTINCT}, {@link #QUEUE} and {@link #LEVEL}.
+	 *         {@link #IDLE} is 1 iff no thread of the peer is working and
+	 *         nothing is left to be sent. {@link #LEVEL} is the maximum level
+	 *         of the states owned by this peer.
+	 */
+	public long[] getStatistics() throws RemoteException;
+
+	/**
+	 * @return The trace location of the predecessor and the fingerprint of
+	 *         the state at the given trace location
+	 */
+	public long[] getTraceEntry(long loc) throws IOException;
+
+	/**
+	 * @see tlc2.tool.fp.FPSet#checkFPs()
+	 */
+	public double checkFPs() throws IOException;
+
+	/**
+	 * Stops the exploration without exiting the peer, it still answers
+	 * {@link #getTraceEntry(long)}.
+	 */
+	public void stop() throws RemoteException;
+
+	/**
+	 * Kills/exits this peer
+	 */
+	public void exit() throws IOException;
+
+	/**
+	 * @return The {@link URI} address of this peer
+	 */
+	public URI getURI() throws RemoteException;
+}
@@ -75,7 +75,7 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 	/**
 	 * show statistics every 1 minutes
 	 */
-	private static final int REPORT_INTERVAL = Integer.getInteger(TLCServer.class.getName() + ".report", 1 * 60 * 1000);
+	static final int REPORT_INTERVAL = Integer.getInteger(TLCServer.class.getName() + ".report", 1 * 60 * 1000);
 
 	/**
 	 * If the state/ dir should be cleaned up after a successful model run
@@ -88,6 +88,19 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 	 */
 	private static final int expectedFPSetCount = Integer.getInteger(TLCServer.class.getName() + ".expectedFPSetCount", 0);
 
+	/**
+	 * The amount of {@link TLCPeer}s to exchange states directly among each
+	 * other (use {@link TLCWorker}s if unset).
+	 */
+	private static final int expectedPeerCount = Integer.getInteger(TLCServer.class.getName() + ".expectedPeerCount", 0);
+
+	/**
+	 * The name of a class that wraps the {@link IFPSetManager}, e.g. to
+	 * instrument it. It has to implement {@link IFPSetManager} and declare a
+	 * public constructor accepting the {@link IFPSetManager} to wrap.
+	 */
+	private static final String FPSET_MANAGER_WRAPPER = System.getProperty(TLCServer.class.getName() + ".fpSetManagerWrapper");
+
 	/**
 	 * Performance metric: distinct states per minute
 	 */
@@ -113,7 +126,7 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 	public final IStateQueue stateQueue;
 	public final TLCTrace trace;
 
-	private final DistApp work;
+	protected final DistApp work;
 	private final String metadir;
 	private final String filename;
 
@@ -168,12 +181,29 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 				this.work);
 
 		// FPSet
-		this.fpSetManager = getFPSetManagerImpl(work, metadir, expectedFPSetCount);
+		final IFPSetManager manager = getFPSetManagerImpl(work, metadir, expectedFPSetCount);
+		this.fpSetManager = FPSET_MANAGER_WRAPPER != null ? wrap(FPSET_MANAGER_WRAPPER, manager) : manager;
 		
 		// Determines the size of the state queue subset handed out to workers
 		blockSelector = BlockSelectorFactory.getBlockSelector(this);
 	}
 	
+	/**
+	 * @param clazz Class string to load
+	 * @param manager Default {@link IFPSetManager} when loading from String fails
+	 * @return The given manager wrapped by an instance of clazz
+	 */
+	private static IFPSetManager wrap(final String clazz, final IFPSetManager manager) {
+		try {
+			final Class<?> wrapperClass = TLCServer.class.getClassLoader().loadClass(clazz);
+			return (IFPSetManager) wrapperClass.getConstructor(new Class<?>[] { IFPSetManager.class }).newInstance(
+					new Object[] { manager });
+		} catch (Exception e) {
+			e.printStackTrace();
+			return manager;
+		}
+	}
+
 	/**
 	 * The {@link IFPSetManager} implementation to be used by the
 	 * {@link TLCServer} implementation. Subclass may want to return specialized
@@ -672,7 +702,9 @@ public class TLCServer extends UnicastRemoteObject implements TLCServerRMI,
 		try {
 			TLCGlobals.setNumWorkers(0);
 			final TLCApp app = TLCApp.create(argv);
-			if (expectedFPSetCount > 0) {
+			if (expectedPeerCount > 0) {
+				server = new DecentralizedTLCServer(app, expectedPeerCount);
+			} else if (expectedFPSetCount > 0) {
 				server = new DistributedFPSetTLCServer(app, expectedFPSetCount);
 			} else {
 				server = new TLCServer(app);
@@ -5,6 +5,7 @@
 package tlc2.tool.distributed;
 
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -13,7 +14,11 @@ import java.rmi.RemoteException;
 import java.util.Date;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import tlc2.TLCGlobals;
@@ -23,6 +28,7 @@ import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateVec;
 import tlc2.tool.WorkerException;
 import tlc2.tool.distributed.selector.IBlockSelector;
+import tlc2.tool.distributed.selector.IPrefetchingBlockSelector;
 import tlc2.tool.fp.FPSet;
 import tlc2.tool.queue.IStateQueue;
 import tlc2.tool.queue.StateQueue;
@@ -156,15 +162,15 @@ public class TLCServerThread extends IdThread {
 
 		final IStateQueue stateQueue = this.tlcServer.stateQueue;
 		try {
+			if (selector instanceof IPrefetchingBlockSelector) {
+				runPrefetching(stateQueue, (IPrefetchingBlockSelector) selector);
+				return;
+			}
 			START: while (true) {
 				// blocks until more states available or all work is done
 				states = selector.getBlocks(stateQueue, worker);
 				if (states == null) {
-					synchronized (this.tlcServer) {
-						this.tlcServer.setDone();
-						this.tlcServer.notify();
-					}
-					stateQueue.finishAll();
+					setDone(stateQueue);
 					return;
 				}
 
@@ -181,7 +187,7 @@ public class TLCServerThread extends IdThread {
 				boolean workDone = false;
 				while (!workDone) {
 					try {
-						final NextStateResult res = this.worker.getNextStates(states);
+						final NextStateResult res = this.worker.getNextStates(new StateBlock(states));
 						newStates = res.getNextStates();
 						receivedStates += newStates[0].size();
 						newFps = res.getNextFingerprints();
@@ -224,29 +230,7 @@ public class TLCServerThread extends IdThread {
 					}
 				}
 
-				// add fingerprints to fingerprint manager (delegates to
-				// corresponding fingerprint server)
-				// (Why isn't this done by workers directly?
-				// -> because if the worker crashes while computing states, the
-				// fp set would be inconsistent => making it an "atomic"
-				// operation)
-				BitVector[] visited = this.tlcServer.fpSetManager
-						.putBlock(newFps, executorService);
-
-				// recreate newly computed states and add them to queue
-				for (int i = 0; i < visited.length; i++) {
-					BitVector.Iter iter = new BitVector.Iter(visited[i]);
-					int index;
-					while ((index = iter.next()) != -1) {
-						TLCState state = newStates[i].elementAt(index);
-						// write state id and state fp to .st file for
-						// checkpointing
-						long fp = newFps[i].elementAt(index);
-						state.uid = this.tlcServer.trace.writeState(state, fp);
-						// add state to state queue for further processing
-						stateQueue.sEnqueue(state);
-					}
-				}
+				enqueueNewStates(stateQueue, newStates, newFps);
 			}
 		} catch (Throwable e) {
 			TLCState state1 = null, state2 = null;
@@ -288,6 +272,141 @@ public class TLCServerThread extends IdThread {
 		}
 	}
 
+	/**
+	 * Like the loop in {@link #run()} but sends the next block to the worker
+	 * while it still computes the current one. At most two invocations are in
+	 * flight and {@link #states} holds the states of both so that
+	 * {@link #handleRemoteWorkerLost(IStateQueue)} returns all of them to the
+	 * queue. The selector is asked to block for new states only if no
+	 * invocation is in flight, which keeps the termination and checkpoint
+	 * detection of the {@link IStateQueue} intact.
+	 */
+	private void runPrefetching(final IStateQueue stateQueue, final IPrefetchingBlockSelector prefetcher)
+			throws Throwable {
+		final ExecutorService invoker = Executors.newFixedThreadPool(2);
+		try {
+			TLCState[] current = null, next = null;
+			Future<NextStateResult> currentCall = null, nextCall = null;
+			while (true) {
+				if (currentCall == null) {
+					// blocks until more states available or all work is done
+					current = prefetcher.getBlocks(stateQueue, worker);
+					if (current == null) {
+						setDone(stateQueue);
+						return;
+					}
+					// without initial states no need to bother workers
+					if (current.length == 0) {
+						continue;
+					}
+					states = current;
+					sentStates += current.length;
+					currentCall = invoke(invoker, current);
+				}
+				if (nextCall == null) {
+					next = prefetcher.getPrefetchBlocks(stateQueue, worker);
+					if (next != null) {
+						states = concat(current, next);
+						sentStates += next.length;
+						nextCall = invoke(invoker, next);
+					}
+				}
+
+				try {
+					final NextStateResult res = currentCall.get();
+					task.setLastInvocation(System.currentTimeMillis());
+					final TLCStateVec[] newStates = res.getNextStates();
+					receivedStates += newStates[0].size();
+					tlcServer.addStatesGeneratedDelta(res.getStatesComputedDelta());
+					enqueueNewStates(stateQueue, newStates, res.getNextFingerprints());
+				} catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof RemoteException && isRecoverable((RemoteException) cause)
+							&& current.length > 1) {
+						// See run()
+						MP.printMessage(EC.TLC_DISTRIBUTED_EXCEED_BLOCKSIZE, Integer.toString(current.length / 2));
+						stateQueue.sEnqueue(current);
+						selector.setMaxTXSize(current.length / 2);
+					} else if (cause instanceof RemoteException) {
+						MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST, getUri().toString());
+						handleRemoteWorkerLost(stateQueue);
+						return;
+					} else if (cause instanceof NullPointerException) {
+						MP.printMessage(EC.TLC_DISTRIBUTED_WORKER_LOST,
+								"\n" + throwableToString((NullPointerException) cause));
+						handleRemoteWorkerLost(stateQueue);
+						return;
+					} else {
+						throw cause;
+					}
+				}
+				
+				// the prefetched block becomes the current one
+				current = next;
+				currentCall = nextCall;
+				next = null;
+				nextCall = null;
+				states = current != null ? current : new TLCState[0];
+			}
+		} finally {
+			invoker.shutdownNow();
+		}
+	}
+
+	private Future<NextStateResult> invoke(final ExecutorService invoker, final TLCState[] block) {
+		return invoker.submit(new Callable<NextStateResult>() {
+			public NextStateResult call() throws Exception {
+				return worker.getNextStates(new StateBlock(block));
+			}
+		});
+	}
+
+	private static TLCState[] concat(final TLCState[] a, final TLCState[] b) {
+		final TLCState[] result = new TLCState[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Adds the fingerprints of the new states to the fingerprint manager and
+	 * the states not seen before to the state queue.
+	 */
+	private void enqueueNewStates(final IStateQueue stateQueue, final TLCStateVec[] newStates, final LongVec[] newFps)
+			throws IOException {
+		// add fingerprints to fingerprint manager (delegates to
+		// corresponding fingerprint server)
+		// (Why isn't this done by workers directly?
+		// -> because if the worker crashes while computing states, the
+		// fp set would be inconsistent => making it an "atomic"
+		// operation)
+		BitVector[] visited = this.tlcServer.fpSetManager
+				.putBlock(newFps, executorService);
+
+		// recreate newly computed states and add them to queue
+		for (int i = 0; i < visited.length; i++) {
+			BitVector.Iter iter = new BitVector.Iter(visited[i]);
+			int index;
+			while ((index = iter.next()) != -1) {
+				TLCState state = newStates[i].elementAt(index);
+				// write state id and state fp to .st file for
+				// checkpointing
+				long fp = newFps[i].elementAt(index);
+				state.uid = this.tlcServer.trace.writeState(state, fp);
+				// add state to state queue for further processing
+				stateQueue.sEnqueue(state);
+			}
+		}
+	}
+
+	private void setDone(final IStateQueue stateQueue) {
+		synchronized (this.tlcServer) {
+			this.tlcServer.setDone();
+			this.tlcServer.notify();
+		}
+		stateQueue.finishAll();
+	}
+
 	/**
 	 * A recoverable error/exception is defined to be a case where the
 	 * {@link TLCWorkerRMI} can continue to work if {@link TLCServer} sends less
@@ -36,7 +36,7 @@ import tlc2.util.BitVector;
 import tlc2.util.Cache;
 import tlc2.util.FP64;
 import tlc2.util.LongVec;
-import tlc2.util.SimpleCache;
+import tlc2.util.SetAssociativeCache;
 import util.Assert;
 import util.ToolIO;
 import util.UniqueString;
@@ -65,12 +65,22 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 
 	public TLCWorker(final int threadId, DistApp work, IFPSetManager fpSetManager, String aHostname)
 			throws RemoteException {
+		this(threadId, work, fpSetManager, aHostname, new SetAssociativeCache());
+	}
+
+	/**
+	 * @param aCache
+	 *            The fingerprint cache, shared by all {@link TLCWorker}s of a
+	 *            VM
+	 */
+	public TLCWorker(final int threadId, DistApp work, IFPSetManager fpSetManager, String aHostname, final Cache aCache)
+			throws RemoteException {
 		this.work = work;
 		this.fpSetManager = fpSetManager;
 		this.uri = URI.create("rmi://" + aHostname + ":" + getPort() + "/"
 				+ threadId);
 		
-		this.cache = new SimpleCache();
+		this.cache = aCache;
 	}
 	
 	//TODO Remove once performance tests show superiority of TreeSet
@@ -83,12 +93,23 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 	}
 
 	/* (non-Javadoc)
-	 * @see tlc2.tool.distributed.TLCWorkerRMI#getNextStates(tlc2.tool.TLCState[])
+	 * @see tlc2.tool.distributed.TLCWorkerRMI#getNextStates(tlc2.tool.distributed.StateBlock)
 	 */
-	public synchronized NextStateResult getNextStates(final TLCState[] states)
+	public NextStateResult getNextStates(final StateBlock block)
+			throws WorkerException, RemoteException {
+		// A server prefetching blocks invokes this method while the previous
+		// invocation is still running
+		final long arrival = System.currentTimeMillis();
+		synchronized (this) {
+			return getNextStates(block, arrival);
+		}
+	}
+
+	private NextStateResult getNextStates(final StateBlock block, final long arrival)
 			throws WorkerException, RemoteException {
 		
 		computing = true;
+		final TLCState[] states = block.getStates();
 		
 		// statistics
 		lastInvocation = System.currentTimeMillis();
@@ -181,7 +202,7 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 			
 			// Prepare the return value.
 			final long computationTime = System.currentTimeMillis() - lastInvocation;
-			return new NextStateResult(newStates, newFps, computationTime, statesComputed);
+			return new NextStateResult(newStates, newFps, computationTime, statesComputed, lastInvocation - arrival);
 		} catch (WorkerException e) {
 			throw e;
 		} catch (OutOfMemoryError e) {
@@ -346,9 +367,13 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 					+ ".threadCount", Runtime.getRuntime()
 					.availableProcessors());
 			
+			// all threads share a single cache (of SetAssociativeCache.SIZE
+			// megabytes) of the fingerprints sent to the FPSet servers
+			final Cache cache = new SetAssociativeCache();
+			
 			runnables = new TLCWorkerRunnable[numCores];
 			for (int j = 0; j < numCores; j++) {
-				runnables[j] = new TLCWorkerRunnable(j, server, fpSetManager, work);
+				runnables[j] = new TLCWorkerRunnable(j, server, fpSetManager, work, cache);
 				Thread t = new Thread(runnables[j], TLCServer.THREAD_NAME_PREFIX + String.format("%03d", j));
 				t.start();
 			}
@@ -408,15 +433,17 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 		private final TLCServerRMI aServer;
 		private final IFPSetManager anFpSetManager;
 		private final DistApp aWork;
+		private final Cache cache;
 		private TLCWorker worker;
 		private final int threadId;
 
 		public TLCWorkerRunnable(int threadId, TLCServerRMI aServer,
-				IFPSetManager anFpSetManager, DistApp aWork) {
+				IFPSetManager anFpSetManager, DistApp aWork, Cache aCache) {
 			this.threadId = threadId;
 			this.aServer = aServer;
 			this.anFpSetManager = anFpSetManager;
 			this.aWork = aWork;
+			this.cache = aCache;
 		}
 		
 		/* (non-Javadoc)
@@ -425,7 +452,7 @@ public class TLCWorker extends UnicastRemoteObject implements TLCWorkerRMI {
 		public void run() {
 			try {
 				worker = new TLCWorker(threadId, aWork, anFpSetManager, InetAddress
-						.getLocalHost().getCanonicalHostName());
+						.getLocalHost().getCanonicalHostName(), cache);
 				aServer.registerWorker(worker);
 			} catch (RemoteException e) {
 				throw new RuntimeException(e);
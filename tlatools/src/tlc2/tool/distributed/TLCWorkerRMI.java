@@ -9,7 +9,6 @@ import java.net.URI;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
-import tlc2.tool.TLCState;
 import tlc2.tool.WorkerException;
 
 /**
@@ -24,7 +23,7 @@ public interface TLCWorkerRMI extends Remote {
 	 * @throws RemoteException
 	 * @throws WorkerException
 	 */
-	public NextStateResult getNextStates(TLCState[] states) throws RemoteException,
+	public NextStateResult getNextStates(StateBlock states) throws RemoteException,
 			WorkerException;
 	
 	/**
@@ -45,7 +44,8 @@ public interface TLCWorkerRMI extends Remote {
 	public URI getURI() throws RemoteException;
 
 	/**
-	 * @return The ratio of cache hits to cache misses
+	 * @return The fraction of fingerprint lookups served by the worker's
+	 *         cache
 	 */
 	public double getCacheRateRatio() throws RemoteException;
 }
@@ -3,7 +3,6 @@ package tlc2.tool.distributed;
 import java.net.URI;
 import java.rmi.RemoteException;
 
-import tlc2.tool.TLCState;
 import tlc2.tool.WorkerException;
 
 /**
@@ -19,15 +18,20 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 	 * Network overhead for a getNextStates method invocation
 	 */
 	private double networkOverhead = Double.MAX_VALUE;
+	/**
+	 * The statistics of the most recently completed getNextStates invocation
+	 * or null
+	 */
+	private volatile Invocation lastInvocation;
 
 	public TLCWorkerSmartProxy(final TLCWorkerRMI aWorker) {
 		worker = aWorker;
 	}
 
 	/* (non-Javadoc)
-	 * @see tlc2.tool.distributed.TLCWorkerRMI#getNextStates(tlc2.tool.TLCState[])
+	 * @see tlc2.tool.distributed.TLCWorkerRMI#getNextStates(tlc2.tool.distributed.StateBlock)
 	 */
-	public NextStateResult getNextStates(final TLCState[] states) throws RemoteException, WorkerException {
+	public NextStateResult getNextStates(final StateBlock states) throws RemoteException, WorkerException {
 		// Prefer currentTimeMillis over nanoTime as it uses less CPU cycles to read
 		final long start = System.currentTimeMillis();
 		
@@ -43,7 +47,10 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 		double percentageNetworkOverhead = networkTime / roundTripTime;
 		
 		// network overhead per state
-		networkOverhead = percentageNetworkOverhead / states.length;
+		networkOverhead = percentageNetworkOverhead / states.size();
+		
+		lastInvocation = new Invocation(states.size(), nextStates.size(), roundTripTime, computationTime,
+				Math.max(nextStates.getWaitTime(), 0L));
 		
 		return nextStates;
 	}
@@ -59,6 +66,41 @@ public class TLCWorkerSmartProxy implements TLCWorkerRMI {
 	public double getNetworkOverhead() {
 		return networkOverhead;
 	}
+
+	/**
+	 * @return The statistics of the most recently completed
+	 *         {@link #getNextStates(StateBlock)} invocation or null
+	 */
+	public Invocation getLastInvocation() {
+		return lastInvocation;
+	}
+
+	/**
+	 * The statistics of a single {@link TLCWorkerSmartProxy#getNextStates(StateBlock)} invocation
+	 */
+	public static final class Invocation {
+		public final int states;
+		public final int nextStates;
+		public final long roundTripTime;
+		public final long computationTime;
+		public final long waitTime;
+
+		public Invocation(int states, int nextStates, long roundTripTime, long computationTime, long waitTime) {
+			this.states = states;
+			this.nextStates = nextStates;
+			this.roundTripTime = roundTripTime;
+			this.computationTime = computationTime;
+			this.waitTime = waitTime;
+		}
+
+		/**
+		 * @return The time spent transferring states (round-trip time minus
+		 *         computation and waiting at the worker)
+		 */
+		public long getNetworkTime() {
+			return Math.max(roundTripTime - computationTime - waitTime, 0L);
+		}
+	}
 	
 	/* All other methods just delegate */
 
@@ -0,0 +1,42 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.util.Arrays;
+
+/**
+ * Detects the termination of decentralized model checking from the counters
+ * of all {@link TLCPeerRMI}s. The counters are not read atomically: A peer
+ * might become busy again after it reported to be idle, because a message
+ * (a block of states) is still in transit to it. Thus, a round of counters
+ * only indicates termination if all peers are idle and all sent states have
+ * been received. Since a peer might have sent and received states between
+ * the reads of two other peers' counters, termination is only reported if
+ * two consecutive rounds show identical counters (four-counter method).
+ */
+final class TerminationDetector {
+
+	private long[] previous;
+
+	/**
+	 * @param statistics
+	 *            The {@link TLCPeerRMI#getStatistics()} of all peers read in
+	 *            one round
+	 * @param sent
+	 *            The states sent to the peers by the server
+	 * @return true iff model checking has terminated
+	 */
+	boolean isTerminated(final long[][] statistics, final long sent) {
+		final long[] current = new long[statistics.length * 2];
+		boolean idle = true;
+		long sum = sent;
+		for (int i = 0; i < statistics.length; i++) {
+			idle &= statistics[i][TLCPeerRMI.IDLE] == 1;
+			sum += statistics[i][TLCPeerRMI.SENT] - statistics[i][TLCPeerRMI.RECEIVED];
+			current[i * 2] = statistics[i][TLCPeerRMI.SENT];
+			current[i * 2 + 1] = statistics[i][TLCPeerRMI.RECEIVED];
+		}
+		final boolean stable = Arrays.equals(previous, current);
+		previous = idle && sum == 0 ? current : null;
+		return stable && previous != null;
+	}
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.fp;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable consistent hash ring assigning fingerprints to FPSet servers.
+ * Each server owns {@link #getVirtualNodes()} points (virtual nodes) on the
+ * ring, a fingerprint is owned by the server of the first point at or after
+ * the fingerprint's position. Adding or removing a server thus only moves the
+ * ranges next to the server's points, and these ranges are spread over
+ * (almost) all other servers instead of a single neighbor.
+ * <p>
+ * Positions are derived by a mixing function instead of the raw fingerprint
+ * bits. Otherwise the partitions would correlate with the bits the
+ * {@link tlc2.tool.fp.FPSet} implementations use to index their tables.
+ */
+@SuppressWarnings("serial")
+final class ConsistentHashRing implements Serializable {
+
+	private final int virtualNodes;
+	/**
+	 * The sorted positions of the virtual nodes
+	 */
+	private final long[] points;
+	/**
+	 * owners[i] is the server owning points[i]
+	 */
+	private final int[] owners;
+
+	ConsistentHashRing(final int virtualNodes) {
+		this(virtualNodes, new long[0], new int[0]);
+	}
+
+	private ConsistentHashRing(final int virtualNodes, final long[] points, final int[] owners) {
+		if (virtualNodes <= 0) {
+			throw new IllegalArgumentException("virtualNodes must be positive");
+		}
+		this.virtualNodes = virtualNodes;
+		this.points = points;
+		this.owners = owners;
+	}
+
+	/**
+	 * @return A new ring that additionally contains the given server
+	 */
+	ConsistentHashRing add(final int server) {
+		if (contains(server)) {
+			return this;
+		}
+		final long[] added = new long[virtualNodes];
+		for (int v = 0; v < virtualNodes; v++) {
+			added[v] = position(((long) server << 32) | v);
+		}
+		Arrays.sort(added);
+
+		// Merge the sorted points of the new server into the existing ones
+		final long[] newPoints = new long[points.length + added.length];
+		final int[] newOwners = new int[newPoints.length];
+		int i = 0, j = 0;
+		for (int k = 0; k < newPoints.length; k++) {
+			if (j >= added.length || (i < points.length && points[i] <= added[j])) {
+				newPoints[k] = points[i];
+				newOwners[k] = owners[i++];
+			} else {
+				newPoints[k] = added[j++];
+				newOwners[k] = server;
+			}
+		}
+		return new ConsistentHashRing(virtualNodes, newPoints, newOwners);
+	}
+
+	/**
+	 * @return A new ring without the given server. Its ranges are taken over
+	 *         by the owners of the succeeding points.
+	 */
+	ConsistentHashRing remove(final int server) {
+		int cnt = 0;
+		for (int i = 0; i < owners.length; i++) {
+			if (owners[i] != server) {
+				cnt++;
+			}
+		}
+		final long[] newPoints = new long[cnt];
+		final int[] newOwners = new int[cnt];
+		for (int i = 0, k = 0; i < owners.length; i++) {
+			if (owners[i] != server) {
+				newPoints[k] = points[i];
+				newOwners[k++] = owners[i];
+			}
+		}
+		return new ConsistentHashRing(virtualNodes, newPoints, newOwners);
+	}
+
+	boolean contains(final int server) {
+		for (int i = 0; i < owners.length; i++) {
+			if (owners[i] == server) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean isEmpty() {
+		return points.length == 0;
+	}
+
+	int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	/**
+	 * @return The server owning the given fingerprint or -1 iff the ring is
+	 *         empty. The MSB of fp is ignored, because a DiskFPSet does not
+	 *         store it (see FPSetRMI#getFingerprints).
+	 */
+	int getOwner(final long fp) {
+		if (points.length == 0) {
+			return -1;
+		}
+		int idx = Arrays.binarySearch(points, position(fp & 0x7FFFFFFFFFFFFFFFL));
+		if (idx < 0) {
+			idx = -idx - 1;
+			if (idx == points.length) {
+				// wrap around
+				idx = 0;
+			}
+		}
+		return owners[idx];
+	}
+
+	/**
+	 * @return The non-negative position of the given value on the ring
+	 *         (finalizer of the SplitMix64 generator)
+	 */
+	static long position(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return (z ^ (z >>> 31)) & 0x7FFFFFFFFFFFFFFFL;
+	}
+}
@@ -1,11 +1,30 @@
 // Copyright (c) 2012 Markus Alexander Kuppe. All rights reserved.
 package tlc2.tool.distributed.fp;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import tlc2.tool.distributed.TLCWorker;
+import tlc2.util.BitVector;
+import tlc2.util.LongVec;
+import util.ToolIO;
 
 /**
  * Contrary to {@link FPSetManager}, this class is a {@link UnicastRemoteObject}
@@ -13,28 +32,86 @@ import tlc2.tool.distributed.TLCWorker;
  * and thus a single point of failure and bottleneck.<br>
  * On the up side, it results in {@link TLCWorker}s seeing a consistent
  * distributed fingerprint set at all times.
+ * <p>
+ * If {@link #VIRTUAL_NODES} is positive, fingerprints are assigned to the
+ * FPSet servers by a {@link ConsistentHashRing} instead of a fixed bit mask.
+ * Additional FPSet servers can then register while model checking is
+ * running, and the ranges of a failed server are spread over all remaining
+ * servers. The ranges a joining server takes over are copied to it by a
+ * background {@link Migration}. Until the migration is complete, a
+ * fingerprint unknown to its current owner is also looked up in the server
+ * that owned it before the join. Afterwards, the previous owners no longer
+ * receive lookups for these ranges. They keep storing the fingerprints
+ * though, since an FPSet cannot remove fingerprints.
  */
 @SuppressWarnings("serial")
 public class DynamicFPSetManager extends FPSetManager implements Serializable {
 
+	/**
+	 * The number of virtual nodes per FPSet server on the consistent hash
+	 * ring. Zero (the default) assigns fingerprints by a fixed bit mask.
+	 */
+	public static final int VIRTUAL_NODES = Integer.getInteger(DynamicFPSetManager.class.getName() + ".virtualNodes", 0);
+
+	/**
+	 * The number of fingerprints copied at once by a {@link Migration}
+	 */
+	static final int MIGRATION_PAGE = Integer.getInteger(DynamicFPSetManager.class.getName() + ".migrationPage", 1 << 16);
+
 	private int expectedNumOfServers;
 
+	/**
+	 * The current assignment of fingerprints to FPSet servers or null if
+	 * fingerprints are assigned by {@link FPSetManager#mask}.
+	 */
+	private volatile ConsistentHashRing ring;
+	/**
+	 * The migrations caused by the FPSet servers that joined mid-run, one
+	 * per server. A fingerprint might still be (only) stored by its previous
+	 * owner as long as a migration is incomplete.
+	 */
+	private final List<Migration> migrations = new CopyOnWriteArrayList<Migration>();
+	/**
+	 * Runs the migrations one after another. A migration thus reads the
+	 * ranges of its previous owners only after they have received the ranges
+	 * of earlier migrations.
+	 */
+	private transient ExecutorService migrator;
+	/**
+	 * Excludes lookups during the rebalancing caused by a joining server.
+	 * Otherwise, a fingerprint could concurrently be inserted into its old
+	 * owner and found to be new by its new owner.
+	 */
+	private final ReentrantReadWriteLock rebalanceLock = new ReentrantReadWriteLock();
+	/**
+	 * The number of fingerprints looked up in their previous owners. These
+	 * lookups are counted by {@link FPSetRMI#getStatesSeen()} too.
+	 */
+	private final AtomicLong migrationLookups = new AtomicLong();
+
 	public DynamicFPSetManager(int expectedNumOfServers) throws RemoteException {
-		super();
+		this(expectedNumOfServers, VIRTUAL_NODES);
+	}
+
+	public DynamicFPSetManager(int expectedNumOfServers, final int virtualNodes) throws RemoteException {
+		super(new CopyOnWriteArrayList<FPSets>());
 		this.expectedNumOfServers = expectedNumOfServers;
-		
+
 		// Guard against invalid values
-		if (expectedNumOfServers <= 0) {
+		if (expectedNumOfServers <= 0 || virtualNodes < 0) {
 			throw new IllegalArgumentException();
 		}
-		
+		if (virtualNodes > 0) {
+			this.ring = new ConsistentHashRing(virtualNodes);
+		}
+
 		// Round expectedNumOfServers to power of 2
 		int log = 0;
 		while (expectedNumOfServers > 0) {
 			expectedNumOfServers = expectedNumOfServers / 2;
 			log++;
 		}
-		
+
 		// Zero upper bits of mask which won't be used when addressing the
 		// fingerprint servers anyway.
 		this.mask = (1L << log) - 1L;
@@ -44,7 +121,50 @@ public class DynamicFPSetManager extends FPSetManager implements Serializable {
 	/* (non-Javadoc)
 	 * @see tlc2.tool.distributed.IFPSetManager#register(tlc2.tool.distributed.FPSetRMI)
 	 */
-	public synchronized void register(FPSetRMI aFPSet, String hostname) throws FPSetManagerException {
+	public void register(FPSetRMI aFPSet, String hostname) throws FPSetManagerException {
+		if (ring == null) {
+			registerFixed(aFPSet, hostname);
+			return;
+		}
+		// Wait for in-flight lookups to finish before the ring changes
+		rebalanceLock.writeLock().lock();
+		try {
+			synchronized (migrations) {
+				final ConsistentHashRing previous = ring;
+				fpSets.add(new FPSets(aFPSet, hostname));
+				ring = ring.add(fpSets.size() - 1);
+				if (fpSets.size() > expectedNumOfServers) {
+					// A server joining mid-run takes over some ranges of
+					// the existing servers. Copy them in the background.
+					final Migration migration = new Migration(previous, ring, fpSets.size() - 1);
+					migrations.add(migration);
+					if (migrator == null) {
+						migrator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+							public Thread newThread(Runnable r) {
+								final Thread t = new Thread(r, "TLC FPSet Migration");
+								t.setDaemon(true);
+								return t;
+							}
+						});
+					}
+					migrator.execute(migration);
+				}
+			}
+		} finally {
+			rebalanceLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Blocks until all migrations started so far are complete.
+	 */
+	void awaitMigrations() throws InterruptedException {
+		for (int i = 0; i < migrations.size(); i++) {
+			migrations.get(i).latch.await();
+		}
+	}
+
+	private synchronized void registerFixed(FPSetRMI aFPSet, String hostname) throws FPSetManagerException {
 		// Only accept additional FPSets as long as we haven't reached the
 		// expected number of FPSets. Adding more FPSets to the set than
 		// expected, would screw up the fail over code in reassign() as workers
@@ -59,4 +179,538 @@ public class DynamicFPSetManager extends FPSetManager implements Serializable {
 		                                        + "). Cannot handle additional servers");
 		}
 	}
+
+	/**
+	 * @return true iff FPSet servers may register while model checking is
+	 *         running
+	 */
+	public boolean isRebalancing() {
+		return ring != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#reassign(int)
+	 */
+	public int reassign(final int index) {
+		if (ring == null) {
+			return super.reassign(index);
+		}
+		if (index < 0 || index >= this.fpSets.size()) {
+			throw new IllegalArgumentException("index not within bounds");
+		}
+		synchronized (migrations) {
+			// Spread the ranges of the broken FPSet over the remaining ones.
+			// Its fingerprints are lost (as with the fixed assignment).
+			this.fpSets.get(index).setUnavailable();
+			ring = ring.remove(index);
+			if (ring.isEmpty()) {
+				managerIsBroken = true;
+				return -1;
+			}
+			for (int i = 1; i <= this.fpSets.size(); i++) {
+				final int next = (index + i) % this.fpSets.size();
+				if (this.fpSets.get(next).isAvailable()) {
+					return next;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#getIndex(long)
+	 */
+	protected int getIndex(long fp) {
+		final ConsistentHashRing r = ring;
+		if (r == null) {
+			return super.getIndex(fp);
+		}
+		// An empty ring (all servers failed) still has to return a valid index
+		return Math.max(0, r.getOwner(fp));
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#getFPSetIndex(long)
+	 */
+	public int getFPSetIndex(long fp) {
+		if (ring == null) {
+			return super.getFPSetIndex(fp);
+		}
+		return getIndex(fp);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#put(long)
+	 */
+	public boolean put(long fp) {
+		if (ring == null) {
+			return super.put(fp);
+		}
+		final LongVec fps = new LongVec(1);
+		fps.addElement(fp);
+		return !lookup(new LongVec[] { fps }, true, null)[0].get(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#contains(long)
+	 */
+	public boolean contains(long fp) {
+		if (ring == null) {
+			return super.contains(fp);
+		}
+		final LongVec fps = new LongVec(1);
+		fps.addElement(fp);
+		return !lookup(new LongVec[] { fps }, false, null)[0].get(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#putBlock(tlc2.util.LongVec[])
+	 */
+	public BitVector[] putBlock(LongVec[] fps) {
+		if (ring == null) {
+			return super.putBlock(fps);
+		}
+		return lookup(fps, true, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#putBlock(tlc2.util.LongVec[], java.util.concurrent.ExecutorService)
+	 */
+	public BitVector[] putBlock(LongVec[] fps, ExecutorService executorService) {
+		if (ring == null) {
+			return super.putBlock(fps, executorService);
+		}
+		return lookup(fps, true, executorService);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#containsBlock(tlc2.util.LongVec[])
+	 */
+	public BitVector[] containsBlock(LongVec[] fps) {
+		if (ring == null) {
+			return super.containsBlock(fps);
+		}
+		return lookup(fps, false, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#containsBlock(tlc2.util.LongVec[], java.util.concurrent.ExecutorService)
+	 */
+	public BitVector[] containsBlock(LongVec[] fps, ExecutorService executorService) {
+		if (ring == null) {
+			return super.containsBlock(fps, executorService);
+		}
+		return lookup(fps, false, executorService);
+	}
+
+	/**
+	 * Looks up (and inserts if put is true) the given fingerprints in the
+	 * FPSet servers owning them according to the current ring. The grouping
+	 * of fps is ignored, because a caller such as a {@link TLCWorker} might
+	 * have grouped them with a stale copy of this manager.
+	 *
+	 * @return For each fps[i] a BitVector with a bit set for every new
+	 *         fingerprint.
+	 */
+	private BitVector[] lookup(final LongVec[] fps, final boolean put, final ExecutorService executorService) {
+		int len = 0;
+		for (int i = 0; i < fps.length; i++) {
+			len += fps[i] == null ? 0 : fps[i].size();
+		}
+		final long[] flat = new long[len];
+		for (int i = 0, k = 0; i < fps.length; i++) {
+			for (int j = 0; fps[i] != null && j < fps[i].size(); j++) {
+				flat[k++] = fps[i].elementAt(j);
+			}
+		}
+		final boolean[] isNew = new boolean[len];
+		final int[] owners = new int[len];
+
+		rebalanceLock.readLock().lock();
+		try {
+			// Route to the current owners, retrying the fingerprints of a
+			// failed server with its successors.
+			int[] pending = new int[len];
+			for (int i = 0; i < len; i++) {
+				pending[i] = i;
+			}
+			while (pending.length > 0) {
+				final ConsistentHashRing r = ring;
+				if (r.isEmpty()) {
+					ToolIO.out.println("Warning: there is no fp server available.");
+					// Indicate that all remaining fingerprints are new.
+					for (int i = 0; i < pending.length; i++) {
+						isNew[pending[i]] = true;
+					}
+					break;
+				}
+				for (int i = 0; i < pending.length; i++) {
+					owners[pending[i]] = r.getOwner(flat[pending[i]]);
+				}
+				pending = execute(flat, pending, owners, isNew, put, executorService, true);
+			}
+
+			// Consult the previous owners of the fingerprints that are new to
+			// their current owner and have possibly not been migrated yet.
+			for (int h = migrations.size() - 1; h >= 0; h--) {
+				final Migration migration = migrations.get(h);
+				if (migration.isDone()) {
+					continue;
+				}
+				final ConsistentHashRing previous = migration.previous;
+				final int[] candidates = new int[len];
+				final int[] previousOwners = new int[len];
+				int cnt = 0;
+				for (int i = 0; i < len; i++) {
+					if (isNew[i]) {
+						final int owner = previous.getOwner(flat[i]);
+						if (owner != owners[i] && owner >= 0 && fpSets.get(owner).isAvailable()) {
+							previousOwners[i] = owner;
+							candidates[cnt++] = i;
+						}
+					}
+				}
+				if (cnt > 0) {
+					final int[] found = new int[cnt];
+					System.arraycopy(candidates, 0, found, 0, cnt);
+					final boolean[] unknown = new boolean[len];
+					migrationLookups.addAndGet(cnt);
+					execute(flat, found, previousOwners, unknown, false, executorService, false);
+					for (int i = 0; i < cnt; i++) {
+						if (!unknown[found[i]]) {
+							// Stored by its current owner too if put is
+							// true, which the migration accounts for.
+							isNew[found[i]] = false;
+						}
+					}
+				}
+			}
+		} finally {
+			rebalanceLock.readLock().unlock();
+		}
+
+		final BitVector[] res = new BitVector[fps.length];
+		for (int i = 0, k = 0; i < fps.length; i++) {
+			final int size = fps[i] == null ? 0 : fps[i].size();
+			res[i] = new BitVector(size);
+			for (int j = 0; j < size; j++) {
+				if (isNew[k++]) {
+					res[i].set(j);
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Sends the fingerprints flat[indices[i]] to the FPSet servers
+	 * owners[indices[i]] and records the result in isNew.
+	 *
+	 * @param failover
+	 *            true if fingerprints of a failed server have to be retried
+	 * @return The indices of the fingerprints whose server failed if failover
+	 *         is true, otherwise an empty array (the fingerprints are left
+	 *         unchanged in isNew).
+	 */
+	private int[] execute(final long[] flat, final int[] indices, final int[] owners, final boolean[] isNew,
+			final boolean put, final ExecutorService executorService, final boolean failover) {
+		// Group the fingerprints by server
+		final Map<Integer, List<Integer>> groups = new HashMap<Integer, List<Integer>>();
+		for (int i = 0; i < indices.length; i++) {
+			final Integer owner = owners[indices[i]];
+			List<Integer> group = groups.get(owner);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(owner, group);
+			}
+			group.add(indices[i]);
+		}
+
+		final List<Integer> servers = new ArrayList<Integer>(groups.keySet());
+		final List<Callable<BitVector>> calls = new ArrayList<Callable<BitVector>>(servers.size());
+		for (int s = 0; s < servers.size(); s++) {
+			final List<Integer> group = groups.get(servers.get(s));
+			final LongVec fps = new LongVec(group.size());
+			for (int i = 0; i < group.size(); i++) {
+				fps.addElement(flat[group.get(i)]);
+			}
+			final FPSets fpSet = fpSets.get(servers.get(s));
+			calls.add(new Callable<BitVector>() {
+				public BitVector call() throws Exception {
+					return put ? fpSet.putBlock(fps) : fpSet.containsBlock(fps);
+				}
+			});
+		}
+
+		final List<Future<BitVector>> futures = new ArrayList<Future<BitVector>>(calls.size());
+		if (executorService != null && calls.size() > 1) {
+			for (int s = 0; s < calls.size(); s++) {
+				futures.add(executorService.submit(calls.get(s)));
+			}
+		}
+
+		final List<Integer> failed = new ArrayList<Integer>();
+		for (int s = 0; s < calls.size(); s++) {
+			final int server = servers.get(s);
+			final List<Integer> group = groups.get(server);
+			BitVector bv = null;
+			Exception cause = null;
+			try {
+				bv = futures.isEmpty() ? calls.get(s).call() : futures.get(s).get();
+			} catch (Exception e) {
+				cause = e;
+			}
+			if (bv != null) {
+				for (int i = 0; i < group.size(); i++) {
+					isNew[group.get(i)] = bv.get(i);
+				}
+			} else {
+				ToolIO.out.println("Warning: Failed to connect from " + this.getHostName() + " to the fp server at "
+						+ this.fpSets.get(server).getHostname() + ".\n" + cause.getMessage());
+				if (fpSets.get(server).isAvailable()) {
+					this.reassign(server);
+				}
+				if (failover) {
+					failed.addAll(group);
+				}
+			}
+		}
+
+		final int[] res = new int[failed.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = failed.get(i);
+		}
+		return res;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#size()
+	 */
+	public long size() {
+		if (ring == null) {
+			return super.size();
+		}
+		long res = 0;
+		for (int i = 0; i < this.fpSets.size(); i++) {
+			final FPSets fpSet = this.fpSets.get(i);
+			if (!fpSet.isAvailable()) {
+				continue;
+			}
+			try {
+				res += fpSet.size();
+			} catch (Exception e) {
+				ToolIO.out.println("Warning: Failed to connect from " + this.getHostName() + " to the fp server at "
+						+ fpSet.getHostname() + ".\n" + e.getMessage());
+				this.reassign(i);
+			}
+		}
+		// Subtract the copies left behind by the migrations
+		for (int i = 0; i < migrations.size(); i++) {
+			res -= migrations.get(i).getCopied();
+		}
+		return res;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#getStatesSeen()
+	 */
+	public long getStatesSeen() {
+		if (ring == null) {
+			return super.getStatesSeen();
+		}
+		long res = 1; // the initial state
+		for (int i = 0; i < this.fpSets.size(); i++) {
+			final FPSets fpSet = this.fpSets.get(i);
+			if (!fpSet.isAvailable()) {
+				continue;
+			}
+			try {
+				res += fpSet.getStatesSeen();
+			} catch (Exception e) {
+				ToolIO.out.println("Warning: Failed to connect from " + this.getHostName() + " to the fp server at "
+						+ fpSet.getHostname() + ".\n" + e.getMessage());
+				this.reassign(i);
+			}
+		}
+		return res - migrationLookups.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#checkFPs()
+	 */
+	public double checkFPs() {
+		if (ring == null) {
+			return super.checkFPs();
+		}
+		double res = Double.MAX_VALUE;
+		for (int i = 0; i < this.fpSets.size(); i++) {
+			final FPSets fpSet = this.fpSets.get(i);
+			if (!fpSet.isAvailable()) {
+				continue;
+			}
+			try {
+				res = Math.min(res, fpSet.getFpset().checkFPs());
+			} catch (IOException e) {
+				ToolIO.out.println("Warning: Failed to connect from " + this.getHostName() + " to the fp server at "
+						+ fpSet.getHostname() + ".\n" + e.getMessage());
+			}
+		}
+		return res;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.FPSetManager#close(boolean)
+	 */
+	public void close(boolean cleanup) throws IOException {
+		if (ring == null) {
+			super.close(cleanup);
+			return;
+		}
+		for (int i = 0; i < this.fpSets.size(); i++) {
+			final FPSets fpSet = this.fpSets.get(i);
+			if (!fpSet.isAvailable()) {
+				continue;
+			}
+			try {
+				fpSet.exit(cleanup);
+			} catch (UnmarshalException e) {
+				// happens when the DiskFPSet closes it calls System.exit
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	/**
+	 * Copies the fingerprints a joining FPSet server takes over from their
+	 * previous owners to the server.
+	 * <p>
+	 * A previous owner keeps its copies, which is why they are subtracted
+	 * from {@link DynamicFPSetManager#size()} as long as the previous owner
+	 * and the joined server are both available. If the joined server fails,
+	 * its ranges go back to the previous owners (see
+	 * {@link ConsistentHashRing#remove(int)}) where the copies are the only
+	 * ones left. If a previous owner fails, its copies are gone.
+	 */
+	private class Migration implements Runnable, Serializable {
+		/**
+		 * The ring before the server joined
+		 */
+		private final ConsistentHashRing previous;
+		/**
+		 * The ring right after the server joined
+		 */
+		private final ConsistentHashRing next;
+		private final int target;
+		/**
+		 * copied[i] is the number of fingerprints copied from server i
+		 */
+		private final AtomicLongArray copied;
+		private transient final CountDownLatch latch = new CountDownLatch(1);
+		private volatile boolean done = false;
+
+		Migration(final ConsistentHashRing previous, final ConsistentHashRing next, final int target) {
+			this.previous = previous;
+			this.next = next;
+			this.target = target;
+			this.copied = new AtomicLongArray(target);
+		}
+
+		boolean isDone() {
+			return done;
+		}
+
+		/**
+		 * @return The number of copies left behind that are still counted by
+		 *         the available servers
+		 */
+		long getCopied() {
+			if (!fpSets.get(target).isAvailable()) {
+				return 0L;
+			}
+			long res = 0L;
+			for (int i = 0; i < copied.length(); i++) {
+				if (fpSets.get(i).isAvailable()) {
+					res += copied.get(i);
+				}
+			}
+			return res;
+		}
+
+		public void run() {
+			final FPSets dst = fpSets.get(target);
+			long total = 0L;
+			try {
+				for (int source = 0; source < target && dst.isAvailable(); source++) {
+					final FPSets src = fpSets.get(source);
+					final OwnerFilter filter = new OwnerFilter(previous, source, next, target);
+					long from = Long.MIN_VALUE;
+					while (src.isAvailable() && dst.isAvailable()) {
+						final LongVec page;
+						try {
+							page = src.getFpset().getFingerprints(filter, from, MIGRATION_PAGE);
+						} catch (Exception e) {
+							warn(source, e);
+							break;
+						}
+						if (page.size() == 0) {
+							break;
+						}
+						try {
+							dst.putBlock(page);
+						} catch (Exception e) {
+							warn(target, e);
+							break;
+						}
+						copied.addAndGet(source, page.size());
+						total += page.size();
+						final long last = page.elementAt(page.size() - 1);
+						if (last == Long.MAX_VALUE) {
+							break;
+						}
+						from = last + 1L;
+					}
+				}
+				if (dst.isAvailable()) {
+					ToolIO.out.println("Migrated " + total + " fingerprints to the fp server at " + dst.getHostname()
+							+ ".");
+				}
+			} finally {
+				done = true;
+				latch.countDown();
+			}
+		}
+
+		private void warn(final int server, final Exception e) {
+			final FPSets fpSet = fpSets.get(server);
+			ToolIO.out.println("Warning: Failed to connect from " + getHostName() + " to the fp server at "
+					+ fpSet.getHostname() + ".\n" + e.getMessage());
+			if (fpSet.isAvailable()) {
+				reassign(server);
+			}
+		}
+	}
+
+	/**
+	 * Accepts the fingerprints that moved from source to target.
+	 */
+	private static class OwnerFilter implements FPSetRMI.Filter {
+		private final ConsistentHashRing previous;
+		private final int source;
+		private final ConsistentHashRing next;
+		private final int target;
+
+		OwnerFilter(final ConsistentHashRing previous, final int source, final ConsistentHashRing next,
+				final int target) {
+			this.previous = previous;
+			this.source = source;
+			this.next = next;
+			this.target = target;
+		}
+
+		public boolean accept(final long fp) {
+			// A previous owner might still store copies of fingerprints it
+			// handed over to another server in an earlier migration.
+			return next.getOwner(fp) == target && previous.getOwner(fp) == source;
+		}
+	}
 }
@@ -5,6 +5,7 @@
 package tlc2.tool.distributed.fp;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
@@ -72,6 +73,29 @@ public interface FPSetRMI extends Remote {
 	 */
 	void exit(boolean cleanup) throws IOException;
 
+	/**
+	 * Pages through the fingerprints of this {@link FPSet} in ascending
+	 * order. Fingerprints are returned as stored, which can differ from the
+	 * value passed to {@link FPSetRMI#put(long)} in the MSB (see
+	 * {@link tlc2.tool.fp.DiskFPSet}).
+	 * <p>
+	 * The first page has to be requested with from set to
+	 * {@link Long#MIN_VALUE}. Fingerprints added afterwards are not
+	 * guaranteed to be returned by the subsequent pages.
+	 * 
+	 * @return Up to max fingerprints greater than or equal to from and
+	 *         accepted by filter. An empty {@link LongVec} if there are none.
+	 */
+	LongVec getFingerprints(Filter filter, long from, int max) throws IOException;
+
+	/**
+	 * Selects the fingerprints returned by
+	 * {@link FPSetRMI#getFingerprints(Filter, long, int)}.
+	 */
+	public interface Filter extends Serializable {
+		boolean accept(long fp);
+	}
+
 	/**
 	 * @return The amount of states seen by this FPSet (not distinct states!)
 	 */
@@ -0,0 +1,124 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.selector;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.distributed.TLCServer;
+import tlc2.tool.distributed.TLCWorkerRMI;
+import tlc2.tool.distributed.TLCWorkerSmartProxy;
+import tlc2.tool.queue.IStateQueue;
+
+/**
+ * Sizes the blocks of each worker from a {@link WorkerModel} of its compute
+ * rate, latency, transfer rate and result size: A block is just large enough
+ * to keep the network overhead of an invocation below {@link #OVERHEAD}
+ * (larger blocks only hurt load balancing), bounded by the fair share of the
+ * state queue and the maximum transfer size. The maximum transfer size is
+ * adapted AIMD-style: It is halved on transport failures
+ * ({@link #setMaxTXSize(int)}) and increased additively after
+ * {@link #INCREASE_INTERVAL} successful invocations.
+ * <p>
+ * Blocks are prefetched to workers as long as the queue holds enough states
+ * for the idle workers.
+ */
+public class AdaptiveBlockSelector extends LimitingBlockSelector implements IPrefetchingBlockSelector {
+
+	/**
+	 * The acceptable fraction of an invocation's round-trip time spent in the
+	 * network
+	 */
+	static final double OVERHEAD = Double.parseDouble(System.getProperty(AdaptiveBlockSelector.class.getName()
+			+ ".overhead", "0.05"));
+	/**
+	 * The size of the first block of a worker used to measure it
+	 */
+	static final int PROBE = Integer.getInteger(AdaptiveBlockSelector.class.getName() + ".probe", 16);
+	/**
+	 * The number of successful invocations after which the maximum transfer
+	 * size is increased
+	 */
+	static final int INCREASE_INTERVAL = 8;
+
+	private final int initialMaximum;
+	private final AtomicInteger successes = new AtomicInteger();
+	private final Map<TLCWorkerRMI, WorkerModel> models = new ConcurrentHashMap<TLCWorkerRMI, WorkerModel>();
+
+	AdaptiveBlockSelector(final TLCServer aTLCServer) {
+		super(aTLCServer);
+		this.initialMaximum = getMaximum();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.selector.BlockSelector#getBlocks(tlc2.tool.queue.IStateQueue, tlc2.tool.distributed.TLCWorkerRMI)
+	 */
+	public TLCState[] getBlocks(final IStateQueue stateQueue, final TLCWorkerRMI worker) {
+		observe(worker);
+		return super.getBlocks(stateQueue, worker);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.selector.IPrefetchingBlockSelector#getPrefetchBlocks(tlc2.tool.queue.IStateQueue, tlc2.tool.distributed.TLCWorkerRMI)
+	 */
+	public TLCState[] getPrefetchBlocks(final IStateQueue stateQueue, final TLCWorkerRMI worker) {
+		observe(worker);
+		// Leave the states to the idle workers when the queue runs low
+		final long size = stateQueue.size();
+		if (size < 2L * tlcServer.getWorkerCount()) {
+			return null;
+		}
+		final long blockSize = Math.max(1L, Math.min(Math.min(getBlockSize(size, worker), size), Integer.MAX_VALUE));
+		final TLCState[] states = stateQueue.sDequeueAvailable((int) blockSize);
+		if (states != null) {
+			setAverageBlockCnt(states.length);
+		}
+		return states;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.selector.LimitingBlockSelector#getBlockSize(long, tlc2.tool.distributed.TLCWorkerRMI)
+	 */
+	protected long getBlockSize(final long size, final TLCWorkerRMI aWorker) {
+		final long fairShare = super.getBlockSize(size, aWorker);
+		final WorkerModel model = models.get(aWorker);
+		if (model == null || !model.hasSamples()) {
+			return Math.min(fairShare, PROBE);
+		}
+		return Math.min(fairShare, model.getBlockSize(OVERHEAD, getMaximum()));
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.selector.LimitingBlockSelector#setMaxTXSize(int)
+	 */
+	public void setMaxTXSize(final int aMaximum) {
+		super.setMaxTXSize(aMaximum);
+		successes.set(0);
+	}
+
+	/**
+	 * Feeds the most recent invocation of the given worker into its model.
+	 */
+	private void observe(final TLCWorkerRMI worker) {
+		if (!(worker instanceof TLCWorkerSmartProxy)) {
+			return;
+		}
+		WorkerModel model = models.get(worker);
+		if (model == null) {
+			model = new WorkerModel();
+			models.put(worker, model);
+		}
+		if (model.update(((TLCWorkerSmartProxy) worker).getLastInvocation())
+				&& successes.incrementAndGet() % INCREASE_INTERVAL == 0) {
+			final int maximum = getMaximum();
+			if (maximum < initialMaximum) {
+				super.setMaxTXSize(Math.min(initialMaximum, maximum + Math.max(1, initialMaximum / 16)));
+			}
+		}
+	}
+
+	WorkerModel getModel(final TLCWorkerRMI worker) {
+		return models.get(worker);
+	}
+}
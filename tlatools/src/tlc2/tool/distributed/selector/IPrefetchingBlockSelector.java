@@ -0,0 +1,27 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.selector;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.distributed.TLCServerThread;
+import tlc2.tool.distributed.TLCWorkerRMI;
+import tlc2.tool.queue.IStateQueue;
+
+/**
+ * An {@link IBlockSelector} that lets the {@link TLCServerThread} send the
+ * next block to a worker while the worker still computes the current one.
+ * The transfer of the next block then overlaps with the computation of the
+ * current block and the worker does not idle while the server processes the
+ * results.
+ */
+public interface IPrefetchingBlockSelector extends IBlockSelector {
+
+	/**
+	 * Contrary to {@link #getBlocks(IStateQueue, TLCWorkerRMI)}, this method
+	 * must not wait for states to become available (see
+	 * {@link IStateQueue#sDequeueAvailable(int)}).
+	 *
+	 * @return The states to prefetch to the given worker or null if nothing
+	 *         should be prefetched
+	 */
+	public abstract TLCState[] getPrefetchBlocks(final IStateQueue stateQueue, final TLCWorkerRMI worker);
+}
@@ -0,0 +1,118 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.selector;
+
+import tlc2.tool.distributed.TLCWorkerSmartProxy.Invocation;
+
+/**
+ * Models a single worker from the statistics of its recent invocations: The
+ * computation time per state, the number of next states per state and the
+ * network time of an invocation as a latency plus a transfer time per state.
+ * The latter two are estimated by exponentially weighted least squares over
+ * the block sizes and network times of recent invocations.
+ */
+final class WorkerModel {
+
+	/**
+	 * The weight of the most recent invocation
+	 */
+	private static final double ALPHA = 0.3d;
+
+	private Invocation last;
+	private int samples;
+
+	private double computePerState;
+	private double nextStatesPerState;
+
+	// Weighted sums of the regression of network time n over block size b
+	private double w, wb, wn, wbb, wbn;
+
+	/**
+	 * @return true iff the invocation has not been seen before
+	 */
+	synchronized boolean update(final Invocation invocation) {
+		if (invocation == null || invocation == last) {
+			return false;
+		}
+		last = invocation;
+		if (invocation.states <= 0) {
+			return true;
+		}
+		final double b = invocation.states;
+		final double n = invocation.getNetworkTime();
+		computePerState = average(computePerState, invocation.computationTime / b);
+		nextStatesPerState = average(nextStatesPerState, invocation.nextStates / b);
+
+		final double decay = 1d - ALPHA;
+		w = w * decay + 1d;
+		wb = wb * decay + b;
+		wn = wn * decay + n;
+		wbb = wbb * decay + b * b;
+		wbn = wbn * decay + b * n;
+		samples++;
+		return true;
+	}
+
+	private double average(final double avg, final double sample) {
+		return samples == 0 ? sample : ALPHA * sample + (1d - ALPHA) * avg;
+	}
+
+	synchronized boolean hasSamples() {
+		return samples > 0;
+	}
+
+	/**
+	 * @return The estimated network time per state in milliseconds
+	 */
+	synchronized double getTransferTime() {
+		final double var = w * wbb - wb * wb;
+		// All recent blocks of (almost) the same size do not tell latency and
+		// transfer time apart. Attribute the network time to the latency.
+		if (var <= 1e-9 * w * wbb) {
+			return 0d;
+		}
+		return Math.max(0d, (w * wbn - wb * wn) / var);
+	}
+
+	/**
+	 * @return The estimated network time of an invocation independent of
+	 *         its block size in milliseconds
+	 */
+	synchronized double getLatency() {
+		if (w == 0d) {
+			return 0d;
+		}
+		return Math.max(0d, (wn - getTransferTime() * wb) / w);
+	}
+
+	synchronized double getComputeTime() {
+		return computePerState;
+	}
+
+	synchronized double getNextStatesPerState() {
+		return nextStatesPerState;
+	}
+
+	/**
+	 * @param overhead
+	 *            The acceptable fraction of the round-trip time spent in the
+	 *            network, in (0,1)
+	 * @param maximum
+	 *            The maximum number of states to transfer in either direction
+	 * @return The smallest block size whose network overhead does not exceed
+	 *         the given one. If the transfer time alone exceeds it, the
+	 *         largest block size amortizing the latency best.
+	 */
+	synchronized long getBlockSize(final double overhead, final int maximum) {
+		final double compute = Math.max(computePerState, 0.001d);
+		final double denominator = overhead * compute - (1d - overhead) * getTransferTime();
+		double blockSize = maximum;
+		if (denominator > 0d) {
+			blockSize = Math.min(blockSize, Math.ceil(getLatency() * (1d - overhead) / denominator));
+		}
+		// Bound the size of the result as well
+		if (nextStatesPerState > 1d) {
+			blockSize = Math.min(blockSize, maximum / nextStatesPerState);
+		}
+		return Math.max(1L, (long) blockSize);
+	}
+}
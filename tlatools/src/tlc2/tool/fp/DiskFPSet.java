@@ -8,6 +8,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.InetAddress;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
 import java.rmi.RemoteException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -25,6 +27,7 @@ import tlc2.tool.fp.management.DiskFPSetMXWrapper;
 import tlc2.tool.management.TLCStandardMBean;
 import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.IdThread;
+import tlc2.util.LongVec;
 import tlc2.util.Striped;
 import util.Assert;
 import util.FileUtil;
@@ -49,6 +52,15 @@ import util.FileUtil;
  * <code>ReadersWriterLock</code> class) so lookups on disk can be performed in
  * parallel.
  * <p>
+ * Alternatively (<code>-Dtlc2.tool.fp.DiskFPSet.mmap=true</code>), the sorted
+ * disk file is mapped into memory in segments of
+ * 2^<code>logMappedSegmentCnt</code> fingerprints and the interpolated search
+ * is done directly on the mapped {@link LongBuffer}s. All worker threads then
+ * share the OS page cache instead of each copying disk pages into its own
+ * <TT>BufferedRandomAccessFile</TT> buffer. A mapping is only released when
+ * its buffers get garbage collected. Memory mapping is therefore not
+ * supported on Windows, which does not delete or replace a mapped file.
+ * <p>
  * We use the MSB of a fingerprint to indicate if it has been flushed to disk.
  * By doing so, we lose one bit of the fingerprint. However, we will get this
  * bit back if using MultiFPSet.
@@ -135,6 +147,31 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	protected BufferedRandomAccessFile[] brafPool;
 	protected int poolIndex;
 
+	/**
+	 * Whether disk lookups go through {@link DiskFPSet#mapped} instead of
+	 * {@link DiskFPSet#braf}.
+	 */
+	protected final boolean useMemoryMapping;
+	/**
+	 * Number of fingerprints per mapped segment (#Fingerprints = 2^LogMappedSegmentCnt).
+	 * A segment must not exceed 2^31 bytes, hence the upper bound of 28.
+	 */
+	/**
+	 * True iff the platform does not delete or replace a file while it is
+	 * mapped (Windows). As a mapping is only released by the garbage
+	 * collector, the disk file could then not be replaced on a flush.
+	 */
+	static final boolean LOCKS_MAPPED_FILES = System.getProperty("os.name", "").startsWith("Windows");
+	protected static final int LogMappedSegmentCnt = Math.min(28, Integer.getInteger(DiskFPSet.class.getName() + ".logMappedSegmentCnt", 24));
+	/**
+	 * The sorted disk file mapped into memory, one read-only {@link LongBuffer}
+	 * per segment. <code>null</code> if memory mapping is disabled or the disk
+	 * file is empty. Only (re-)assigned while all write locks are held, only
+	 * read with absolute get methods, which do not alter the buffers' state
+	 * and can thus be shared by all threads.
+	 */
+	protected LongBuffer[] mapped;
+
 	/**
 	 * index of first fp on each disk page
 	 * special case: last entry is last fp in file
@@ -212,6 +249,13 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		this.tblCnt = new AtomicLong(0);
 		this.flusherChosen = new AtomicBoolean(false);
 		this.index = null;
+		final boolean mmap = Boolean.getBoolean(DiskFPSet.class.getName() + ".mmap");
+		if (mmap && LOCKS_MAPPED_FILES) {
+			MP.printWarning(EC.GENERAL, "Memory mapping the fingerprint set is not supported on "
+					+ System.getProperty("os.name") + ", which does not replace a mapped file. "
+					+ "Disk lookups read the file instead.");
+		}
+		this.useMemoryMapping = mmap && !LOCKS_MAPPED_FILES;
 		
 		try {
 			diskFPSetMXWrapper = new DiskFPSetMXWrapper(this);
@@ -577,6 +621,12 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		// upper bound for the interval search in 
 		long hiEntry = ((loPage == indexLength - 2) ? this.fileCnt - 1
 				: ((long) hiPage) * NumEntriesPerPage);
+		
+		// b) alternatively search the mapped file without any syscalls
+		if (this.mapped != null) {
+			return mappedLookup(fp, dfp, loVal, hiVal, loEntry, hiEntry);
+		}
+		
 		try {
 			// b0) open file for reading that is associated with current thread
 			BufferedRandomAccessFile raf;
@@ -649,6 +699,79 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return diskHit;
 	}
 
+	/**
+	 * Does the interpolated binary search of
+	 * {@link DiskFPSet#diskLookup(long)} on the memory mapped disk file. The
+	 * caller has to hold the read lock.
+	 * 
+	 * @return true iff fp is in the interval [loEntry, hiEntry) on disk
+	 */
+	private boolean mappedLookup(final long fp, final double dfp, long loVal, long hiVal, long loEntry, long hiEntry) {
+		final LongBuffer[] segments = this.mapped;
+		final long segmentMask = (1L << LogMappedSegmentCnt) - 1L;
+		while (loEntry < hiEntry) {
+			final long midEntry = calculateMidEntry(loVal, hiVal, dfp, loEntry, hiEntry);
+			Assert.check(loEntry <= midEntry && midEntry < hiEntry,
+					EC.SYSTEM_INDEX_ERROR);
+
+			final long v = segments[(int) (midEntry >>> LogMappedSegmentCnt)].get((int) (midEntry & segmentMask));
+			// A mapped read never seeks, but it counts as a cached one.
+			diskSeekCache.getAndIncrement();
+
+			if (fp < v) {
+				hiEntry = midEntry;
+				hiVal = v;
+			} else if (fp > v) {
+				loEntry = midEntry + 1;
+				loVal = v;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * (Re-)maps the first {@link DiskFPSet#fileCnt} fingerprints of the disk
+	 * file into memory, if memory mapping is enabled. The caller has to hold
+	 * all write locks or otherwise guarantee exclusive access.
+	 */
+	protected void mapFile() throws IOException {
+		// Drop the old mapping first. The JVM unmaps it once the buffers get
+		// garbage collected.
+		this.mapped = null;
+		if (!useMemoryMapping || this.fileCnt <= 0) {
+			return;
+		}
+		final long segmentCnt = 1L << LogMappedSegmentCnt;
+		final LongBuffer[] segments = new LongBuffer[(int) ((this.fileCnt + segmentCnt - 1L) / segmentCnt)];
+		final RandomAccessFile raf = new RandomAccessFile(this.fpFilename, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			for (int i = 0; i < segments.length; i++) {
+				final long first = i * segmentCnt;
+				final long len = Math.min(segmentCnt, this.fileCnt - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						first * LongSize, len * LongSize).asLongBuffer();
+			}
+		} catch (IOException e) {
+			String message = MP.getMessage(EC.SYSTEM_UNABLE_TO_OPEN_FILE,
+					new String[] { this.fpFilename, e.getMessage() });
+			throw new IOException(message);
+		} finally {
+			// A mapping stays valid after its channel has been closed
+			raf.close();
+		}
+		this.mapped = segments;
+	}
+
+	/**
+	 * @return true iff disk lookups are served from the memory mapped disk file
+	 */
+	public boolean isMemoryMapped() {
+		return this.mapped != null;
+	}
+
 	/**
 	 * Calculates a mid entry where to divide the interval
 	 * 
@@ -725,6 +848,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			}
 		}
 		this.poolIndex = 0;
+		this.mapped = null;
 	}
 
 	/* (non-Javadoc)
@@ -765,6 +889,53 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return (1.0 / dis);
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#getFingerprints(tlc2.tool.distributed.fp.FPSetRMI.Filter, long, int)
+	 */
+	public final LongVec getFingerprints(final Filter filter, final long from, final int max) throws IOException {
+		final LongVec res = new LongVec(Math.min(max, NumEntriesPerPage));
+		this.flusherChosen.set(true);
+		rwLock.acquireAllLocks();
+		try {
+			// Only the first page flushes the in-memory buffer. The
+			// fingerprints on disk are sorted, which is why subsequent pages
+			// can seek to from.
+			if (from == Long.MIN_VALUE) {
+				flusher.flushTable();
+			}
+			if (this.index == null) {
+				return res;
+			}
+			// Find the last page whose first fingerprint is <= from
+			int lo = 0, hi = this.index.length - 2;
+			while (lo < hi) {
+				final int mid = (lo + hi + 1) >>> 1;
+				if (this.index[mid] <= from) {
+					lo = mid;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			final RandomAccessFile raf = new BufferedRandomAccessFile(this.fpFilename, "r");
+			try {
+				final long fileLen = raf.length();
+				raf.seek(((long) lo) * NumEntriesPerPage * LongSize);
+				while (raf.getFilePointer() < fileLen && res.size() < max) {
+					final long fp = raf.readLong();
+					if (fp >= from && filter.accept(fp)) {
+						res.addElement(fp);
+					}
+				}
+			} finally {
+				raf.close();
+			}
+			return res;
+		} finally {
+			rwLock.releaseAllLocks();
+			this.flusherChosen.set(false);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#beginChkpt(java.lang.String)
 	 */
@@ -843,6 +1014,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 					this.fpFilename, "r");
 		}
 		this.poolIndex = 0;
+		mapFile();
 	}
 
 	/* (non-Javadoc)
@@ -875,6 +1047,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		for (int i = 0; i < this.brafPool.length; i++) {
 			this.brafPool[i].close();
 		}
+		this.mapped = null;
 
 		recoveryBuff = new long[1 << 21];
 		recoveryIdx = 0;
@@ -911,6 +1084,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 					this.fpFilename, "r");
 		}
 		this.poolIndex = 0;
+		mapFile();
 	}
 
 	
@@ -930,6 +1104,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 				braf.readInt();
 
 			long fp = braf.readLong();
+			TLCTrace.skipAction(braf);
 			this.recoverFP(fp);
 		}
 
@@ -1247,6 +1422,10 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			for (int i = 1; i < brafPool.length; i++) {
 				brafPool[i].close();
 			}
+			// Drop the mapping of the file about to be replaced. It is only
+			// unmapped once garbage collected, which is why memory mapping is
+			// disabled where a mapped file cannot be replaced.
+			mapped = null;
 
 			// create temporary file
 			File tmpFile = new File(tmpFilename);
@@ -1277,6 +1456,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 				brafPool[i] = new BufferedRandomAccessFile(realName, "r");
 			}
 			poolIndex = 0;
+			mapFile();
 		}
 
 		public final void mergeNewEntries(long[] buff, int buffLen)
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
 
 import tlc2.tool.distributed.fp.FPSetRMI;
 import tlc2.util.BitVector;
@@ -183,6 +184,23 @@ public abstract class FPSet extends UnicastRemoteObject implements FPSetRMI
         return bv;
     }
 
+    /* (non-Javadoc)
+     * @see tlc2.tool.distributed.fp.FPSetRMI#getFingerprints(tlc2.tool.distributed.fp.FPSetRMI.Filter, long, int)
+     */
+    public abstract LongVec getFingerprints(Filter filter, long from, int max) throws IOException;
+
+    /**
+     * @return The (at most) max smallest of the first len candidates
+     */
+    protected static LongVec getPage(final long[] candidates, final int len, final int max) {
+    	Arrays.sort(candidates, 0, len);
+    	final LongVec page = new LongVec(Math.max(1, Math.min(len, max)));
+    	for (int i = 0; i < len && i < max; i++) {
+    		page.addElement(candidates[i]);
+    	}
+    	return page;
+    }
+
     /* (non-Javadoc)
      * @see tlc2.tool.distributed.fp.FPSetRMI#getStatesSeen()
      */
@@ -10,6 +10,7 @@ import java.rmi.RemoteException;
 
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.util.LongVec;
 import util.Assert;
 import util.BufferedDataInputStream;
 import util.BufferedDataOutputStream;
@@ -212,6 +213,27 @@ public class MemFPSet extends FPSet {
     System.exit(0);    
   }
 
+  public final synchronized LongVec getFingerprints(Filter filter, long from, int max) {
+    long[] fps = new long[1024];
+    int cnt = 0;
+    for (int i = 0; i < this.table.length; i++) {
+      long[] list = this.table[i];
+      if (list != null) {
+        for (int j = 0; j < list.length; j++) {
+          if (list[j] >= from && filter.accept(list[j])) {
+            if (cnt == fps.length) {
+              final long[] grown = new long[2 * cnt];
+              System.arraycopy(fps, 0, grown, 0, cnt);
+              fps = grown;
+            }
+            fps[cnt++] = list[j];
+          }
+        }
+      }
+    }
+    return getPage(fps, cnt, max);
+  }
+
   public final double checkFPs() {
     long dis = Long.MAX_VALUE;
     for (int i = 0; i < this.table.length; i++) {
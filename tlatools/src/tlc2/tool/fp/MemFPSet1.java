@@ -14,6 +14,7 @@ import java.rmi.RemoteException;
 
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.util.LongVec;
 import tlc2.util.SetOfLong;
 import util.Assert;
 import util.FileUtil;
@@ -63,6 +64,15 @@ public final class MemFPSet1 extends FPSet {
 
   public final double checkFPs() { return this.set.checkFPs(); }
 
+  public synchronized final LongVec getFingerprints(Filter filter, long from, int max) {
+    final long[] fps = this.set.toArray();
+    int cnt = 0;
+    for (int i = 0; i < fps.length; i++) {
+      if (fps[i] >= from && filter.accept(fps[i])) fps[cnt++] = fps[i];
+    }
+    return getPage(fps, cnt, max);
+  }
+
   /* Checkpoint. */
   public final void beginChkpt(String fname) throws IOException {
     DataOutputStream dos = FileUtil.newDFOS(this.chkptName(fname, "tmp"));
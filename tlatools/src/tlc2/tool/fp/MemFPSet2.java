@@ -10,6 +10,7 @@ import java.rmi.RemoteException;
 
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.util.LongVec;
 import util.Assert;
 import util.BufferedDataInputStream;
 import util.BufferedDataOutputStream;
@@ -139,6 +140,31 @@ public final class MemFPSet2 extends FPSet {
     System.exit(0);    
   }
 
+  public synchronized final LongVec getFingerprints(Filter filter, long from, int max) {
+    final LongVec fps = new LongVec(1024);
+    for (int i = 0; i < this.table.length; i++) {
+      long low = i & 0xffffffL;
+      byte[] bucket = this.table[i];
+      if (bucket != null) {
+	int j = 0;
+	while (j < bucket.length) {
+	  long b1 = (bucket[j++] & 0xffL) << 24;
+	  long b2 = (bucket[j++] & 0xffL) << 32;
+	  long b3 = (bucket[j++] & 0xffL) << 40;
+	  long b4 = (bucket[j++] & 0xffL) << 48;
+	  long b5 = (bucket[j++] & 0xffL) << 56;
+	  long fp = b5 | b4 | b3 | b2 | b1 | low;
+	  if (fp >= from && filter.accept(fp)) fps.addElement(fp);
+	}
+      }
+    }
+    final long[] candidates = new long[fps.size()];
+    for (int i = 0; i < candidates.length; i++) {
+      candidates[i] = fps.elementAt(i);
+    }
+    return getPage(candidates, candidates.length, max);
+  }
+
   public final double checkFPs() {
     long dis = Long.MAX_VALUE;
     for (int i = 0; i < this.table.length; i++) {
@@ -12,6 +12,7 @@ import java.rmi.server.UnicastRemoteObject;
 import tlc2.output.EC;
 import tlc2.tool.TLCTrace;
 import tlc2.util.BufferedRandomAccessFile;
+import tlc2.util.LongVec;
 import util.Assert;
 
 /**
@@ -143,6 +144,27 @@ public class MultiFPSet extends FPSet {
 		UnicastRemoteObject.unexportObject(this, force);
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#getFingerprints(tlc2.tool.distributed.fp.FPSetRMI.Filter, long, int)
+	 */
+	public final LongVec getFingerprints(final Filter filter, final long from, final int max) throws IOException {
+		// The smallest max fingerprints are among the smallest max of each
+		// nested FPSet
+		LongVec res = new LongVec(1);
+		for (int i = 0; i < this.sets.length; i++) {
+			final LongVec page = this.sets[i].getFingerprints(filter, from, max);
+			final long[] candidates = new long[res.size() + page.size()];
+			for (int j = 0; j < res.size(); j++) {
+				candidates[j] = res.elementAt(j);
+			}
+			for (int j = 0; j < page.size(); j++) {
+				candidates[res.size() + j] = page.elementAt(j);
+			}
+			res = getPage(candidates, candidates.length, max);
+		}
+		return res;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#checkFPs()
 	 */
@@ -195,6 +217,7 @@ public class MultiFPSet extends FPSet {
 		while (braf.getFilePointer() < recoverPtr) {
 			braf.readLongNat(); /* drop */
 			long fp = braf.readLong();
+			TLCTrace.skipAction(braf);
 			getFPSet(fp).recoverFP(fp);
 		}
 
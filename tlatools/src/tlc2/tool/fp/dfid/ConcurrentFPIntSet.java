@@ -0,0 +1,268 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.fp.dfid;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import util.Assert;
+import util.BufferedDataInputStream;
+import util.BufferedDataOutputStream;
+import util.FileUtil;
+import util.WrongInvocationException;
+
+/**
+ * A <code>ConcurrentFPIntSet</code> is a memory-based fingerprint set
+ * whose methods are thread-safe without taking a lock. Unlike the
+ * {@link MemFPIntSet}, whose methods are synchronized, workers updating
+ * the status of different fingerprints thus do not contend.
+ * <p>
+ * Fingerprints and their status are kept in an open-addressing hash table
+ * with linear probing, which is allocated upfront for the given amount of
+ * memory and never rehashed. A slot is claimed by a compare-and-set of its
+ * fingerprint and its status is updated by a compare-and-set too. A status
+ * of zero marks a claimed slot whose status has not been set yet; every
+ * status set has a non-zero level. Since zero marks an empty slot, the zero
+ * fingerprint is kept in an extra slot.
+ * <p>
+ * The checkpoint format is the one of the {@link MemFPIntSet}.
+ */
+public class ConcurrentFPIntSet extends FPIntSet {
+
+	/**
+	 * A fingerprint and its status occupy 12 bytes.
+	 */
+	private static final int SLOT_SIZE = 12;
+
+	/**
+	 * The fraction of the slots that can be occupied before the set reports
+	 * that it is out of memory. Linear probing degrades quickly beyond it.
+	 */
+	private static final double MAX_LOAD = .75d;
+
+	private String metadir;
+	private String filename;
+
+	private final AtomicLongArray fps;
+	/**
+	 * The status of the slot at the same index of {@link #fps}. The last
+	 * element is the status of the zero fingerprint.
+	 */
+	private final AtomicIntegerArray status;
+	private final int mask;
+	private final long maxCount;
+	private final AtomicLong count = new AtomicLong(0L);
+
+	/**
+	 * @param memoryInBytes
+	 *            The memory the set may occupy
+	 */
+	public ConcurrentFPIntSet(final long memoryInBytes) throws RemoteException {
+		final long slots = Math.max(1L << 10, Math.min(1L << 30, memoryInBytes / SLOT_SIZE));
+		final int capacity = Integer.highestOneBit((int) slots);
+		this.fps = new AtomicLongArray(capacity);
+		this.status = new AtomicIntegerArray(capacity + 1);
+		this.mask = capacity - 1;
+		this.maxCount = (long) (capacity * MAX_LOAD);
+	}
+
+	public final void init(int numThreads, String metadir, String filename) {
+		this.metadir = metadir;
+		this.filename = filename;
+	}
+
+	public final long size() {
+		return this.count.get();
+	}
+
+	/**
+	 * @return The slot of fp or -1 if fp is not in the set
+	 */
+	private final int indexOf(final long fp) {
+		if (fp == 0L) {
+			return this.mask + 1;
+		}
+		for (int i = (int) fp & this.mask;; i = (i + 1) & this.mask) {
+			final long fp1 = this.fps.get(i);
+			if (fp1 == fp) {
+				return i;
+			} else if (fp1 == 0L) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * @return The slot of fp, which is claimed if fp is not in the set
+	 */
+	private final int claim(final long fp) {
+		if (fp == 0L) {
+			return this.mask + 1;
+		}
+		for (int i = (int) fp & this.mask;; i = (i + 1) & this.mask) {
+			final long fp1 = this.fps.get(i);
+			if (fp1 == fp) {
+				return i;
+			} else if (fp1 == 0L) {
+				if (this.count.get() >= this.maxCount) {
+					// Handled like any other exhaustion of memory by the workers
+					throw new OutOfMemoryError("ConcurrentFPIntSet cannot hold more than " + this.maxCount
+							+ " fingerprints");
+				}
+				if (this.fps.compareAndSet(i, 0L, fp) || this.fps.get(i) == fp) {
+					return i;
+				}
+				// Another fingerprint took the slot, keep probing
+			}
+		}
+	}
+
+	public final void setLeveled(long fp) {
+		final int index = this.indexOf(fp);
+		if (index >= 0) {
+			while (true) {
+				final int status = this.status.get(index);
+				if (status == 0) {
+					break;
+				}
+				if (this.status.compareAndSet(index, status, (status & ~LeveledMask) | Leveled)) {
+					return;
+				}
+			}
+		}
+		throw new WrongInvocationException("ConcurrentFPIntSet.setLeveled: The fp must have been in the set.");
+	}
+
+	public final int setStatus(long fp, int status) {
+		final int index = this.claim(fp);
+		while (true) {
+			final int status1 = this.status.get(index);
+			if (status1 == 0) {
+				// Whoever sets the status of the slot first has added fp
+				if (this.status.compareAndSet(index, 0, (Level << SBits) | Leveled | status)) {
+					this.count.incrementAndGet();
+					return NEW;
+				}
+			} else if ((status1 | status) == status1 || this.status.compareAndSet(index, status1, status1 | status)) {
+				return status1;
+			}
+		}
+	}
+
+	public final int getStatus(long fp) {
+		final int index = this.indexOf(fp);
+		return index < 0 ? NEW : this.status.get(index);
+	}
+
+	public final boolean allLeveled() {
+		for (int i = 0; i < this.status.length(); i++) {
+			final int status = this.status.get(i);
+			if (status != 0 && (status & LeveledMask) != Leveled) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public final void exit(boolean cleanup) throws IOException {
+		if (cleanup) {
+			// Delete the metadata directory:
+			File file = new File(this.metadir);
+			FileUtil.deleteDir(file, true);
+		}
+		String hostname = InetAddress.getLocalHost().getHostName();
+		MP.printMessage(EC.TLC_FP_COMPLETED, hostname);
+		System.exit(0);
+	}
+
+	/**
+	 * Sorts a copy of the fingerprints to find the minimal distance between
+	 * two of them.
+	 */
+	public final double checkFPs() {
+		final long[] sorted = new long[(int) this.count.get()];
+		int n = 0;
+		for (int i = 0; i < this.fps.length() && n < sorted.length; i++) {
+			if (this.status.get(i) != 0) {
+				sorted[n++] = this.fps.get(i);
+			}
+		}
+		if (this.status.get(this.mask + 1) != 0 && n < sorted.length) {
+			sorted[n++] = 0L;
+		}
+		Arrays.sort(sorted, 0, n);
+		long dis = Long.MAX_VALUE;
+		for (int i = 1; i < n; i++) {
+			final long dis1 = sorted[i] - sorted[i - 1];
+			if (dis1 >= 0) {
+				dis = Math.min(dis, dis1);
+			}
+		}
+		return (1.0 / dis);
+	}
+
+	// Checkpoint.
+	public final void beginChkpt(String fname) throws IOException {
+		final BufferedDataOutputStream dos = new BufferedDataOutputStream(this.chkptName(fname, "tmp"));
+		for (int i = 0; i < this.status.length(); i++) {
+			final int status = this.status.get(i);
+			if (status != 0) {
+				final long fp = i <= this.mask ? this.fps.get(i) : 0L;
+				dos.writeInt((int) (fp >>> 32));
+				dos.writeInt((int) fp);
+				dos.writeInt(status);
+			}
+		}
+		dos.close();
+	}
+
+	public final void beginChkpt() throws IOException {
+		this.beginChkpt(this.filename);
+	}
+
+	public final void commitChkpt(String fname) throws IOException {
+		File oldChkpt = new File(this.chkptName(fname, "chkpt"));
+		File newChkpt = new File(this.chkptName(fname, "tmp"));
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("ConcurrentFPIntSet.commitChkpt: cannot delete " + oldChkpt);
+		}
+	}
+
+	public final void commitChkpt() throws IOException {
+		this.commitChkpt(this.filename);
+	}
+
+	public final void recover(String fname) throws IOException {
+		final BufferedDataInputStream dis = new BufferedDataInputStream(this.chkptName(fname, "chkpt"));
+		try {
+			while (!dis.atEOF()) {
+				final long fhi = dis.readInt();
+				final long flo = dis.readInt();
+				final int status = dis.readInt();
+				final int index = this.claim((fhi << 32) | (flo & 0xFFFFFFFFL));
+				if (this.status.getAndSet(index, status) == 0) {
+					this.count.incrementAndGet();
+				}
+			}
+		} catch (EOFException e) {
+			Assert.fail(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, "checkpoints");
+		}
+		dis.close();
+	}
+
+	public final void recover() throws IOException {
+		this.recover(this.filename);
+	}
+
+	private final String chkptName(String fname, String ext) {
+		return this.metadir + FileUtil.separator + fname + ".fp." + ext;
+	}
+}
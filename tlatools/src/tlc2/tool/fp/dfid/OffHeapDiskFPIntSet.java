@@ -0,0 +1,676 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.fp.dfid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.rmi.RemoteException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import util.Assert;
+import util.BufferedDataInputStream;
+import util.FileUtil;
+import util.WrongInvocationException;
+
+/**
+ * An <code>OffHeapDiskFPIntSet</code> is a fingerprint set that keeps the
+ * recently added or updated fingerprints in an off-heap hash table and
+ * spills the table to a sorted file on disk when the table fills up. Thus,
+ * unlike the {@link MemFPIntSet}, it is not bounded by the heap.
+ * <p>
+ * A fingerprint and its status are packed into a 12 byte record, both in
+ * the table and on disk. The table is split into segments with a lock each,
+ * which are probed linearly. A fingerprint missing from the table is looked
+ * up on disk by binary search of an in-memory index of the first
+ * fingerprint of each page. A fingerprint whose status changes is copied
+ * into the table, which takes precedence over the disk. When a segment is
+ * full, the sorted table is merged with the disk file into a new one.
+ * <p>
+ * Updates of fingerprints that have been spilled thus cost a disk lookup.
+ * The resuming {@link tlc2.tool.DFIDModelChecker} updates a status at most
+ * twice, whereas restarting iterations level every state in every
+ * iteration.
+ * <p>
+ * The disk file has the checkpoint format of the {@link MemFPIntSet}, which
+ * is why a checkpoint is a copy of the file after the table has been
+ * spilled.
+ */
+public class OffHeapDiskFPIntSet extends FPIntSet {
+
+	public static final boolean ENABLED = Boolean.getBoolean(OffHeapDiskFPIntSet.class.getName());
+
+	private static final int RECORD_SIZE = 12;
+	private static final int LOG_SLOTS_PER_BUFFER = 26;
+	private static final int LOG_SEGMENTS = 6;
+	private static final double MAX_LOAD = .75d;
+	/**
+	 * The number of records per page of the disk file
+	 */
+	static final int RECORDS_PER_PAGE = 512;
+
+	private final ByteBuffer[] buffers;
+	private final int logSegmentCapacity;
+	private final int segmentMask;
+	private final int maxSegmentCount;
+	/**
+	 * The number of fingerprints in each segment, guarded by the segment's
+	 * lock
+	 */
+	private final int[] segmentCounts;
+	private final Object[] locks;
+	/**
+	 * Readers and writers of the table (including its segments) and the disk
+	 * hold the read lock. Spilling the table to disk holds the write lock.
+	 */
+	private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+	/**
+	 * The status of the zero fingerprint, which marks an empty slot. It is
+	 * never spilled and guarded by locks[0].
+	 */
+	private int zeroStatus = 0;
+	private final AtomicLong count = new AtomicLong(0L);
+
+	private String metadir;
+	private String filename;
+	private File file;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+	private long diskCount = 0L;
+	/**
+	 * The first fingerprint of each page of the disk file
+	 */
+	private long[] index = new long[0];
+	private final ThreadLocal<ByteBuffer> pages = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(RECORDS_PER_PAGE * RECORD_SIZE);
+		}
+	};
+
+	/**
+	 * @param memoryInBytes
+	 *            The off-heap memory the table may occupy
+	 */
+	public OffHeapDiskFPIntSet(final long memoryInBytes) throws RemoteException {
+		final long slots = Math.max(1L << (LOG_SEGMENTS + 4), memoryInBytes / RECORD_SIZE);
+		final int logSlots = 63 - Long.numberOfLeadingZeros(slots);
+		this.logSegmentCapacity = logSlots - LOG_SEGMENTS;
+		this.segmentMask = (1 << this.logSegmentCapacity) - 1;
+		this.maxSegmentCount = (int) ((1 << this.logSegmentCapacity) * MAX_LOAD);
+
+		final long slotsPerBuffer = Math.min(1L << LOG_SLOTS_PER_BUFFER, 1L << logSlots);
+		this.buffers = new ByteBuffer[(int) ((1L << logSlots) / slotsPerBuffer)];
+		for (int i = 0; i < this.buffers.length; i++) {
+			this.buffers[i] = ByteBuffer.allocateDirect((int) (slotsPerBuffer * RECORD_SIZE));
+		}
+
+		this.segmentCounts = new int[1 << LOG_SEGMENTS];
+		this.locks = new Object[1 << LOG_SEGMENTS];
+		for (int i = 0; i < this.locks.length; i++) {
+			this.locks[i] = new Object();
+		}
+	}
+
+	public final void init(int numThreads, String metadir, String filename) throws IOException {
+		this.metadir = metadir;
+		this.filename = filename;
+		this.file = new File(metadir + FileUtil.separator + filename + ".fpi");
+		this.file.delete();
+	}
+
+	public final long size() {
+		return this.count.get();
+	}
+
+	// The packed records of the table
+
+	private final long getFP(final long slot) {
+		return this.buffers[(int) (slot >>> LOG_SLOTS_PER_BUFFER)].getLong(offset(slot));
+	}
+
+	private final int getStatusAt(final long slot) {
+		return this.buffers[(int) (slot >>> LOG_SLOTS_PER_BUFFER)].getInt(offset(slot) + 8);
+	}
+
+	private final void setStatusAt(final long slot, final int status) {
+		this.buffers[(int) (slot >>> LOG_SLOTS_PER_BUFFER)].putInt(offset(slot) + 8, status);
+	}
+
+	private final void put(final long slot, final long fp, final int status) {
+		final ByteBuffer buffer = this.buffers[(int) (slot >>> LOG_SLOTS_PER_BUFFER)];
+		buffer.putLong(offset(slot), fp);
+		buffer.putInt(offset(slot) + 8, status);
+	}
+
+	private static int offset(final long slot) {
+		return (int) (slot & ((1L << LOG_SLOTS_PER_BUFFER) - 1)) * RECORD_SIZE;
+	}
+
+	private final long getSlots() {
+		return ((long) this.locks.length) << this.logSegmentCapacity;
+	}
+
+	private static int segment(final long fp) {
+		return (int) (fp >>> (64 - LOG_SEGMENTS));
+	}
+
+	/**
+	 * @return The slot of fp in its segment or, if fp is not in the table,
+	 *         -1 minus the free slot fp would be put into
+	 */
+	private final long find(final int segment, final long fp) {
+		final long base = ((long) segment) << this.logSegmentCapacity;
+		for (int i = (int) fp & this.segmentMask;; i = (i + 1) & this.segmentMask) {
+			final long fp1 = this.getFP(base + i);
+			if (fp1 == fp) {
+				return base + i;
+			} else if (fp1 == 0L) {
+				return -1L - (base + i);
+			}
+		}
+	}
+
+	public final void setLeveled(long fp) {
+		while (true) {
+			this.rwLock.readLock().lock();
+			try {
+				final int segment = segment(fp);
+				synchronized (this.locks[segment]) {
+					if (fp == 0L) {
+						if (this.zeroStatus != 0) {
+							this.zeroStatus = (this.zeroStatus & ~LeveledMask) | Leveled;
+							return;
+						}
+						break;
+					}
+					final long slot = this.find(segment, fp);
+					if (slot >= 0) {
+						final int status = this.getStatusAt(slot);
+						this.setStatusAt(slot, (status & ~LeveledMask) | Leveled);
+						return;
+					}
+					final int status = this.getDiskStatus(fp);
+					if (status == 0) {
+						break;
+					}
+					if ((status & LeveledMask) == Leveled) {
+						return;
+					}
+					if (this.segmentCounts[segment] < this.maxSegmentCount) {
+						this.put(-1L - slot, fp, (status & ~LeveledMask) | Leveled);
+						this.segmentCounts[segment]++;
+						return;
+					}
+				}
+			} finally {
+				this.rwLock.readLock().unlock();
+			}
+			this.spill();
+		}
+		throw new WrongInvocationException("OffHeapDiskFPIntSet.setLeveled: The fp must have been in the set.");
+	}
+
+	public final int setStatus(long fp, int status) {
+		while (true) {
+			this.rwLock.readLock().lock();
+			try {
+				final int segment = segment(fp);
+				synchronized (this.locks[segment]) {
+					if (fp == 0L) {
+						final int status1 = this.zeroStatus;
+						if (status1 == 0) {
+							this.zeroStatus = (Level << SBits) | Leveled | status;
+							this.count.incrementAndGet();
+							return NEW;
+						}
+						this.zeroStatus = status1 | status;
+						return status1;
+					}
+					final long slot = this.find(segment, fp);
+					if (slot >= 0) {
+						final int status1 = this.getStatusAt(slot);
+						this.setStatusAt(slot, status1 | status);
+						return status1;
+					}
+					final int status1 = this.getDiskStatus(fp);
+					if (status1 != 0 && (status1 | status) == status1) {
+						// Unchanged, leave it on disk
+						return status1;
+					}
+					if (this.segmentCounts[segment] < this.maxSegmentCount) {
+						this.segmentCounts[segment]++;
+						if (status1 == 0) {
+							this.put(-1L - slot, fp, (Level << SBits) | Leveled | status);
+							this.count.incrementAndGet();
+							return NEW;
+						}
+						this.put(-1L - slot, fp, status1 | status);
+						return status1;
+					}
+				}
+			} finally {
+				this.rwLock.readLock().unlock();
+			}
+			this.spill();
+		}
+	}
+
+	public final int getStatus(long fp) {
+		this.rwLock.readLock().lock();
+		try {
+			final int segment = segment(fp);
+			synchronized (this.locks[segment]) {
+				if (fp == 0L) {
+					return this.zeroStatus;
+				}
+				final long slot = this.find(segment, fp);
+				if (slot >= 0) {
+					return this.getStatusAt(slot);
+				}
+			}
+			return this.getDiskStatus(fp);
+		} finally {
+			this.rwLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The status of fp on disk or 0 if it is not on disk. The caller
+	 *         has to hold the read or write lock.
+	 */
+	private final int getDiskStatus(final long fp) {
+		if (this.diskCount == 0L || fp < this.index[0]) {
+			return 0;
+		}
+		// The last page whose first fingerprint is not greater than fp
+		int lo = 0, hi = this.index.length - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (this.index[mid] <= fp) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		final ByteBuffer page = this.pages.get();
+		page.clear();
+		final long first = ((long) lo) * RECORDS_PER_PAGE;
+		final int records = (int) Math.min(RECORDS_PER_PAGE, this.diskCount - first);
+		page.limit(records * RECORD_SIZE);
+		try {
+			long position = first * RECORD_SIZE;
+			while (page.hasRemaining()) {
+				final int read = this.channel.read(page, position);
+				if (read < 0) {
+					throw new EOFException(this.file.getAbsolutePath());
+				}
+				position += read;
+			}
+		} catch (IOException e) {
+			MP.printError(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, this.file.getAbsolutePath(), e);
+			throw new RuntimeException(e);
+		}
+		lo = 0;
+		hi = records - 1;
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			final long fp1 = page.getLong(mid * RECORD_SIZE);
+			if (fp1 < fp) {
+				lo = mid + 1;
+			} else if (fp1 > fp) {
+				hi = mid - 1;
+			} else {
+				return page.getInt(mid * RECORD_SIZE + 8);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Spills the table to disk unless another thread has already done so.
+	 */
+	private final void spill() {
+		this.rwLock.writeLock().lock();
+		try {
+			for (int i = 0; i < this.segmentCounts.length; i++) {
+				if (this.segmentCounts[i] >= this.maxSegmentCount) {
+					this.merge();
+					return;
+				}
+			}
+		} catch (IOException e) {
+			MP.printError(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, this.file.getAbsolutePath(), e);
+			throw new RuntimeException(e);
+		} finally {
+			this.rwLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Sorts the table in place and merges it with the disk file into a new
+	 * disk file. The table is empty afterwards. The caller has to hold the
+	 * write lock.
+	 */
+	private final void merge() throws IOException {
+		// Move the records to the front of the table and sort them there:
+		long n = 0L;
+		final long slots = this.getSlots();
+		for (long i = 0L; i < slots; i++) {
+			final long fp = this.getFP(i);
+			if (fp != 0L) {
+				if (i != n) {
+					this.put(n, fp, this.getStatusAt(i));
+					this.put(i, 0L, 0);
+				}
+				n++;
+			}
+		}
+		this.heapSort(n);
+
+		final File tmp = new File(this.file.getPath() + ".tmp");
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+		final DataInputStream in = this.diskCount == 0L ? null : new DataInputStream(new BufferedInputStream(
+				new FileInputStream(this.file), 1 << 16));
+		final long[] index = new long[(int) ((this.diskCount + n + RECORDS_PER_PAGE - 1) / RECORDS_PER_PAGE)];
+		long written = 0L;
+		try {
+			long d = 0L, m = 0L;
+			long diskFP = 0L;
+			int diskStatus = 0;
+			if (d < this.diskCount) {
+				diskFP = in.readLong();
+				diskStatus = in.readInt();
+			}
+			while (d < this.diskCount || m < n) {
+				final long fp;
+				final int status;
+				if (m < n && (d >= this.diskCount || this.getFP(m) <= diskFP)) {
+					fp = this.getFP(m);
+					status = this.getStatusAt(m);
+					// The table takes precedence over the disk
+					if (d < this.diskCount && fp == diskFP) {
+						d++;
+						if (d < this.diskCount) {
+							diskFP = in.readLong();
+							diskStatus = in.readInt();
+						}
+					}
+					m++;
+				} else {
+					fp = diskFP;
+					status = diskStatus;
+					d++;
+					if (d < this.diskCount) {
+						diskFP = in.readLong();
+						diskStatus = in.readInt();
+					}
+				}
+				if (written % RECORDS_PER_PAGE == 0) {
+					index[(int) (written / RECORDS_PER_PAGE)] = fp;
+				}
+				out.writeLong(fp);
+				out.writeInt(status);
+				written++;
+			}
+		} finally {
+			out.close();
+			if (in != null) {
+				in.close();
+			}
+		}
+
+		if (this.raf != null) {
+			this.raf.close();
+		}
+		if ((this.file.exists() && !this.file.delete()) || !tmp.renameTo(this.file)) {
+			throw new IOException("OffHeapDiskFPIntSet.merge: cannot replace " + this.file);
+		}
+		this.raf = new RandomAccessFile(this.file, "r");
+		this.channel = this.raf.getChannel();
+		this.diskCount = written;
+		this.index = new long[(int) ((written + RECORDS_PER_PAGE - 1) / RECORDS_PER_PAGE)];
+		System.arraycopy(index, 0, this.index, 0, this.index.length);
+
+		for (long i = 0L; i < n; i++) {
+			this.put(i, 0L, 0);
+		}
+		for (int i = 0; i < this.segmentCounts.length; i++) {
+			this.segmentCounts[i] = 0;
+		}
+	}
+
+	/**
+	 * Sorts the first n records of the table by fingerprint. Heapsort sorts
+	 * in place without recursion.
+	 */
+	private final void heapSort(final long n) {
+		for (long i = n / 2 - 1; i >= 0; i--) {
+			this.siftDown(i, n);
+		}
+		for (long end = n - 1; end > 0; end--) {
+			this.swap(0L, end);
+			this.siftDown(0L, end);
+		}
+	}
+
+	private final void siftDown(long root, final long n) {
+		while (true) {
+			long child = 2 * root + 1;
+			if (child >= n) {
+				return;
+			}
+			if (child + 1 < n && this.getFP(child + 1) > this.getFP(child)) {
+				child++;
+			}
+			if (this.getFP(root) >= this.getFP(child)) {
+				return;
+			}
+			this.swap(root, child);
+			root = child;
+		}
+	}
+
+	private final void swap(final long i, final long j) {
+		final long fp = this.getFP(i);
+		final int status = this.getStatusAt(i);
+		this.put(i, this.getFP(j), this.getStatusAt(j));
+		this.put(j, fp, status);
+	}
+
+	public final boolean allLeveled() {
+		this.rwLock.writeLock().lock();
+		try {
+			if (this.zeroStatus != 0 && (this.zeroStatus & LeveledMask) != Leveled) {
+				return false;
+			}
+			final long slots = this.getSlots();
+			for (long i = 0L; i < slots; i++) {
+				if (this.getFP(i) != 0L && (this.getStatusAt(i) & LeveledMask) != Leveled) {
+					return false;
+				}
+			}
+			if (this.diskCount > 0L) {
+				final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file),
+						1 << 16));
+				try {
+					for (long i = 0L; i < this.diskCount; i++) {
+						final long fp = in.readLong();
+						final int status = in.readInt();
+						// A fingerprint in the table has been updated there
+						if ((status & LeveledMask) != Leveled && this.find(segment(fp), fp) < 0) {
+							return false;
+						}
+					}
+				} finally {
+					in.close();
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			MP.printError(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, this.file.getAbsolutePath(), e);
+			throw new RuntimeException(e);
+		} finally {
+			this.rwLock.writeLock().unlock();
+		}
+	}
+
+	public final void close() {
+		try {
+			if (this.raf != null) {
+				this.raf.close();
+			}
+		} catch (IOException e) {
+			// ignore, the metadir is deleted anyway
+		}
+	}
+
+	public final void exit(boolean cleanup) throws IOException {
+		this.close();
+		if (cleanup) {
+			// Delete the metadata directory:
+			File file = new File(this.metadir);
+			FileUtil.deleteDir(file, true);
+		}
+		String hostname = InetAddress.getLocalHost().getHostName();
+		MP.printMessage(EC.TLC_FP_COMPLETED, hostname);
+		System.exit(0);
+	}
+
+	/**
+	 * Spills the table to disk first, after which the minimal distance
+	 * between two fingerprints is the one of two neighbors in the file.
+	 */
+	public final double checkFPs() throws IOException {
+		this.rwLock.writeLock().lock();
+		try {
+			this.merge();
+			long dis = Long.MAX_VALUE;
+			if (this.diskCount > 0L) {
+				final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file),
+						1 << 16));
+				try {
+					final boolean zero = this.zeroStatus != 0;
+					long prev = 0L;
+					for (long i = 0L; i < this.diskCount; i++) {
+						final long fp = in.readLong();
+						in.readInt();
+						if (i > 0L && fp - prev >= 0) {
+							dis = Math.min(dis, fp - prev);
+						}
+						// The zero fingerprint is not on disk
+						if (zero && fp != Long.MIN_VALUE) {
+							dis = Math.min(dis, Math.abs(fp));
+						}
+						prev = fp;
+					}
+				} finally {
+					in.close();
+				}
+			}
+			return (1.0 / dis);
+		} finally {
+			this.rwLock.writeLock().unlock();
+		}
+	}
+
+	// Checkpoint.
+	public final void beginChkpt(String fname) throws IOException {
+		this.rwLock.writeLock().lock();
+		try {
+			this.merge();
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+					this.chkptName(fname, "tmp")), 1 << 16));
+			try {
+				if (this.diskCount > 0L) {
+					final FileInputStream in = new FileInputStream(this.file);
+					try {
+						final byte[] buf = new byte[1 << 16];
+						int read;
+						while ((read = in.read(buf)) > 0) {
+							out.write(buf, 0, read);
+						}
+					} finally {
+						in.close();
+					}
+				}
+				if (this.zeroStatus != 0) {
+					out.writeLong(0L);
+					out.writeInt(this.zeroStatus);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			this.rwLock.writeLock().unlock();
+		}
+	}
+
+	public final void beginChkpt() throws IOException {
+		this.beginChkpt(this.filename);
+	}
+
+	public final void commitChkpt(String fname) throws IOException {
+		File oldChkpt = new File(this.chkptName(fname, "chkpt"));
+		File newChkpt = new File(this.chkptName(fname, "tmp"));
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("OffHeapDiskFPIntSet.commitChkpt: cannot delete " + oldChkpt);
+		}
+	}
+
+	public final void commitChkpt() throws IOException {
+		this.commitChkpt(this.filename);
+	}
+
+	/**
+	 * Recovers a checkpoint of any {@link FPIntSet} into this empty set. The
+	 * checkpoint need not be sorted.
+	 */
+	public final void recover(String fname) throws IOException {
+		final BufferedDataInputStream dis = new BufferedDataInputStream(this.chkptName(fname, "chkpt"));
+		this.rwLock.writeLock().lock();
+		try {
+			while (!dis.atEOF()) {
+				final long fhi = dis.readInt();
+				final long flo = dis.readInt();
+				final long fp = (fhi << 32) | (flo & 0xFFFFFFFFL);
+				final int status = dis.readInt();
+				if (fp == 0L) {
+					this.zeroStatus = status;
+				} else {
+					final int segment = segment(fp);
+					if (this.segmentCounts[segment] >= this.maxSegmentCount) {
+						this.merge();
+					}
+					this.put(-1L - this.find(segment, fp), fp, status);
+					this.segmentCounts[segment]++;
+				}
+				this.count.incrementAndGet();
+			}
+		} catch (EOFException e) {
+			Assert.fail(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, "checkpoints");
+		} finally {
+			this.rwLock.writeLock().unlock();
+			dis.close();
+		}
+	}
+
+	public final void recover() throws IOException {
+		this.recover(this.filename);
+	}
+
+	private final String chkptName(String fname, String ext) {
+		return this.metadir + FileUtil.separator + fname + ".fp." + ext;
+	}
+}
@@ -34,14 +34,32 @@ public class DiskGraph {
    * and MAX_LINK for links. So, it is a file pointer iff ptr < MAX_PTR. 
    *
    * We cache portions of the graph in memory.
+   *
+   * If MAPPED is set, the nodes are stored in a memory mapped
+   * MappedNodeFile instead of nodeRAF and cached by a GraphNodeCache of
+   * CACHE_SIZE nodes. The node-pointer table of a graph without tableau
+   * then is an OffHeapNodePtrTable. The tableau graph keeps its
+   * NodePtrTable because LiveCheck and the trace reconstruction work
+   * directly on the per-state records of the table.
    */
 
+  public static final boolean MAPPED = Boolean.getBoolean(DiskGraph.class.getName() + ".mapped");
+
+  /* The number of nodes cached if MAPPED is set. */
+  public static final int CACHE_SIZE = Integer.getInteger(DiskGraph.class.getName() + ".cache", 1 << 18);
+
   /* The maximum length of the file fileForNodes. */
   public static final long MAX_PTR = 0x4000000000000000L;
 
   /* Links are from MAX_PTR and MAX_LINK.  */
   public static final long MAX_LINK = 0x7FFFFFFFFFFFFFFFL;
 
+  /**
+   * The link of a node whose component reaches a node that has not been
+   * explored yet. It is larger than all links assigned in the SCC search.
+   */
+  public static final long OPEN_LINK = MAX_LINK - 1;
+
   public static boolean isFilePointer(long loc) { return loc < MAX_PTR; }
   
   private String metadir;
@@ -52,16 +70,49 @@ public class DiskGraph {
   private LongVec initNodes;
   private boolean hasTableau;
   private GraphNode[] gnodes;
+  private MappedNodeFile nodeFile;
+  private OffHeapNodePtrTable ptrTbl;
+  private GraphNodeCache nodeCache;
+
+  /**
+   * Incremental liveness checking (see LiveCheck.INCREMENTAL): A node is
+   * closed once it cannot reach a node that has not been explored yet. The
+   * successors of a closed node, and thus its component, never change
+   * again, so a check keeps the links of closed nodes at MAX_LINK and only
+   * searches the open nodes.  The file fileForOpen stores the (node, ptr)
+   * pairs of the nodes the last check could not close, and checkedPtr is
+   * the length of fileForPtrs covered by the last check.
+   */
+  private String fnameForOpen;
+  private BufferedRandomAccessFile openRAF;
+  private long openLen;
+  private long openCnt;
+  private long checkedPtr;
 
   public DiskGraph(String metadir, int soln, boolean hasTableau)
   throws IOException {
     this.metadir = metadir;
     this.chkptName = metadir + FileUtil.separator + "dgraph_" + soln;
     String fnameForNodes = metadir + FileUtil.separator + "nodes_" + soln;
-    this.nodeRAF = new BufferedRandomAccessFile(fnameForNodes, "rw");
+    if (MAPPED) {
+      this.nodeFile = new MappedNodeFile(fnameForNodes);
+    }
+    else {
+      this.nodeRAF = new BufferedRandomAccessFile(fnameForNodes, "rw");
+    }
     String fnameForPtrs = metadir + FileUtil.separator + "ptrs_" + soln;
     this.nodePtrRAF = new BufferedRandomAccessFile(fnameForPtrs, "rw");
-    this.nodePtrTbl = new NodePtrTable(255, hasTableau);
+    this.fnameForOpen = metadir + FileUtil.separator + "open_" + soln;
+    this.openRAF = null;
+    this.openLen = 0;
+    this.openCnt = 0;
+    this.checkedPtr = 0;
+    if (MAPPED && !hasTableau) {
+      this.ptrTbl = new OffHeapNodePtrTable(255);
+    }
+    else {
+      this.nodePtrTbl = new NodePtrTable(255, hasTableau);
+    }
     this.initNodes = new LongVec(1);
     this.hasTableau = hasTableau;
     this.gnodes = null;
@@ -75,10 +126,18 @@ public class DiskGraph {
   public final LongVec getInitNodes() { return this.initNodes; }
 
   public final void createCache() {
-    this.gnodes = new GraphNode[65536];
+    if (this.nodeFile != null) {
+      this.nodeCache = new GraphNodeCache(CACHE_SIZE);
+    }
+    else {
+      this.gnodes = new GraphNode[65536];
+    }
   }
 
-  public final void destroyCache() { this.gnodes = null; }
+  public final void destroyCache() {
+    this.gnodes = null;
+    this.nodeCache = null;
+  }
   
   public final boolean isDone(long fp) {
     return this.nodePtrTbl.isDone(fp);
@@ -98,8 +157,16 @@ public class DiskGraph {
   
   /* Close the disk files.  */
   public final void close() throws IOException {
-    this.nodeRAF.close();
+    if (this.nodeFile != null) {
+      this.nodeFile.close();
+    }
+    else {
+      this.nodeRAF.close();
+    }
     this.nodePtrRAF.close();
+    if (this.openRAF != null) {
+      this.openRAF.close();
+    }
   }
 
   /**
@@ -107,10 +174,13 @@ public class DiskGraph {
    * this node in the node file.
    */
   public final long addNode(GraphNode node) throws IOException {
-    long ptr = this.nodeRAF.getFilePointer();
+    long ptr = this.getNodeFilePointer();
 
     // Write node to nodePtrTbl:
-    if (this.hasTableau) {
+    if (this.ptrTbl != null) {
+      this.ptrTbl.put(node.stateFP, node.tindex, ptr);
+    }
+    else if (this.hasTableau) {
       this.nodePtrTbl.put(node.stateFP, node.tindex, ptr);
     }
     else {
@@ -120,7 +190,10 @@ public class DiskGraph {
     this.nodePtrRAF.writeLong(node.stateFP);
     this.nodePtrRAF.writeInt(node.tindex);
     this.nodePtrRAF.writeLongNat(ptr);
-    // Write fields of node to nodeRAF:
+    // Write fields of node to the node file:
+    if (this.nodeFile != null) {
+      return this.nodeFile.append(node);
+    }
     int cnt = node.nnodes.length;
     this.nodeRAF.writeNat(cnt);
     for (int i = 0; i < cnt; i++) {
@@ -133,6 +206,15 @@ public class DiskGraph {
   /* Get the graph node at the file location ptr.  */
   public final GraphNode getNode(long stateFP, int tidx, long ptr)
   throws IOException {
+    if (this.nodeFile != null) {
+      GraphNode gnode = (this.nodeCache == null) ? null : this.nodeCache.get(stateFP, tidx);
+      if (gnode == null) {
+	gnode = this.nodeFile.read(stateFP, tidx, ptr);
+	if (this.nodeCache != null) this.nodeCache.put(gnode);
+      }
+      return gnode;
+    }
+
     // Get from memory cache if cached:
     int idx = (int)(stateFP + tidx) & 0xFFFF;
     GraphNode gnode = this.gnodes[idx];
@@ -159,25 +241,39 @@ public class DiskGraph {
 
   /* Get the graph node.  Return null if the node is not in this. */
   public final GraphNode getNode(long stateFP) throws IOException {
-    long ptr = this.nodePtrTbl.get(stateFP);
+    long ptr = this.getPtr(stateFP);
     if (ptr < 0) return null;
     return this.getNode(stateFP, -1, ptr);
   }
 
   /* Get the graph node.  Return null if the node is not in this. */
   public final GraphNode getNode(long fp, int tidx) throws IOException {
-    long ptr = this.nodePtrTbl.get(fp, tidx);
+    long ptr = this.getPtr(fp, tidx);
     if (ptr < 0) return null;
     return this.getNode(fp, tidx, ptr);
   }
 
   public final long getPtr(long fp) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.get(fp, -1);
+    }
     return this.nodePtrTbl.get(fp);
   }
 
   public final long getPtr(long fp, int tidx) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.get(fp, tidx);
+    }
     return this.nodePtrTbl.get(fp, tidx);
   }
+
+  /* The location in the node file at which the next node is added. */
+  private long getNodeFilePointer() throws IOException {
+    if (this.nodeFile != null) {
+      return this.nodeFile.getFilePointer();
+    }
+    return this.nodeRAF.getFilePointer();
+  }
   
   public final int[] getNodes(long stateFP) {
     return this.nodePtrTbl.getNodes(stateFP);
@@ -213,18 +309,82 @@ public class DiskGraph {
 	// int tidx = 
 	this.nodePtrRAF.readInt(); 
 	long loc = this.nodePtrRAF.readLongNat();
-	this.nodePtrTbl.put(fp, loc);
+	if (this.ptrTbl != null) {
+	  this.ptrTbl.put(fp, -1, loc);
+	}
+	else {
+	  this.nodePtrTbl.put(fp, loc);
+	}
+      }
+    }
+  }
+
+  /**
+   * Restore the file pointers of the nodes which the last check did not
+   * close and of the nodes added since. Closed nodes keep MAX_LINK.
+   */
+  public final void makeOpenNodePtrTbl() throws IOException {
+    if (this.openRAF != null) {
+      this.openRAF.seek(0);
+      while (this.openRAF.getFilePointer() < this.openLen) {
+	long fp = this.openRAF.readLong();
+	int tidx = this.openRAF.readInt();
+	long loc = this.openRAF.readLongNat();
+	this.setLink(fp, tidx, loc);
       }
     }
+    long ptr = this.nodePtrRAF.getFilePointer();
+    this.nodePtrRAF.seek(this.checkedPtr);
+    while (this.nodePtrRAF.getFilePointer() < ptr) {
+      long fp = this.nodePtrRAF.readLong();
+      int tidx = this.nodePtrRAF.readInt();
+      long loc = this.nodePtrRAF.readLongNat();
+      this.setLink(fp, tidx, loc);
+    }
+  }
+
+  /* Start recording the nodes the current check cannot close. */
+  public final void beginOpenNodes() throws IOException {
+    if (this.openRAF == null) {
+      this.openRAF = new BufferedRandomAccessFile(this.fnameForOpen, "rw");
+    }
+    this.openRAF.seek(0);
+    this.openCnt = 0;
+  }
+
+  /* Record that the node at location loc is open. */
+  public final void addOpenNode(long state, int tidx, long loc) throws IOException {
+    this.setLink(state, tidx, OPEN_LINK);
+    this.openRAF.writeLong(state);
+    this.openRAF.writeInt(tidx);
+    this.openRAF.writeLongNat(loc);
+    this.openCnt++;
+  }
+
+  /* The number of nodes the last check did not close. */
+  public final long getOpenNodeCnt() { return this.openCnt; }
+
+  /**
+   * All nodes in this graph have been checked. The next check only searches
+   * the recorded open nodes and the nodes added from now on.
+   */
+  public final void commitOpenNodes() throws IOException {
+    this.openLen = this.openRAF.getFilePointer();
+    this.checkedPtr = this.nodePtrRAF.getFilePointer();
   }
 
   public final boolean isGood() {
+    // Only the tableau graph marks nodes that have not been added yet
+    if (this.ptrTbl != null) return true;
     return this.nodePtrTbl.isGood();
   }
   
   /* Return the link assigned to the node. */
   public final long getLink(long state, int tidx) {
-    if (this.hasTableau) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.get(state, tidx);
+    }
+    else if (this.hasTableau) {
       return this.nodePtrTbl.get(state, tidx);
     }
     else {
@@ -238,7 +398,13 @@ public class DiskGraph {
    * Otherwise, add <node, link> into the table and return -1.
    */
   public final long putLink(long state, int tidx, long link) {
-    if (this.hasTableau) {
+    if (this.ptrTbl != null) {
+      long loc = this.ptrTbl.getLoc(state, tidx);
+      long oldLink = this.ptrTbl.getByLoc(loc);
+      if (!isFilePointer(oldLink)) return oldLink;
+      this.ptrTbl.putByLoc(link, loc);
+    }
+    else if (this.hasTableau) {
       int[] node = this.nodePtrTbl.getNodes(state);
       int cloc = NodePtrTable.getIdx(node, tidx);
       long oldLink = NodePtrTable.getElem(node, cloc);
@@ -255,11 +421,18 @@ public class DiskGraph {
   }
 
   public final void setMaxLink(long state, int tidx) {
-    if (this.hasTableau) {
-      this.nodePtrTbl.put(state, tidx, MAX_LINK);
+    this.setLink(state, tidx, MAX_LINK);
+  }
+
+  private void setLink(long state, int tidx, long link) {
+    if (this.ptrTbl != null) {
+      this.ptrTbl.put(state, tidx, link);
+    }
+    else if (this.hasTableau) {
+      this.nodePtrTbl.put(state, tidx, link);
     }
     else {
-      this.nodePtrTbl.put(state, MAX_LINK);
+      this.nodePtrTbl.put(state, link);
     }
   }
   
@@ -355,8 +528,8 @@ public class DiskGraph {
       for (int i = 0; i < numOfInits; i += 2) {
 	long state0 = this.initNodes.elementAt(i);
 	queue.enqueueLong(state0);
-	queue.enqueueLong(this.nodePtrTbl.get(state0));
-	this.nodePtrTbl.put(state0, MAX_PTR);
+	queue.enqueueLong(this.getPtr(state0));
+	this.setLink(state0, -1, MAX_PTR);
       }
 
       while (true) {
@@ -371,34 +544,65 @@ public class DiskGraph {
 	    // found a path to state: construct the path and return.
 	    LongVec res = new LongVec(2);
 	    res.addElement(nextState);
-	    int curLoc = this.nodePtrTbl.getLoc(curState);
+	    long curLoc = this.getLoc(curState);
 	    while (true) {
 	      res.addElement(curState);
-	      long ploc = this.nodePtrTbl.getByLoc(curLoc);
+	      long ploc = this.getByLoc(curLoc);
 	      if (ploc == MAX_PTR) break;
-	      curLoc = (int)(ploc-offset);
-	      curState = this.nodePtrTbl.getKeyByLoc(curLoc);
+	      curLoc = ploc-offset;
+	      curState = this.getKeyByLoc(curLoc);
 	    }
 	    return res;	    
 	  }
-	  int nextLoc = this.nodePtrTbl.getLoc(nextState);
-	  long nextPtr = this.nodePtrTbl.getByLoc(nextLoc);
+	  long nextLoc = this.getLoc(nextState);
+	  long nextPtr = this.getByLoc(nextLoc);
 	  if (isFilePointer(nextPtr)) {
 	    // nextState is not visited:
 	    queue.enqueueLong(nextState);
 	    queue.enqueueLong(nextPtr);
-	    int curLoc = this.nodePtrTbl.getLoc(curState);
-	    this.nodePtrTbl.putByLoc(nextState, offset+curLoc, nextLoc);
+	    long curLoc = this.getLoc(curState);
+	    this.putByLoc(nextState, offset+curLoc, nextLoc);
 	  }
 	}
       }
     }
   }
 
+  /* Location-based access to the node-pointer table without tableau. */
+  private long getLoc(long state) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.getLoc(state, -1);
+    }
+    return this.nodePtrTbl.getLoc(state);
+  }
+
+  private long getByLoc(long loc) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.getByLoc(loc);
+    }
+    return this.nodePtrTbl.getByLoc((int)loc);
+  }
+
+  private long getKeyByLoc(long loc) {
+    if (this.ptrTbl != null) {
+      return this.ptrTbl.getKeyByLoc(loc);
+    }
+    return this.nodePtrTbl.getKeyByLoc((int)loc);
+  }
+
+  private void putByLoc(long state, long elem, long loc) {
+    if (this.ptrTbl != null) {
+      this.ptrTbl.putByLoc(elem, loc);
+    }
+    else {
+      this.nodePtrTbl.putByLoc(state, elem, (int)loc);
+    }
+  }
+
   public final String toString() {
     StringBuffer sb = new StringBuffer();
     try {
-      long nodePtr = this.nodeRAF.getFilePointer();
+      long nodePtr = this.getNodeFilePointer();
       long nodePtrPtr = this.nodePtrRAF.getFilePointer();
       long len = this.nodePtrRAF.length();
       this.nodePtrRAF.seek(0);
@@ -430,7 +634,7 @@ public class DiskGraph {
 	  sb.append("\n");
 	}
       }
-      this.nodeRAF.seek(nodePtr);
+      if (this.nodeRAF != null) this.nodeRAF.seek(nodePtr);
       this.nodePtrRAF.seek(nodePtrPtr);
     }
     catch (IOException e) 
@@ -444,11 +648,16 @@ public class DiskGraph {
 
   /* Checkpoint.  */
   public synchronized final void beginChkpt() throws IOException {
-    this.nodeRAF.flush();
+    if (this.nodeFile != null) {
+      this.nodeFile.force();
+    }
+    else {
+      this.nodeRAF.flush();
+    }
     this.nodePtrRAF.flush();
     FileOutputStream fos = new FileOutputStream(this.chkptName + ".chkpt.tmp");
     DataOutputStream dos = new DataOutputStream(fos);
-    dos.writeLong(this.nodeRAF.getFilePointer());
+    dos.writeLong(this.getNodeFilePointer());
     dos.writeLong(this.nodePtrRAF.getFilePointer());    
     dos.close();
     fos.close();
@@ -472,8 +681,17 @@ public class DiskGraph {
     fis.close();
 
     this.makeNodePtrTbl(nodePtrRAFPos);
-    this.nodeRAF.seek(nodeRAFPos);
+    if (this.nodeFile != null) {
+      this.nodeFile.seek(nodeRAFPos);
+    }
+    else {
+      this.nodeRAF.seek(nodeRAFPos);
+    }
     this.nodePtrRAF.seek(nodePtrRAFPos);
+    // The next check searches the whole graph
+    this.openLen = 0;
+    this.openCnt = 0;
+    this.checkedPtr = 0;
   }
 
 }
@@ -0,0 +1,114 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+/**
+ * A cache of at most a given number of {@link GraphNode}s, keyed by their
+ * fingerprint and tableau index, which evicts the least recently used node.
+ * Contrary to a direct-mapped cache, the nodes of a component the SCC search
+ * keeps coming back to are not evicted by colliding nodes. Lookups do not
+ * allocate. Not thread-safe.
+ */
+public final class GraphNodeCache {
+
+	private static final class Entry {
+		private final GraphNode node;
+		private Entry chain;
+		private Entry prev;
+		private Entry next;
+
+		private Entry(final GraphNode node) {
+			this.node = node;
+		}
+	}
+
+	private final int capacity;
+	private final Entry[] table;
+	private final int mask;
+	/**
+	 * The sentinel of the list of entries in order of their last use. Its
+	 * next entry is the most and its previous entry the least recently used.
+	 */
+	private final Entry head;
+	private int size;
+
+	public GraphNodeCache(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Cache size has to be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		final int length = Integer.highestOneBit(Math.min(capacity, 1 << 29) * 2 - 1);
+		this.table = new Entry[length];
+		this.mask = length - 1;
+		this.head = new Entry(null);
+		this.head.prev = this.head;
+		this.head.next = this.head;
+		this.size = 0;
+	}
+
+	/**
+	 * @return The cached node with the given fingerprint and tableau index or
+	 *         null if there is none
+	 */
+	public GraphNode get(final long fp, final int tidx) {
+		for (Entry e = this.table[index(fp, tidx)]; e != null; e = e.chain) {
+			if (e.node.stateFP == fp && e.node.tindex == tidx) {
+				this.unlink(e);
+				this.linkFirst(e);
+				return e.node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Caches the given node, which must not be cached yet, and evicts the
+	 * least recently used node if the cache is full.
+	 */
+	public void put(final GraphNode node) {
+		if (this.size == this.capacity) {
+			this.evict(this.head.prev);
+		}
+		final int idx = index(node.stateFP, node.tindex);
+		final Entry e = new Entry(node);
+		e.chain = this.table[idx];
+		this.table[idx] = e;
+		this.linkFirst(e);
+		this.size++;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	private void evict(final Entry victim) {
+		final int idx = index(victim.node.stateFP, victim.node.tindex);
+		if (this.table[idx] == victim) {
+			this.table[idx] = victim.chain;
+		} else {
+			Entry e = this.table[idx];
+			while (e.chain != victim) {
+				e = e.chain;
+			}
+			e.chain = victim.chain;
+		}
+		this.unlink(victim);
+		this.size--;
+	}
+
+	private void unlink(final Entry e) {
+		e.prev.next = e.next;
+		e.next.prev = e.prev;
+	}
+
+	private void linkFirst(final Entry e) {
+		e.prev = this.head;
+		e.next = this.head.next;
+		this.head.next.prev = e;
+		this.head.next = e;
+	}
+
+	private int index(final long fp, final int tidx) {
+		final long h = (fp + tidx) * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & this.mask;
+	}
+}
@@ -9,6 +9,7 @@ import java.io.IOException;
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.tool.AbstractChecker;
 import tlc2.tool.Action;
 import tlc2.tool.StateVec;
 import tlc2.tool.TLCState;
@@ -17,11 +18,25 @@ import tlc2.util.LongVec;
 
 public class LiveCheck {
 
+  /**
+   * Incremental checking: A check skips the part of the behavior graph
+   * which the previous checks have closed (see DiskGraph).
+   */
+  public static final boolean INCREMENTAL = Boolean.getBoolean(LiveCheck.class.getName() + ".incremental");
+
+  /**
+   * On-the-fly checking: If the spec has no fairness, a NestedDFS searches
+   * the behavior graphs it supports for a violation while the model checker
+   * explores the state space. check() skips the graphs it has verified.
+   */
+  public static final boolean ON_THE_FLY = Boolean.getBoolean(LiveCheck.class.getName() + ".onTheFly");
+
   private static Action[] actions;
   protected static Tool myTool;
   protected static String metadir;
   protected static OrderOfSolution[] solutions;
   protected static DiskGraph[] dgraphs;
+  private static NestedDFS onTheFly;
 
   // SZ: fields not read localy
   // private static OrderOfSolution currentOOS;
@@ -40,6 +55,13 @@ public class LiveCheck {
       dgraphs[soln] = new DiskGraph(metadir, soln, hasTableau);
       // System.err.println(solutions[soln]);
     }    
+    onTheFly = null;
+    if (ON_THE_FLY && tool.getTemporals().length == 0) {
+      onTheFly = new NestedDFS(tool, acts, solutions);
+      if (!onTheFly.hasSupported()) {
+	onTheFly = null;
+      }
+    }
   }
 
   /**
@@ -48,6 +70,9 @@ public class LiveCheck {
    * generated.
    */
   public static void addInitState(TLCState state, long stateFP) {
+    if (onTheFly != null) {
+      onTheFly.addInitState(state);
+    }
     for (int soln = 0; soln < solutions.length; soln++) {
       OrderOfSolution oos = solutions[soln];
       DiskGraph dgraph = dgraphs[soln];
@@ -259,6 +284,21 @@ public class LiveCheck {
     dgraph.addNode(node);
   }
 
+  /**
+   * Start checking on the fly once all initial states have been added.
+   * A violation stops the given checker.
+   */
+  public static void startOnTheFly(AbstractChecker checker) {
+    if (onTheFly != null) {
+      onTheFly.start(checker);
+    }
+  }
+
+  /* Return true iff the behavior graph of soln needs no further check. */
+  static boolean isVerified(int soln) {
+    return onTheFly != null && onTheFly.isVerified(soln);
+  }
+
   /**
    * Check liveness properties for the current partial state graph.
    * Returns true iff it finds no errors.
@@ -266,6 +306,7 @@ public class LiveCheck {
   public static boolean check() throws Exception {
     int slen = solutions.length;
     int wNum = Math.min(slen, TLCGlobals.getNumWorkers());
+    LiveWorker.reset();
 
     if (wNum == 1) {
       LiveWorker worker = new LiveWorker(0);
@@ -284,15 +325,35 @@ public class LiveCheck {
 
     if (LiveWorker.hasErrFound()) return false;
     
-    // Reset after checking:
-    for (int soln = 0; soln < slen; soln++) {
-      dgraphs[soln].makeNodePtrTbl();
+    // Reset after checking (LiveWorker has restored the open part):
+    if (!INCREMENTAL) {
+      for (int soln = 0; soln < slen; soln++) {
+	dgraphs[soln].makeNodePtrTbl();
+      }
     }
     return true;
   }
 
+  /**
+   * Returns the number of states to explore before the next check when
+   * checking incrementally. A check costs about the nodes left open by
+   * the previous check plus the nodes added since. Waiting for at least
+   * as many new nodes as there are open ones keeps the total cost of all
+   * checks linear in the size of the behavior graph.
+   */
+  public static long getNextCheckDistance() {
+    long openCnt = 0;
+    for (int i = 0; i < dgraphs.length; i++) {
+      openCnt += dgraphs[i].getOpenNodeCnt();
+    }
+    return Math.max(openCnt, 1000);
+  }
+
   /* Close all the files for disk graphs. */
   public static void close() throws IOException {
+    if (onTheFly != null) {
+      onTheFly.terminate();
+    }
     for (int i = 0; i < dgraphs.length; i++) {
       dgraphs[i].close();
     }
@@ -16,6 +16,7 @@ import tlc2.tool.StateVec;
 import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateInfo;
 import tlc2.tool.Tool;
+import tlc2.tool.TracePrinter;
 import tlc2.util.FP64;
 import tlc2.util.LongObjTable;
 import tlc2.util.MemObjectStack;
@@ -704,9 +705,10 @@ public class LiveCheck1 {
     }
 
     // Print the prefix:
+    final TracePrinter printer = new TracePrinter(myTool);
     TLCState lastState = null;    
     for (int i = 0; i < stateNum; i++) {
-      StatePrinter.printState(states[i], lastState, i+1);
+      printer.print(states[i], lastState, i+1);
       lastState = states[i].state;
     }
 
@@ -725,10 +727,11 @@ public class LiveCheck1 {
 	if (sinfo == null) {
 	  throw new EvalException(EC.TLC_FAILED_TO_RECOVER_NEXT);
 	}
-	StatePrinter.printState(sinfo, lastState, ++stateNum);
+	printer.print(sinfo, lastState, ++stateNum);
 	lastState = sinfo.state;	
       }
     }
+    printer.flush(lastState);
     StatePrinter.printStutteringState(++stateNum);
     MP.printMessage(EC.TLC_BACK_TO_STATE, "" + cyclePos);
   }
@@ -13,6 +13,7 @@ import tlc2.output.StatePrinter;
 import tlc2.tool.EvalException;
 import tlc2.tool.TLCState;
 import tlc2.tool.TLCStateInfo;
+import tlc2.tool.TracePrinter;
 import tlc2.util.IdThread;
 import tlc2.util.LongVec;
 import tlc2.util.MemIntQueue;
@@ -37,6 +38,11 @@ public class LiveWorker extends IdThread {
     return -1;
   }
 
+  /* Prepare for the next check of all OOSs. */
+  public synchronized static void reset() {
+    nextOOS = 0;
+  }
+
   // Returns true iff an error has already found.
   public static boolean hasErrFound() {
     synchronized(workerLock) {
@@ -67,7 +73,12 @@ public class LiveWorker extends IdThread {
    */
   public final void checkSccs() throws IOException {
     // Initialize this.dg:
-    this.dg.makeNodePtrTbl();
+    if (LiveCheck.INCREMENTAL) {
+      this.dg.makeOpenNodePtrTbl();
+    }
+    else {
+      this.dg.makeNodePtrTbl();
+    }
 
     // Initialize nodeQueue with initial states.
     MemIntQueue nodeQueue = new MemIntQueue(LiveCheck.metadir, "root");
@@ -179,6 +190,148 @@ public class LiveWorker extends IdThread {
     // comStack.cleanup();
   }
 
+  /**
+   * Computes the strongly connected components of the open part of the
+   * graph (see DiskGraph) and closes every component that cannot reach
+   * a node which has not been explored yet. Components are completed in
+   * reverse topological order, so the successors of a component outside
+   * of it are either unexplored or have been closed or left open before.
+   */
+  public final void closeSccs() throws IOException {
+    this.dg.makeOpenNodePtrTbl();
+    this.dg.beginOpenNodes();
+
+    MemIntQueue nodeQueue = new MemIntQueue(LiveCheck.metadir, "root");
+    LongVec initNodes = this.dg.getInitNodes();
+    int numOfInits = initNodes.size();
+    for (int j = 0; j < numOfInits; j += 2) {
+      long state = initNodes.elementAt(j);
+      int tidx = (int)initNodes.elementAt(j+1);
+      long ptr = this.dg.getLink(state, tidx);
+      if (ptr >= 0 && DiskGraph.isFilePointer(ptr)) {
+	nodeQueue.enqueueLong(state);
+	nodeQueue.enqueueInt(tidx);
+	nodeQueue.enqueueLong(ptr);
+      }
+    }
+
+    MemIntStack dfsStack = new MemIntStack(LiveCheck.metadir, "dfs");
+    MemIntStack comStack = new MemIntStack(LiveCheck.metadir, "com");
+
+    // Same search as in checkSccs, but along all edges:
+    while (nodeQueue.length() > 0) {
+      long state = nodeQueue.dequeueLong();
+      int tidx = nodeQueue.dequeueInt();
+      long loc = nodeQueue.dequeueLong();
+
+      dfsStack.reset();
+      dfsStack.pushLong(state);
+      dfsStack.pushInt(tidx);
+      dfsStack.pushLong(loc);
+      dfsStack.pushLong(DiskGraph.MAX_PTR);
+      long newLink = DiskGraph.MAX_PTR;
+
+      while (dfsStack.size() > 2) {
+	long lowLink = dfsStack.popLong();
+	long curLoc = dfsStack.popLong();
+	int curTidx = dfsStack.popInt();
+	long curState = dfsStack.popLong();
+	if (curLoc < 0) {
+	  long curLink = this.dg.getLink(curState, curTidx);
+	  if (curLink == lowLink) {
+	    this.closeComponent(curState, curTidx, comStack);
+	  }
+	  long plowLink = dfsStack.popLong();
+	  if (lowLink < plowLink) plowLink = lowLink;
+	  dfsStack.pushLong(plowLink);
+	}
+	else {
+	  long link = this.dg.putLink(curState, curTidx, newLink);
+	  if (link == -1) {
+	    dfsStack.pushLong(lowLink);
+	    dfsStack.pushLong(curState);
+	    dfsStack.pushInt(curTidx);
+	    dfsStack.pushLong(-1);
+
+	    comStack.pushLong(curLoc);
+	    comStack.pushInt(curTidx);
+	    comStack.pushLong(curState);
+
+	    GraphNode gnode = this.dg.getNode(curState, curTidx, curLoc);
+	    int succCnt = gnode.succSize();
+	    long nextLowLink = newLink++;
+	    for (int i = 0; i < succCnt; i++) {
+	      long nextState = gnode.getStateFP(i);
+	      int nextTidx = gnode.getTidx(i);
+	      long nextLink = this.dg.getLink(nextState, nextTidx);
+	      if (nextLink >= 0) {
+		if (DiskGraph.isFilePointer(nextLink)) {
+		  dfsStack.pushLong(nextState);
+		  dfsStack.pushInt(nextTidx);
+		  dfsStack.pushLong(nextLink);
+		}
+		else if (nextLink < nextLowLink) {
+		  nextLowLink = nextLink;
+		}
+	      }
+	    }
+	    dfsStack.pushLong(nextLowLink);
+	  }
+	  else {
+	    if (link < lowLink) lowLink = link;
+	    dfsStack.pushLong(lowLink);
+	  }
+	}
+      }
+    }
+    this.dg.commitOpenNodes();
+
+    // Restore the file pointers of the open nodes:
+    this.dg.makeOpenNodePtrTbl();
+  }
+
+  /**
+   * Pops the component with root <state, tidx> off the comStack and
+   * marks its nodes closed or records them as open.
+   */
+  private void closeComponent(long state, int tidx, MemIntStack comStack)
+  throws IOException {
+    LongVec com = new LongVec(3);
+    while (true) {
+      long state1 = comStack.popLong();
+      int tidx1 = comStack.popInt();
+      long loc1 = comStack.popLong();
+      com.addElement(state1);
+      com.addElement(tidx1);
+      com.addElement(loc1);
+      if (state == state1 && tidx == tidx1) break;
+    }
+
+    // The component is open iff one of its nodes has a successor that
+    // is unexplored or in an open component.
+    boolean isOpen = false;
+    for (int i = 0; i < com.size() && !isOpen; i += 3) {
+      GraphNode gnode = this.dg.getNode(com.elementAt(i), (int)com.elementAt(i+1), com.elementAt(i+2));
+      int succCnt = gnode.succSize();
+      for (int j = 0; j < succCnt; j++) {
+	long nextLink = this.dg.getLink(gnode.getStateFP(j), gnode.getTidx(j));
+	if (nextLink < 0 || nextLink == DiskGraph.OPEN_LINK) {
+	  isOpen = true;
+	  break;
+	}
+      }
+    }
+    
+    for (int i = 0; i < com.size(); i += 3) {
+      if (isOpen) {
+	this.dg.addOpenNode(com.elementAt(i), (int)com.elementAt(i+1), com.elementAt(i+2));
+      }
+      else {
+	this.dg.setMaxLink(com.elementAt(i), (int)com.elementAt(i+1));
+      }
+    }
+  }
+
   /**
    * For currentPEM, this method checks if the current scc satisfies
    * its AEs and is fulfilling. (We know the current scc satisfies the
@@ -544,9 +697,10 @@ public class LiveWorker extends IdThread {
     }
 
     // Print the prefix:
+    final TracePrinter printer = new TracePrinter(LiveCheck.myTool);
     TLCState lastState = null;
     for (int i = 0; i < stateNum; i++) {
-      StatePrinter.printState(states[i], lastState, i+1);
+      printer.print(states[i], lastState, i+1);
       lastState = states[i].state;
     }
 
@@ -566,7 +720,7 @@ public class LiveWorker extends IdThread {
 	if (sinfo == null) {
 	  throw new EvalException(EC.TLC_FAILED_TO_RECOVER_NEXT);
 	}
-	StatePrinter.printState(sinfo, lastState, ++stateNum);
+	printer.print(sinfo, lastState, ++stateNum);
 	lastState = sinfo.state;
 	fp = curFP;
       }
@@ -574,6 +728,7 @@ public class LiveWorker extends IdThread {
 
     if (fp == cycleFP) 
     {
+        printer.flush(lastState);
         StatePrinter.printStutteringState(++stateNum);
     } else 
     {
@@ -584,10 +739,12 @@ public class LiveWorker extends IdThread {
       }
       if (TLCGlobals.tool)
       {
+          printer.flush(sinfo.state);
           MP.printState(EC.TLC_BACK_TO_STATE, new String[] { "" + cyclePos } );
       } else
       {
-          StatePrinter.printState(sinfo, null, (++stateNum));
+          printer.print(sinfo, null, (++stateNum));
+          printer.flush(null);
           // SZ Jul 10, 2009: replaced with state printer
           // ToolIO.err.println("STATE " + (++stateNum) + ": " + sinfo.info);
           MP.printMessage(EC.TLC_BACK_TO_STATE, "" + cyclePos);
@@ -602,6 +759,7 @@ public class LiveWorker extends IdThread {
               // Get next OOS, and work on it:
               int idx = getNextOOS();
               if (idx == -1 || hasErrFound()) break;
+              if (LiveCheck.isVerified(idx)) continue;
 
               this.oos = LiveCheck.solutions[idx];
               this.dg = LiveCheck.dgraphs[idx];
@@ -613,6 +771,9 @@ public class LiveWorker extends IdThread {
                       this.checkSccs();
                   }
               }
+              if (LiveCheck.INCREMENTAL && !hasErrFound()) {
+                  this.closeSccs();
+              }
               this.dg.destroyCache();
           }
       }
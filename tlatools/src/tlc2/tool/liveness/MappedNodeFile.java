@@ -0,0 +1,230 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import tlc2.util.BitVector;
+
+/**
+ * An append-only file of {@link GraphNode}s which is written and read through
+ * memory mapped segments of {@link #SEGMENT_SIZE} bytes. Reading a node thus
+ * does not need a system call unless the operating system has to page it in.
+ * <p>
+ * A node is stored as the number of its successors, the successors and its
+ * checks. A successor is stored relative to its predecessor in the list: Its
+ * header is <code>(tidx + 1) << 1 | same</code> where <code>same</code> is
+ * set iff its fingerprint equals the fingerprint of its predecessor. Only
+ * otherwise the fingerprint follows. The successors of a state in the
+ * tableau graph are consecutive, so their fingerprint is stored once. Checks
+ * are stored as the number of words followed by the words. Counts and
+ * headers are variable-length encoded, seven bits per byte.
+ * <p>
+ * Segments are never unmapped before they are garbage collected, which is
+ * why the file cannot be deleted while it is open on some platforms.
+ */
+public final class MappedNodeFile {
+
+	static final int SEGMENT_BITS = 26;
+	/**
+	 * The size of a mapped segment in bytes
+	 */
+	public static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1L;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private MappedByteBuffer[] segments;
+
+	/**
+	 * The position of the next node appended
+	 */
+	private long position;
+	/**
+	 * The position of the next byte read
+	 */
+	private long readPos;
+	/**
+	 * A node is encoded into buf first and then copied into its segments
+	 */
+	private byte[] buf;
+	private int bufLen;
+
+	public MappedNodeFile(final String fname) throws IOException {
+		this.raf = new RandomAccessFile(fname, "rw");
+		this.channel = this.raf.getChannel();
+		this.segments = new MappedByteBuffer[0];
+		this.position = 0L;
+		this.buf = new byte[1024];
+	}
+
+	/**
+	 * @return The location of the next node appended
+	 */
+	public long getFilePointer() {
+		return this.position;
+	}
+
+	/**
+	 * Discards all nodes from the given location on.
+	 */
+	public void seek(final long pos) {
+		this.position = pos;
+	}
+
+	/**
+	 * Appends the given node and returns its location.
+	 */
+	public long append(final GraphNode node) throws IOException {
+		this.bufLen = 0;
+		final int succCnt = node.succSize();
+		this.writeVarLong(succCnt);
+		long prevFP = 0L;
+		for (int i = 0; i < succCnt; i++) {
+			final long fp = node.getStateFP(i);
+			// (tidx + 1) is non-negative for all tableau indices and -1
+			final long header = (((long) node.getTidx(i) + 1L) & 0xFFFFFFFFL) << 1;
+			if (i > 0 && fp == prevFP) {
+				this.writeVarLong(header | 1L);
+			} else {
+				this.writeVarLong(header);
+				this.writeLong(fp);
+			}
+			prevFP = fp;
+		}
+		final BitVector checks = node.checks;
+		final int wordCnt = checks.wordCnt();
+		this.writeVarLong(wordCnt);
+		for (int i = 0; i < wordCnt; i++) {
+			this.writeLong(checks.getWord(i));
+		}
+
+		final long ptr = this.position;
+		int off = 0;
+		while (off < this.bufLen) {
+			final MappedByteBuffer segment = this.getSegment(this.position);
+			final int idx = (int) (this.position & SEGMENT_MASK);
+			final int len = (int) Math.min(this.bufLen - off, SEGMENT_SIZE - idx);
+			// Absolute bulk puts do not exist before Java 13
+			segment.position(idx);
+			segment.put(this.buf, off, len);
+			off += len;
+			this.position += len;
+		}
+		return ptr;
+	}
+
+	/**
+	 * Reads the node with the given fingerprint and tableau index at the
+	 * given location.
+	 */
+	public GraphNode read(final long stateFP, final int tidx, final long ptr) throws IOException {
+		this.readPos = ptr;
+		final int succCnt = (int) this.readVarLong();
+		final int[] nnodes = new int[3 * succCnt];
+		long fp = 0L;
+		for (int i = 0; i < succCnt; i++) {
+			final long header = this.readVarLong();
+			if ((header & 1L) == 0L) {
+				fp = this.readLong();
+			}
+			nnodes[3 * i] = (int) (fp >>> 32);
+			nnodes[3 * i + 1] = (int) fp;
+			nnodes[3 * i + 2] = (int) (header >>> 1) - 1;
+		}
+		final long[] words = new long[(int) this.readVarLong()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = this.readLong();
+		}
+		return new GraphNode(stateFP, tidx, nnodes, new BitVector(words));
+	}
+
+	/**
+	 * Writes all appended nodes to disk.
+	 */
+	public void force() {
+		for (int i = 0; i < this.segments.length; i++) {
+			if (this.segments[i] != null) {
+				this.segments[i].force();
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		this.force();
+		// The mapped segments stay valid until they get garbage collected
+		this.segments = new MappedByteBuffer[0];
+		this.raf.close();
+	}
+
+	private MappedByteBuffer getSegment(final long pos) throws IOException {
+		final int idx = (int) (pos >>> SEGMENT_BITS);
+		if (idx >= this.segments.length) {
+			final MappedByteBuffer[] tmp = new MappedByteBuffer[Math.max(idx + 1, 2 * this.segments.length)];
+			System.arraycopy(this.segments, 0, tmp, 0, this.segments.length);
+			this.segments = tmp;
+		}
+		if (this.segments[idx] == null) {
+			// Mapping beyond the end of the file extends the file
+			this.segments[idx] = this.channel.map(FileChannel.MapMode.READ_WRITE, idx * SEGMENT_SIZE, SEGMENT_SIZE);
+		}
+		return this.segments[idx];
+	}
+
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0L) {
+			this.writeByte((int) ((value & 0x7FL) | 0x80L));
+			value >>>= 7;
+		}
+		this.writeByte((int) value);
+	}
+
+	private void writeLong(final long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			this.writeByte((int) (value >>> shift));
+		}
+	}
+
+	private void writeByte(final int b) {
+		if (this.bufLen == this.buf.length) {
+			final byte[] tmp = new byte[2 * this.buf.length];
+			System.arraycopy(this.buf, 0, tmp, 0, this.bufLen);
+			this.buf = tmp;
+		}
+		this.buf[this.bufLen++] = (byte) b;
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0L;
+		for (int shift = 0;; shift += 7) {
+			final int b = this.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	private long readLong() throws IOException {
+		final int idx = (int) (this.readPos & SEGMENT_MASK);
+		if (idx <= SEGMENT_SIZE - 8) {
+			final long value = this.getSegment(this.readPos).getLong(idx);
+			this.readPos += 8;
+			return value;
+		}
+		// The long spans two segments
+		long value = 0L;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | this.readByte();
+		}
+		return value;
+	}
+
+	private int readByte() throws IOException {
+		final int b = this.getSegment(this.readPos).get((int) (this.readPos & SEGMENT_MASK)) & 0xFF;
+		this.readPos++;
+		return b;
+	}
+}
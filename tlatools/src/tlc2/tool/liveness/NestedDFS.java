@@ -0,0 +1,611 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.util.ArrayList;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.output.StatePrinter;
+import tlc2.tool.AbstractChecker;
+import tlc2.tool.Action;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.TLCStateInfo;
+import tlc2.tool.Tool;
+import tlc2.tool.TracePrinter;
+import tlc2.util.LongVec;
+import tlc2.util.SetOfLong;
+
+/**
+ * Checks liveness on the fly: While the model checker explores the state
+ * space, a NestedDFS searches the behavior graph, i.e. the product of the
+ * state graph and the tableau, depth-first for an accepting cycle and reports
+ * a counter-example as soon as it finds one. It is the nested depth-first
+ * search of Courcoubetis, Vardi, Wolper and Yannakakis: When the outer search
+ * leaves a node, an inner search looks for a cycle back to it through one of
+ * its accepting edges. Nodes visited by an inner search are never visited by
+ * another inner search. Besides, the outer search reports a cycle as soon as
+ * an accepting edge leads back to a node on its stack, which finds most
+ * stuttering counter-examples right away.
+ * <p>
+ * A single accepting condition is supported: A PossibleErrorModel qualifies
+ * if its []<> state and action predicates together with the promises of the
+ * tableau number at most one. An edge is accepting if its source satisfies
+ * the state predicate or fulfills the promise, or if the edge satisfies the
+ * action predicate. Without either, every edge is accepting. The <>[]
+ * actions of a model are checked by a second copy of the behavior graph: The
+ * search may switch from a node to its copy at any time, the copy only has
+ * the edges that satisfy the <>[] actions, and only its edges are accepting.
+ * <p>
+ * Fairness adds conditions to every model, so only specs without fairness
+ * are checked on the fly. All other solutions are checked by LiveWorker's
+ * search for strongly connected components.
+ * <p>
+ * The search runs on a thread of its own and generates the successors of
+ * the states it visits itself, i.e. it repeats the work of the model
+ * checker's workers for the states it reaches first. It pays off if it finds
+ * a violation long before the workers complete, or if it completes before
+ * them and so saves the final check of the behavior graph. Each visited node
+ * takes about {@link #NODE_BYTES} bytes in the tables of visited nodes and
+ * each node on a stack a frame of about {@link #FRAME_BYTES} bytes with its
+ * successors. The search gives up once these exceed the system property
+ * tlc2.tool.liveness.NestedDFS.maxMemory (in megabytes, a quarter of the
+ * heap by default). If it gives up or fails,
+ * e.g. on an error evaluating the spec, it prints a warning and all behavior
+ * graphs are checked by LiveWorker as if it had never run.
+ */
+public class NestedDFS extends Thread {
+
+	/**
+	 * The memory the search may use, in bytes
+	 */
+	private static final long MAX_MEMORY = Long.getLong(NestedDFS.class.getName() + ".maxMemory",
+			Runtime.getRuntime().maxMemory() / 4 >> 20).longValue() << 20;
+
+	/**
+	 * The estimated memory used by a visited node in the tables of visited
+	 * nodes, whose load is at most one half
+	 */
+	static final int NODE_BYTES = 32;
+
+	/**
+	 * The estimated memory used by a node on a stack, i.e. its state and
+	 * successors
+	 */
+	static final int FRAME_BYTES = 512;
+
+	private final Tool tool;
+	private final Action[] actions;
+	private final OrderOfSolution[] solutions;
+	private final boolean[] supported;
+	private final boolean[] verified;
+	private final StateVec initStates = new StateVec(1);
+	private AbstractChecker checker;
+	private volatile boolean stopped = false;
+	private volatile boolean failed = false;
+
+	// The solution and model currently searched:
+	private OrderOfSolution oos;
+	private PossibleErrorModel pem;
+
+	public NestedDFS(final Tool tool, final Action[] actions, final OrderOfSolution[] solutions) {
+		super("TLC On-the-fly Liveness");
+		this.setDaemon(true);
+		this.tool = tool;
+		this.actions = actions;
+		this.solutions = solutions;
+		this.supported = new boolean[solutions.length];
+		this.verified = new boolean[solutions.length];
+		for (int i = 0; i < solutions.length; i++) {
+			this.supported[i] = isSupported(solutions[i]);
+		}
+	}
+
+	/**
+	 * @return true iff all models of the given solution have a single
+	 *         accepting condition
+	 */
+	public static boolean isSupported(final OrderOfSolution oos) {
+		for (int i = 0; i < oos.pems.length; i++) {
+			final PossibleErrorModel pem = oos.pems[i];
+			if (pem.AEState.length + pem.AEAction.length + oos.promises.length > 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true iff some solution is checked on the fly
+	 */
+	public final boolean hasSupported() {
+		for (int i = 0; i < this.supported.length; i++) {
+			if (this.supported[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* Record an initial state of the state graph. */
+	public final synchronized void addInitState(final TLCState state) {
+		this.initStates.addElement(state);
+	}
+
+	/**
+	 * Starts the search. A violation stops the given checker.
+	 */
+	public final void start(final AbstractChecker checker) {
+		this.checker = checker;
+		this.start();
+	}
+
+	/* Stop the search. Solutions not completely searched stay unverified. */
+	public final void terminate() {
+		this.stopped = true;
+	}
+
+	/**
+	 * @return true iff the behavior graph of the given solution has been
+	 *         searched completely without finding a violation, and the search
+	 *         has not failed
+	 */
+	public final synchronized boolean isVerified(final int soln) {
+		return this.verified[soln] && !this.failed;
+	}
+
+	private synchronized void setVerified(final int soln) {
+		this.verified[soln] = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Thread#run()
+	 */
+	public final void run() {
+		try {
+			int cnt = 0;
+			for (int soln = 0; soln < this.solutions.length; soln++) {
+				if (!this.supported[soln]) {
+					continue;
+				}
+				this.oos = this.solutions[soln];
+				for (int i = 0; i < this.oos.pems.length; i++) {
+					this.pem = this.oos.pems[i];
+					if (!this.search()) {
+						if (this.failed) {
+							MP.printWarning(EC.GENERAL, "On-the-fly liveness checking gave up, it would use more than "
+									+ (MAX_MEMORY >> 20) + " MB. The behavior graphs are checked when model checking completes.");
+						}
+						return;
+					}
+				}
+				this.setVerified(soln);
+				cnt++;
+			}
+			MP.printMessage(EC.GENERAL, "On-the-fly liveness checking found no violation in " + cnt + " of "
+					+ this.solutions.length + " behavior graphs.");
+		} catch (Throwable e) {
+			// The model checker reports errors in the spec when it evaluates
+			// the same states.
+			this.failed = true;
+			MP.printWarning(EC.GENERAL, "On-the-fly liveness checking failed (" + e
+					+ "). The behavior graphs are checked when model checking completes.");
+		}
+	}
+
+	/**
+	 * A node of the behavior graph. The node is in the copy of the graph that
+	 * checks the <>[] actions iff ea is set.
+	 */
+	private static final class Node {
+		private final TLCState state;
+		private final long fp;
+		private final int tidx;
+		private final boolean ea;
+		private final long key;
+		// The action that leads to this node, for the counter-example
+		private final Object info;
+
+		private Node(final TLCState state, final long fp, final int tidx, final boolean ea, final Object info) {
+			this.state = state;
+			this.fp = fp;
+			this.tidx = tidx;
+			this.ea = ea;
+			this.info = info;
+			this.key = fp + (tidx + 1L) * 0x9E3779B97F4A7C15L + (ea ? 0xC2B2AE3D27D4EB4FL : 0L);
+		}
+	}
+
+	private static final class Frame {
+		private final Node node;
+		private final Node[] succs;
+		private final boolean[] accepting;
+		private int next = 0;
+
+		private Frame(final Node node, final Node[] succs, final boolean[] accepting) {
+			this.node = node;
+			this.succs = succs;
+			this.accepting = accepting;
+		}
+	}
+
+	/**
+	 * The nodes visited by the outer search: Maps the key of a node to its
+	 * position on the outer stack, or to -1 once the search has left it.
+	 */
+	static final class OuterTable {
+		private long[] keys;
+		private int[] pos;
+		private int count = 0;
+		private int zeroPos = -2;
+
+		OuterTable(final int size) {
+			this.keys = new long[size];
+			this.pos = new int[size];
+		}
+
+		/**
+		 * Records that key is at position p on the stack unless it has been
+		 * visited. Returns true iff it has been visited.
+		 */
+		boolean put(final long key, final int p) {
+			if (key == 0) {
+				if (this.zeroPos != -2) {
+					return true;
+				}
+				this.zeroPos = p;
+				this.count++;
+				return false;
+			}
+			if (this.count >= this.keys.length / 2) {
+				this.grow();
+			}
+			final int loc = this.find(key);
+			if (this.keys[loc] == key) {
+				return true;
+			}
+			this.keys[loc] = key;
+			this.pos[loc] = p;
+			this.count++;
+			return false;
+		}
+
+		/* Return the position of key on the stack, or -1 if it is not on it. */
+		int getPos(final long key) {
+			if (key == 0) {
+				return this.zeroPos < 0 ? -1 : this.zeroPos;
+			}
+			final int loc = this.find(key);
+			return this.keys[loc] == key ? this.pos[loc] : -1;
+		}
+
+		/* Record that the search has left the visited node key. */
+		void leave(final long key) {
+			if (key == 0) {
+				this.zeroPos = -1;
+			} else {
+				this.pos[this.find(key)] = -1;
+			}
+		}
+
+		int size() {
+			return this.count;
+		}
+
+		/* Return the slot of key, or the empty slot it goes into. */
+		private int find(final long key) {
+			int loc = (int) ((key & 0x7FFFFFFFFFFFFFFFL) % this.keys.length);
+			while (this.keys[loc] != key && this.keys[loc] != 0) {
+				loc = (loc + 1) % this.keys.length;
+			}
+			return loc;
+		}
+
+		private void grow() {
+			final long[] oldKeys = this.keys;
+			final int[] oldPos = this.pos;
+			this.keys = new long[2 * oldKeys.length + 1];
+			this.pos = new int[this.keys.length];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0) {
+					final int loc = this.find(oldKeys[i]);
+					this.keys[loc] = oldKeys[i];
+					this.pos[loc] = oldPos[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Searches the behavior graph for an accepting cycle of the current
+	 * model. Returns false iff it found one or has been stopped.
+	 */
+	private boolean search() {
+		final boolean hasEA = this.pem.EAAction.length > 0;
+		// The nodes visited by the outer search and their position on its stack
+		final OuterTable outerSeen = new OuterTable(1024);
+		final SetOfLong innerSeen = new SetOfLong(1024);
+		final ArrayList<Frame> outer = new ArrayList<Frame>();
+		final ArrayList<Frame> inner = new ArrayList<Frame>();
+
+		final ArrayList<Node> inits = this.getInitNodes(!hasEA);
+		for (int i = 0; i < inits.size(); i++) {
+			final Node init = inits.get(i);
+			if (outerSeen.put(init.key, 0)) {
+				continue;
+			}
+			outer.add(this.expand(init));
+			while (!outer.isEmpty()) {
+				if (this.stopped || this.exceedsMemory(outerSeen.size() + innerSeen.size(), outer.size())) {
+					return false;
+				}
+				final Frame top = outer.get(outer.size() - 1);
+				if (top.next < top.succs.length) {
+					final int j = top.next++;
+					final Node succ = top.succs[j];
+					if (!outerSeen.put(succ.key, outer.size())) {
+						outer.add(this.expand(succ));
+					} else if (top.accepting[j]) {
+						final int pos = outerSeen.getPos(succ.key);
+						if (pos >= 0) {
+							// The cycle from succ on the stack back to it
+							inner.clear();
+							inner.addAll(outer.subList(pos + 1, outer.size()));
+							this.report(new ArrayList<Frame>(outer.subList(0, pos + 1)), inner);
+							return false;
+						}
+					}
+					continue;
+				}
+				// Leaving top: Look for a cycle through its accepting edges.
+				outer.remove(outer.size() - 1);
+				outerSeen.leave(top.node.key);
+				for (int j = 0; j < top.succs.length; j++) {
+					if (top.accepting[j]
+							&& this.findCycle(top.node, top.succs[j], innerSeen, inner, outerSeen.size() + outer.size())) {
+						outer.add(top);
+						this.report(outer, inner);
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true iff the given numbers of visited nodes and of nodes on the
+	 * stacks take more than {@link #MAX_MEMORY}. The search fails then.
+	 */
+	private boolean exceedsMemory(final long nodes, final long frames) {
+		if (nodes * NODE_BYTES + frames * FRAME_BYTES > MAX_MEMORY) {
+			this.failed = true;
+		}
+		return this.failed;
+	}
+
+	/**
+	 * Searches for a path from start back to seed that does not visit a node
+	 * visited by a previous inner search. On success, inner holds the path
+	 * from start on. The given numbers of nodes visited by and on the stack of
+	 * the outer search count against {@link #MAX_MEMORY}.
+	 */
+	private boolean findCycle(final Node seed, final Node start, final SetOfLong innerSeen,
+			final ArrayList<Frame> inner, final long outerNodes) {
+		inner.clear();
+		if (start.key == seed.key) {
+			return true;
+		}
+		if (innerSeen.put(start.key)) {
+			return false;
+		}
+		inner.add(this.expand(start));
+		while (!inner.isEmpty()) {
+			if (this.stopped || this.exceedsMemory(outerNodes + innerSeen.size(), inner.size())) {
+				return false;
+			}
+			final Frame top = inner.get(inner.size() - 1);
+			if (top.next < top.succs.length) {
+				final Node succ = top.succs[top.next++];
+				if (succ.key == seed.key) {
+					return true;
+				}
+				if (!innerSeen.put(succ.key)) {
+					inner.add(this.expand(succ));
+				}
+			} else {
+				inner.remove(inner.size() - 1);
+			}
+		}
+		return false;
+	}
+
+	private ArrayList<Node> getInitNodes(final boolean ea) {
+		final ArrayList<Node> nodes = new ArrayList<Node>();
+		final String info = "<Initial predicate>";
+		for (int i = 0; i < this.initStates.size(); i++) {
+			final TLCState state = this.initStates.elementAt(i);
+			final long fp = state.fingerPrint();
+			if (this.oos.tableau == null) {
+				nodes.add(new Node(state, fp, -1, ea, info));
+			} else {
+				for (int j = 0; j < this.oos.tableau.getInitCnt(); j++) {
+					final TBGraphNode tnode = this.oos.tableau.getNode(j);
+					if (tnode.isConsistent(state, this.tool)) {
+						nodes.add(new Node(state, fp, tnode.index, ea, info));
+					}
+				}
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Computes the successors of the given node like LiveCheck does, i.e.
+	 * including the stuttering step.
+	 */
+	private Frame expand(final Node node) {
+		final TLCState s0 = node.state;
+		final ArrayList<Node> succs = new ArrayList<Node>();
+		final ArrayList<Boolean> accepting = new ArrayList<Boolean>();
+
+		if (!node.ea) {
+			succs.add(new Node(s0, node.fp, node.tidx, true, null));
+			accepting.add(Boolean.FALSE);
+		}
+		final boolean isAccepting = node.ea && this.isAccepting(node);
+
+		// The state itself, then the next states of all actions:
+		final StateVec nextStates = new StateVec(4);
+		final LongVec nextFPs = new LongVec(4);
+		final ArrayList<Object> infos = new ArrayList<Object>();
+		nextStates.addElement(s0);
+		nextFPs.addElement(node.fp);
+		infos.add(null);
+		for (int i = 0; i < this.actions.length; i++) {
+			final StateVec states = this.tool.getNextStates(this.actions[i], s0);
+			for (int j = 0; j < states.size(); j++) {
+				final TLCState s1 = states.elementAt(j);
+				if (this.tool.isInModel(s1) && this.tool.isInActions(s0, s1)) {
+					nextStates.addElement(s1);
+					nextFPs.addElement(s1.fingerPrint());
+					infos.add(this.actions[i].getLocation());
+				}
+			}
+		}
+
+		for (int i = 0; i < nextStates.size(); i++) {
+			final TLCState s1 = nextStates.elementAt(i);
+			final long fp1 = nextFPs.elementAt(i);
+			if (i > 0 && this.contains(nextFPs, i, fp1)) {
+				continue;
+			}
+			boolean acc = false;
+			if (node.ea) {
+				if (!this.checkActions(this.pem.EAAction, s0, s1)) {
+					continue;
+				}
+				acc = isAccepting || (this.pem.AEAction.length > 0 && this.checkActions(this.pem.AEAction, s0, s1));
+			}
+			if (this.oos.tableau == null) {
+				succs.add(new Node(s1, fp1, -1, node.ea, infos.get(i)));
+				accepting.add(Boolean.valueOf(acc));
+			} else {
+				final TBGraphNode tnode = this.oos.tableau.getNode(node.tidx);
+				for (int k = 0; k < tnode.nextSize(); k++) {
+					final TBGraphNode tnode1 = tnode.nextAt(k);
+					if (tnode1.isConsistent(s1, this.tool)) {
+						succs.add(new Node(s1, fp1, tnode1.index, node.ea, infos.get(i)));
+						accepting.add(Boolean.valueOf(acc));
+					}
+				}
+			}
+		}
+
+		final boolean[] acc = new boolean[accepting.size()];
+		for (int i = 0; i < acc.length; i++) {
+			acc[i] = accepting.get(i).booleanValue();
+		}
+		return new Frame(node, succs.toArray(new Node[succs.size()]), acc);
+	}
+
+	/* Return true iff fp occurs in fps before position pos. */
+	private boolean contains(final LongVec fps, final int pos, final long fp) {
+		for (int i = 0; i < pos; i++) {
+			if (fps.elementAt(i) == fp) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true iff all edges leaving the given node are accepting because
+	 * of the node.
+	 */
+	private boolean isAccepting(final Node node) {
+		if (this.pem.AEState.length > 0) {
+			return this.oos.checkState[this.pem.AEState[0]].eval(this.tool, node.state, null);
+		}
+		if (this.oos.promises.length > 0) {
+			final TBPar par = this.oos.tableau.getNode(node.tidx).getPar();
+			return par.isFulfilling(this.oos.promises[0]);
+		}
+		// Without any condition, every cycle is a counter-example.
+		return this.pem.AEAction.length == 0;
+	}
+
+	private boolean checkActions(final int[] idxs, final TLCState s0, final TLCState s1) {
+		for (int i = 0; i < idxs.length; i++) {
+			if (!this.oos.checkAction[idxs[i]].eval(this.tool, s0, s1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Print the counter-example: The outer stack leads from an initial state
+	 * to the node at its top, from which the inner stack leads back to it.
+	 */
+	private void report(final ArrayList<Frame> outer, final ArrayList<Frame> inner) {
+		synchronized (this.checker) {
+			final Node seed = outer.get(outer.size() - 1).node;
+			if (!this.checker.setLiveErrState(seed.state)) {
+				// The model checker has already stopped.
+				return;
+			}
+			MP.printError(EC.TLC_TEMPORAL_PROPERTY_VIOLATED);
+			MP.printError(EC.TLC_COUNTER_EXAMPLE);
+
+			// Print the prefix, skipping stuttering steps:
+			final TracePrinter printer = new TracePrinter(this.tool);
+			int stateNum = 0;
+			TLCState lastState = null;
+			long fp = 0;
+			for (int i = 0; i < outer.size(); i++) {
+				final Node node = outer.get(i).node;
+				if (i == 0 || node.fp != fp) {
+					printer.print(new TLCStateInfo(node.state, node.info), lastState, ++stateNum);
+					lastState = node.state;
+					fp = node.fp;
+				}
+			}
+
+			// Print the cycle. It may pass the state of seed before it ends.
+			final int cyclePos = stateNum;
+			final ArrayList<Node> cycle = new ArrayList<Node>();
+			for (int i = 0; i < inner.size(); i++) {
+				final Node node = inner.get(i).node;
+				if (node.fp != fp) {
+					cycle.add(node);
+					fp = node.fp;
+				}
+			}
+			if (!cycle.isEmpty() && fp == seed.fp) {
+				cycle.remove(cycle.size() - 1);
+			}
+			for (int i = 0; i < cycle.size(); i++) {
+				final Node node = cycle.get(i);
+				printer.print(new TLCStateInfo(node.state, node.info), lastState, ++stateNum);
+				lastState = node.state;
+			}
+			if (cycle.isEmpty()) {
+				printer.flush(lastState);
+				StatePrinter.printStutteringState(++stateNum);
+			} else if (TLCGlobals.tool) {
+				printer.flush(seed.state);
+				MP.printState(EC.TLC_BACK_TO_STATE, new String[] { "" + cyclePos });
+			} else {
+				TLCStateInfo sinfo = this.tool.getState(seed.fp, lastState);
+				if (sinfo == null) {
+					sinfo = new TLCStateInfo(seed.state, seed.info);
+				}
+				printer.print(sinfo, null, (++stateNum));
+				printer.flush(null);
+				MP.printMessage(EC.TLC_BACK_TO_STATE, "" + cyclePos);
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A hash table from (fingerprint, tableau index) to a long element, i.e. a
+ * node pointer or a link (see {@link DiskGraph}), which is stored outside of
+ * the Java heap in direct buffers. Contrary to {@link NodePtrTable}, it
+ * neither adds to the garbage collector's work nor is it bounded by the heap
+ * size. It uses linear probing. Each slot takes three longs: the fingerprint,
+ * the tagged tableau index (0 marks an empty slot) and the element. A slot,
+ * identified by its location, does not move unless the table grows.
+ * <p>
+ * Like the non-tableau {@link NodePtrTable}, -1 is returned for absent keys.
+ */
+public final class OffHeapNodePtrTable {
+
+	/**
+	 * The number of slots of a buffer. 16M slots take 384 MB, which keeps a
+	 * buffer below the 2 GB limit of a {@link ByteBuffer}.
+	 */
+	private static final int BUFFER_BITS = 24;
+	private static final long BUFFER_MASK = (1L << BUFFER_BITS) - 1L;
+
+	private LongBuffer[] buffers;
+	private long length;
+	private long mask;
+	private long thresh;
+	private long count;
+
+	/**
+	 * @param size
+	 *            The expected number of elements
+	 */
+	public OffHeapNodePtrTable(final long size) {
+		this.allocate(Math.max(16L, Long.highestOneBit(Math.max(1L, size) * 2 - 1) * 2));
+	}
+
+	private void allocate(final long len) {
+		this.length = len;
+		this.mask = len - 1;
+		this.thresh = (long) (len * 0.75);
+		this.count = 0;
+		final long slots = 1L << BUFFER_BITS;
+		this.buffers = new LongBuffer[(int) ((len + slots - 1) / slots)];
+		for (int i = 0; i < this.buffers.length; i++) {
+			final long n = Math.min(slots, len - i * slots);
+			// Direct buffers are zeroed, i.e. all slots are empty
+			this.buffers[i] = ByteBuffer.allocateDirect((int) (n * 3 * 8)).asLongBuffer();
+		}
+	}
+
+	/* The number of elements in this table. */
+	public long size() {
+		return this.count;
+	}
+
+	/**
+	 * Add <k, tidx, elem> into the table. If the table has already contained
+	 * <k, tidx>, overwrite the old value.
+	 */
+	public void put(final long k, final int tidx, final long elem) {
+		if (this.count >= this.thresh) {
+			this.grow();
+		}
+		final long tag = tag(tidx);
+		long loc = this.hash(k, tidx);
+		while (true) {
+			final long t = this.getField(loc, 1);
+			if (t == 0L) {
+				this.setField(loc, 0, k);
+				this.setField(loc, 1, tag);
+				this.setField(loc, 2, elem);
+				this.count++;
+				return;
+			}
+			if (t == tag && this.getField(loc, 0) == k) {
+				this.setField(loc, 2, elem);
+				return;
+			}
+			loc = (loc + 1) & this.mask;
+		}
+	}
+
+	/* Return the value associated with <k, tidx>, or -1 if there is none. */
+	public long get(final long k, final int tidx) {
+		final long loc = this.getLoc(k, tidx);
+		return (loc == -1) ? -1 : this.getByLoc(loc);
+	}
+
+	/* Return the location of <k, tidx>, or -1 if it is not in the table. */
+	public long getLoc(final long k, final int tidx) {
+		final long tag = tag(tidx);
+		long loc = this.hash(k, tidx);
+		while (true) {
+			final long t = this.getField(loc, 1);
+			if (t == 0L) {
+				return -1;
+			}
+			if (t == tag && this.getField(loc, 0) == k) {
+				return loc;
+			}
+			loc = (loc + 1) & this.mask;
+		}
+	}
+
+	public long getByLoc(final long loc) {
+		return this.getField(loc, 2);
+	}
+
+	public void putByLoc(final long elem, final long loc) {
+		this.setField(loc, 2, elem);
+	}
+
+	public long getKeyByLoc(final long loc) {
+		return this.getField(loc, 0);
+	}
+
+	public int getTidxByLoc(final long loc) {
+		return (int) (this.getField(loc, 1) >> 1);
+	}
+
+	/* Double the table when the table is full by the threshold. */
+	private void grow() {
+		final LongBuffer[] oldBuffers = this.buffers;
+		final long oldLength = this.length;
+		this.allocate(2 * oldLength);
+		for (long loc = 0; loc < oldLength; loc++) {
+			final LongBuffer buffer = oldBuffers[(int) (loc >>> BUFFER_BITS)];
+			final int idx = (int) (loc & BUFFER_MASK) * 3;
+			final long t = buffer.get(idx + 1);
+			if (t != 0L) {
+				this.put(buffer.get(idx), (int) (t >> 1), buffer.get(idx + 2));
+			}
+		}
+		// The old buffers are freed once they get garbage collected
+	}
+
+	private long getField(final long loc, final int field) {
+		return this.buffers[(int) (loc >>> BUFFER_BITS)].get((int) (loc & BUFFER_MASK) * 3 + field);
+	}
+
+	private void setField(final long loc, final int field, final long value) {
+		this.buffers[(int) (loc >>> BUFFER_BITS)].put((int) (loc & BUFFER_MASK) * 3 + field, value);
+	}
+
+	private long hash(final long k, final int tidx) {
+		final long h = (k + tidx) * 0x9E3779B97F4A7C15L;
+		return (h ^ (h >>> 32)) & this.mask;
+	}
+
+	private static long tag(final int tidx) {
+		return ((long) tidx << 1) | 1L;
+	}
+}
@@ -23,7 +23,14 @@ import util.FileUtil;
  */
 public class DiskStateQueue extends StateQueue {
 	// TODO dynamic bufsize based on current VM parameters?
-	private final static int BufSize = Integer.getInteger(DiskStateQueue.class.getName() + ".BufSize", 8192);;
+	final static int BufSize = Integer.getInteger(DiskStateQueue.class.getName() + ".BufSize", 8192);;
+	/**
+	 * If true, states are delta encoded against their predecessor in a pool
+	 * file, which omits the values of all variables an action left unchanged.
+	 * Off by default because it changes the format of the pool files a
+	 * checkpoint refers to.
+	 */
+	final static boolean Delta = Boolean.getBoolean(DiskStateQueue.class.getName() + ".delta");
 
 	/*
 	 * Invariants: I1. Entries in deqBuf are in the indices: [deqIndex,
@@ -54,11 +61,11 @@ public class DiskStateQueue extends StateQueue {
 		this.lastLoPool = 0;
 		this.filePrefix = diskdir + FileUtil.separator;
 		File rFile = new File(this.filePrefix + Integer.toString(0));
-		this.reader = new StatePoolReader(BufSize, rFile);
+		this.reader = new StatePoolReader(BufSize, rFile, Delta);
 		this.reader.setDaemon(true);
 		this.loFile = new File(this.filePrefix + Integer.toString(this.loPool));
 		this.reader.start();
-		this.writer = new StatePoolWriter(BufSize, this.reader);
+		this.writer = new StatePoolWriter(BufSize, this.reader, Delta);
 		this.writer.setDaemon(true);
 		this.writer.start();
 	}
@@ -37,6 +37,19 @@ public interface IStateQueue {
 	 */
 	public abstract TLCState[] sDequeue(int cnt);
 
+	/**
+	 * Return (up to) the first count elements in the queue without waiting.
+	 * 
+	 * @param cnt
+	 *            Amount of states requested
+	 * @return null iff the queue is empty, suspended ({@link #suspendAll()})
+	 *         or finished, states otherwise. The caller is not considered to
+	 *         be waiting for states when deciding whether all work is done.
+	 * @throws RuntimeException
+	 *             if cnt <= 0
+	 */
+	public abstract TLCState[] sDequeueAvailable(int cnt);
+
 	/**
 	 * Signals all waiting {@link Worker} that all work is done. We can exit now.
 	 */
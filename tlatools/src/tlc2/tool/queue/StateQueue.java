@@ -131,6 +131,18 @@ public abstract class StateQueue implements IStateQueue {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sDequeueAvailable(int)
+	 */
+	public final synchronized TLCState[] sDequeueAvailable(int cnt) {
+		Assert.check(cnt > 0, "Nonpositive number of states requested.");
+		if (this.finish || this.stop || isEmpty()) {
+			return null;
+		}
+		// isAvail() does not wait for a non-empty queue that is not stopped
+		return sDequeue(cnt);
+	}
+
 	/**
 	 * Checks if states are available. If no states are available, the callee
 	 * will be put to sleep until new states are available or another callee
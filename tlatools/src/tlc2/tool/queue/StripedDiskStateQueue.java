@@ -0,0 +1,307 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tlc2.output.EC;
+import tlc2.tool.TLCState;
+import tlc2.util.StatePoolReader;
+import tlc2.util.StatePoolWriter;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+import util.Assert;
+import util.FileUtil;
+
+/**
+ * A {@link StripedDiskStateQueue} is a disk backed state queue that, unlike
+ * {@link DiskStateQueue}, is not limited to a single reader and a single
+ * writer thread. Full pages of {@link DiskStateQueue#BufSize} states are
+ * handed to a pool of I/O threads, each page going to its own pool file.
+ * Thus, multiple pool files are written and read in parallel. On the reading
+ * side, the next pages are prefetched ahead of the workers. The read-ahead
+ * as well as the number of I/O threads are sized to the number of workers.
+ * <p>
+ * Pages are consumed strictly in the order they have been produced, which
+ * makes this a FIFO queue just as {@link DiskStateQueue}. BFS level order
+ * and thus minimal trace lengths are retained.
+ * <p>
+ * Enabled with <code>-Dtlc2.tool.queue.StripedDiskStateQueue=true</code>. The
+ * checkpoint and pool file format is the same as the one of
+ * {@link DiskStateQueue}.
+ */
+public class StripedDiskStateQueue extends StateQueue {
+
+	public static final boolean ENABLED = Boolean.getBoolean(StripedDiskStateQueue.class.getName());
+
+	/*
+	 * Invariants: Pages [loPool, hiPool) are on disk (or being written), pages
+	 * [loPool, nextPrefetch) are being prefetched in the order of prefetched.
+	 * Entries in deqBuf are in the indices [deqIndex, deqBuf.length), entries
+	 * in enqBuf in [0, enqIndex).
+	 */
+
+	private final String filePrefix;
+	private final int bufSize;
+	private final boolean delta;
+	/**
+	 * Maximum number of pages read ahead of the workers.
+	 */
+	private final int readAhead;
+	/**
+	 * Maximum number of most recently written pages kept in memory. Reading
+	 * such a page does not need to go to disk.
+	 */
+	private final int maxUnflushed;
+	private final ExecutorService ioPool;
+
+	private TLCState[] deqBuf, enqBuf;
+	private int deqIndex, enqIndex;
+	private int loPool, hiPool, lastLoPool, newLastLoPool, nextPrefetch;
+
+	/**
+	 * The most recently produced pages in ascending order.
+	 */
+	private final LinkedList<Page> unflushed = new LinkedList<Page>();
+	/**
+	 * The pages being read ahead in ascending order, starting at loPool.
+	 */
+	private final LinkedList<Future<TLCState[]>> prefetched = new LinkedList<Future<TLCState[]>>();
+
+	public StripedDiskStateQueue(final String diskdir, final int numWorkers) {
+		this(diskdir, numWorkers, DiskStateQueue.BufSize);
+	}
+
+	public StripedDiskStateQueue(final String diskdir, final int numWorkers, final int bufSize) {
+		final int ioThreads = Integer.getInteger(StripedDiskStateQueue.class.getName() + ".ioThreads",
+				Math.max(2, Math.min(numWorkers, 8)));
+		this.readAhead = Integer.getInteger(StripedDiskStateQueue.class.getName() + ".readAhead",
+				Math.max(2, numWorkers));
+		this.maxUnflushed = 2 * ioThreads;
+		this.bufSize = bufSize;
+		this.delta = DiskStateQueue.Delta;
+		this.filePrefix = diskdir + FileUtil.separator;
+		this.deqBuf = new TLCState[bufSize];
+		this.enqBuf = new TLCState[bufSize];
+		this.deqIndex = bufSize;
+		this.enqIndex = 0;
+		this.ioPool = Executors.newFixedThreadPool(ioThreads, new ThreadFactory() {
+			private int cnt = 0;
+
+			public synchronized Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, StripedDiskStateQueue.class.getSimpleName() + "-" + cnt++);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	final void enqueueInner(final TLCState state) {
+		if (this.enqIndex == this.enqBuf.length) {
+			// enqBuf is full; hand it over to an I/O thread
+			try {
+				this.write(this.enqBuf);
+			} catch (Exception e) {
+				Assert.fail(EC.SYSTEM_ERROR_WRITING_STATES,
+						new String[] { "queue", (e.getMessage() == null) ? e.toString() : e.getMessage() });
+			}
+			this.enqBuf = new TLCState[this.bufSize];
+			this.enqIndex = 0;
+		}
+		this.enqBuf[this.enqIndex++] = state;
+	}
+
+	final TLCState dequeueInner() {
+		if (this.deqIndex == this.deqBuf.length) {
+			this.fillDeqBuffer();
+		}
+		return this.deqBuf[this.deqIndex++];
+	}
+
+	private final void fillDeqBuffer() {
+		if (this.loPool < this.hiPool) {
+			this.prefetch();
+			try {
+				this.deqBuf = this.prefetched.removeFirst().get();
+			} catch (Exception e) {
+				final Throwable t = (e instanceof ExecutionException) ? e.getCause() : e;
+				Assert.fail(EC.SYSTEM_ERROR_READING_STATES,
+						new String[] { "queue", (t.getMessage() == null) ? t.toString() : t.getMessage() });
+			}
+			this.deqIndex = 0;
+			this.loPool++;
+			this.prefetch();
+		} else {
+			// No full page exists, copy entries from enqBuf to deqBuf.
+			this.deqIndex = this.deqBuf.length - this.enqIndex;
+			System.arraycopy(this.enqBuf, 0, this.deqBuf, this.deqIndex, this.enqIndex);
+			this.enqIndex = 0;
+		}
+	}
+
+	/*
+	 * Schedules the write of a full page. Blocks if too many pages are still
+	 * waiting to be written.
+	 */
+	private final void write(final TLCState[] states) throws InterruptedException, ExecutionException {
+		final File file = new File(this.filePrefix + Integer.toString(this.hiPool));
+		final Future<Object> written = this.ioPool.submit(new Callable<Object>() {
+			public Object call() throws IOException {
+				StatePoolWriter.write(states, file, delta);
+				return null;
+			}
+		});
+		this.unflushed.addLast(new Page(this.hiPool, states, written));
+		this.hiPool++;
+
+		// Bound the number of pages held in memory. The oldest page is the
+		// one most likely to have been written already.
+		if (this.unflushed.size() > this.maxUnflushed) {
+			this.unflushed.removeFirst().written.get();
+		}
+
+		// An idle reader might be waiting for this page
+		this.prefetch();
+	}
+
+	/*
+	 * Starts reading the pages following loPool, up to readAhead of them.
+	 */
+	private final void prefetch() {
+		final int hi = (int) Math.min(this.hiPool, (long) this.loPool + this.readAhead);
+		while (this.nextPrefetch < hi) {
+			this.prefetched.addLast(this.ioPool.submit(this.read(this.nextPrefetch)));
+			this.nextPrefetch++;
+		}
+	}
+
+	private final Callable<TLCState[]> read(final int pool) {
+		// A page still in memory does not have to be read back from disk.
+		// However, it is only handed out once written, because the states are
+		// not supposed to change while the I/O thread serializes them.
+		for (Iterator<Page> itr = this.unflushed.iterator(); itr.hasNext();) {
+			final Page page = itr.next();
+			if (page.pool == pool) {
+				return new Callable<TLCState[]>() {
+					public TLCState[] call() throws Exception {
+						page.written.get();
+						return page.states;
+					}
+				};
+			}
+		}
+		final File file = new File(this.filePrefix + Integer.toString(pool));
+		return new Callable<TLCState[]>() {
+			public TLCState[] call() throws IOException {
+				final TLCState[] states = new TLCState[bufSize];
+				StatePoolReader.read(states, file, delta);
+				return states;
+			}
+		};
+	}
+
+	/*
+	 * Waits until all pages have been written to disk.
+	 */
+	private final void flush() throws IOException {
+		try {
+			for (Iterator<Page> itr = this.unflushed.iterator(); itr.hasNext();) {
+				itr.next().written.get();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e.getMessage());
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause().getMessage());
+		}
+	}
+
+	/* Checkpoint. */
+	public final void beginChkpt() throws IOException {
+		// All pool files the checkpoint refers to have to exist.
+		this.flush();
+
+		final String filename = this.filePrefix + "queue.tmp";
+		final ValueOutputStream vos = new ValueOutputStream(filename);
+		vos.writeLongNat(this.len);
+		vos.writeInt(this.loPool);
+		vos.writeInt(this.hiPool);
+		vos.writeInt(this.enqIndex);
+		vos.writeInt(this.deqIndex);
+		for (int i = 0; i < this.enqIndex; i++) {
+			this.enqBuf[i].write(vos);
+		}
+		for (int i = this.deqIndex; i < this.deqBuf.length; i++) {
+			this.deqBuf[i].write(vos);
+		}
+		vos.close();
+		// Pages below loPool have been consumed, and what is left of the
+		// last one is part of the checkpoint.
+		this.newLastLoPool = this.loPool;
+	}
+
+	public final void commitChkpt() throws IOException {
+		for (int i = this.lastLoPool; i < this.newLastLoPool; i++) {
+			final File oldPool = new File(this.filePrefix + Integer.toString(i));
+			if (!oldPool.delete()) {
+				final String msg = "StripedDiskStateQueue.commitChkpt: cannot delete " + oldPool;
+				throw new IOException(msg);
+			}
+		}
+		this.lastLoPool = this.newLastLoPool;
+		final File oldChkpt = new File(this.filePrefix + "queue.chkpt");
+		final File newChkpt = new File(this.filePrefix + "queue.tmp");
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			final String msg = "StripedDiskStateQueue.commitChkpt: cannot delete " + oldChkpt;
+			throw new IOException(msg);
+		}
+	}
+
+	public final void recover() throws IOException {
+		final String filename = this.filePrefix + "queue.chkpt";
+		final ValueInputStream vis = new ValueInputStream(filename);
+		this.len = vis.readLongNat();
+		this.loPool = vis.readInt();
+		this.hiPool = vis.readInt();
+		this.enqIndex = vis.readInt();
+		this.deqIndex = vis.readInt();
+		this.lastLoPool = this.loPool;
+		this.nextPrefetch = this.loPool;
+		this.unflushed.clear();
+		this.prefetched.clear();
+
+		for (int i = 0; i < this.enqIndex; i++) {
+			this.enqBuf[i] = TLCState.Empty.createEmpty();
+			this.enqBuf[i].read(vis);
+		}
+		for (int i = this.deqIndex; i < this.deqBuf.length; i++) {
+			this.deqBuf[i] = TLCState.Empty.createEmpty();
+			this.deqBuf[i].read(vis);
+		}
+		vis.close();
+	}
+
+	public void finishAll() {
+		super.finishAll();
+		this.ioPool.shutdownNow();
+	}
+
+	private static class Page {
+		private final int pool;
+		private final TLCState[] states;
+		private final Future<Object> written;
+
+		public Page(final int pool, final TLCState[] states, final Future<Object> written) {
+			this.pool = pool;
+			this.states = states;
+			this.written = written;
+		}
+	}
+}
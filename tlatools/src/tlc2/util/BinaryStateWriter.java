@@ -0,0 +1,402 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.TLCState;
+import tlc2.value.ModelValue;
+import tlc2.value.ValueOutputStream;
+import util.UniqueString;
+
+/**
+ * A <code>BinaryStateWriter</code> dumps the states in a binary format that
+ * is read by the {@link StateDumpReader}. Unlike the {@link StateWriter},
+ * the workers do not contend on writing states. Each thread writes to a
+ * segment file of its own:
+ * <ul>
+ * <li><code>fname</code>: the header, i.e. the names of the variables, the
+ * names of the model values and the number of segments. It is written when
+ * the writer is closed.</li>
+ * <li><code>fname.i</code>: the states of the i-th segment, each as its
+ * fingerprint, the length of its values and the values written by a
+ * {@link ValueOutputStream}. The values of a state do not refer to the
+ * values of another state, hence a state can be read on its own.</li>
+ * <li><code>fname.i.idx</code>: the fingerprints of the states of the i-th
+ * segment and the offsets of the states, sorted by fingerprint.</li>
+ * </ul>
+ * Each segment collects the index in a chunk of at most
+ * <code>chunkSize</code> entries (16 bytes each). A full chunk is sorted and
+ * appended as a run to <code>fname.i.idx.tmp</code>. When the writer is
+ * closed, the runs are merged into the index. Thus, the memory needed does
+ * not depend on the number of states.
+ */
+public class BinaryStateWriter extends StateWriter
+{
+    static final int MAGIC = 0x544C4344;
+    static final int VERSION = 1;
+
+    /**
+     * The default number of index entries a segment sorts in memory
+     */
+    private static final int CHUNK_SIZE = Integer.getInteger(BinaryStateWriter.class.getName() + ".chunkSize",
+            1 << 20).intValue();
+
+    private final String fname;
+    private final int chunkSize;
+    private final AtomicInteger numOfSegments = new AtomicInteger(0);
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private final ThreadLocal<Segment> segment = new ThreadLocal<Segment>() {
+        protected Segment initialValue()
+        {
+            try
+            {
+                final Segment segment = new Segment(fname + "." + numOfSegments.getAndIncrement(), chunkSize);
+                synchronized (segments)
+                {
+                    segments.add(segment);
+                }
+                return segment;
+            } catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    public BinaryStateWriter(String fname) throws IOException
+    {
+        this(fname, CHUNK_SIZE);
+    }
+
+    BinaryStateWriter(String fname, int chunkSize) throws IOException
+    {
+        this.fname = fname;
+        this.chunkSize = Math.max(1, chunkSize);
+        // Fail early if the file cannot be written
+        new FileOutputStream(fname).close();
+    }
+
+    public void writeState(TLCState state)
+    {
+        this.writeState(state, state.fingerPrint());
+    }
+
+    public void writeState(TLCState state, long fp)
+    {
+        try
+        {
+            this.segment.get().write(state, fp);
+        } catch (IOException e)
+        {
+            MP.printError(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, this.fname, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes the segments and writes the header. All threads have to have
+     * stopped writing.
+     */
+    public void close()
+    {
+        try
+        {
+            synchronized (this.segments)
+            {
+                for (int i = 0; i < this.segments.size(); i++)
+                {
+                    this.segments.get(i).close();
+                }
+            }
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.fname)));
+            try
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                final UniqueString[] vars = TLCState.getVarNames();
+                out.writeInt(vars.length);
+                for (int i = 0; i < vars.length; i++)
+                {
+                    out.writeUTF(vars[i].toString());
+                }
+                final ModelValue[] mvs = ModelValue.mvs == null ? new ModelValue[0] : ModelValue.mvs;
+                out.writeInt(mvs.length);
+                for (int i = 0; i < mvs.length; i++)
+                {
+                    out.writeUTF(mvs[i].val.toString());
+                }
+                out.writeInt(this.numOfSegments.get());
+            } finally
+            {
+                out.close();
+            }
+        } catch (IOException e)
+        {
+            MP.printError(EC.SYSTEM_DISK_IO_ERROR_FOR_FILE, this.fname, e);
+        }
+    }
+
+    private static final class Segment
+    {
+        private final String fname;
+        private final int chunkSize;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final ValueOutputStream vos = new ValueOutputStream(this.bytes);
+        private final UniqueString[] vars = TLCState.getVarNames();
+        private long offset = 0L;
+        private long size = 0L;
+
+        /**
+         * The (fingerprint, offset) pairs not yet written to a run. The chunk
+         * grows up to chunkSize pairs.
+         */
+        private long[] chunk;
+        private int n = 0;
+        private DataOutputStream runs;
+        private int numOfRuns = 0;
+
+        Segment(final String fname, final int chunkSize) throws IOException
+        {
+            this.fname = fname;
+            this.chunkSize = chunkSize;
+            this.chunk = new long[2 * Math.min(chunkSize, 1 << 10)];
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fname), 1 << 16));
+        }
+
+        void write(final TLCState state, final long fp) throws IOException
+        {
+            this.bytes.reset();
+            this.vos.resetHandles();
+            for (int i = 0; i < this.vars.length; i++)
+            {
+                this.vos.write(state.lookup(this.vars[i]));
+            }
+            this.vos.flush();
+
+            if (this.n == this.chunkSize)
+            {
+                this.spill();
+            } else if (2 * this.n == this.chunk.length)
+            {
+                final long[] chunk = new long[2 * Math.min(this.chunkSize, 2 * this.n)];
+                System.arraycopy(this.chunk, 0, chunk, 0, 2 * this.n);
+                this.chunk = chunk;
+            }
+            this.chunk[2 * this.n] = fp;
+            this.chunk[2 * this.n + 1] = this.offset;
+            this.n++;
+            this.out.writeLong(fp);
+            this.out.writeInt(this.bytes.size());
+            this.bytes.writeTo(this.out);
+            this.offset += 12 + this.bytes.size();
+            this.size++;
+        }
+
+        /**
+         * Sorts the chunk and appends it as a run to the runs file.
+         */
+        private void spill() throws IOException
+        {
+            if (this.runs == null)
+            {
+                this.runs = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.fname
+                        + ".idx.tmp"), 1 << 16));
+            }
+            sort(this.chunk, this.n);
+            for (int i = 0; i < 2 * this.n; i++)
+            {
+                this.runs.writeLong(this.chunk[i]);
+            }
+            this.numOfRuns++;
+            this.n = 0;
+        }
+
+        /**
+         * Writes the sorted index. If the index did not fit into a single
+         * chunk, the runs are merged.
+         */
+        void close() throws IOException
+        {
+            this.out.close();
+
+            final DataOutputStream idx = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                    this.fname + ".idx"), 1 << 16));
+            try
+            {
+                if (this.runs == null)
+                {
+                    sort(this.chunk, this.n);
+                    for (int i = 0; i < 2 * this.n; i++)
+                    {
+                        idx.writeLong(this.chunk[i]);
+                    }
+                } else
+                {
+                    if (this.n > 0)
+                    {
+                        this.spill();
+                    }
+                    this.runs.close();
+                    this.chunk = null;
+                    this.merge(idx);
+                }
+            } finally
+            {
+                idx.close();
+            }
+        }
+
+        /**
+         * Merges the sorted runs into the index. A heap of the runs ordered
+         * by their next fingerprint selects the run to take the next entry
+         * from.
+         */
+        private void merge(final DataOutputStream idx) throws IOException
+        {
+            final File file = new File(this.fname + ".idx.tmp");
+            final int k = this.numOfRuns;
+            final int bufSize = Math.max(1 << 12, Math.min(1 << 16, (1 << 24) / k));
+            final DataInputStream[] ins = new DataInputStream[k];
+            final long[] remaining = new long[k];
+            final long[] fps = new long[k];
+            final long[] offsets = new long[k];
+            final int[] heap = new int[k];
+            try
+            {
+                for (int i = 0; i < k; i++)
+                {
+                    final FileInputStream fis = new FileInputStream(file);
+                    fis.getChannel().position(16L * i * this.chunkSize);
+                    ins[i] = new DataInputStream(new BufferedInputStream(fis, bufSize));
+                    remaining[i] = Math.min(this.chunkSize, this.size - (long) i * this.chunkSize) - 1;
+                    fps[i] = ins[i].readLong();
+                    offsets[i] = ins[i].readLong();
+                    heap[i] = i;
+                }
+                int h = k;
+                for (int i = h / 2 - 1; i >= 0; i--)
+                {
+                    siftDown(heap, fps, i, h);
+                }
+                while (h > 0)
+                {
+                    final int r = heap[0];
+                    idx.writeLong(fps[r]);
+                    idx.writeLong(offsets[r]);
+                    if (remaining[r] > 0)
+                    {
+                        fps[r] = ins[r].readLong();
+                        offsets[r] = ins[r].readLong();
+                        remaining[r]--;
+                    } else
+                    {
+                        heap[0] = heap[--h];
+                    }
+                    siftDown(heap, fps, 0, h);
+                }
+            } finally
+            {
+                for (int i = 0; i < k; i++)
+                {
+                    if (ins[i] != null)
+                    {
+                        ins[i].close();
+                    }
+                }
+            }
+            if (!file.delete())
+            {
+                throw new IOException("BinaryStateWriter.merge: cannot delete " + file);
+            }
+        }
+
+        /**
+         * Restores the min-heap of runs below the given root.
+         */
+        private static void siftDown(final int[] heap, final long[] fps, int root, final int n)
+        {
+            while (true)
+            {
+                int child = 2 * root + 1;
+                if (child >= n)
+                {
+                    return;
+                }
+                if (child + 1 < n && fps[heap[child + 1]] < fps[heap[child]])
+                {
+                    child++;
+                }
+                if (fps[heap[root]] <= fps[heap[child]])
+                {
+                    return;
+                }
+                final int tmp = heap[root];
+                heap[root] = heap[child];
+                heap[child] = tmp;
+                root = child;
+            }
+        }
+    }
+
+    /**
+     * Heapsorts the first n (fingerprint, offset) pairs by fingerprint.
+     */
+    static void sort(final long[] pairs, final int n)
+    {
+        for (int i = n / 2 - 1; i >= 0; i--)
+        {
+            siftDown(pairs, i, n);
+        }
+        for (int end = n - 1; end > 0; end--)
+        {
+            swap(pairs, 0, end);
+            siftDown(pairs, 0, end);
+        }
+    }
+
+    private static void siftDown(final long[] pairs, int root, final int n)
+    {
+        while (true)
+        {
+            int child = 2 * root + 1;
+            if (child >= n)
+            {
+                return;
+            }
+            if (child + 1 < n && pairs[2 * (child + 1)] > pairs[2 * child])
+            {
+                child++;
+            }
+            if (pairs[2 * root] >= pairs[2 * child])
+            {
+                return;
+            }
+            swap(pairs, root, child);
+            root = child;
+        }
+    }
+
+    private static void swap(final long[] pairs, final int i, final int j)
+    {
+        final long fp = pairs[2 * i];
+        final long offset = pairs[2 * i + 1];
+        pairs[2 * i] = pairs[2 * j];
+        pairs[2 * i + 1] = pairs[2 * j + 1];
+        pairs[2 * j] = fp;
+        pairs[2 * j + 1] = offset;
+    }
+}
@@ -47,6 +47,9 @@ public class BitVector implements Serializable {
 		}
 	}
    
+  /** Initialize this bit vector to the given words, lowest bits first. */
+  public BitVector(long[] words) { this.word = words; }
+
   /** Initialize this bit vector to be a copy of <code>bv</code>. */
   public BitVector(BitVector bv) {
     int len = bv.word.length;
@@ -174,6 +177,12 @@ public class BitVector implements Serializable {
     }
   }
 
+  /** The number of words of this bit vector. */
+  public int wordCnt() { return this.word.length; }
+
+  /** The i-th word of this bit vector. */
+  public long getWord(int i) { return this.word[i]; }
+
   /** Read a bit vector from a file */
   public void read(BufferedRandomAccessFile raf) throws IOException {
     int len = raf.readNat();
@@ -12,7 +12,7 @@ public interface Cache {
 	 */
 	boolean hit(long fingerprint);
 	/**
-	 * @return Ratio of cache hits and misses
+	 * @return The fraction of lookups that hit the cache (0 without lookups)
 	 */
 	double getHitRatio();
 	/**
@@ -0,0 +1,160 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.util;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe, lock-free fingerprint {@link Cache}. Fingerprints map to sets
+ * of {@link #WAYS} entries (one cache line) by their low bits. Within a set,
+ * entries are replaced by the CLOCK algorithm: A hit marks its entry
+ * referenced and a miss advances the set's hand over referenced entries,
+ * clearing their mark, to the first unreferenced entry which it replaces.
+ * Fingerprints seen once are thus evicted before fingerprints seen again.
+ * <p>
+ * Because all fingerprints in a set agree in their lowest bit, the lowest bit
+ * of an entry is free to hold the reference mark.
+ */
+public class SetAssociativeCache implements Cache {
+
+	/**
+	 * The number of entries per set
+	 */
+	public static final int WAYS = 8;
+	/**
+	 * The default size in megabytes
+	 */
+	public static final int SIZE = Integer.getInteger(SetAssociativeCache.class.getName() + ".size", 4);
+
+	private static final long REFERENCED = 1L;
+	private static final int STRIPES = 16;
+	// Spread the counters of a stripe over a cache line of their own
+	private static final int PAD = 8;
+
+	private final AtomicLongArray entries;
+	/**
+	 * The CLOCK hand of each set. Updated racily: A lost update only costs
+	 * the precision of the replacement.
+	 */
+	private final byte[] hands;
+	private final int mask;
+	/**
+	 * Hits and misses striped by set to not contend on a single counter
+	 */
+	private final AtomicLongArray counters = new AtomicLongArray(STRIPES * PAD);
+
+	/**
+	 * A {@link SetAssociativeCache} of {@link #SIZE} megabytes
+	 */
+	public SetAssociativeCache() {
+		this(SIZE);
+	}
+
+	/**
+	 * @param megabytes
+	 *            The size of the cache in megabytes. Rounded down to a power
+	 *            of two sets.
+	 */
+	public SetAssociativeCache(final int megabytes) {
+		if (megabytes <= 0) {
+			throw new IllegalArgumentException("Cache size has to be positive: " + megabytes);
+		}
+		// 8 bytes per entry, at least two sets for the reference mark
+		final long sets = Math.max(2L, (megabytes * 1024L * 1024L) / (8L * WAYS));
+		final int capacity = (int) Math.min(Long.highestOneBit(sets), 1 << 27);
+		this.mask = capacity - 1;
+		this.entries = new AtomicLongArray(capacity * WAYS);
+		this.hands = new byte[capacity];
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#hit(long)
+	 */
+	public boolean hit(final long fp) {
+		final int set = (int) fp & this.mask;
+		final int stripe = (set & (STRIPES - 1)) * PAD;
+		final long key = fp & ~REFERENCED;
+		// 0 marks an empty entry
+		if (key != 0L) {
+			final int base = set * WAYS;
+			for (int i = 0; i < WAYS; i++) {
+				final long entry = this.entries.get(base + i);
+				if ((entry & ~REFERENCED) == key) {
+					if ((entry & REFERENCED) == 0L) {
+						this.entries.compareAndSet(base + i, entry, entry | REFERENCED);
+					}
+					this.counters.incrementAndGet(stripe);
+					return true;
+				}
+			}
+			insert(set, base, key);
+		}
+		this.counters.incrementAndGet(stripe + 1);
+		return false;
+	}
+
+	private void insert(final int set, final int base, final long key) {
+		int hand = this.hands[set] & (WAYS - 1);
+		// One sweep clears all reference marks, the second finds an entry
+		// unless other threads interfere. If they do, skip caching key.
+		for (int i = 0; i < 2 * WAYS; i++) {
+			final int index = base + hand;
+			final long entry = this.entries.get(index);
+			hand = (hand + 1) & (WAYS - 1);
+			if ((entry & REFERENCED) == 0L) {
+				if (this.entries.compareAndSet(index, entry, key)) {
+					break;
+				}
+			} else {
+				this.entries.compareAndSet(index, entry, entry & ~REFERENCED);
+			}
+		}
+		this.hands[set] = (byte) hand;
+	}
+
+	/**
+	 * @return The number of fingerprints the cache holds at most
+	 */
+	public int getCapacity() {
+		return this.entries.length();
+	}
+
+	/**
+	 * @return Absolute value for cache misses
+	 */
+	public long getMissRate() {
+		return sum(1);
+	}
+
+	private long sum(final int offset) {
+		long sum = 0L;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += this.counters.get(i * PAD + offset);
+		}
+		return sum;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#getHitRatio()
+	 */
+	public double getHitRatio() {
+		final long hits = getHitRate();
+		final long lookups = hits + getMissRate();
+		return lookups == 0L ? 0d : hits / (double) lookups;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#getHitRatioAsString()
+	 */
+	public String getHitRatioAsString() {
+		DecimalFormat df = new DecimalFormat("###,###.###");
+		return df.format(getHitRatio());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#getHitRate()
+	 */
+	public long getHitRate() {
+		return sum(0);
+	}
+}
@@ -86,6 +86,19 @@ public final class SetOfLong {
 
   public final long sizeof() { return 20 + (8 * this.length); }
 
+  /**
+   * Returns the elements of this set in no particular order.
+   */
+  public final long[] toArray() {
+    final long[] res = new long[this.count];
+    int cnt = 0;
+    if (this.hasZero) res[cnt++] = 0;
+    for (int i = 0; i < this.length; i++) {
+      if (this.table[i] != 0) res[cnt++] = this.table[i];
+    }
+    return res;
+  }
+
   public final double checkFPs() {
     int cnt = 0;
     for (int i = 0; i < this.length; i++) {
@@ -5,8 +5,8 @@ import java.text.DecimalFormat;
 
 public class SimpleCache implements Cache {
 
-	private volatile long cacheHit = 1L;
-	private volatile long cacheMiss = 1L;
+	private volatile long cacheHit = 0L;
+	private volatile long cacheMiss = 0L;
 	
 	private final long mask;
 	private final long[] cache;
@@ -48,7 +48,8 @@ public class SimpleCache implements Cache {
 	 * @see tlc2.tool.distributed.Cache#getHitRatio()
 	 */
 	public double getHitRatio() {
-		return cacheHit / (double) cacheMiss;
+		final long lookups = cacheHit + cacheMiss;
+		return lookups == 0L ? 0d : cacheHit / (double) lookups;
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,310 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import tlc2.value.ModelValue;
+import tlc2.value.Value;
+import tlc2.value.ValueInputStream;
+import util.FileUtil;
+
+/**
+ * Reads the states dumped by a {@link BinaryStateWriter}. A state is looked
+ * up by its fingerprint with {@link #getState(long)}, which binary searches
+ * the index of each segment, or all states are streamed segment by segment
+ * with {@link #iterator()}. Neither keeps the states in memory.
+ * <p>
+ * The values are read without the spec. The model values of the dump are
+ * registered with the {@link ModelValue}s, which must not conflict with the
+ * model values registered already.
+ * <p>
+ * Usage: <code>java tlc2.util.StateDumpReader [-fp fp] [-text file] dump</code>
+ * prints the state with the given fingerprint or converts the dump to the
+ * text format of the {@link StateWriter} (to standard out by default).
+ */
+public class StateDumpReader implements Iterable<StateDumpReader.Record>
+{
+    /**
+     * A state read from the dump
+     */
+    public static final class Record
+    {
+        public final long fp;
+        public final String[] vars;
+        public final Value[] values;
+
+        Record(final long fp, final String[] vars, final Value[] values)
+        {
+            this.fp = fp;
+            this.vars = vars;
+            this.values = values;
+        }
+
+        /**
+         * @return The state in the format of {@link tlc2.tool.TLCStateMut#toString()}
+         */
+        public String toString()
+        {
+            final StringBuffer result = new StringBuffer();
+            for (int i = 0; i < this.vars.length; i++)
+            {
+                final String val = (this.values[i] == null) ? "null" : Value.ppr(this.values[i].toString());
+                if (this.vars.length > 1)
+                {
+                    result.append("/\\ ");
+                }
+                result.append(this.vars[i]);
+                result.append(" = " + val + "\n");
+            }
+            return result.toString();
+        }
+    }
+
+    private final String fname;
+    private final String[] vars;
+    private final RandomAccessFile[] segments;
+    private final RandomAccessFile[] indices;
+
+    public StateDumpReader(String fname) throws IOException
+    {
+        this.fname = fname;
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fname)));
+        try
+        {
+            if (in.readInt() != BinaryStateWriter.MAGIC || in.readInt() != BinaryStateWriter.VERSION)
+            {
+                throw new IOException(fname + " is not a binary state dump.");
+            }
+            this.vars = new String[in.readInt()];
+            for (int i = 0; i < this.vars.length; i++)
+            {
+                this.vars[i] = in.readUTF();
+            }
+            final int mvs = in.readInt();
+            for (int i = 0; i < mvs; i++)
+            {
+                final ModelValue mv = ModelValue.make(in.readUTF());
+                if (mv.index != i)
+                {
+                    throw new IOException("The model value " + mv + " of " + fname
+                            + " conflicts with the model values of this JVM.");
+                }
+            }
+            ModelValue.setValues();
+            this.segments = new RandomAccessFile[in.readInt()];
+            this.indices = new RandomAccessFile[this.segments.length];
+        } finally
+        {
+            in.close();
+        }
+        for (int i = 0; i < this.segments.length; i++)
+        {
+            this.segments[i] = new RandomAccessFile(fname + "." + i, "r");
+            this.indices[i] = new RandomAccessFile(fname + "." + i + ".idx", "r");
+        }
+    }
+
+    /**
+     * @return The names of the variables
+     */
+    public String[] getVariables()
+    {
+        return this.vars;
+    }
+
+    /**
+     * @return The number of states in the dump
+     */
+    public long size() throws IOException
+    {
+        long size = 0L;
+        for (int i = 0; i < this.indices.length; i++)
+        {
+            size += this.indices[i].length() / 16L;
+        }
+        return size;
+    }
+
+    /**
+     * @return The state with the given fingerprint or null if it is not in
+     *         the dump
+     */
+    public synchronized Record getState(long fp) throws IOException
+    {
+        for (int i = 0; i < this.indices.length; i++)
+        {
+            final RandomAccessFile index = this.indices[i];
+            long lo = 0L, hi = index.length() / 16L - 1L;
+            while (lo <= hi)
+            {
+                final long mid = (lo + hi) >>> 1;
+                index.seek(mid * 16L);
+                final long fp1 = index.readLong();
+                if (fp1 < fp)
+                {
+                    lo = mid + 1;
+                } else if (fp1 > fp)
+                {
+                    hi = mid - 1;
+                } else
+                {
+                    final RandomAccessFile segment = this.segments[i];
+                    segment.seek(index.readLong());
+                    final long fp2 = segment.readLong();
+                    final byte[] bytes = new byte[segment.readInt()];
+                    segment.readFully(bytes);
+                    return this.read(fp2, bytes);
+                }
+            }
+        }
+        return null;
+    }
+
+    private final Record read(final long fp, final byte[] bytes) throws IOException
+    {
+        final ValueInputStream vis = new ValueInputStream(new ByteArrayInputStream(bytes));
+        final Value[] values = new Value[this.vars.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = vis.read();
+        }
+        return new Record(fp, this.vars, values);
+    }
+
+    /**
+     * Streams the states of the dump, segment by segment. The iterator
+     * throws a {@link RuntimeException} if a segment cannot be read.
+     */
+    public Iterator<Record> iterator()
+    {
+        return new Iterator<Record>() {
+            private int segment = -1;
+            private DataInputStream in;
+            private long remaining = 0L;
+
+            public boolean hasNext()
+            {
+                try
+                {
+                    while (this.remaining == 0L)
+                    {
+                        if (this.in != null)
+                        {
+                            this.in.close();
+                            this.in = null;
+                        }
+                        if (this.segment + 1 >= segments.length)
+                        {
+                            return false;
+                        }
+                        this.segment++;
+                        final File file = new File(fname + "." + this.segment);
+                        this.remaining = file.length();
+                        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+                    }
+                    return true;
+                } catch (IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            public Record next()
+            {
+                if (!this.hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                try
+                {
+                    final long fp = this.in.readLong();
+                    final byte[] bytes = new byte[this.in.readInt()];
+                    this.in.readFully(bytes);
+                    this.remaining -= 12 + bytes.length;
+                    return read(fp, bytes);
+                } catch (IOException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public void close() throws IOException
+    {
+        for (int i = 0; i < this.segments.length; i++)
+        {
+            this.segments[i].close();
+            this.indices[i].close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String text = null;
+        Long fp = null;
+        int index = 0;
+        while (index < args.length - 1)
+        {
+            if (args[index].equals("-fp"))
+            {
+                fp = Long.valueOf(args[index + 1]);
+                index += 2;
+            } else if (args[index].equals("-text"))
+            {
+                text = args[index + 1];
+                index += 2;
+            } else
+            {
+                break;
+            }
+        }
+        if (index != args.length - 1)
+        {
+            System.err.println("Usage: java tlc2.util.StateDumpReader [-fp fp] [-text file] dump");
+            System.exit(1);
+        }
+
+        final StateDumpReader reader = new StateDumpReader(args[index]);
+        try
+        {
+            if (fp != null)
+            {
+                final Record record = reader.getState(fp.longValue());
+                if (record == null)
+                {
+                    System.err.println("No state with fingerprint " + fp + " in " + args[index]);
+                    System.exit(1);
+                }
+                System.out.print(record);
+                return;
+            }
+            final PrintWriter writer = text == null ? new PrintWriter(System.out) : new PrintWriter(FileUtil
+                    .newBFOS(text));
+            int stateNum = 1;
+            for (Iterator<Record> iter = reader.iterator(); iter.hasNext();)
+            {
+                writer.println("State " + stateNum++ + ":");
+                writer.println(iter.next());
+            }
+            writer.close();
+        } finally
+        {
+            reader.close();
+        }
+    }
+}
@@ -23,12 +23,22 @@ public class StatePoolReader extends Thread {
   }
 
   public StatePoolReader(int bufSize, File file) {
+    this(bufSize, file, false);
+  }
+
+  /**
+   * @param delta If true, the pool files have been written delta encoded
+   *        (see {@link StatePoolWriter#StatePoolWriter(int, StatePoolReader, boolean)}).
+   */
+  public StatePoolReader(int bufSize, File file, boolean delta) {
     this.buf = new TLCState[bufSize];
     this.poolFile = file;
     this.isFull = false;
     this.canRead = false;
+    this.delta = delta;
   }
   
+  private final boolean delta;
   private TLCState[] buf;
   private File poolFile;      // the file to be read
   private boolean isFull;     // true iff the buf is filled
@@ -65,24 +75,14 @@ public class StatePoolReader extends Thread {
       return res;
     }
     else if (this.poolFile != null) {
-      ValueInputStream vis = new ValueInputStream(this.poolFile);
-      for (int i = 0; i < deqBuf.length; i++) {
-	deqBuf[i] = TLCState.Empty.createEmpty();
-	deqBuf[i].read(vis);
-      }
-      vis.close();
+      read(deqBuf, this.poolFile, this.delta);
       this.poolFile = file;     // <file, false>
       this.canRead = true;
       this.notify();
       return deqBuf;
     }
     else {
-      ValueInputStream vis = new ValueInputStream(file);
-      for (int i = 0; i < deqBuf.length; i++) {
-	deqBuf[i] = TLCState.Empty.createEmpty();
-	deqBuf[i].read(vis);
-      }
-      vis.close();              // <null, false>
+      read(deqBuf, file, this.delta);  // <null, false>
       return deqBuf;
     }
   }
@@ -103,12 +103,7 @@ public class StatePoolReader extends Thread {
     }
     else if (this.poolFile != null && this.canRead) {
       // this should seldom occur.
-      ValueInputStream vis = new ValueInputStream(this.poolFile);
-      for (int i = 0; i < deqBuf.length; i++) {
-	deqBuf[i] = TLCState.Empty.createEmpty();
-	deqBuf[i].read(vis);
-      }
-      vis.close();
+      read(deqBuf, this.poolFile, this.delta);
       // this.poolFile.delete();
       this.poolFile = file;    // <file, false>
       this.canRead = false;
@@ -154,6 +149,26 @@ public class StatePoolReader extends Thread {
     }
   }
   
+  /**
+   * Fills states with the states read from file.
+   * @see StatePoolWriter#write(TLCState[], File, boolean)
+   */
+  public static void read(TLCState[] states, File file, boolean delta) throws IOException {
+    ValueInputStream vis = new ValueInputStream(file);
+    TLCState prev = null;
+    for (int i = 0; i < states.length; i++) {
+      states[i] = TLCState.Empty.createEmpty();
+      if (delta) {
+	states[i].read(vis, prev);
+	prev = states[i];
+      }
+      else {
+	states[i].read(vis);
+      }
+    }
+    vis.close();
+  }
+
   /**
    * Read the contents of "poolFile" into "buf". The objects in the
    * file are read using Java's object serialization facilities.
@@ -168,12 +183,7 @@ public class StatePoolReader extends Thread {
 	    	return;
 	    }
 	  }
-	  ValueInputStream vis = new ValueInputStream(this.poolFile);
-	  for (int i = 0; i < this.buf.length; i++) {
-	    this.buf[i] = TLCState.Empty.createEmpty();
-	    this.buf[i].read(vis);
-	  }
-	  vis.close();
+	  read(this.buf, this.poolFile, this.delta);
 	  this.poolFile = null;
 	  this.isFull = true;       // <null, true>
 	}
@@ -21,6 +21,7 @@ public class StatePoolWriter extends Thread {
     private TLCState[] buf;     
     private File poolFile;           // the file to be written
     private StatePoolReader reader;  // the consumer if not null
+    private final boolean delta;     // true iff states are delta encoded
 
     
   public StatePoolWriter(int bufSize) {
@@ -28,9 +29,20 @@ public class StatePoolWriter extends Thread {
   }
 
   public StatePoolWriter(int bufSize, StatePoolReader reader) {
+    this(bufSize, reader, false);
+  }
+
+  /**
+   * @param delta If true, each state of a pool file is written delta encoded
+   *        against its predecessor in the file (see
+   *        {@link TLCState#write(ValueOutputStream, TLCState)}). The reader
+   *        has to be created with the same setting.
+   */
+  public StatePoolWriter(int bufSize, StatePoolReader reader, boolean delta) {
     this.buf = new TLCState[bufSize];
     this.poolFile = null;
     this.reader = reader;
+    this.delta = delta;
   }
 
   /*
@@ -41,11 +53,7 @@ public class StatePoolWriter extends Thread {
   public final synchronized TLCState[] doWork(TLCState[] enqBuf, File file)
   throws IOException {
     if (this.poolFile != null) {
-      ValueOutputStream vos = new ValueOutputStream(this.poolFile);
-      for (int i = 0; i < this.buf.length; i++) {
-	this.buf[i].write(vos);
-      }
-      vos.close();
+      write(this.buf, this.poolFile, this.delta);
     }
     TLCState[] res = this.buf;
     this.buf = enqBuf;
@@ -95,6 +103,27 @@ public class StatePoolWriter extends Thread {
     }
   }
 
+  /**
+   * Writes states to file, delta encoded if delta is true.
+   * @see StatePoolReader#read(TLCState[], File, boolean)
+   */
+  public static void write(TLCState[] states, File file, boolean delta) throws IOException {
+    ValueOutputStream vos = new ValueOutputStream(file);
+    if (delta) {
+      TLCState prev = null;
+      for (int i = 0; i < states.length; i++) {
+	states[i].write(vos, prev);
+	prev = states[i];
+      }
+    }
+    else {
+      for (int i = 0; i < states.length; i++) {
+	states[i].write(vos);
+      }
+    }
+    vos.close();
+  }
+
   /**
    * Write "buf" to "poolFile". The objects in the queue are written
    * using Java's object serialization facilities.
@@ -110,11 +139,7 @@ public class StatePoolWriter extends Thread {
 	    	return;
 	    }
 	  }
-	  ValueOutputStream vos = new ValueOutputStream(this.poolFile);
-	  for (int i = 0; i < this.buf.length; i++) {
-	    this.buf[i].write(vos);
-	  }
-	  vos.close();
+	  write(this.buf, this.poolFile, this.delta);
 	  this.poolFile = null;
 	  this.notify();
 	  if (this.reader != null) this.reader.wakeup();
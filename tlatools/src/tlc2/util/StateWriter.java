@@ -10,6 +10,7 @@ import util.FileUtil;
  * State writer 
  * @author Simon Zambrovski
  * @version $Id$
+ * @see BinaryStateWriter
  */
 public class StateWriter
 {
@@ -23,6 +24,13 @@ public class StateWriter
         this.stateNum = 1;
     }
 
+    /**
+     * For subclasses writing to their own files
+     */
+    protected StateWriter()
+    {
+    }
+
     public synchronized void writeState(TLCState state)
     {
         this.writer.println("State " + this.stateNum + ":");
@@ -30,7 +38,15 @@ public class StateWriter
         this.stateNum++;
     }
 
-    public final void close()
+    /**
+     * Writes the state whose fingerprint the caller has already computed
+     */
+    public void writeState(TLCState state, long fp)
+    {
+        this.writeState(state);
+    }
+
+    public void close()
     {
         this.writer.close();
     }
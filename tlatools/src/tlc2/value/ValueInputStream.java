@@ -4,10 +4,11 @@ package tlc2.value;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 import tlc2.TLCGlobals;
 import util.BufferedDataInputStream;
-import util.FileUtil;
+import util.Codec;
 import util.UniqueString;
 import util.WrongInvocationException;
 
@@ -18,8 +19,9 @@ public final class ValueInputStream implements ValueConstants {
 
   public ValueInputStream(File file) throws IOException 
   {
-      // SZ Feb 24, 2009: FileUtil refactoring
-    this.dis = FileUtil.newBdFIS(TLCGlobals.useGZIP, file);
+    // The codec is recorded in the file, files of earlier versions are
+    // compressed with GZIP unless it has been turned off
+    this.dis = new BufferedDataInputStream(Codec.newInputStream(file, TLCGlobals.useGZIP ? Codec.GZIP : Codec.NONE));
     this.handles = new HandleTable();
   }
 
@@ -27,6 +29,15 @@ public final class ValueInputStream implements ValueConstants {
       this(new File(fname));
   }
 
+  /**
+   * Reads from the given stream as written by
+   * {@link ValueOutputStream#ValueOutputStream(java.io.OutputStream)}.
+   */
+  public ValueInputStream(InputStream is) throws IOException {
+    this.dis = new BufferedDataInputStream(is);
+    this.handles = new HandleTable();
+  }
+
   public final Value read() throws IOException {
     byte kind = this.dis.readByte();
 
@@ -150,6 +161,10 @@ public final class ValueInputStream implements ValueConstants {
     }      
   }
 
+  public final byte readByte() throws IOException {
+    return this.dis.readByte();
+  }
+
   public final int readInt() throws IOException {
     return this.dis.readInt();
   }
@@ -3,11 +3,11 @@
 package tlc2.value;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.zip.GZIPOutputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 import tlc2.TLCGlobals;
 import util.BufferedDataOutputStream;
@@ -17,26 +17,33 @@ public final class ValueOutputStream implements ValueConstants {
 
   private BufferedDataOutputStream dos;
   private HandleTable handles;
+  /**
+   * Maps each string, identified by its token, to the first StringValue
+   * written for it. The handle table only identifies values by object
+   * identity, whereas equal strings are often represented by distinct
+   * StringValue objects, and those read back from disk even by distinct
+   * UniqueString objects.
+   */
+  private final Map<Integer, StringValue> strings = new HashMap<Integer, StringValue>();
 
+  /**
+   * Writes to the file with the codec of {@link TLCGlobals#getCodec()},
+   * which is recorded in the file for the {@link ValueInputStream}.
+   */
   public ValueOutputStream(File file) throws IOException {
-    if (TLCGlobals.useGZIP) {
-      OutputStream os = new GZIPOutputStream(new FileOutputStream(file));
-      this.dos = new BufferedDataOutputStream(os);
-    }
-    else {
-      this.dos = new BufferedDataOutputStream(file);
-    }
+    this.dos = new BufferedDataOutputStream(TLCGlobals.getCodec().newOutputStream(file));
     this.handles = new HandleTable();
   }
 
   public ValueOutputStream(String fname) throws IOException {
-    if (TLCGlobals.useGZIP) {
-      OutputStream os = new GZIPOutputStream(new FileOutputStream(fname));
-      this.dos = new BufferedDataOutputStream(os);
-    }
-    else {
-      this.dos = new BufferedDataOutputStream(fname);
-    }
+    this(new File(fname));
+  }
+
+  /**
+   * Writes to the given stream, e.g. one that does not end up in a file.
+   */
+  public ValueOutputStream(OutputStream os) {
+    this.dos = new BufferedDataOutputStream(os);
     this.handles = new HandleTable();
   }
 
@@ -56,7 +63,7 @@ public final class ValueOutputStream implements ValueConstants {
       }
     case STRINGVALUE:
       {
-	int index = this.handles.put(val);
+	int index = this.handles.put(this.canonical((StringValue)val));
 	if (index == -1) {
 	  this.dos.writeByte(STRINGVALUE);
 	  ((StringValue)val).val.write(this.dos);
@@ -251,6 +258,21 @@ public final class ValueOutputStream implements ValueConstants {
     }
   }
 
+  /* Returns the StringValue that represents sval's string in this stream. */
+  private final StringValue canonical(StringValue sval) {
+    Integer tok = Integer.valueOf(sval.val.getTok());
+    StringValue res = this.strings.get(tok);
+    if (res == null) {
+      this.strings.put(tok, sval);
+      res = sval;
+    }
+    return res;
+  }
+
+  public final void writeByte(byte x) throws IOException {
+    this.dos.writeByte(x);
+  }
+
   public final void writeInt(int x) throws IOException {
     this.dos.writeInt(x);
   }
@@ -263,6 +285,19 @@ public final class ValueOutputStream implements ValueConstants {
     this.dos.close();
   }
 
+  public final void flush() throws IOException {
+    this.dos.flush();
+  }
+
+  /**
+   * Forgets the values written so far. The values written next can thus be
+   * read without reading the ones written before.
+   */
+  public final void resetHandles() {
+    this.handles = new HandleTable();
+    this.strings.clear();
+  }
+
   /* Precondition: x is a non-negative int. */
   public final void writeNat(int x) throws IOException {
     if (x > 0x7fff) {
@@ -0,0 +1,167 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A <code>Codec</code> compresses the files of the value streams
+ * (checkpoints, the disk-based state queues, ...). A file written with
+ * {@link #newOutputStream(File)} starts with a header that names its codec.
+ * {@link #newInputStream(File, Codec)} reads the header and thus does not
+ * depend on the codec the file is read with. Files written without a header
+ * by earlier versions are read with the given legacy codec.
+ * <p>
+ * The {@link #LZ} codec compresses much faster than {@link #GZIP} at the
+ * expense of the compression ratio. Its blocks are compressed by the
+ * threads of a shared executor, whose size is set with the system property
+ * <code>util.Codec.threads</code> (the number of cores by default).
+ */
+public abstract class Codec {
+
+	private static final byte[] MAGIC = { 'T', 'L', 'C', 'Z' };
+
+	private static final int BLOCK_SIZE = 1 << 18;
+
+	private static final int THREADS = Integer.getInteger(Codec.class.getName() + ".threads", Runtime.getRuntime()
+			.availableProcessors());
+
+	private static ExecutorService executor;
+
+	public static final Codec NONE = new Codec((byte) 0, "none") {
+		protected OutputStream compress(OutputStream out) {
+			return out;
+		}
+
+		protected InputStream decompress(InputStream in) {
+			return in;
+		}
+	};
+
+	public static final Codec GZIP = new Codec((byte) 1, "gzip") {
+		protected OutputStream compress(OutputStream out) throws IOException {
+			return new GZIPOutputStream(out);
+		}
+
+		protected InputStream decompress(InputStream in) throws IOException {
+			return new GZIPInputStream(in);
+		}
+	};
+
+	public static final Codec LZ = new Codec((byte) 2, "lz") {
+		protected OutputStream compress(OutputStream out) {
+			if (THREADS > 1) {
+				return new LZBlockOutputStream(out, BLOCK_SIZE, getExecutor(), THREADS);
+			}
+			return new LZBlockOutputStream(out, BLOCK_SIZE, null, 1);
+		}
+
+		protected InputStream decompress(InputStream in) {
+			return new LZBlockInputStream(in);
+		}
+	};
+
+	private static final Codec[] CODECS = { NONE, GZIP, LZ };
+
+	private final byte id;
+	private final String name;
+
+	private Codec(final byte id, final String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String toString() {
+		return this.name;
+	}
+
+	protected abstract OutputStream compress(OutputStream out) throws IOException;
+
+	protected abstract InputStream decompress(InputStream in) throws IOException;
+
+	/**
+	 * @return The codec with the given name or null if there is none
+	 */
+	public static Codec get(final String name) {
+		for (int i = 0; i < CODECS.length; i++) {
+			if (CODECS[i].name.equalsIgnoreCase(name)) {
+				return CODECS[i];
+			}
+		}
+		return null;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, "Codec");
+					// Must not keep the JVM from exiting
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Creates the file and writes the header naming this codec
+	 */
+	public OutputStream newOutputStream(final File file) throws IOException {
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		out.write(MAGIC);
+		out.write(this.id);
+		return this.compress(out);
+	}
+
+	/**
+	 * @param legacy
+	 *            The codec of a file without header
+	 */
+	public static InputStream newInputStream(final File file, final Codec legacy) throws IOException {
+		final InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+		in.mark(MAGIC.length + 1);
+		final byte[] header = new byte[MAGIC.length + 1];
+		int n = 0;
+		while (n < header.length) {
+			final int read = in.read(header, n, header.length - n);
+			if (read < 0) {
+				break;
+			}
+			n += read;
+		}
+		if (n == header.length) {
+			boolean magic = true;
+			for (int i = 0; i < MAGIC.length; i++) {
+				magic &= header[i] == MAGIC[i];
+			}
+			if (magic) {
+				for (int i = 0; i < CODECS.length; i++) {
+					if (CODECS[i].id == header[MAGIC.length]) {
+						return CODECS[i].decompress(in);
+					}
+				}
+				in.close();
+				throw new IOException(file + " has been written with an unknown codec (" + header[MAGIC.length] + ")");
+			}
+		}
+		in.reset();
+		return legacy.decompress(in);
+	}
+}
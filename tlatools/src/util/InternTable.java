@@ -6,6 +6,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
 
 import tlc2.output.EC;
 import tlc2.tool.distributed.InternRMI;
@@ -31,6 +32,14 @@ public final class InternTable implements Serializable
 
      private InternRMI internSource = null;
 
+    // The provisional (negative) token of the last string whose token has
+    // been deferred
+    private int deferredCnt = 0;
+
+    // For the threads that defer the assignment of tokens, the strings with
+    // a provisional token they have looked up (see deferTokens)
+    private static final ThreadLocal<Collection<UniqueString>> deferred = new ThreadLocal<Collection<UniqueString>>();
+
     public InternTable(int size)
     {
         this.table = new UniqueString[size];
@@ -124,6 +133,7 @@ public final class InternTable implements Serializable
     {
         synchronized (InternTable.class)
         {
+            Collection<UniqueString> log = deferred.get();
             if (this.count >= this.thresh)
                 this.grow();
             int loc = (str.hashCode() & 0x7FFFFFFF) % length;
@@ -132,13 +142,31 @@ public final class InternTable implements Serializable
                 UniqueString ent = this.table[loc];
                 if (ent == null)
                 {
-                    UniqueString var = this.create(str);
+                    UniqueString var;
+                    if (log == null)
+                    {
+                        var = this.create(str);
+                    } else
+                    {
+                        var = new UniqueString(str, --deferredCnt);
+                        log.add(var);
+                    }
                     this.table[loc] = var;
                     this.count++;
                     return var;
                 }
                 if (ent.toString().equals(str))
                 {
+                    if (ent.getTok() < 0)
+                    {
+                        if (log == null)
+                        {
+                            ent.setTok(this.create(str).getTok());
+                        } else
+                        {
+                            log.add(ent);
+                        }
+                    }
                     return ent;
                 }
                 loc = (loc + 1) % length;
@@ -146,6 +174,44 @@ public final class InternTable implements Serializable
         }
     }
 
+    /**
+     * Makes the calling thread defer the assignment of the tokens of the
+     * strings it creates, so that the order of the tokens, by which unique
+     * strings compare, does not depend on the timing of concurrent threads.
+     * Such a string gets a provisional negative token, which is unique as
+     * well, and is added to log when the thread looks it up. The real token
+     * is assigned the first time a thread that does not defer looks the
+     * string up, typically by replaying the log with {@link #assignTokens}.
+     * 
+     * @param log the collection to add the strings to or null to stop
+     *        deferring
+     */
+    public static void deferTokens(Collection<UniqueString> log)
+    {
+        if (log == null)
+        {
+            deferred.remove();
+        } else
+        {
+            deferred.set(log);
+        }
+    }
+
+    /**
+     * Assigns the tokens deferred by the thread that has filled log, in the
+     * order in which it has looked the strings up.
+     */
+    public void assignTokens(Collection<UniqueString> log)
+    {
+        for (UniqueString var : log)
+        {
+            if (var.getTok() < 0)
+            {
+                this.put(var.toString());
+            }
+        }
+    }
+
     public void beginChkpt(String filename) throws IOException
     {
         BufferedDataOutputStream dos = new BufferedDataOutputStream(this.chkptName(filename, "tmp"));
@@ -0,0 +1,80 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package util;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the blocks written by an {@link LZBlockOutputStream}.
+ */
+public class LZBlockInputStream extends InputStream {
+
+	private final DataInputStream in;
+	private byte[] compressed = new byte[0];
+	private byte[] block = new byte[0];
+	private int len = 0;
+	private int pos = 0;
+
+	public LZBlockInputStream(final InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	public int read() throws IOException {
+		if (this.pos == this.len && !this.readBlock()) {
+			return -1;
+		}
+		return this.block[this.pos++] & 0xFF;
+	}
+
+	public int read(final byte[] b, final int off, final int n) throws IOException {
+		if (n == 0) {
+			return 0;
+		}
+		if (this.pos == this.len && !this.readBlock()) {
+			return -1;
+		}
+		final int m = Math.min(n, this.len - this.pos);
+		System.arraycopy(this.block, this.pos, b, off, m);
+		this.pos += m;
+		return m;
+	}
+
+	public int available() {
+		return this.len - this.pos;
+	}
+
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	/**
+	 * @return false iff the stream is at its end
+	 */
+	private final boolean readBlock() throws IOException {
+		final int rawLen;
+		try {
+			rawLen = this.in.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		final int compressedLen = this.in.readInt();
+		if (this.block.length < rawLen) {
+			this.block = new byte[rawLen];
+		}
+		if (compressedLen <= 0) {
+			// Stored as is
+			this.in.readFully(this.block, 0, rawLen);
+		} else {
+			if (this.compressed.length < compressedLen) {
+				this.compressed = new byte[compressedLen];
+			}
+			this.in.readFully(this.compressed, 0, compressedLen);
+			LZCompressor.decompress(this.compressed, compressedLen, this.block, rawLen);
+		}
+		this.len = rawLen;
+		this.pos = 0;
+		return rawLen > 0 || this.readBlock();
+	}
+}
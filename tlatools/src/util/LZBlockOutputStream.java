@@ -0,0 +1,143 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An <code>LZBlockOutputStream</code> compresses the bytes written to it in
+ * blocks with the {@link LZCompressor}. Each block is written as the length
+ * of its raw bytes, the length of its compressed bytes and the compressed
+ * bytes. A block that does not compress is stored as is, which a negative
+ * length marks.
+ * <p>
+ * Given an executor, the blocks are compressed concurrently. They are still
+ * written in order, with at most two blocks per thread in flight.
+ */
+public class LZBlockOutputStream extends OutputStream {
+
+	private final DataOutputStream out;
+	private final ExecutorService executor;
+	private final int maxInFlight;
+	private final LinkedList<Future<byte[]>> inFlight = new LinkedList<Future<byte[]>>();
+	private final int blockSize;
+	private byte[] block;
+	private int len = 0;
+
+	/**
+	 * @param executor
+	 *            The executor to compress the blocks with or null to
+	 *            compress them on the writing thread
+	 */
+	public LZBlockOutputStream(final OutputStream out, final int blockSize, final ExecutorService executor,
+			final int threads) {
+		this.out = new DataOutputStream(out);
+		this.blockSize = blockSize;
+		this.block = new byte[blockSize];
+		this.executor = executor;
+		this.maxInFlight = 2 * threads;
+	}
+
+	public void write(final int b) throws IOException {
+		this.block[this.len++] = (byte) b;
+		if (this.len == this.blockSize) {
+			this.writeBlock();
+		}
+	}
+
+	public void write(final byte[] b, int off, int n) throws IOException {
+		while (n > 0) {
+			final int m = Math.min(n, this.blockSize - this.len);
+			System.arraycopy(b, off, this.block, this.len, m);
+			this.len += m;
+			off += m;
+			n -= m;
+			if (this.len == this.blockSize) {
+				this.writeBlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes the buffered bytes as a (short) block and waits for all blocks
+	 * to be written.
+	 */
+	public void flush() throws IOException {
+		if (this.len > 0) {
+			this.writeBlock();
+		}
+		while (!this.inFlight.isEmpty()) {
+			this.out.write(this.take());
+		}
+		this.out.flush();
+	}
+
+	public void close() throws IOException {
+		this.flush();
+		this.out.close();
+	}
+
+	private final void writeBlock() throws IOException {
+		if (this.executor == null) {
+			this.out.write(compress(this.block, this.len));
+		} else {
+			if (this.inFlight.size() >= this.maxInFlight) {
+				this.out.write(this.take());
+			}
+			final byte[] raw = this.block;
+			final int rawLen = this.len;
+			this.inFlight.add(this.executor.submit(new Callable<byte[]>() {
+				public byte[] call() {
+					return compress(raw, rawLen);
+				}
+			}));
+			// The submitted block belongs to the executor now
+			this.block = new byte[this.blockSize];
+		}
+		this.len = 0;
+	}
+
+	private final byte[] take() throws IOException {
+		try {
+			return this.inFlight.removeFirst().get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause().toString());
+		}
+	}
+
+	/**
+	 * @return The block as it is written to the stream
+	 */
+	private static byte[] compress(final byte[] raw, final int rawLen) {
+		final byte[] compressed = new byte[LZCompressor.maxCompressedLength(rawLen)];
+		int len = LZCompressor.compress(raw, rawLen, compressed);
+		final byte[] block;
+		if (len < rawLen) {
+			block = new byte[8 + len];
+			System.arraycopy(compressed, 0, block, 8, len);
+		} else {
+			block = new byte[8 + rawLen];
+			System.arraycopy(raw, 0, block, 8, rawLen);
+			len = -rawLen;
+		}
+		writeInt(block, 0, rawLen);
+		writeInt(block, 4, len);
+		return block;
+	}
+
+	private static void writeInt(final byte[] b, final int off, final int i) {
+		b[off] = (byte) (i >>> 24);
+		b[off + 1] = (byte) (i >>> 16);
+		b[off + 2] = (byte) (i >>> 8);
+		b[off + 3] = (byte) i;
+	}
+}
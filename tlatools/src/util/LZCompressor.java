@@ -0,0 +1,169 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package util;
+
+import java.io.IOException;
+
+/**
+ * A fast LZ77 compressor in the style of LZ4. It trades compression ratio
+ * for speed: a match is found with a single probe of a hash table of the
+ * four bytes at the current position, and there is no entropy coding.
+ * <p>
+ * A compressed block is a sequence of sequences. A sequence is a token, the
+ * length of its literals, the literals, the offset of its match (two bytes,
+ * little endian) and the length of its match. The token holds the length of
+ * the literals in its upper and the length of the match minus four in its
+ * lower four bits. A length of 15 is continued by the bytes that follow
+ * until a byte is less than 255. The last sequence only has literals.
+ */
+final class LZCompressor {
+
+	private static final int MIN_MATCH = 4;
+	/**
+	 * The last bytes of a block are always literals, which keeps the match
+	 * search from reading beyond the block.
+	 */
+	private static final int LAST_LITERALS = 5;
+	private static final int MAX_OFFSET = 0xFFFF;
+	private static final int HASH_LOG = 14;
+	/**
+	 * The number of misses after which the search skips ahead faster
+	 */
+	private static final int SKIP_TRIGGER = 6;
+
+	private LZCompressor() {
+	}
+
+	/**
+	 * @return The maximal length of the compressed form of len bytes
+	 */
+	static int maxCompressedLength(final int len) {
+		return len + len / 255 + 16;
+	}
+
+	/**
+	 * Compresses len bytes of src into dst, which has to have
+	 * {@link #maxCompressedLength(int)} bytes.
+	 *
+	 * @return The length of the compressed bytes
+	 */
+	static int compress(final byte[] src, final int len, final byte[] dst) {
+		// The positions plus one, zero marks an empty entry
+		final int[] table = new int[1 << HASH_LOG];
+		final int matchLimit = len - LAST_LITERALS - MIN_MATCH;
+		int anchor = 0, ip = 0, op = 0;
+		int misses = 1 << SKIP_TRIGGER;
+		while (ip < matchLimit) {
+			final int seq = readInt(src, ip);
+			final int h = hash(seq);
+			final int ref = table[h] - 1;
+			table[h] = ip + 1;
+			if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+				ip += misses++ >>> SKIP_TRIGGER;
+				continue;
+			}
+			misses = 1 << SKIP_TRIGGER;
+			int matchLen = MIN_MATCH;
+			while (ip + matchLen < len - LAST_LITERALS && src[ref + matchLen] == src[ip + matchLen]) {
+				matchLen++;
+			}
+			op = writeLiterals(src, anchor, ip - anchor, matchLen - MIN_MATCH, dst, op);
+			dst[op++] = (byte) (ip - ref);
+			dst[op++] = (byte) ((ip - ref) >>> 8);
+			op = writeLength(matchLen - MIN_MATCH, dst, op);
+			ip += matchLen;
+			anchor = ip;
+		}
+		return writeLiterals(src, anchor, len - anchor, 0, dst, op);
+	}
+
+	/**
+	 * Decompresses the len bytes of src into the rawLen bytes of dst.
+	 */
+	static void decompress(final byte[] src, final int len, final byte[] dst, final int rawLen) throws IOException {
+		try {
+			int ip = 0, op = 0;
+			while (true) {
+				final int token = src[ip++] & 0xFF;
+				int litLen = token >>> 4;
+				if (litLen == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						litLen += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, litLen);
+				ip += litLen;
+				op += litLen;
+				if (ip >= len) {
+					break;
+				}
+				final int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+				ip += 2;
+				int matchLen = token & 0xF;
+				if (matchLen == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						matchLen += b;
+					} while (b == 255);
+				}
+				matchLen += MIN_MATCH;
+				final int ref = op - offset;
+				if (offset == 0 || ref < 0 || op + matchLen > rawLen) {
+					throw new IOException("Corrupted block at offset " + ip);
+				}
+				if (offset >= matchLen) {
+					System.arraycopy(dst, ref, dst, op, matchLen);
+				} else {
+					// The match overlaps the bytes it produces
+					for (int i = 0; i < matchLen; i++) {
+						dst[op + i] = dst[ref + i];
+					}
+				}
+				op += matchLen;
+			}
+			if (op != rawLen || ip != len) {
+				throw new IOException("Corrupted block of length " + len);
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Corrupted block of length " + len);
+		}
+	}
+
+	private static int writeLiterals(final byte[] src, final int from, final int litLen, final int matchLen,
+			final byte[] dst, int op) {
+		final int token = (Math.min(litLen, 15) << 4) | Math.min(matchLen, 15);
+		dst[op++] = (byte) token;
+		if (litLen >= 15) {
+			op = writeLength(litLen, dst, op);
+		}
+		System.arraycopy(src, from, dst, op, litLen);
+		return op + litLen;
+	}
+
+	/**
+	 * Writes the part of a length not held by the token, which is nothing if
+	 * the length is less than 15.
+	 */
+	private static int writeLength(int len, final byte[] dst, int op) {
+		if (len < 15) {
+			return op;
+		}
+		len -= 15;
+		while (len >= 255) {
+			dst[op++] = (byte) 255;
+			len -= 255;
+		}
+		dst[op++] = (byte) len;
+		return op;
+	}
+
+	private static int readInt(final byte[] b, final int i) {
+		return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+	}
+
+	private static int hash(final int seq) {
+		return (seq * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
@@ -181,6 +181,15 @@ public final class UniqueString implements Serializable
         return this.tok;
     }
 
+    /**
+     * Assigns the unique number of a string whose number has been deferred
+     * @see InternTable#deferTokens(java.util.Collection)
+     */
+    void setTok(int tok)
+    {
+        this.tok = tok;
+    }
+
     /**
      * Concatenates two unique strings
      */
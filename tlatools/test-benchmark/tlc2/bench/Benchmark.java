@@ -0,0 +1,40 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+/**
+ * A microbenchmark run by the {@link BenchmarkRunner}. The runner calls
+ * {@link #setUp()} once, then {@link #run()} repeatedly during the warmup and
+ * the measured iterations and finally {@link #tearDown()}.
+ */
+public abstract class Benchmark {
+
+	private final String name;
+	/**
+	 * Results of the measured operations are folded into the sink, so that
+	 * the JIT cannot eliminate them as dead code.
+	 */
+	protected long sink;
+
+	protected Benchmark(final String name) {
+		this.name = name;
+	}
+
+	public final String getName() {
+		return this.name;
+	}
+
+	public void setUp() throws Exception {
+		// nop by default
+	}
+
+	/**
+	 * Performs a batch of operations.
+	 *
+	 * @return The number of operations performed
+	 */
+	public abstract long run() throws Exception;
+
+	public void tearDown() throws Exception {
+		// nop by default
+	}
+}
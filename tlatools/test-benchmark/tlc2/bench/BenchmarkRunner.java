@@ -0,0 +1,274 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tlc2.tool.fp.MSBDiskFPSet;
+import tlc2.tool.fp.MemFPSet;
+import tlc2.tool.fp.OffHeapDiskFPSet;
+
+/**
+ * Runs the microbenchmarks of TLC's hot paths and writes their throughput to
+ * a JSON report. Each benchmark is run for a number of warmup iterations,
+ * whose results are dropped, followed by the measured iterations. An
+ * iteration calls {@link Benchmark#run()} until the iteration time is up.
+ * <p>
+ * Given the report of a previous run as a baseline, benchmarks whose
+ * throughput dropped by more than the threshold are reported as regressions
+ * and the runner exits with status 2.
+ * <p>
+ * Usage: BenchmarkRunner [-warmup N] [-iterations N] [-time ms] [-threads N]
+ * [-sample N] [-report file] [-baseline file] [-threshold percent]
+ * [-examples dir] [-spec spec] [name-filter ...]
+ * <p>
+ * Without -spec, the {@link #DEFAULT_SPEC} from the examples directory is
+ * used. TLC keeps the spec in static state, which is why a runner benchmarks
+ * a single spec. Only benchmarks whose name contains one of the filters are
+ * run.
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * The spec (relative to the examples directory) whose states the
+	 * per-state benchmarks use
+	 */
+	static final String DEFAULT_SPEC = "SpecifyingSystems/CachingMemory/MCWriteThroughCache";
+
+	private static final Pattern RESULT = Pattern
+			.compile("\"name\": \"((?:[^\"\\\\]|\\\\.)*)\", \"opsPerSecond\": ([0-9.Ee+-]+)");
+
+	private int warmup = 3;
+	private int iterations = 5;
+	private long time = 1000L;
+	private int threads = 4;
+	private int sample = 5000;
+	private double threshold = 10d;
+	private File report = new File("benchmark-report.json");
+	private File baseline = null;
+	private File examples = new File("examples");
+	private File spec = null;
+	private final List<String> filters = new ArrayList<String>();
+
+	public static void main(final String[] args) throws Exception {
+		final BenchmarkRunner runner = new BenchmarkRunner();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup") && i + 1 < args.length) {
+				runner.warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-iterations") && i + 1 < args.length) {
+				runner.iterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-time") && i + 1 < args.length) {
+				runner.time = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-threads") && i + 1 < args.length) {
+				runner.threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-sample") && i + 1 < args.length) {
+				runner.sample = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-report") && i + 1 < args.length) {
+				runner.report = new File(args[++i]);
+			} else if (args[i].equals("-baseline") && i + 1 < args.length) {
+				runner.baseline = new File(args[++i]);
+			} else if (args[i].equals("-threshold") && i + 1 < args.length) {
+				runner.threshold = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-examples") && i + 1 < args.length) {
+				runner.examples = new File(args[++i]);
+			} else if (args[i].equals("-spec") && i + 1 < args.length) {
+				runner.spec = new File(args[++i]);
+			} else if (args[i].startsWith("-")) {
+				System.err.println("Usage: BenchmarkRunner [-warmup N] [-iterations N] [-time ms] [-threads N] "
+						+ "[-sample N] [-report file] [-baseline file] [-threshold percent] [-examples dir] "
+						+ "[-spec spec] [name-filter ...]");
+				System.exit(1);
+			} else {
+				runner.filters.add(args[i]);
+			}
+		}
+		if (runner.spec == null) {
+			runner.spec = new File(runner.examples, DEFAULT_SPEC);
+		}
+		System.exit(runner.run() ? 0 : 2);
+	}
+
+	private List<Benchmark> getBenchmarks() {
+		final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		benchmarks.add(new FP64Benchmark(false));
+		benchmarks.add(new FP64Benchmark(true));
+		benchmarks.add(new FPSetBenchmark(MSBDiskFPSet.class));
+		benchmarks.add(new FPSetBenchmark(OffHeapDiskFPSet.class));
+		benchmarks.add(new FPSetBenchmark(MemFPSet.class));
+		final SpecFixture fixture = new SpecFixture(this.spec, this.sample);
+		benchmarks.add(SpecBenchmark.fingerPrint(fixture));
+		benchmarks.add(SpecBenchmark.getNextStates(fixture));
+		benchmarks.add(SpecBenchmark.normalize(fixture));
+		benchmarks.add(SpecBenchmark.compareTo(fixture));
+		benchmarks.add(SpecBenchmark.serialize(fixture));
+		benchmarks.add(new StateQueueBenchmark(false, this.threads, fixture));
+		benchmarks.add(new StateQueueBenchmark(true, this.threads, fixture));
+		final List<Benchmark> selected = new ArrayList<Benchmark>();
+		for (int i = 0; i < benchmarks.size(); i++) {
+			final Benchmark b = benchmarks.get(i);
+			boolean match = this.filters.isEmpty();
+			for (int j = 0; j < this.filters.size() && !match; j++) {
+				match = b.getName().contains(this.filters.get(j));
+			}
+			if (match) {
+				selected.add(b);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * @return false iff a regression against the baseline has been found
+	 */
+	private boolean run() throws IOException {
+		final DecimalFormat df = new DecimalFormat("###,###.##");
+		final StringBuffer json = new StringBuffer();
+		json.append("{\n  \"timestamp\": ").append(
+				quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date())));
+		json.append(",\n  \"configuration\": {");
+		json.append("\"java\": ").append(quote(System.getProperty("java.version")));
+		json.append(", \"vm\": ").append(quote(System.getProperty("java.vm.name")));
+		json.append(", \"os\": ").append(quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")));
+		json.append(", \"cores\": ").append(Runtime.getRuntime().availableProcessors());
+		json.append(", \"maxHeap\": ").append(Runtime.getRuntime().maxMemory());
+		json.append(", \"warmup\": ").append(this.warmup);
+		json.append(", \"iterations\": ").append(this.iterations);
+		json.append(", \"iterationMillis\": ").append(this.time);
+		json.append(", \"threads\": ").append(this.threads);
+		json.append(", \"spec\": ").append(quote(this.spec.getPath()));
+		json.append(", \"sample\": ").append(this.sample);
+		json.append("},\n  \"benchmarks\": [");
+
+		final List<Benchmark> benchmarks = getBenchmarks();
+		final Map<String, Double> results = new HashMap<String, Double>();
+		for (int i = 0; i < benchmarks.size(); i++) {
+			final Benchmark b = benchmarks.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"name\": ").append(quote(b.getName()));
+			try {
+				final double[] opsPerSecond = measure(b);
+				double mean = 0d;
+				for (int j = 0; j < opsPerSecond.length; j++) {
+					mean += opsPerSecond[j] / opsPerSecond.length;
+				}
+				double var = 0d;
+				for (int j = 0; j < opsPerSecond.length; j++) {
+					var += (opsPerSecond[j] - mean) * (opsPerSecond[j] - mean) / Math.max(1, opsPerSecond.length - 1);
+				}
+				results.put(b.getName(), mean);
+				System.out.println(b.getName() + ": " + df.format(mean) + " ops/s (+/- " + df.format(Math.sqrt(var))
+						+ ")");
+				json.append(", \"opsPerSecond\": ").append(mean);
+				json.append(", \"stddev\": ").append(Math.sqrt(var));
+				json.append(", \"iterations\": [");
+				for (int j = 0; j < opsPerSecond.length; j++) {
+					json.append(j == 0 ? "" : ", ").append(opsPerSecond[j]);
+				}
+				json.append("]}");
+			} catch (Throwable e) {
+				System.out.println(b.getName() + ": failed with " + e);
+				json.append(", \"error\": ").append(quote(e.toString())).append("}");
+			}
+		}
+		json.append("\n  ]\n}\n");
+
+		final Writer out = new FileWriter(this.report);
+		try {
+			out.write(json.toString());
+		} finally {
+			out.close();
+		}
+		System.out.println("Report written to " + this.report.getAbsolutePath());
+
+		return this.baseline == null || compare(results);
+	}
+
+	private double[] measure(final Benchmark b) throws Exception {
+		final double[] opsPerSecond = new double[this.iterations];
+		b.setUp();
+		try {
+			for (int i = -this.warmup; i < this.iterations; i++) {
+				long ops = 0L;
+				final long start = System.nanoTime();
+				final long end = start + this.time * 1000000L;
+				long now;
+				do {
+					ops += b.run();
+					now = System.nanoTime();
+				} while (now < end);
+				if (i >= 0) {
+					opsPerSecond[i] = ops * 1e9d / (now - start);
+				}
+			}
+		} finally {
+			b.tearDown();
+		}
+		return opsPerSecond;
+	}
+
+	/**
+	 * @return false iff a benchmark's throughput dropped by more than the
+	 *         threshold compared to the baseline
+	 */
+	private boolean compare(final Map<String, Double> results) throws IOException {
+		final StringBuffer buf = new StringBuffer();
+		final BufferedReader in = new BufferedReader(new FileReader(this.baseline));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				buf.append(line).append('\n');
+			}
+		} finally {
+			in.close();
+		}
+		boolean ok = true;
+		final DecimalFormat df = new DecimalFormat("###,###.##");
+		final Matcher m = RESULT.matcher(buf);
+		while (m.find()) {
+			final String name = m.group(1).replace("\\\"", "\"").replace("\\\\", "\\");
+			final Double result = results.get(name);
+			if (result != null) {
+				final double base = Double.parseDouble(m.group(2));
+				final double change = (result.doubleValue() - base) * 100d / base;
+				if (change < -this.threshold) {
+					ok = false;
+					System.out.println("Regression: " + name + " dropped from " + df.format(base) + " to "
+							+ df.format(result.doubleValue()) + " ops/s (" + df.format(change) + "%)");
+				}
+			}
+		}
+		System.out.println(ok ? "No regression against " + this.baseline : "Regressions against " + this.baseline);
+		return ok;
+	}
+
+	static String quote(final String s) {
+		if (s == null) {
+			return "null";
+		}
+		final StringBuffer buf = new StringBuffer("\"");
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			} else if (c < 0x20) {
+				buf.append(String.format("\\u%04x", (int) c));
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+}
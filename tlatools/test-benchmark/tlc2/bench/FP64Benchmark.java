@@ -0,0 +1,56 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.util.Random;
+
+import tlc2.util.FP64;
+
+/**
+ * Extends fingerprints by longs resp. strings, which is what fingerprinting
+ * a state boils down to.
+ */
+public class FP64Benchmark extends Benchmark {
+
+	private static final int BATCH = 1 << 16;
+
+	private final boolean strings;
+	private long[] longs;
+	private String[] strs;
+
+	public FP64Benchmark(final boolean strings) {
+		super(strings ? "FP64.Extend(String)" : "FP64.Extend(long)");
+		this.strings = strings;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#setUp()
+	 */
+	public void setUp() {
+		FP64.Init(0);
+		final Random rnd = new Random(15041980L);
+		this.longs = new long[BATCH];
+		this.strs = new String[BATCH];
+		for (int i = 0; i < BATCH; i++) {
+			this.longs[i] = rnd.nextLong();
+			this.strs[i] = "s" + rnd.nextInt(1 << 20);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#run()
+	 */
+	public long run() {
+		long fp = this.sink;
+		if (this.strings) {
+			for (int i = 0; i < BATCH; i++) {
+				fp = FP64.Extend(fp, this.strs[i]);
+			}
+		} else {
+			for (int i = 0; i < BATCH; i++) {
+				fp = FP64.Extend(fp, this.longs[i]);
+			}
+		}
+		this.sink = fp;
+		return BATCH;
+	}
+}
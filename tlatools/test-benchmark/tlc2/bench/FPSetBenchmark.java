@@ -0,0 +1,78 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.Random;
+
+import tlc2.tool.fp.FPSet;
+import tlc2.tool.fp.FPSetConfiguration;
+
+/**
+ * Puts random fingerprints into an {@link FPSet}, half of which are in the
+ * set already. The set thus keeps growing over the iterations, like it does
+ * during model checking.
+ */
+public class FPSetBenchmark extends Benchmark {
+
+	private static final int BATCH = 1 << 16;
+
+	private final Class<? extends FPSet> clazz;
+	private FPSet fpSet;
+	private File metadir;
+	private Random rnd;
+	private long[] fps;
+
+	public FPSetBenchmark(final Class<? extends FPSet> clazz) {
+		super("FPSet.put(" + clazz.getSimpleName() + ")");
+		this.clazz = clazz;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#setUp()
+	 */
+	public void setUp() throws Exception {
+		this.metadir = File.createTempFile("fpset", null);
+		this.metadir.delete();
+		this.metadir.mkdirs();
+		// The disk-based sets hide their constructors behind FPSetFactory
+		final Constructor<? extends FPSet> ctor = this.clazz
+				.getDeclaredConstructor(new Class[] { FPSetConfiguration.class });
+		ctor.setAccessible(true);
+		this.fpSet = ctor.newInstance(new Object[] { new FPSetConfiguration() });
+		this.fpSet.init(1, this.metadir.getAbsolutePath(), "bench");
+		this.rnd = new Random(15041980L);
+		this.fps = new long[BATCH];
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#run()
+	 */
+	public long run() throws Exception {
+		for (int i = 0; i < BATCH; i += 2) {
+			// A new fingerprint and one seen in this batch before
+			this.fps[i] = this.rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL;
+			this.fps[i + 1] = this.fps[i >>> 1];
+		}
+		long seen = 0L;
+		for (int i = 0; i < BATCH; i++) {
+			if (this.fpSet.put(this.fps[i])) {
+				seen++;
+			}
+		}
+		this.sink += seen;
+		return BATCH;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#tearDown()
+	 */
+	public void tearDown() throws Exception {
+		this.fpSet.close();
+		final File[] files = this.metadir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		this.metadir.delete();
+	}
+}
@@ -0,0 +1,447 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.fp.FPSetFactory;
+
+/**
+ * Runs complete model checks of example specs with {@link tlc2.TLC} for
+ * several numbers of workers and {@link tlc2.tool.fp.FPSet} implementations
+ * and reports the throughput, the time spent in each phase of a run and the
+ * memory and I/O of the process.
+ * <p>
+ * Each run forks a JVM, because TLC keeps its state in static fields. The
+ * forked JVM runs TLC in tool mode, whose output is framed by message codes
+ * (see {@link MP}). The phases (parsing, computing the initial states, the
+ * breadth-first search, liveness checking and the reconstruction of error
+ * traces) are delimited by the arrival of those messages. Memory and I/O are
+ * sampled in the forked JVM by the {@link TLCProbe}.
+ * <p>
+ * Usage: ModelCheckBenchmark [-workers 1,2,4] [-fpsets MSBDiskFPSet,...]
+ * [-jvmargs "-Xmx2g ..."] [-timeout s] [-report file] [-examples dir]
+ * [-spec spec]*
+ * <p>
+ * Without -spec, the {@link #DEFAULT_SPECS} from the examples directory are
+ * checked. Without -workers, powers of two up to the number of cores are used.
+ */
+public class ModelCheckBenchmark {
+
+	/**
+	 * Curated specs relative to the examples directory and what they cover.
+	 * Larger specs can be given with -spec.
+	 */
+	static final String[][] DEFAULT_SPECS = new String[][] {
+		{ "DieHard/DieHard", "small, invariant violation" },
+		{ "SpecifyingSystems/RealTime/MCRealTimeHourClock", "small, liveness violation" },
+		{ "allocator/SimpleAllocator", "small, symmetry, liveness" },
+		{ "SpecifyingSystems/CachingMemory/MCWriteThroughCache", "medium, safety" },
+		{ "SpecifyingSystems/Liveness/MCLiveWriteThroughCache", "medium, liveness" },
+		{ "allocator/SchedulingAllocator", "medium, symmetry, liveness" },
+		{ "allocator/AllocatorImplementation", "large, liveness" }
+	};
+
+	private static final Pattern STARTMSG = Pattern.compile(Pattern.quote(MP.DELIM + MP.STARTMSG)
+			+ "(\\d+):(\\d+)");
+	private static final Pattern ENDMSG = Pattern.compile(Pattern.quote(MP.DELIM + MP.ENDMSG));
+	private static final Pattern STATS = Pattern
+			.compile("([\\d,]+) states generated, ([\\d,]+) distinct states found");
+	private static final Pattern DEPTH = Pattern.compile("search is ([\\d,]+)");
+
+	private int[] workers;
+	private String[] fpsets = new String[] { "MSBDiskFPSet", "OffHeapDiskFPSet" };
+	private String[] jvmArgs = new String[0];
+	private long timeout = 1800L;
+	private File report = new File("modelcheck-report.json");
+	private File examples = new File("examples");
+	private final List<File> specs = new ArrayList<File>();
+
+	public static void main(final String[] args) throws Exception {
+		final ModelCheckBenchmark bench = new ModelCheckBenchmark();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-workers") && i + 1 < args.length) {
+				final String[] ws = args[++i].split(",");
+				bench.workers = new int[ws.length];
+				for (int j = 0; j < ws.length; j++) {
+					bench.workers[j] = Integer.parseInt(ws[j].trim());
+				}
+			} else if (args[i].equals("-fpsets") && i + 1 < args.length) {
+				bench.fpsets = args[++i].split(",");
+			} else if (args[i].equals("-jvmargs") && i + 1 < args.length) {
+				bench.jvmArgs = args[++i].trim().split("\\s+");
+			} else if (args[i].equals("-timeout") && i + 1 < args.length) {
+				bench.timeout = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-report") && i + 1 < args.length) {
+				bench.report = new File(args[++i]);
+			} else if (args[i].equals("-examples") && i + 1 < args.length) {
+				bench.examples = new File(args[++i]);
+			} else if (args[i].equals("-spec") && i + 1 < args.length) {
+				bench.specs.add(new File(args[++i]));
+			} else {
+				System.err.println("Usage: ModelCheckBenchmark [-workers 1,2,4] [-fpsets MSBDiskFPSet,...] "
+						+ "[-jvmargs \"-Xmx2g ...\"] [-timeout s] [-report file] [-examples dir] [-spec spec]*");
+				System.exit(1);
+			}
+		}
+		if (bench.workers == null) {
+			final List<Integer> ws = new ArrayList<Integer>();
+			for (int w = 1; w <= Runtime.getRuntime().availableProcessors(); w <<= 1) {
+				ws.add(w);
+			}
+			bench.workers = new int[ws.size()];
+			for (int i = 0; i < bench.workers.length; i++) {
+				bench.workers[i] = ws.get(i);
+			}
+		}
+		if (bench.specs.isEmpty()) {
+			for (int i = 0; i < DEFAULT_SPECS.length; i++) {
+				bench.specs.add(new File(bench.examples, DEFAULT_SPECS[i][0]));
+			}
+		}
+		bench.run();
+	}
+
+	/**
+	 * The measurements of a single model check
+	 */
+	static final class Run {
+		final String spec;
+		final String fpset;
+		final int workers;
+
+		int exitValue = -1;
+		String error = null;
+		long generated = -1L;
+		long distinct = -1L;
+		long depth = -1L;
+
+		// Nanoseconds since the JVM has been forked
+		long total;
+		long startup;
+		long parse;
+		long init;
+		long bfs;
+		long liveness;
+		long trace;
+
+		final Properties probe = new Properties();
+
+		Run(final String spec, final String fpset, final int workers) {
+			this.spec = spec;
+			this.fpset = fpset;
+			this.workers = workers;
+		}
+
+		double perSecond(final long states) {
+			return this.bfs > 0 ? states * 1e9d / this.bfs : 0d;
+		}
+
+		long getProbe(final String key) {
+			return Long.parseLong(this.probe.getProperty(key, "-1"));
+		}
+	}
+
+	private void run() throws IOException, InterruptedException {
+		final List<Run> runs = new ArrayList<Run>();
+		for (int i = 0; i < this.specs.size(); i++) {
+			for (int j = 0; j < this.fpsets.length; j++) {
+				final String fpset = this.fpsets[j].indexOf('.') < 0 ? "tlc2.tool.fp." + this.fpsets[j]
+						: this.fpsets[j];
+				for (int k = 0; k < this.workers.length; k++) {
+					final Run run = check(this.specs.get(i), fpset, this.workers[k]);
+					runs.add(run);
+					print(run, runs);
+				}
+			}
+		}
+		write(runs);
+	}
+
+	private Run check(final File spec, final String fpset, final int workers) throws IOException,
+			InterruptedException {
+		final Run run = new Run(spec.getName(), fpset.substring(fpset.lastIndexOf('.') + 1), workers);
+
+		final File metadir = File.createTempFile("modelcheck", null);
+		metadir.delete();
+		metadir.mkdirs();
+		final File probe = new File(metadir, "probe.properties");
+
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		for (int i = 0; i < this.jvmArgs.length; i++) {
+			if (this.jvmArgs[i].length() > 0) {
+				cmd.add(this.jvmArgs[i]);
+			}
+		}
+		cmd.add("-D" + FPSetFactory.IMPL_PROPERTY + "=" + fpset);
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(TLCProbe.class.getName());
+		cmd.add(probe.getAbsolutePath());
+		cmd.add("-tool");
+		cmd.add("-workers");
+		cmd.add(Integer.toString(workers));
+		cmd.add("-metadir");
+		cmd.add(new File(metadir, "states").getAbsolutePath());
+		cmd.add(spec.getName());
+
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(spec.getAbsoluteFile().getParentFile());
+		pb.redirectErrorStream(true);
+
+		final long start = System.nanoTime();
+		final Process process = pb.start();
+		final Thread watchdog = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(timeout * 1000L);
+					process.destroy();
+				} catch (InterruptedException e) {
+					// process terminated in time
+				}
+			}
+		};
+		watchdog.setDaemon(true);
+		watchdog.start();
+
+		try {
+			parse(run, process.getInputStream(), start);
+			run.exitValue = process.waitFor();
+			run.total = System.nanoTime() - start;
+		} finally {
+			watchdog.interrupt();
+		}
+		if (run.total >= this.timeout * 1000000000L) {
+			run.error = "timeout after " + this.timeout + "s";
+		}
+
+		if (probe.exists()) {
+			final InputStream in = new FileInputStream(probe);
+			try {
+				run.probe.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		delete(metadir);
+		return run;
+	}
+
+	/**
+	 * Splits the run into its phases by the time at which TLC's messages
+	 * arrive.
+	 */
+	private static void parse(final Run run, final InputStream stream, final long start) throws IOException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(stream));
+
+		long sanyStart = -1L, sanyEnd = -1L, initStart = -1L, initEnd = -1L, searchEnd = -1L;
+		long traceStart = -1L, traceEnd = -1L, livenessStart = -1L, liveness = 0L, livenessInSearch = 0L;
+		int code = -1;
+		final StringBuffer body = new StringBuffer();
+
+		String line;
+		while ((line = in.readLine()) != null) {
+			final long now = System.nanoTime() - start;
+			final Matcher m = STARTMSG.matcher(line);
+			if (m.find()) {
+				if (run.startup == 0L) {
+					run.startup = now;
+				}
+				// A liveness check lasts until TLC reports anything else
+				if (livenessStart >= 0L) {
+					liveness += now - livenessStart;
+					if (searchEnd < 0L) {
+						livenessInSearch += now - livenessStart;
+					}
+					livenessStart = -1L;
+				}
+				code = Integer.parseInt(m.group(1));
+				final int clazz = Integer.parseInt(m.group(2));
+				body.setLength(0);
+
+				if (code == EC.TLC_SANY_START) {
+					sanyStart = now;
+				} else if (code == EC.TLC_SANY_END) {
+					sanyEnd = now;
+				} else if (code == EC.TLC_COMPUTING_INIT) {
+					initStart = now;
+				} else if (code == EC.TLC_INIT_GENERATED1 || code == EC.TLC_INIT_GENERATED2
+						|| code == EC.TLC_INIT_GENERATED3 || code == EC.TLC_INIT_GENERATED4) {
+					initEnd = now;
+				} else if (code == EC.TLC_CHECKING_TEMPORAL_PROPS) {
+					livenessStart = now;
+				} else if (code == EC.TLC_SUCCESS || code == EC.TLC_STATS) {
+					if (searchEnd < 0L) {
+						searchEnd = now;
+					}
+					if (code == EC.TLC_STATS && traceStart >= 0L && traceEnd < 0L) {
+						traceEnd = now;
+					}
+				} else if (clazz == MP.ERROR) {
+					if (searchEnd < 0L) {
+						searchEnd = now;
+					}
+					if (traceStart < 0L) {
+						traceStart = now;
+					}
+					if (run.error == null) {
+						run.error = "error " + code;
+					}
+				}
+			} else if (ENDMSG.matcher(line).find()) {
+				final Matcher stats = STATS.matcher(body);
+				if (code == EC.TLC_STATS && stats.find()) {
+					run.generated = Long.parseLong(stats.group(1).replace(",", ""));
+					run.distinct = Long.parseLong(stats.group(2).replace(",", ""));
+				}
+				final Matcher depth = DEPTH.matcher(body);
+				if (code == EC.TLC_SEARCH_DEPTH && depth.find()) {
+					run.depth = Long.parseLong(depth.group(1).replace(",", ""));
+				}
+				// Only the final liveness check of the complete state space
+				// follows the search
+				if (code == EC.TLC_CHECKING_TEMPORAL_PROPS && body.indexOf("complete") >= 0 && searchEnd < 0L) {
+					searchEnd = livenessStart;
+					livenessInSearch = liveness;
+				}
+			} else {
+				body.append(line).append('\n');
+			}
+		}
+
+		if (sanyStart >= 0L && sanyEnd >= 0L) {
+			run.parse = sanyEnd - sanyStart;
+		}
+		if (initStart >= 0L && initEnd >= 0L) {
+			run.init = initEnd - initStart;
+		}
+		if (initEnd >= 0L && searchEnd >= 0L) {
+			// The periodic liveness checks interrupt the search
+			run.bfs = searchEnd - initEnd - livenessInSearch;
+		}
+		run.liveness = liveness;
+		if (traceStart >= 0L && traceEnd >= 0L) {
+			run.trace = traceEnd - traceStart;
+		}
+	}
+
+	private static void print(final Run run, final List<Run> runs) {
+		final DecimalFormat df = new DecimalFormat("###,###.##");
+		// Speedup relative to the run with the fewest workers
+		Run base = null;
+		for (int i = 0; i < runs.size(); i++) {
+			final Run r = runs.get(i);
+			if (r.spec.equals(run.spec) && r.fpset.equals(run.fpset) && (base == null || r.workers < base.workers)) {
+				base = r;
+			}
+		}
+		final StringBuffer buf = new StringBuffer();
+		buf.append(run.spec).append(" ").append(run.fpset).append(" ").append(run.workers).append(" worker(s): ");
+		buf.append(df.format(run.perSecond(run.distinct))).append(" distinct/s, ");
+		buf.append(df.format(run.perSecond(run.generated))).append(" generated/s");
+		if (base != null && base != run && base.bfs > 0 && run.bfs > 0) {
+			buf.append(" (speedup ").append(df.format((double) base.bfs / run.bfs)).append(")");
+		}
+		buf.append(", parse ").append(millis(run.parse));
+		buf.append(", init ").append(millis(run.init));
+		buf.append(", bfs ").append(millis(run.bfs));
+		buf.append(", liveness ").append(millis(run.liveness));
+		buf.append(", trace ").append(millis(run.trace));
+		buf.append(", total ").append(millis(run.total));
+		buf.append(", heap ").append(run.getProbe("heapPeak") >> 20).append("MB");
+		buf.append(", rss ").append(run.getProbe("rssPeak") >> 20).append("MB");
+		if (run.error != null) {
+			buf.append(" [").append(run.error).append("]");
+		}
+		System.out.println(buf);
+	}
+
+	private static String millis(final long nanos) {
+		return (nanos / 1000000L) + "ms";
+	}
+
+	private void write(final List<Run> runs) throws IOException {
+		final StringBuffer json = new StringBuffer();
+		json.append("{\n  \"timestamp\": ").append(
+				BenchmarkRunner.quote(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date())));
+		json.append(",\n  \"configuration\": {");
+		json.append("\"java\": ").append(BenchmarkRunner.quote(System.getProperty("java.version")));
+		json.append(", \"os\": ").append(
+				BenchmarkRunner.quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")));
+		json.append(", \"cores\": ").append(Runtime.getRuntime().availableProcessors());
+		final StringBuffer jvmArgs = new StringBuffer();
+		for (int i = 0; i < this.jvmArgs.length; i++) {
+			jvmArgs.append(i == 0 ? "" : " ").append(this.jvmArgs[i]);
+		}
+		json.append(", \"jvmArgs\": ").append(BenchmarkRunner.quote(jvmArgs.toString()));
+		json.append("},\n  \"runs\": [");
+		for (int i = 0; i < runs.size(); i++) {
+			final Run run = runs.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    {\"spec\": ").append(BenchmarkRunner.quote(run.spec));
+			json.append(", \"fpset\": ").append(BenchmarkRunner.quote(run.fpset));
+			json.append(", \"workers\": ").append(run.workers);
+			json.append(", \"exitValue\": ").append(run.exitValue);
+			json.append(", \"error\": ").append(BenchmarkRunner.quote(run.error));
+			json.append(", \"generated\": ").append(run.generated);
+			json.append(", \"distinct\": ").append(run.distinct);
+			json.append(", \"depth\": ").append(run.depth);
+			json.append(", \"generatedPerSecond\": ").append(run.perSecond(run.generated));
+			json.append(", \"distinctPerSecond\": ").append(run.perSecond(run.distinct));
+			json.append(",\n      \"phasesMillis\": {");
+			json.append("\"startup\": ").append(run.startup / 1000000L);
+			json.append(", \"parse\": ").append(run.parse / 1000000L);
+			json.append(", \"init\": ").append(run.init / 1000000L);
+			json.append(", \"bfs\": ").append(run.bfs / 1000000L);
+			json.append(", \"liveness\": ").append(run.liveness / 1000000L);
+			json.append(", \"trace\": ").append(run.trace / 1000000L);
+			json.append(", \"total\": ").append(run.total / 1000000L);
+			json.append("},\n      \"memory\": {");
+			json.append("\"heapPeak\": ").append(run.getProbe("heapPeak"));
+			json.append(", \"directPeak\": ").append(run.getProbe("directPeak"));
+			json.append(", \"mappedPeak\": ").append(run.getProbe("mappedPeak"));
+			json.append(", \"rssPeak\": ").append(run.getProbe("rssPeak"));
+			json.append(", \"gcMillis\": ").append(run.getProbe("gcMillis"));
+			json.append("},\n      \"io\": {");
+			json.append("\"read\": ").append(run.getProbe("ioRead"));
+			json.append(", \"write\": ").append(run.getProbe("ioWrite"));
+			json.append(", \"diskRead\": ").append(run.getProbe("diskRead"));
+			json.append(", \"diskWrite\": ").append(run.getProbe("diskWrite"));
+			json.append("}}");
+		}
+		json.append("\n  ]\n}\n");
+
+		final Writer out = new FileWriter(this.report);
+		try {
+			out.write(json.toString());
+		} finally {
+			out.close();
+		}
+		System.out.println("Report written to " + this.report.getAbsolutePath());
+	}
+
+	private static void delete(final File file) {
+		final File[] files = file.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			delete(files[i]);
+		}
+		file.delete();
+	}
+}
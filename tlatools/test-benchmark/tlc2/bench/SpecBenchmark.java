@@ -0,0 +1,172 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import tla2sany.semantic.OpDeclNode;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.value.SetEnumValue;
+import tlc2.value.Value;
+import tlc2.value.ValueOutputStream;
+
+/**
+ * Benchmarks of the per-state hot paths of TLC over the sample of a
+ * {@link SpecFixture}. An operation is the work done for a single state.
+ */
+public abstract class SpecBenchmark extends Benchmark {
+
+	protected final SpecFixture fixture;
+	protected final TLCState[] states;
+
+	protected SpecBenchmark(final String name, final SpecFixture fixture) {
+		super(name + "(" + fixture.getName() + ")");
+		this.fixture = fixture;
+		this.states = fixture.getStates();
+	}
+
+	/**
+	 * @return The values of the variables of the given state
+	 */
+	protected final Value[] getValues(final TLCState state) {
+		final OpDeclNode[] vars = this.fixture.getTool().variablesNodes;
+		final Value[] vals = new Value[vars.length];
+		for (int i = 0; i < vars.length; i++) {
+			vals[i] = state.lookup(vars[i].getName());
+		}
+		return vals;
+	}
+
+	/**
+	 * Fingerprints each state of the sample
+	 */
+	public static SpecBenchmark fingerPrint(final SpecFixture fixture) {
+		return new SpecBenchmark("TLCState.fingerPrint", fixture) {
+			public long run() {
+				long fp = 0L;
+				for (int i = 0; i < this.states.length; i++) {
+					fp ^= this.states[i].fingerPrint();
+				}
+				this.sink += fp;
+				return this.states.length;
+			}
+		};
+	}
+
+	/**
+	 * Generates the successors of each state of the sample for all actions
+	 */
+	public static SpecBenchmark getNextStates(final SpecFixture fixture) {
+		return new SpecBenchmark("Tool.getNextStates", fixture) {
+			public long run() {
+				long succs = 0L;
+				for (int i = 0; i < this.states.length; i++) {
+					for (int j = 0; j < this.fixture.getActions().length; j++) {
+						final StateVec nss = this.fixture.getTool().getNextStates(this.fixture.getActions()[j],
+								this.states[i]);
+						succs += nss.size();
+					}
+				}
+				this.sink += succs;
+				return this.states.length;
+			}
+		};
+	}
+
+	/**
+	 * Normalizes (unnormalized) sets of the values a variable takes in
+	 * consecutive states of the sample. The values of a variable are
+	 * comparable whereas the values of different variables need not be.
+	 */
+	public static SpecBenchmark normalize(final SpecFixture fixture) {
+		return new SpecBenchmark("Value.normalize", fixture) {
+			private static final int WINDOW = 16;
+			private Value[][] values;
+
+			public void setUp() {
+				this.values = new Value[this.states.length][];
+				for (int i = 0; i < this.states.length; i++) {
+					this.values[i] = this.getValues(this.states[i]);
+				}
+			}
+
+			public long run() {
+				long ops = 0L;
+				for (int i = WINDOW; i <= this.values.length; i += WINDOW) {
+					for (int j = 0; j < this.values[i - 1].length; j++) {
+						// Reverse order to give the sort some work
+						final Value[] elems = new Value[WINDOW];
+						for (int k = 0; k < WINDOW; k++) {
+							elems[k] = this.values[i - 1 - k][j];
+						}
+						final SetEnumValue set = new SetEnumValue(elems, false);
+						set.normalize();
+						this.sink += set.size();
+					}
+					ops += WINDOW;
+				}
+				return ops;
+			}
+		};
+	}
+
+	/**
+	 * Compares the variable values of each state to the ones of the next
+	 * state in the sample
+	 */
+	public static SpecBenchmark compareTo(final SpecFixture fixture) {
+		return new SpecBenchmark("Value.compareTo", fixture) {
+			private Value[][] values;
+
+			public void setUp() {
+				this.values = new Value[this.states.length][];
+				for (int i = 0; i < this.states.length; i++) {
+					this.values[i] = this.getValues(this.states[i]);
+				}
+			}
+
+			public long run() {
+				long cmp = 0L;
+				for (int i = 1; i < this.values.length; i++) {
+					for (int j = 0; j < this.values[i].length; j++) {
+						cmp += this.values[i][j].compareTo(this.values[i - 1][j]);
+					}
+				}
+				this.sink += cmp;
+				return this.values.length - 1;
+			}
+		};
+	}
+
+	/**
+	 * Serializes the states of the sample with a {@link ValueOutputStream},
+	 * which is what the disk-based state queues do
+	 */
+	public static SpecBenchmark serialize(final SpecFixture fixture) {
+		return new SpecBenchmark("ValueOutputStream.write", fixture) {
+			public long run() throws IOException {
+				final CountingOutputStream out = new CountingOutputStream();
+				final ValueOutputStream vos = new ValueOutputStream(out);
+				for (int i = 0; i < this.states.length; i++) {
+					this.states[i].write(vos);
+				}
+				vos.close();
+				this.sink += out.count;
+				return this.states.length;
+			}
+		};
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+		private long count;
+
+		public void write(final int b) {
+			this.count++;
+		}
+
+		public void write(final byte[] b, final int off, final int len) {
+			this.count += len;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import tlc2.tool.Action;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.Tool;
+import tlc2.util.FP64;
+import util.SimpleFilenameToStream;
+import util.ToolIO;
+
+/**
+ * A spec and a sample of its reachable states, which the benchmarks of TLC's
+ * per-state hot paths share. The sample is the prefix of a breadth-first
+ * search of the state space.
+ */
+public class SpecFixture {
+
+	private final String name;
+	private final Tool tool;
+	private final Action[] actions;
+	private final TLCState[] states;
+
+	/**
+	 * @param spec
+	 *            The path of the spec without the .tla extension. Its config
+	 *            file has the same name.
+	 * @param sampleSize
+	 *            The maximal number of states sampled
+	 */
+	public SpecFixture(final File spec, final int sampleSize) {
+		this.name = spec.getName();
+		final String specDir = spec.getAbsoluteFile().getParent() + File.separator;
+		FP64.Init(0);
+		// Modules are resolved relative to the user directory
+		ToolIO.setUserDir(specDir);
+		this.tool = new Tool(specDir, this.name, this.name, new SimpleFilenameToStream());
+		this.tool.init(true, null);
+		this.actions = this.tool.getActions();
+
+		final List<TLCState> sample = new ArrayList<TLCState>();
+		final Set<Long> seen = new HashSet<Long>();
+		final StateVec inits = this.tool.getInitStates();
+		for (int i = 0; i < inits.size() && sample.size() < sampleSize; i++) {
+			if (seen.add(inits.elementAt(i).fingerPrint())) {
+				sample.add(inits.elementAt(i));
+			}
+		}
+		for (int next = 0; next < sample.size() && sample.size() < sampleSize; next++) {
+			final TLCState state = sample.get(next);
+			for (int i = 0; i < this.actions.length; i++) {
+				final StateVec succs = this.tool.getNextStates(this.actions[i], state);
+				for (int j = 0; j < succs.size() && sample.size() < sampleSize; j++) {
+					final TLCState succ = succs.elementAt(j);
+					if (this.tool.isInModel(succ) && seen.add(succ.fingerPrint())) {
+						sample.add(succ);
+					}
+				}
+			}
+		}
+		this.states = sample.toArray(new TLCState[sample.size()]);
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public Tool getTool() {
+		return this.tool;
+	}
+
+	public Action[] getActions() {
+		return this.actions;
+	}
+
+	public TLCState[] getStates() {
+		return this.states;
+	}
+}
@@ -0,0 +1,90 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.File;
+
+import tlc2.TLCGlobals;
+import tlc2.tool.TLCState;
+import tlc2.tool.queue.DiskStateQueue;
+import tlc2.tool.queue.StateQueue;
+import tlc2.tool.queue.StripedDiskStateQueue;
+
+/**
+ * Enqueues and dequeues the states of a {@link SpecFixture} from several
+ * threads at once, which contend for the queue like the workers of TLC do.
+ * An operation is an enqueue or a dequeue.
+ */
+public class StateQueueBenchmark extends Benchmark {
+
+	private static final int BATCH = 1 << 12;
+
+	private final boolean striped;
+	private final int threads;
+	private final TLCState[] states;
+	private File diskdir;
+	private StateQueue queue;
+
+	public StateQueueBenchmark(final boolean striped, final int threads, final SpecFixture fixture) {
+		super((striped ? "StripedDiskStateQueue" : "DiskStateQueue") + ".sEnqueue/sDequeue(" + threads
+				+ " threads, " + fixture.getName() + ")");
+		this.striped = striped;
+		this.threads = threads;
+		this.states = fixture.getStates();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#setUp()
+	 */
+	public void setUp() throws Exception {
+		// The queue considers itself done once all workers wait for it
+		TLCGlobals.setNumWorkers(this.threads);
+		this.diskdir = File.createTempFile("queue", null);
+		this.diskdir.delete();
+		this.diskdir.mkdirs();
+		this.queue = this.striped ? new StripedDiskStateQueue(this.diskdir.getAbsolutePath(), this.threads)
+				: new DiskStateQueue(this.diskdir.getAbsolutePath());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#run()
+	 */
+	public long run() throws Exception {
+		final Thread[] ts = new Thread[this.threads];
+		final long[] dequeued = new long[this.threads];
+		for (int i = 0; i < ts.length; i++) {
+			final int id = i;
+			ts[i] = new Thread() {
+				public void run() {
+					// Enqueuing all states before dequeuing guarantees that
+					// no thread waits for a state forever
+					for (int j = 0; j < BATCH; j++) {
+						queue.sEnqueue(states[(id + j) % states.length]);
+					}
+					for (int j = 0; j < BATCH; j++) {
+						if (queue.sDequeue() != null) {
+							dequeued[id]++;
+						}
+					}
+				}
+			};
+			ts[i].start();
+		}
+		for (int i = 0; i < ts.length; i++) {
+			ts[i].join();
+			this.sink += dequeued[i];
+		}
+		return 2L * BATCH * this.threads;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.bench.Benchmark#tearDown()
+	 */
+	public void tearDown() throws Exception {
+		this.queue.finishAll();
+		final File[] files = this.diskdir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		this.diskdir.delete();
+	}
+}
@@ -0,0 +1,148 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import tlc2.TLC;
+
+/**
+ * Runs {@link TLC} in the JVM forked by the {@link ModelCheckBenchmark} and
+ * samples the JVM's memory usage meanwhile. When TLC exits, the peaks and the
+ * process' I/O counters are written to the file given as the first argument.
+ * The remaining arguments are passed to TLC.
+ * <p>
+ * Off-heap memory allocated with sun.misc.Unsafe (e.g. by the
+ * OffHeapDiskFPSet) is not accounted for by the JVM's buffer pools. It only
+ * shows in the resident set size, which is read from /proc on Linux.
+ */
+public class TLCProbe {
+
+	private static final long INTERVAL = 50L;
+
+	private static volatile long heapPeak = 0L;
+	private static volatile long directPeak = 0L;
+	private static volatile long mappedPeak = 0L;
+
+	public static void main(final String[] args) throws Exception {
+		final File out = new File(args[0]);
+		final String[] tlcArgs = new String[args.length - 1];
+		System.arraycopy(args, 1, tlcArgs, 0, tlcArgs.length);
+
+		final Thread sampler = new Thread("TLCProbe") {
+			public void run() {
+				while (true) {
+					sample();
+					try {
+						Thread.sleep(INTERVAL);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		sampler.setDaemon(true);
+		sampler.start();
+
+		// TLC terminates with System.exit
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				sample();
+				try {
+					write(out);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+
+		TLC.main(tlcArgs);
+	}
+
+	private static void sample() {
+		heapPeak = Math.max(heapPeak, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		directPeak = Math.max(directPeak, getBufferPoolUsage("direct"));
+		mappedPeak = Math.max(mappedPeak, getBufferPoolUsage("mapped"));
+	}
+
+	/**
+	 * @return The memory used by the given buffer pool or 0 if the JVM does not
+	 *         expose it. The pools are looked up by name because their MXBean
+	 *         has only been introduced with Java 7.
+	 */
+	private static long getBufferPoolUsage(final String pool) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final Object used = server.getAttribute(new ObjectName("java.nio:type=BufferPool,name=" + pool),
+					"MemoryUsed");
+			return ((Number) used).longValue();
+		} catch (Exception e) {
+			return 0L;
+		}
+	}
+
+	private static void write(final File file) throws IOException {
+		final Properties props = new Properties();
+		props.setProperty("heapPeak", Long.toString(heapPeak));
+		props.setProperty("directPeak", Long.toString(directPeak));
+		props.setProperty("mappedPeak", Long.toString(mappedPeak));
+		long gcMillis = 0L;
+		final List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+		for (int i = 0; i < gcs.size(); i++) {
+			gcMillis += Math.max(0L, gcs.get(i).getCollectionTime());
+		}
+		props.setProperty("gcMillis", Long.toString(gcMillis));
+		// Linux only
+		readProc("/proc/self/status", "VmHWM", "rssPeak", 1024L, props);
+		readProc("/proc/self/io", "rchar", "ioRead", 1L, props);
+		readProc("/proc/self/io", "wchar", "ioWrite", 1L, props);
+		readProc("/proc/self/io", "read_bytes", "diskRead", 1L, props);
+		readProc("/proc/self/io", "write_bytes", "diskWrite", 1L, props);
+
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			props.store(out, TLCProbe.class.getName());
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void readProc(final String path, final String key, final String prop,
+			final long unit, final Properties props) {
+		final File file = new File(path);
+		if (!file.canRead()) {
+			return;
+		}
+		try {
+			final BufferedReader in = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					if (line.startsWith(key + ":")) {
+						// e.g. "VmHWM:	  123456 kB"
+						final String value = line.substring(key.length() + 1).trim().split("\\s+")[0];
+						props.setProperty(prop, Long.toString(Long.parseLong(value) * unit));
+						return;
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// ignore, the value is optional
+		} catch (NumberFormatException e) {
+			// ignore, the value is optional
+		}
+	}
+}
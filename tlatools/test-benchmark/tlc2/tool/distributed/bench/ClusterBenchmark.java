@@ -0,0 +1,400 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tlc2.tool.distributed.TLCServer;
+import tlc2.tool.distributed.TLCWorker;
+import tlc2.tool.distributed.fp.DistributedFPSet;
+import tlc2.tool.distributed.selector.BlockSelectorFactory;
+
+/**
+ * Runs a {@link TLCServer}, N {@link TLCWorker}s and M
+ * {@link DistributedFPSet}s as separate JVMs on localhost for each of a set
+ * of specs and writes a JSON report with the throughput, the network bytes
+ * per state, the block sizes handed out by the {@link BlockSelectorFactory}'s
+ * selector and the latencies of fingerprint lookups. The RMI sockets can be
+ * throttled by a one-way latency and a bandwidth limit (see
+ * {@link ThrottledSocketFactory}).
+ * <p>
+ * Usage: ClusterBenchmark [-workers N] [-fpsets M] [-latency ms]
+ * [-bandwidth bytes/s] [-timeout s] [-port port] [-report file]
+ * [-examples dir] [spec ...]
+ * <p>
+ * Without specs, the {@link #DEFAULT_SPECS} from the examples directory are
+ * run. The classpath of this JVM is used for all nodes.
+ */
+public class ClusterBenchmark {
+
+	/**
+	 * Specs (relative to the examples directory) that distributed TLC checks
+	 * within seconds to a few minutes
+	 */
+	static final String[] DEFAULT_SPECS = new String[] {
+		"SpecifyingSystems/CachingMemory/MCWriteThroughCache",
+		"SpecifyingSystems/FIFO/MCInnerFIFO",
+		"SpecifyingSystems/TLC/MCAlternatingBit",
+		"allocator/SchedulingAllocator"
+	};
+
+	private static final Pattern STATS = Pattern
+			.compile("(\\d+) states generated, (\\d+) distinct states found, (\\d+) states left on queue");
+
+	private int workers = 2;
+	private int fpsets = 0;
+	private long latency = 0L;
+	private long bandwidth = 0L;
+	private long timeout = 600L;
+	private int port = TLCServer.Port;
+	private File report = new File("cluster-report.json");
+	private File examples = new File("examples");
+	private final List<File> specs = new ArrayList<File>();
+
+	public static void main(final String[] args) throws Exception {
+		final ClusterBenchmark benchmark = new ClusterBenchmark();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-workers") && i + 1 < args.length) {
+				benchmark.workers = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-fpsets") && i + 1 < args.length) {
+				benchmark.fpsets = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-latency") && i + 1 < args.length) {
+				benchmark.latency = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-bandwidth") && i + 1 < args.length) {
+				benchmark.bandwidth = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-timeout") && i + 1 < args.length) {
+				benchmark.timeout = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-port") && i + 1 < args.length) {
+				benchmark.port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-report") && i + 1 < args.length) {
+				benchmark.report = new File(args[++i]);
+			} else if (args[i].equals("-examples") && i + 1 < args.length) {
+				benchmark.examples = new File(args[++i]);
+			} else if (args[i].startsWith("-")) {
+				System.err.println("Usage: ClusterBenchmark [-workers N] [-fpsets M] [-latency ms] [-bandwidth bytes/s] "
+						+ "[-timeout s] [-port port] [-report file] [-examples dir] [spec ...]");
+				System.exit(1);
+			} else {
+				benchmark.specs.add(new File(args[i]));
+			}
+		}
+		if (benchmark.specs.isEmpty()) {
+			for (int i = 0; i < DEFAULT_SPECS.length; i++) {
+				benchmark.specs.add(new File(benchmark.examples, DEFAULT_SPECS[i]));
+			}
+		}
+		benchmark.run();
+	}
+
+	private void run() throws IOException, InterruptedException {
+		final StringBuffer json = new StringBuffer();
+		json.append("{\n  \"configuration\": {");
+		json.append("\"workers\": ").append(workers);
+		json.append(", \"fpsets\": ").append(fpsets);
+		json.append(", \"latencyMillis\": ").append(latency);
+		json.append(", \"bandwidthBytesPerSecond\": ").append(bandwidth);
+		json.append(", \"selectorFactory\": ").append(quote(System.getProperty("tlc2.tool.distributed.selector.factory",
+				TracingBlockSelectorFactory.class.getName())));
+		json.append("},\n  \"runs\": [");
+		for (int i = 0; i < specs.size(); i++) {
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append(run(specs.get(i).getAbsoluteFile()));
+		}
+		json.append("\n  ]\n}\n");
+
+		final Writer out = new FileWriter(report);
+		try {
+			out.write(json.toString());
+		} finally {
+			out.close();
+		}
+		System.out.println("Report written to " + report.getAbsolutePath());
+	}
+
+	/**
+	 * @return The JSON object describing the run of the given spec
+	 */
+	private String run(final File spec) throws IOException, InterruptedException {
+		String name = spec.getName();
+		if (name.endsWith(".tla")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		final File specDir = spec.getParentFile();
+		final File runDir = File.createTempFile("cluster-" + name, "");
+		runDir.delete();
+		runDir.mkdirs();
+		System.out.println("Checking " + name + " with " + workers + " worker(s) and " + fpsets
+				+ " FPSet server(s), logs in " + runDir);
+
+		final List<Node> nodes = new ArrayList<Node>();
+		final long start = System.currentTimeMillis();
+		final Node server = launch(specDir, runDir, "server", TLCServer.class, new String[] { "-metadir",
+				new File(runDir, "states").getAbsolutePath(), new File(specDir, name).getAbsolutePath() });
+		final Timer watchdog = new Timer(true);
+		watchdog.schedule(new TimerTask() {
+			public void run() {
+				server.process.destroy();
+			}
+		}, timeout * 1000L);
+		try {
+			if (server.ready.await(timeout, TimeUnit.SECONDS)) {
+				for (int i = 0; i < fpsets; i++) {
+					nodes.add(launch(specDir, runDir, "fpset" + i, DistributedFPSet.class, new String[] { "localhost" }));
+				}
+				for (int i = 0; i < workers; i++) {
+					nodes.add(launch(specDir, runDir, "worker" + i, TLCWorker.class, new String[] { "localhost" }));
+				}
+			}
+			server.process.waitFor();
+		} finally {
+			watchdog.cancel();
+		}
+		final long wall = System.currentTimeMillis() - start;
+		server.output.join();
+
+		// Workers and FPSet servers usually exit with the server
+		final long deadline = System.currentTimeMillis() + 10000L;
+		for (int i = 0; i < nodes.size(); i++) {
+			final Node node = nodes.get(i);
+			while (node.isAlive() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100L);
+			}
+			if (node.isAlive()) {
+				node.process.destroy();
+			}
+			node.process.waitFor();
+			node.output.join();
+		}
+
+		return toJSON(spec, server, nodes, wall);
+	}
+
+	private Node launch(final File dir, final File runDir, final String id, final Class<?> mainClass,
+			final String[] args) throws IOException {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + TLCServer.class.getName() + ".port=" + port);
+		cmd.add("-D" + ThrottledSocketFactory.class.getName() + ".latency=" + latency);
+		cmd.add("-D" + ThrottledSocketFactory.class.getName() + ".bandwidth=" + bandwidth);
+		cmd.add("-D" + TLCServer.class.getName() + ".fpSetManagerWrapper=" + TimingFPSetManager.class.getName());
+		cmd.add("-Dtlc2.tool.distributed.selector.factory="
+				+ System.getProperty("tlc2.tool.distributed.selector.factory",
+						TracingBlockSelectorFactory.class.getName()));
+		if (fpsets > 0) {
+			cmd.add("-D" + TLCServer.class.getName() + ".expectedFPSetCount=" + fpsets);
+		}
+		cmd.add("-D" + ClusterNode.REPORT + "=" + new File(runDir, id + ".properties").getAbsolutePath());
+		cmd.add(ClusterNode.class.getName());
+		cmd.add(mainClass.getName());
+		cmd.addAll(Arrays.asList(args));
+
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		final Node node = new Node(id, pb.start(), new File(runDir, id + ".log"));
+		node.output.start();
+		return node;
+	}
+
+	private String toJSON(final File spec, final Node server, final List<Node> nodes, final long wall)
+			throws IOException {
+		final Properties serverStats = server.getStatistics();
+		long bytes = getLong(serverStats, "bytes.sent");
+		final List<Properties> workerStats = new ArrayList<Properties>();
+		for (int i = 0; i < nodes.size(); i++) {
+			final Properties stats = nodes.get(i).getStatistics();
+			bytes += getLong(stats, "bytes.sent");
+			if (nodes.get(i).id.startsWith("worker")) {
+				workerStats.add(stats);
+			}
+		}
+
+		// The exploration starts with the first and ends with the last block
+		// handed out to a worker
+		final String blocks = serverStats.getProperty("blocks", "");
+		long millis = wall;
+		if (blocks.length() > 0) {
+			final long first = Long.parseLong(blocks.substring(0, blocks.indexOf(':')));
+			final String lastBlock = blocks.substring(blocks.lastIndexOf(',') + 1);
+			final long last = Long.parseLong(lastBlock.substring(0, lastBlock.indexOf(':')));
+			millis = Math.max(1L, last - first);
+		}
+
+		final StringBuffer buf = new StringBuffer();
+		buf.append("    {\"spec\": ").append(quote(spec.getPath()));
+		buf.append(", \"exitCode\": ").append(server.process.exitValue());
+		buf.append(", \"result\": ").append(quote(server.result));
+		buf.append(", \"wallMillis\": ").append(wall);
+		buf.append(", \"explorationMillis\": ").append(millis);
+		if (server.stats != null) {
+			final long generated = Long.parseLong(server.stats.group(1));
+			final long distinct = Long.parseLong(server.stats.group(2));
+			buf.append(", \"statesGenerated\": ").append(generated);
+			buf.append(", \"distinctStates\": ").append(distinct);
+			buf.append(", \"statesPerSecond\": ").append(generated * 1000L / millis);
+			buf.append(", \"distinctStatesPerSecond\": ").append(distinct * 1000L / millis);
+			buf.append(", \"networkBytes\": ").append(bytes);
+			buf.append(", \"networkBytesPerState\": ").append(generated > 0 ? bytes / generated : 0);
+		}
+		buf.append(",\n     \"serverLookups\": ").append(toJSON(serverStats));
+		buf.append(",\n     \"workerLookups\": ").append(toJSON(workerStats.toArray(new Properties[workerStats.size()])));
+		buf.append(",\n     \"blocks\": [");
+		if (blocks.length() > 0) {
+			final String[] entries = blocks.split(",");
+			for (int i = 0; i < entries.length; i++) {
+				final int sep = entries[i].indexOf(':');
+				buf.append(i == 0 ? "" : ", ").append('[').append(entries[i].substring(0, sep)).append(", ")
+						.append(entries[i].substring(sep + 1)).append(']');
+			}
+		}
+		buf.append("]}");
+		return buf.toString();
+	}
+
+	/**
+	 * @return The merged lookup statistics of the given nodes as a JSON
+	 *         object
+	 */
+	private static String toJSON(final Properties... stats) {
+		long count = 0, fps = 0, nanos = 0, max = 0;
+		final long[] histogram = new long[ClusterStatistics.BUCKETS];
+		for (int i = 0; i < stats.length; i++) {
+			count += getLong(stats[i], "lookup.count");
+			fps += getLong(stats[i], "lookup.fps");
+			nanos += getLong(stats[i], "lookup.nanos");
+			max = Math.max(max, getLong(stats[i], "lookup.max"));
+			final String h = stats[i].getProperty("lookup.histogram");
+			if (h != null) {
+				final String[] buckets = h.split(",");
+				for (int j = 0; j < buckets.length && j < histogram.length; j++) {
+					histogram[j] += Long.parseLong(buckets[j]);
+				}
+			}
+		}
+		final StringBuffer buf = new StringBuffer();
+		buf.append("{\"count\": ").append(count);
+		buf.append(", \"fingerprints\": ").append(fps);
+		buf.append(", \"meanMicros\": ").append(count > 0 ? nanos / count / 1000L : 0);
+		// The histogram only provides upper bounds
+		buf.append(", \"p50Micros\": ").append(Math.min(max / 1000L, ClusterStatistics.getPercentile(histogram, 0.5d)));
+		buf.append(", \"p99Micros\": ").append(Math.min(max / 1000L, ClusterStatistics.getPercentile(histogram, 0.99d)));
+		buf.append(", \"maxMicros\": ").append(max / 1000L);
+		buf.append('}');
+		return buf.toString();
+	}
+
+	private static long getLong(final Properties props, final String key) {
+		return Long.parseLong(props.getProperty(key, "0"));
+	}
+
+	static String quote(final String s) {
+		if (s == null) {
+			return "null";
+		}
+		final StringBuffer buf = new StringBuffer("\"");
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				buf.append('\\').append(c);
+			} else if (c < 0x20) {
+				buf.append(String.format("\\u%04x", (int) c));
+			} else {
+				buf.append(c);
+			}
+		}
+		return buf.append('"').toString();
+	}
+
+	/**
+	 * A JVM of the cluster
+	 */
+	private static class Node {
+		private final String id;
+		private final Process process;
+		private final File log;
+		private final CountDownLatch ready = new CountDownLatch(1);
+		private final Thread output;
+		private volatile Matcher stats;
+		private volatile String result;
+
+		Node(final String id, final Process process, final File log) {
+			this.id = id;
+			this.process = process;
+			this.log = log;
+			this.output = new Thread(new Runnable() {
+				public void run() {
+					copyOutput();
+				}
+			}, id + " output");
+		}
+
+		/**
+		 * Copies the output of the JVM to its log and scans it for the
+		 * server's messages.
+		 */
+		private void copyOutput() {
+			try {
+				final BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				final PrintWriter out = new PrintWriter(new FileWriter(log));
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						out.println(line);
+						if (line.startsWith("TLC server at ") && line.indexOf(" is ready") > 0) {
+							ready.countDown();
+						} else if (line.startsWith("Model checking completed") || line.startsWith("Error:")) {
+							if (result == null) {
+								result = line;
+							}
+						}
+						final Matcher m = STATS.matcher(line);
+						if (m.find()) {
+							stats = m;
+						}
+					}
+				} finally {
+					out.close();
+					in.close();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				ready.countDown();
+			}
+		}
+
+		boolean isAlive() {
+			try {
+				process.exitValue();
+				return false;
+			} catch (IllegalThreadStateException e) {
+				return true;
+			}
+		}
+
+		Properties getStatistics() throws IOException {
+			final File file = new File(log.getParentFile(), id + ".properties");
+			if (!file.exists()) {
+				return new Properties();
+			}
+			return ClusterStatistics.load(file);
+		}
+	}
+}
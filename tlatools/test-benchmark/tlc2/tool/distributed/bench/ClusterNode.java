@@ -0,0 +1,52 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.rmi.server.RMISocketFactory;
+
+/**
+ * Launches the main class of a TLCServer, TLCWorker or DistributedFPSet
+ * within a JVM of a {@link ClusterBenchmark}. All RMI sockets of the JVM are
+ * created by a {@link ThrottledSocketFactory}, the {@link ClusterStatistics}
+ * are stored to the file given by {@link #REPORT} when the JVM exits.
+ * <p>
+ * Usage: ClusterNode mainClass [args...]
+ */
+public class ClusterNode {
+
+	public static final String REPORT = ClusterNode.class.getName() + ".report";
+
+	public static void main(final String[] args) throws Throwable {
+		if (args.length < 1) {
+			System.err.println("Usage: ClusterNode mainClass [args...]");
+			System.exit(1);
+		}
+
+		RMISocketFactory.setSocketFactory(new ThrottledSocketFactory());
+
+		final String report = System.getProperty(REPORT);
+		if (report != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				public void run() {
+					try {
+						ClusterStatistics.store(new File(report));
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}, "ClusterNode report"));
+		}
+
+		final String[] mainArgs = new String[args.length - 1];
+		System.arraycopy(args, 1, mainArgs, 0, mainArgs.length);
+		final Method main = Class.forName(args[0]).getMethod("main", new Class<?>[] { String[].class });
+		try {
+			main.invoke(null, new Object[] { mainArgs });
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the measurements of a single JVM of a {@link ClusterBenchmark}.
+ * {@link ClusterNode} stores them to a properties file when the JVM exits,
+ * {@link ClusterBenchmark} loads and merges the files of all JVMs.
+ */
+public final class ClusterStatistics {
+
+	/**
+	 * The maximum number of block sizes traced
+	 */
+	static final int MAX_BLOCKS = 100000;
+	/**
+	 * Bucket i counts the lookups that took less than 2^i microseconds (and
+	 * at least 2^(i-1)).
+	 */
+	static final int BUCKETS = 40;
+
+	private static final AtomicLong bytesSent = new AtomicLong();
+	private static final AtomicLong bytesReceived = new AtomicLong();
+
+	private static final AtomicLong lookups = new AtomicLong();
+	private static final AtomicLong lookupFps = new AtomicLong();
+	private static final AtomicLong lookupNanos = new AtomicLong();
+	private static final AtomicLong lookupMaxNanos = new AtomicLong();
+	private static final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	private static final long start = System.currentTimeMillis();
+	private static final StringBuffer blocks = new StringBuffer();
+	private static int blockCnt = 0;
+
+	private ClusterStatistics() {
+		// no instantiation
+	}
+
+	static void recordSent(final int bytes) {
+		bytesSent.addAndGet(bytes);
+	}
+
+	static void recordReceived(final int bytes) {
+		bytesReceived.addAndGet(bytes);
+	}
+
+	/**
+	 * @param nanos
+	 *            The duration of a lookup in the fingerprint set
+	 * @param fps
+	 *            The number of fingerprints looked up
+	 */
+	static void recordLookup(final long nanos, final int fps) {
+		lookups.incrementAndGet();
+		lookupFps.addAndGet(fps);
+		lookupNanos.addAndGet(nanos);
+		long max = lookupMaxNanos.get();
+		while (nanos > max && !lookupMaxNanos.compareAndSet(max, nanos)) {
+			max = lookupMaxNanos.get();
+		}
+		histogram.incrementAndGet(getBucket(nanos / 1000L));
+	}
+
+	static int getBucket(final long micros) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * @param size
+	 *            The number of states handed out to a worker
+	 */
+	static synchronized void recordBlock(final int size) {
+		if (blockCnt++ < MAX_BLOCKS) {
+			if (blocks.length() > 0) {
+				blocks.append(',');
+			}
+			blocks.append(System.currentTimeMillis() - start).append(':').append(size);
+		}
+	}
+
+	static synchronized Properties toProperties() {
+		final Properties props = new Properties();
+		props.setProperty("bytes.sent", Long.toString(bytesSent.get()));
+		props.setProperty("bytes.received", Long.toString(bytesReceived.get()));
+		props.setProperty("lookup.count", Long.toString(lookups.get()));
+		props.setProperty("lookup.fps", Long.toString(lookupFps.get()));
+		props.setProperty("lookup.nanos", Long.toString(lookupNanos.get()));
+		props.setProperty("lookup.max", Long.toString(lookupMaxNanos.get()));
+		final StringBuffer buf = new StringBuffer();
+		for (int i = 0; i < BUCKETS; i++) {
+			buf.append(i == 0 ? "" : ",").append(histogram.get(i));
+		}
+		props.setProperty("lookup.histogram", buf.toString());
+		props.setProperty("blocks", blocks.toString());
+		return props;
+	}
+
+	static void store(final File file) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			toProperties().store(out, "ClusterStatistics");
+		} finally {
+			out.close();
+		}
+	}
+
+	static Properties load(final File file) throws IOException {
+		final Properties props = new Properties();
+		final InputStream in = new FileInputStream(file);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+		return props;
+	}
+
+	/**
+	 * @param histogram
+	 *            A histogram of lookup durations as stored by
+	 *            {@link #toProperties()}
+	 * @param p
+	 *            The percentile in (0,1]
+	 * @return An upper bound in microseconds of the duration of the given
+	 *         percentile of lookups
+	 */
+	static long getPercentile(final long[] histogram, final double p) {
+		long total = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			total += histogram[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = (long) Math.ceil(total * p);
+		long cnt = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			cnt += histogram[i];
+			if (cnt >= rank) {
+				return 1L << i;
+			}
+		}
+		return 1L << (histogram.length - 1);
+	}
+}
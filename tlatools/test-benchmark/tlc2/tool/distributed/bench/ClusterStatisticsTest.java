@@ -0,0 +1,34 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import junit.framework.TestCase;
+
+public class ClusterStatisticsTest extends TestCase {
+
+	public void testGetBucket() {
+		assertEquals(0, ClusterStatistics.getBucket(0L));
+		assertEquals(1, ClusterStatistics.getBucket(1L));
+		assertEquals(2, ClusterStatistics.getBucket(2L));
+		assertEquals(2, ClusterStatistics.getBucket(3L));
+		assertEquals(10, ClusterStatistics.getBucket(1000L));
+		assertEquals(ClusterStatistics.BUCKETS - 1, ClusterStatistics.getBucket(Long.MAX_VALUE));
+	}
+
+	public void testGetPercentile() {
+		final long[] histogram = new long[ClusterStatistics.BUCKETS];
+		assertEquals(0L, ClusterStatistics.getPercentile(histogram, 0.5d));
+
+		// 90 lookups below 8 micros, 10 lookups below 1024 micros
+		histogram[3] = 90;
+		histogram[10] = 10;
+		assertEquals(8L, ClusterStatistics.getPercentile(histogram, 0.5d));
+		assertEquals(8L, ClusterStatistics.getPercentile(histogram, 0.9d));
+		assertEquals(1024L, ClusterStatistics.getPercentile(histogram, 0.91d));
+		assertEquals(1024L, ClusterStatistics.getPercentile(histogram, 1d));
+	}
+
+	public void testQuote() {
+		assertEquals("\"a\\\"b\\\\c\\u000a\"", ClusterBenchmark.quote("a\"b\\c\n"));
+		assertEquals("null", ClusterBenchmark.quote(null));
+	}
+}
@@ -0,0 +1,174 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMISocketFactory;
+
+/**
+ * An {@link RMISocketFactory} whose sockets count the bytes sent and received
+ * (see {@link ClusterStatistics}) and optionally delay each message by
+ * {@link #LATENCY} and limit the throughput of each socket to
+ * {@link #BANDWIDTH}. A message is what RMI writes between two flushes.
+ */
+public class ThrottledSocketFactory extends RMISocketFactory {
+
+	/**
+	 * The one-way latency in milliseconds added to each message
+	 */
+	public static final long LATENCY = Long.getLong(ThrottledSocketFactory.class.getName() + ".latency", 0L);
+	/**
+	 * The bandwidth in bytes per second of each socket, 0 is unlimited
+	 */
+	public static final long BANDWIDTH = Long.getLong(ThrottledSocketFactory.class.getName() + ".bandwidth", 0L);
+
+	/* (non-Javadoc)
+	 * @see java.rmi.server.RMISocketFactory#createSocket(java.lang.String, int)
+	 */
+	public Socket createSocket(final String host, final int port) throws IOException {
+		return new ThrottledSocket(host, port);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.rmi.server.RMISocketFactory#createServerSocket(int)
+	 */
+	public ServerSocket createServerSocket(final int port) throws IOException {
+		return new ServerSocket(port) {
+			/* (non-Javadoc)
+			 * @see java.net.ServerSocket#accept()
+			 */
+			public Socket accept() throws IOException {
+				final Socket socket = new ThrottledSocket();
+				implAccept(socket);
+				return socket;
+			}
+		};
+	}
+
+	private static class ThrottledSocket extends Socket {
+
+		private InputStream in;
+		private OutputStream out;
+
+		ThrottledSocket() {
+			super();
+		}
+
+		ThrottledSocket(final String host, final int port) throws IOException {
+			super(host, port);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.net.Socket#getInputStream()
+		 */
+		public synchronized InputStream getInputStream() throws IOException {
+			if (in == null) {
+				in = new CountingInputStream(super.getInputStream());
+			}
+			return in;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.net.Socket#getOutputStream()
+		 */
+		public synchronized OutputStream getOutputStream() throws IOException {
+			if (out == null) {
+				out = new ThrottledOutputStream(super.getOutputStream());
+			}
+			return out;
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		CountingInputStream(final InputStream in) {
+			super(in);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterInputStream#read()
+		 */
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b != -1) {
+				ClusterStatistics.recordReceived(1);
+			}
+			return b;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				ClusterStatistics.recordReceived(n);
+			}
+			return n;
+		}
+	}
+
+	private static class ThrottledOutputStream extends FilterOutputStream {
+
+		/**
+		 * Bytes written but not yet paid for by sleeping
+		 */
+		private long pending = 0L;
+
+		ThrottledOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterOutputStream#write(int)
+		 */
+		public void write(final int b) throws IOException {
+			out.write(b);
+			written(1);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 */
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			written(len);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterOutputStream#flush()
+		 */
+		public void flush() throws IOException {
+			sleep(LATENCY);
+			out.flush();
+		}
+
+		private void written(final int len) throws IOException {
+			ClusterStatistics.recordSent(len);
+			if (BANDWIDTH > 0) {
+				pending += len;
+				final long millis = pending * 1000L / BANDWIDTH;
+				if (millis > 0) {
+					pending -= millis * BANDWIDTH / 1000L;
+					sleep(millis);
+				}
+			}
+		}
+
+		private static void sleep(final long millis) throws IOException {
+			if (millis > 0) {
+				try {
+					Thread.sleep(millis);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException(e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import tlc2.tool.distributed.fp.FPSetManagerException;
+import tlc2.tool.distributed.fp.FPSetRMI;
+import tlc2.tool.distributed.fp.IFPSetManager;
+import tlc2.util.BitVector;
+import tlc2.util.LongVec;
+
+/**
+ * Records the latency of fingerprint lookups in the {@link ClusterStatistics}
+ * of the JVM it is used in. The {@link tlc2.tool.distributed.TLCServer}
+ * wraps its {@link IFPSetManager} if the system property
+ * <code>tlc2.tool.distributed.TLCServer.fpSetManagerWrapper</code> names this
+ * class, so the lookups of the server as well as of the workers (which
+ * receive a copy) are recorded.
+ */
+@SuppressWarnings("serial")
+public class TimingFPSetManager implements IFPSetManager {
+
+	private final IFPSetManager delegate;
+
+	public TimingFPSetManager(final IFPSetManager delegate) {
+		this.delegate = delegate;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#put(long)
+	 */
+	public boolean put(long fp) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.put(fp);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, 1);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#contains(long)
+	 */
+	public boolean contains(long fp) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.contains(fp);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, 1);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#putBlock(tlc2.util.LongVec[])
+	 */
+	public BitVector[] putBlock(LongVec[] fps) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.putBlock(fps);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, size(fps));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#putBlock(tlc2.util.LongVec[], java.util.concurrent.ExecutorService)
+	 */
+	public BitVector[] putBlock(LongVec[] fps, ExecutorService executorService) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.putBlock(fps, executorService);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, size(fps));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#containsBlock(tlc2.util.LongVec[])
+	 */
+	public BitVector[] containsBlock(LongVec[] fps) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.containsBlock(fps);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, size(fps));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#containsBlock(tlc2.util.LongVec[], java.util.concurrent.ExecutorService)
+	 */
+	public BitVector[] containsBlock(LongVec[] fps, ExecutorService executorService) {
+		final long start = System.nanoTime();
+		try {
+			return delegate.containsBlock(fps, executorService);
+		} finally {
+			ClusterStatistics.recordLookup(System.nanoTime() - start, size(fps));
+		}
+	}
+
+	private static int size(final LongVec[] fps) {
+		int size = 0;
+		for (int i = 0; i < fps.length; i++) {
+			size += fps[i] == null ? 0 : fps[i].size();
+		}
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#checkFPs()
+	 */
+	public double checkFPs() {
+		return delegate.checkFPs();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#checkpoint(java.lang.String)
+	 */
+	public void checkpoint(String fname) throws InterruptedException, IOException {
+		delegate.checkpoint(fname);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#close(boolean)
+	 */
+	public void close(boolean cleanup) throws IOException {
+		delegate.close(cleanup);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#commitChkpt()
+	 */
+	public void commitChkpt() throws IOException {
+		delegate.commitChkpt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#getFPSetIndex(long)
+	 */
+	public int getFPSetIndex(long fp) {
+		return delegate.getFPSetIndex(fp);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#getStatesSeen()
+	 */
+	public long getStatesSeen() {
+		return delegate.getStatesSeen();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#numOfServers()
+	 */
+	public int numOfServers() {
+		return delegate.numOfServers();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#numOfAliveServers()
+	 */
+	public int numOfAliveServers() {
+		return delegate.numOfAliveServers();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#recover(java.lang.String)
+	 */
+	public void recover(String fname) throws InterruptedException, IOException {
+		delegate.recover(fname);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#register(tlc2.tool.distributed.fp.FPSetRMI, java.lang.String)
+	 */
+	public void register(FPSetRMI fpSet, String hostname) throws FPSetManagerException {
+		delegate.register(fpSet, hostname);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.fp.IFPSetManager#size()
+	 */
+	public long size() {
+		return delegate.size();
+	}
+}
@@ -0,0 +1,72 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.bench;
+
+import tlc2.tool.TLCState;
+import tlc2.tool.distributed.TLCServer;
+import tlc2.tool.distributed.TLCWorkerRMI;
+import tlc2.tool.distributed.selector.BlockSelectorFactory;
+import tlc2.tool.distributed.selector.IBlockSelector;
+import tlc2.tool.distributed.selector.IPrefetchingBlockSelector;
+import tlc2.tool.queue.IStateQueue;
+
+/**
+ * Traces the block sizes handed out by the {@link IBlockSelector} the default
+ * {@link BlockSelectorFactory} selects. Activated with
+ * -Dtlc2.tool.distributed.selector.factory=tlc2.tool.distributed.bench.TracingBlockSelectorFactory
+ */
+public class TracingBlockSelectorFactory extends BlockSelectorFactory {
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.distributed.selector.BlockSelectorFactory#getSelector(tlc2.tool.distributed.TLCServer)
+	 */
+	protected IBlockSelector getSelector(final TLCServer aTLCServer) {
+		final IBlockSelector selector = super.getSelector(aTLCServer);
+		if (selector instanceof IPrefetchingBlockSelector) {
+			return new TracingPrefetchingBlockSelector((IPrefetchingBlockSelector) selector);
+		}
+		return new TracingBlockSelector(selector);
+	}
+
+	private static class TracingBlockSelector implements IBlockSelector {
+
+		private final IBlockSelector selector;
+
+		TracingBlockSelector(final IBlockSelector aSelector) {
+			selector = aSelector;
+		}
+
+		public TLCState[] getBlocks(final IStateQueue stateQueue, final TLCWorkerRMI worker) {
+			return record(selector.getBlocks(stateQueue, worker));
+		}
+
+		public void setMaxTXSize(final int aMaximum) {
+			selector.setMaxTXSize(aMaximum);
+		}
+
+		public long getAverageBlockCnt() {
+			return selector.getAverageBlockCnt();
+		}
+
+		protected TLCState[] record(final TLCState[] blocks) {
+			if (blocks != null) {
+				ClusterStatistics.recordBlock(blocks.length);
+			}
+			return blocks;
+		}
+	}
+
+	private static class TracingPrefetchingBlockSelector extends TracingBlockSelector implements
+			IPrefetchingBlockSelector {
+
+		private final IPrefetchingBlockSelector selector;
+
+		TracingPrefetchingBlockSelector(final IPrefetchingBlockSelector aSelector) {
+			super(aSelector);
+			selector = aSelector;
+		}
+
+		public TLCState[] getPrefetchBlocks(final IStateQueue stateQueue, final TLCWorkerRMI worker) {
+			return record(selector.getPrefetchBlocks(stateQueue, worker));
+		}
+	}
+}
@@ -0,0 +1,114 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tla2sany.modanalyzer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tla2sany.drivers.SANY;
+import tla2sany.semantic.ModuleNode;
+import tla2sany.semantic.OpDefNode;
+import util.FileUtil;
+import util.SimpleFilenameToStream;
+import util.ToolIO;
+import util.UniqueString;
+
+/**
+ * Parsing the modules of a spec ahead in parallel yields the same semantic
+ * tree and the same order of the tokens of the unique strings as parsing
+ * them one after another.
+ */
+public class ParseAheadTest extends TestCase {
+
+	private File dir;
+	private int parserThreads;
+
+	protected void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "ParseAheadTest"
+				+ System.currentTimeMillis());
+		dir.mkdirs();
+		parserThreads = SpecObj.parserThreads;
+	}
+
+	protected void tearDown() throws Exception {
+		SpecObj.parserThreads = parserThreads;
+		FileUtil.deleteDir(dir, true);
+	}
+
+	private void write(final String name, final String body) throws IOException {
+		final FileWriter out = new FileWriter(new File(dir, name + ".tla"));
+		out.write("---- MODULE " + name + " ----\n" + body + "====\n");
+		out.close();
+	}
+
+	/**
+	 * Writes a spec whose identifiers, strings and module names all start
+	 * with p, so that each run interns new strings only.
+	 */
+	private String writeSpec(final String p) throws IOException {
+		write(p + "Root", "EXTENDS " + p + "A, " + p + "B\n"
+				+ "---- MODULE " + p + "Inner ----\n"
+				+ p + "in == \"" + p + "inner\"\n"
+				+ "====\n"
+				+ p + "I == INSTANCE " + p + "Inner\n"
+				+ p + "C == INSTANCE " + p + "C\n"
+				+ p + "root(" + p + "x) == {" + p + "x, " + p + "a, " + p + "b}\n");
+		write(p + "A", "EXTENDS " + p + "D\n"
+				+ p + "a == \"" + p + "astring\"\n"
+				+ p + "a2(" + p + "y) == [" + p + "f |-> " + p + "y, " + p + "g |-> " + p + "d]\n");
+		write(p + "B", "EXTENDS " + p + "D\n"
+				+ p + "b == \"" + p + "bstring\"\n"
+				+ p + "b2 == " + p + "d\n");
+		write(p + "C", p + "c == \"" + p + "cstring\"\n");
+		write(p + "D", p + "d == \"" + p + "dstring\"\n"
+				+ p + "d2(" + p + "z) == " + p + "z\n");
+		return p + "Root";
+	}
+
+	/**
+	 * @return The strings interned while loading the spec, in the order of
+	 *         their tokens and without the prefix, followed by the names of
+	 *         the modules and of their definitions
+	 */
+	private List<String> load(final String p, final int threads) throws Exception {
+		SpecObj.parserThreads = threads;
+		final String root = writeSpec(p);
+		final int begin = UniqueString.uniqueStringOf(p + "begin").getTok();
+
+		final SpecObj spec = new SpecObj(root, new SimpleFilenameToStream(new String[] { dir.getAbsolutePath()
+				+ File.separator }));
+		SANY.frontEndMain(spec, root, ToolIO.out);
+		assertEquals(0, spec.getErrorLevel());
+
+		final int end = UniqueString.uniqueStringOf(p + "end").getTok();
+		final List<String> result = new ArrayList<String>();
+		for (int tok = begin + 1; tok < end; tok++) {
+			final UniqueString str = UniqueString.uidToUniqueString(tok);
+			result.add(str == null ? null : str.toString().replace(p, ""));
+		}
+		final ModuleNode[] modules = spec.getExternalModuleTable().getModuleNodes();
+		for (int i = 0; i < modules.length; i++) {
+			result.add(modules[i].getName().toString().replace(p, ""));
+			final OpDefNode[] defs = modules[i].getOpDefs();
+			for (int j = 0; j < defs.length; j++) {
+				result.add(defs[j].getName().toString().replace(p, "") + "/" + defs[j].getArity() + "/"
+						+ defs[j].getLevel());
+			}
+		}
+		return result;
+	}
+
+	public void testSameAsSequential() throws Exception {
+		// Interns the strings that do not depend on the spec
+		load("W", 1);
+
+		final List<String> sequential = load("S", 1);
+		final List<String> parallel = load("P", 4);
+		assertTrue(sequential.contains("Root"));
+		assertTrue(sequential.contains("dstring"));
+		assertEquals(sequential, parallel);
+	}
+}
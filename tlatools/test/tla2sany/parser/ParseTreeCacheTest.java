@@ -0,0 +1,136 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tla2sany.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import junit.framework.TestCase;
+import tla2sany.configuration.Configuration;
+import tla2sany.semantic.Errors;
+import tla2sany.st.ParseTree;
+import util.FileUtil;
+
+public class ParseTreeCacheTest extends TestCase {
+
+	private static final String SPEC = "---- MODULE Cached ----\n"
+			+ "EXTENDS Naturals, Sequences\n"
+			+ "(* a comment *)\n"
+			+ "CONSTANT N\n"
+			+ "VARIABLE x\n"
+			+ "LOCAL Max(a, b) == IF a > b THEN a ELSE b\n"
+			+ "---- MODULE Inner ----\n"
+			+ "y == 42\n"
+			+ "====\n"
+			+ "I == INSTANCE Inner\n"
+			+ "\\* another comment\n"
+			+ "Init == x = [i \\in 1..N |-> <<i, \"s\">>]\n"
+			+ "Next == x' = [x EXCEPT ![1] = @]\n"
+			+ "====\n";
+
+	private File dir;
+
+	public void setUp() throws Exception {
+		// The parser needs the table of builtin operators
+		Configuration.ReInit();
+		Configuration.load(new Errors());
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "ParseTreeCacheTest"
+				+ System.currentTimeMillis());
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testRoundTrip() throws Exception {
+		final byte[] source = SPEC.getBytes("UTF-8");
+		final TLAplusParser parser = new TLAplusParser(new ByteArrayInputStream(source));
+		assertTrue(parser.parse());
+
+		final ParseTreeCache cache = new ParseTreeCache(dir);
+		assertNull(cache.get("Cached", source));
+		cache.put("Cached", source, parser);
+
+		final ParseTree cached = cache.get("Cached", source);
+		assertNotNull(cached);
+		assertTrue(cached.parse());
+		assertEquals(parser.moduleName(), cached.moduleName());
+		assertEquals(parser.dependencies().length, cached.dependencies().length);
+		for (int i = 0; i < parser.dependencies().length; i++) {
+			assertEquals(parser.dependencies()[i], cached.dependencies()[i]);
+		}
+		assertEquals((SyntaxTreeNode) parser.rootNode(), (SyntaxTreeNode) cached.rootNode());
+
+		// A change to the source is a miss
+		assertNull(cache.get("Cached", (SPEC + "\n").getBytes("UTF-8")));
+	}
+
+	public void testCorruptEntry() throws Exception {
+		final byte[] source = SPEC.getBytes("UTF-8");
+		final TLAplusParser parser = new TLAplusParser(new ByteArrayInputStream(source));
+		assertTrue(parser.parse());
+
+		final ParseTreeCache cache = new ParseTreeCache(dir);
+		cache.put("Cached", source, parser);
+		final File[] entries = dir.listFiles();
+		assertEquals(1, entries.length);
+
+		// Truncate the entry
+		final java.io.RandomAccessFile raf = new java.io.RandomAccessFile(entries[0], "rw");
+		raf.setLength(raf.length() / 2);
+		raf.close();
+
+		assertNull(cache.get("Cached", source));
+		assertFalse(entries[0].exists());
+	}
+
+	public void testEviction() throws Exception {
+		final byte[][] sources = new byte[3][];
+		for (int i = 0; i < sources.length; i++) {
+			// Trailing lines change the key but not the tree
+			sources[i] = (SPEC + "\n\n\n".substring(0, i)).getBytes("UTF-8");
+		}
+		final TLAplusParser parser = new TLAplusParser(new ByteArrayInputStream(sources[0]));
+		assertTrue(parser.parse());
+
+		new ParseTreeCache(dir).put("Cached", sources[0], parser);
+		final long entrySize = dir.listFiles()[0].length();
+		final ParseTreeCache cache = new ParseTreeCache(dir, 2 * entrySize + entrySize / 2);
+
+		final long now = System.currentTimeMillis();
+		cache.put("Cached", sources[1], parser);
+		dir.listFiles()[0].setLastModified(now - 20000);
+		dir.listFiles()[1].setLastModified(now - 20000);
+		// A hit makes sources[0] the most recently used entry
+		assertNotNull(cache.get("Cached", sources[0]));
+
+		// Exceeds the bound, which evicts the least recently used entry
+		cache.put("Cached", sources[2], parser);
+		assertEquals(2, dir.listFiles().length);
+		assertNotNull(cache.get("Cached", sources[0]));
+		assertNull(cache.get("Cached", sources[1]));
+		assertNotNull(cache.get("Cached", sources[2]));
+	}
+
+	private static void assertEquals(SyntaxTreeNode expected, SyntaxTreeNode actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.getKind(), actual.getKind());
+		assertSame(expected.getUS(), actual.getUS());
+		assertSame(expected.originalImage, actual.originalImage);
+		assertSame(expected.getFN(), actual.getFN());
+		assertEquals(expected.getLocation().toString(), actual.getLocation().toString());
+		assertEquals(expected.local(), actual.local());
+		assertEquals(expected.getPreComments().length, actual.getPreComments().length);
+		for (int i = 0; i < expected.getPreComments().length; i++) {
+			assertEquals(expected.getPreComments()[i], actual.getPreComments()[i]);
+		}
+		final SyntaxTreeNode[] expectedHeirs = expected.getHeirs();
+		final SyntaxTreeNode[] actualHeirs = actual.getHeirs();
+		assertEquals(expectedHeirs.length, actualHeirs.length);
+		for (int i = 0; i < expectedHeirs.length; i++) {
+			assertEquals(expectedHeirs[i], actualHeirs[i]);
+		}
+	}
+}
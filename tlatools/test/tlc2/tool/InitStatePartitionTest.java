@@ -0,0 +1,196 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tlc2.tool.queue.DummyTLCState;
+import tlc2.util.FP64;
+import util.FileUtil;
+import util.SimpleFilenameToStream;
+import util.ToolIO;
+
+public class InitStatePartitionTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE Inits ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y, z\n"
+			// The outermost domain is below an existential quantifier
+			+ "Nested == /\\ \\E n \\in 1..3 : /\\ x \\in 1..n\n"
+			+ "                                /\\ y \\in {\"a\", \"b\"}\n"
+			+ "          /\\ z \\in SUBSET {1, 2}\n"
+			// Disjuncts with and without a domain, and duplicate states
+			+ "Mixed == \\/ x \\in 1..7 /\\ y = 0 /\\ z = 0\n"
+			+ "         \\/ x = 2 /\\ y = 0 /\\ z = 0\n"
+			+ "         \\/ x = 9 /\\ y \\in 1..2 /\\ z = 0\n"
+			// No domain at all
+			+ "Single == x = 1 /\\ y = 2 /\\ z = 3\n"
+			+ "Next == UNCHANGED <<x, y, z>>\n"
+			+ "====\n";
+
+	private File dir;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "InitStatePartitionTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Inits.tla", SPEC);
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	/**
+	 * Every element of the outermost domain and every state generated outside
+	 * of it belongs to exactly one partition.
+	 */
+	public void testDisjoint() {
+		final TLCState empty = TLCState.Empty;
+		final TLCState state = new DummyTLCState();
+		TLCState.Empty = empty;
+
+		final int parts = 3;
+		final StateVec states = new StateVec(0);
+		final InitStatePartition[] partitions = new InitStatePartition[parts];
+		for (int p = 0; p < parts; p++) {
+			partitions[p] = new InitStatePartition(states, p, parts);
+		}
+		for (int i = 0; i < 10; i++) {
+			int owners = 0;
+			for (int p = 0; p < parts; p++) {
+				if (partitions[p].owns(i)) {
+					owners++;
+					// Generated within the outermost domain
+					partitions[p].partitioned = true;
+					partitions[p].addElement(state);
+					partitions[p].partitioned = false;
+				}
+			}
+			assertEquals(1, owners);
+		}
+		assertEquals(10, states.size());
+
+		// Generated outside of any domain
+		for (int p = 0; p < parts; p++) {
+			partitions[p].addElement(state);
+		}
+		assertEquals(11, states.size());
+	}
+
+	public void testNested() throws Exception {
+		// 6 combinations of n and x times 2 values of y times 4 values of z
+		assertSamePartitions("Nested", 48);
+	}
+
+	public void testMixed() throws Exception {
+		// x = 2 is generated twice
+		assertSamePartitions("Mixed", 10);
+	}
+
+	public void testSingle() throws Exception {
+		assertSamePartitions("Single", 1);
+	}
+
+	private void assertSamePartitions(final String init, final int generated) throws Exception {
+		write("Inits.cfg", "INIT " + init + "\nNEXT Next\n");
+		final List<String> lines = generate();
+		assertEquals(lines.toString(), 4, lines.size());
+
+		// Unpartitioned
+		final String[] expected = lines.get(0).split(" ", 3);
+		assertEquals("1", expected[0]);
+		assertEquals(String.valueOf(generated), expected[1]);
+		for (int i = 1; i < lines.size(); i++) {
+			final String[] actual = lines.get(i).split(" ", 3);
+			// The partitions generate the states generated without them
+			// exactly as often
+			assertEquals(lines.get(i), expected[1], actual[1]);
+			assertEquals(lines.get(i), expected[2], actual[2]);
+		}
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The lines printed by {@link #main(String[])}
+	 */
+	private List<String> generate() throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(InitStatePartitionTest.class.getName());
+		cmd.add(dir.getAbsolutePath());
+		cmd.add("Inits");
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final List<String> lines = new ArrayList<String>();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+				if (line.length() > 0 && Character.isDigit(line.charAt(0))) {
+					lines.add(line);
+				}
+			}
+			assertEquals(out.toString(), 0, process.waitFor());
+			return lines;
+		} finally {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Generates the initial states of the given spec without partitions and
+	 * with 2, 3 and 5 partitions. Prints a line
+	 * "&lt;partitions&gt; &lt;states&gt; &lt;sorted fingerprints&gt;" for
+	 * each, where the states of all partitions are counted together.
+	 * <p>
+	 * Usage: InitStatePartitionTest dir spec
+	 */
+	public static void main(final String[] args) throws Exception {
+		final String specDir = args[0] + File.separator;
+		ToolIO.setUserDir(specDir);
+		FP64.Init(0);
+		final Tool tool = new Tool(specDir, args[1], args[1], new SimpleFilenameToStream());
+		tool.init(true, null);
+
+		final int[] parts = { 1, 2, 3, 5 };
+		for (int i = 0; i < parts.length; i++) {
+			final StateVec states = parts[i] == 1 ? tool.getInitStates() : new StateVec(0);
+			if (parts[i] > 1) {
+				for (int p = 0; p < parts[i]; p++) {
+					tool.getInitStates(new InitStatePartition(states, p, parts[i]));
+				}
+			}
+			final long[] fps = new long[states.size()];
+			for (int j = 0; j < fps.length; j++) {
+				fps[j] = states.elementAt(j).fingerPrint();
+			}
+			Arrays.sort(fps);
+			System.out.println(parts[i] + " " + fps.length + " " + Arrays.toString(fps));
+		}
+		System.exit(0);
+	}
+}
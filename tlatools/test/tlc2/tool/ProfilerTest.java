@@ -0,0 +1,154 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import tlc2.TLC;
+import util.FileUtil;
+
+/**
+ * Runs TLC with the {@link Profiler} on a spec with known counts and checks
+ * the profile written in JSON format.
+ */
+public class ProfilerTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE P ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y\n"
+			+ "Inc(v) == v + 1\n"
+			+ "IncX == x < 5 /\\ x' = Inc(x) /\\ UNCHANGED y\n"
+			+ "IncY == y < 5 /\\ y' = Inc(y) /\\ UNCHANGED x\n"
+			+ "Init == x = 0 /\\ y = 0\n"
+			+ "Next == IncX \\/ IncY\n"
+			+ "====\n";
+
+	private File dir;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "ProfilerTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("P.tla", SPEC);
+		write("P.cfg", "INIT Init\nNEXT Next\n");
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testProfile() throws Exception {
+		final String out = check();
+		assertTrue(out, out.indexOf("36 distinct states found") >= 0);
+		assertTrue(out, out.indexOf("Profile of 2 action(s):") >= 0);
+
+		final String json = read(new File(dir, "P_profile.json"));
+		assertEquals(json, "1", get(json, "sampleRate"));
+
+		final String[] actions = find(json, "\\{\"location\": \"line [56], [^}]*\\}");
+		assertEquals(json, 2, actions.length);
+		long distinct = 0;
+		for (int i = 0; i < actions.length; i++) {
+			// Each of the 36 states enables an action unless its variable is 5
+			assertEquals(actions[i], "36", get(actions[i], "calls"));
+			assertEquals(actions[i], "30", get(actions[i], "generated"));
+			// Every call is timed at a sample rate of 1
+			assertEquals(actions[i], "36", get(actions[i], "sampledCalls"));
+			distinct += Long.parseLong(get(actions[i], "distinct"));
+		}
+		// All states but the initial one
+		assertEquals(35L, distinct);
+
+		final String[] inc = find(json, "\\{\"name\": \"Inc\", [^}]*\\}");
+		assertEquals(json, 1, inc.length);
+		assertEquals(inc[0], "60", get(inc[0], "evaluations"));
+		assertEquals(inc[0], "60", get(inc[0], "sampledEvaluations"));
+	}
+
+	public void testQuote() {
+		assertEquals("\"line 1\"", Profiler.quote("line 1"));
+		assertEquals("\"a\\\"b\\\\c\\u000a\"", Profiler.quote("a\"b\\c\n"));
+	}
+
+	private static String get(final String json, final String key) {
+		final Matcher m = Pattern.compile("\"" + key + "\": ([0-9.]+)").matcher(json);
+		assertTrue(json, m.find());
+		return m.group(1);
+	}
+
+	private static String[] find(final String json, final String regex) {
+		final List<String> found = new ArrayList<String>();
+		final Matcher m = Pattern.compile(regex).matcher(json);
+		while (m.find()) {
+			found.add(m.group());
+		}
+		return found.toArray(new String[found.size()]);
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String read(final File file) throws IOException {
+		final StringBuffer buf = new StringBuffer();
+		final BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				buf.append(line).append('\n');
+			}
+		} finally {
+			reader.close();
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * @return The output of TLC
+	 */
+	private String check() throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + Profiler.class.getName() + ".enabled=true");
+		cmd.add("-D" + Profiler.class.getName() + ".sampleRate=1");
+		cmd.add(TLC.class.getName());
+		cmd.add("-deadlock");
+		cmd.add("-metadir");
+		cmd.add(new File(dir, "states").getAbsolutePath());
+		cmd.add("P");
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+			}
+			return out.toString();
+		} finally {
+			process.destroy();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+import tlc2.TLC;
+import util.FileUtil;
+
+/**
+ * Checks a spec with several workers with and without splitting the
+ * successors of a state (-Dtlc2.tool.ModelChecker.splitSuccessors), each in
+ * a VM of its own, and compares the numbers of states.
+ */
+public class SplitSuccessorsTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE Split ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y\n"
+			+ "Init == x = 0 /\\ y = 0\n"
+			// Split: the quantifier is below a conjunction and generates
+			// duplicate successors
+			+ "Move == x < 40 /\\ \\E d \\in 1..6 : x' = (x + d) % 41 /\\ y' = (y + d) % 5\n"
+			// Split: every disjunct has a quantifier, one behind a definition
+			+ "Pick(S) == \\E v \\in S : y' = v\n"
+			+ "Choose == x > 10 /\\ (\\/ \\E u \\in 0..2 : y' = u /\\ x' = x - 1\n"
+			+ "                     \\/ Pick(3..4) /\\ x' = x)\n"
+			// Not split
+			+ "Reset == y = 3 /\\ x' = 0 /\\ y' = 0\n"
+			+ "Mixed == x > 20 /\\ (\\/ \\E w \\in 1..2 : x' = x - w /\\ UNCHANGED y\n"
+			+ "                    \\/ x' = 0 /\\ y' = 1)\n"
+			+ "Next == Move \\/ Choose \\/ Reset \\/ Mixed\n"
+			+ "Inv == x <= 40\n"
+			+ "====\n";
+
+	private static final Pattern STATES = Pattern
+			.compile("([0-9]+) states generated, ([0-9]+) distinct states found, 0 states left on queue.");
+
+	private File dir;
+	private int runs = 0;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "SplitSuccessorsTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Split.tla", SPEC);
+		write("Split.cfg", "INIT Init\nNEXT Next\nINVARIANT Inv\n");
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testSameStates() throws Exception {
+		final String unsplit = check(false);
+		final Matcher expected = STATES.matcher(unsplit);
+		assertTrue(unsplit, expected.find());
+		// The split run is at the mercy of the scheduler
+		for (int i = 0; i < 3; i++) {
+			final String split = check(true);
+			final Matcher actual = STATES.matcher(split);
+			assertTrue(split, actual.find());
+			assertEquals(split, expected.group(1), actual.group(1));
+			assertEquals(split, expected.group(2), actual.group(2));
+		}
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The output of TLC
+	 */
+	private String check(final boolean split) throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + ModelChecker.class.getName() + ".splitSuccessors=" + split);
+		cmd.add(TLC.class.getName());
+		cmd.add("-deadlock");
+		cmd.add("-workers");
+		cmd.add("4");
+		cmd.add("-metadir");
+		cmd.add(new File(dir, "states" + (runs++)).getAbsolutePath());
+		cmd.add("Split");
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+			}
+			return out.toString();
+		} finally {
+			process.destroy();
+		}
+	}
+}
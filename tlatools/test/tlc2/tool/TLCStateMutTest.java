@@ -0,0 +1,106 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+
+import junit.framework.TestCase;
+import tla2sany.semantic.OpDeclNode;
+import tlc2.TLCGlobals;
+import tlc2.util.StatePoolReader;
+import tlc2.util.StatePoolWriter;
+import tlc2.value.IntValue;
+import tlc2.value.StringValue;
+import tlc2.value.Value;
+import util.UniqueString;
+
+public class TLCStateMutTest extends TestCase {
+
+	/**
+	 * More than eight variables to span two masks
+	 */
+	private static final int VARS = 10;
+
+	private final UniqueString[] names = new UniqueString[VARS];
+	private OpDeclNode[] vars;
+	private TLCState empty;
+	private boolean useGZIP;
+	private File file;
+
+	protected void setUp() throws Exception {
+		vars = TLCState.vars;
+		empty = TLCState.Empty;
+		useGZIP = TLCGlobals.useGZIP;
+		TLCGlobals.useGZIP = false;
+
+		TLCState.vars = new OpDeclNode[VARS];
+		UniqueString.setVariableCount(VARS);
+		for (int i = 0; i < VARS; i++) {
+			names[i] = UniqueString.uniqueStringOf("TLCStateMutTestVar" + i);
+			names[i].setLoc(i);
+		}
+		final Constructor<TLCStateMut> ctor = TLCStateMut.class.getDeclaredConstructor(Value[].class);
+		ctor.setAccessible(true);
+		TLCState.Empty = ctor.newInstance(new Object[] { new Value[VARS] });
+
+		file = File.createTempFile("TLCStateMutTest", null);
+	}
+
+	protected void tearDown() throws Exception {
+		TLCState.vars = vars;
+		TLCState.Empty = empty;
+		UniqueString.setVariableCount(0);
+		TLCGlobals.useGZIP = useGZIP;
+		file.delete();
+	}
+
+	private TLCState state(final Value[] values) {
+		final TLCState state = TLCState.Empty.createEmpty();
+		for (int i = 0; i < VARS; i++) {
+			state.bind(names[i], values[i], null);
+		}
+		return state;
+	}
+
+	/**
+	 * States that share a prefix of their values are delta encoded and read
+	 * back equal to the states written.
+	 */
+	public void testDeltaRoundTrip() throws Exception {
+		final Value[] values = new Value[VARS];
+		for (int i = 0; i < VARS; i++) {
+			values[i] = new StringValue("TLCStateMutTestValue" + i);
+		}
+		final TLCState[] states = new TLCState[4];
+		states[0] = state(values);
+		// Shares the first seven values with its predecessor
+		values[7] = IntValue.gen(7);
+		values[8] = IntValue.gen(8);
+		values[9] = IntValue.gen(9);
+		states[1] = state(values);
+		// Shares all values
+		states[2] = state(values);
+		// Shares only the last two values, which span the second mask
+		values[0] = IntValue.gen(0);
+		values[7] = IntValue.gen(42);
+		states[3] = state(values);
+		for (int i = 0; i < states.length; i++) {
+			states[i].uid = i * 1000L;
+		}
+
+		StatePoolWriter.write(states, file, false);
+		final long plain = file.length();
+		StatePoolWriter.write(states, file, true);
+		assertTrue(file.length() < plain);
+
+		final TLCState[] read = new TLCState[states.length];
+		StatePoolReader.read(read, file, true);
+		for (int i = 0; i < states.length; i++) {
+			assertEquals(states[i], read[i]);
+			assertEquals(states[i].uid, read[i].uid);
+		}
+		// The shared values are not read again
+		assertSame(read[0].lookup(names[0]), read[1].lookup(names[0]));
+		assertSame(read[1].lookup(names[9]), read[3].lookup(names[9]));
+	}
+}
@@ -0,0 +1,160 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+import tlc2.tool.queue.DummyTLCState;
+
+public class TLCTraceTest extends TestCase {
+
+	/**
+	 * Reconstructs states without a state, recording the fingerprint and the
+	 * action index it was asked for.
+	 */
+	private static class RecordingTraceApp implements TraceApp {
+		public TLCStateInfo getState(long fp) {
+			return new TLCStateInfo(null, fp + ":init");
+		}
+
+		public TLCStateInfo getState(long fp, TLCState s) {
+			return new TLCStateInfo(null, fp + ":any");
+		}
+
+		public TLCStateInfo getState(long fp, TLCState s, int action) {
+			return new TLCStateInfo(null, fp + ":" + action);
+		}
+
+		public TLCStateInfo getState(TLCState s1, TLCState s) {
+			return null;
+		}
+	}
+
+	private File metadir;
+	private TLCTrace trace;
+
+	protected void setUp() throws Exception {
+		metadir = File.createTempFile("trace", null);
+		metadir.delete();
+		metadir.mkdirs();
+		trace = new TLCTrace(metadir.getAbsolutePath(), "Test", new RecordingTraceApp());
+	}
+
+	protected void tearDown() throws Exception {
+		trace.close();
+		new File(TLCTrace.getFilename()).delete();
+		new File(TLCTrace.getFilename() + ".chkpt").delete();
+		metadir.delete();
+	}
+
+	private static TLCState pred(final long loc) {
+		final TLCState empty = TLCState.Empty;
+		final TLCState s = new DummyTLCState();
+		TLCState.Empty = empty;
+		s.uid = loc;
+		return s;
+	}
+
+	public void testGetTraceUsesActions() throws Exception {
+		final long a = trace.writeState(1L);
+		final long b = trace.writeState(pred(a), 2L, 0);
+		trace.writeState(pred(a), 3L, 2);
+		final long d = trace.writeState(pred(b), 4L, 1);
+		final long e = trace.writeState(pred(d), 5L);
+
+		final TLCStateInfo[] states = trace.getTrace(e, true);
+		assertEquals(4, states.length);
+		assertEquals("1:init", states[0].info);
+		assertEquals("2:0", states[1].info);
+		assertEquals("4:1", states[2].info);
+		assertEquals("5:-1", states[3].info);
+	}
+
+	public void testGetAllTrace() throws Exception {
+		final long a = trace.writeState(1L);
+		final long b = trace.writeState(pred(a), 2L, 0);
+		trace.writeState(pred(a), 3L, 2);
+		trace.writeState(pred(b), 4L, 1);
+
+		final TLCStateInfo[] states = trace.getTrace();
+		assertEquals(4, states.length);
+		assertEquals("1:init", states[0].info);
+		assertNull(states[0].predecessorState);
+		assertEquals("2:0", states[1].info);
+		assertSame(states[0], states[1].predecessorState);
+		assertEquals("3:2", states[2].info);
+		assertSame(states[0], states[2].predecessorState);
+		assertEquals("4:1", states[3].info);
+		assertSame(states[1], states[3].predecessorState);
+		for (int i = 0; i < states.length; i++) {
+			assertEquals(i, states[i].stateNumber);
+		}
+	}
+
+	public void testRecover() throws Exception {
+		final long a = trace.writeState(1L);
+		trace.beginChkpt();
+		trace.commitChkpt();
+		trace.writeState(pred(a), 2L, 0);
+
+		trace.recover();
+		// The entry written after the checkpoint is overwritten
+		final long b = trace.writeState(pred(a), 3L, 1);
+		assertEquals(b, TLCTrace.getRecoverPtr());
+		final TLCStateInfo[] states = trace.getTrace(b, true);
+		assertEquals(2, states.length);
+		assertEquals("3:1", states[1].info);
+	}
+
+	public void testRecoverOldCheckpoint() throws Exception {
+		trace.writeState(1L);
+		// A checkpoint as written before entries stored the action
+		final DataOutputStream dos = new DataOutputStream(new FileOutputStream(TLCTrace.getFilename() + ".chkpt"));
+		dos.writeLong(12L);
+		dos.writeLong(0L);
+		dos.close();
+		try {
+			trace.recover();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("older version of TLC") >= 0);
+		}
+		try {
+			TLCTrace.getRecoverPtr();
+			fail();
+		} catch (RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().indexOf("older version of TLC") >= 0);
+		}
+	}
+
+	public void testTraceStream() throws Exception {
+		final long a = trace.writeState(1L);
+		final long b = trace.writeState(pred(a), 2L, 0);
+		trace.writeState(pred(a), 3L, 2);
+		final long d = trace.writeState(pred(b), 4L, 1);
+
+		final TraceStream stream = trace.getTraceStream(d, true, 2);
+		assertEquals(3, stream.size());
+		final TLCStateInfo first = stream.next();
+		assertEquals("1:init", first.info);
+		final TLCStateInfo second = stream.next();
+		assertEquals("2:0", second.info);
+		assertSame(first, second.predecessorState);
+		final TLCStateInfo third = stream.next();
+		assertEquals("4:1", third.info);
+		assertSame(second, third.predecessorState);
+		// Only the window is kept in memory
+		assertNull(second.predecessorState);
+		assertFalse(stream.hasNext());
+		assertEquals(2, third.stateNumber);
+		assertSame(second, stream.get(1));
+		try {
+			stream.get(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// State 0 has left the window
+		}
+	}
+}
@@ -0,0 +1,160 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tlc2.TLC;
+import tlc2.tool.liveness.LiveCheck;
+import util.FileUtil;
+
+/**
+ * Checks a spec with -traceexpr in each mode of TLC, each in a VM of its
+ * own, and compares the values printed along with the states of the error
+ * trace.
+ */
+public class TraceExpressionTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE Counter ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y\n"
+			+ "Init == x = 0 /\\ y = 0\n"
+			+ "Next == x < 3 /\\ x' = x + 1 /\\ y' = y + 2\n"
+			+ "Spec == Init /\\ [][Next]_<<x, y>>\n"
+			+ "Inv == x < 3\n"
+			+ "Live == <>(x = 3)\n"
+			// State-level
+			+ "Sum == x + y\n"
+			// Action-level, evaluated on a state and its successor
+			+ "Dx == x' - x\n"
+			+ "====\n";
+
+	/**
+	 * The values printed along with the trace violating Inv
+	 */
+	private static final String[] INV_TRACE = { "Sum = 0", "Dx = 1", "Sum = 3", "Dx = 1", "Sum = 6", "Dx = 1",
+			"Sum = 9" };
+
+	private File dir;
+	private int runs = 0;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "TraceExpressionTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Counter.tla", SPEC);
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testBFS() throws Exception {
+		write("Counter.cfg", "INIT Init\nNEXT Next\nINVARIANT Inv\n");
+		assertTrace(INV_TRACE, check(null));
+	}
+
+	public void testDFID() throws Exception {
+		write("Counter.cfg", "INIT Init\nNEXT Next\nINVARIANT Inv\n");
+		assertTrace(INV_TRACE, check(null, "-dfid", "10"));
+	}
+
+	public void testSimulation() throws Exception {
+		write("Counter.cfg", "INIT Init\nNEXT Next\nINVARIANT Inv\n");
+		assertTrace(INV_TRACE, check(null, "-simulate", "-depth", "10"));
+	}
+
+	public void testLiveness() throws Exception {
+		write("Counter.cfg", "SPECIFICATION Spec\nPROPERTY Live\n");
+		// The counterexample ends by stuttering in a state with x < 3
+		assertStuttering(check("false"));
+		assertStuttering(check("true"));
+	}
+
+	private void assertTrace(final String[] expected, final String out) {
+		final List<String> values = values(out);
+		assertEquals(out, expected.length, values.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(out, expected[i], values.get(i));
+		}
+	}
+
+	private void assertStuttering(final String out) {
+		final List<String> values = values(out);
+		assertTrue(out, values.size() >= 2);
+		// The last state is followed by itself
+		assertEquals(out, "Dx = 0", values.get(values.size() - 1));
+		assertTrue(out, values.get(values.size() - 2).startsWith("Sum = "));
+		assertTrue(out, out.indexOf("Stuttering") > out.lastIndexOf("/\\ Dx = 0"));
+	}
+
+	/**
+	 * @return The values of the trace expressions in the order printed
+	 */
+	private List<String> values(final String out) {
+		final List<String> values = new ArrayList<String>();
+		final String[] lines = out.split("\n");
+		for (int i = 0; i < lines.length; i++) {
+			if (lines[i].startsWith("/\\ Sum = ") || lines[i].startsWith("/\\ Dx = ")) {
+				values.add(lines[i].substring(3).trim());
+			}
+		}
+		return values;
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The output of TLC
+	 */
+	private String check(final String onTheFly, final String... args) throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		if (onTheFly != null) {
+			cmd.add("-D" + LiveCheck.class.getName() + ".onTheFly=" + onTheFly);
+		}
+		cmd.add(TLC.class.getName());
+		cmd.add("-deadlock");
+		cmd.add("-traceexpr");
+		cmd.add("Sum,Dx");
+		for (int i = 0; i < args.length; i++) {
+			cmd.add(args[i]);
+		}
+		cmd.add("-metadir");
+		cmd.add(new File(dir, "states" + (runs++)).getAbsolutePath());
+		cmd.add("Counter");
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+			}
+			return out.toString();
+		} finally {
+			process.destroy();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import util.FileUtil;
+
+public class PeerTraceTest extends TestCase {
+
+	public void testReadWrite() throws Exception {
+		final File dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "PeerTraceTest"
+				+ System.currentTimeMillis());
+		dir.mkdirs();
+		try {
+			final PeerTrace trace = new PeerTrace(3, dir.getAbsolutePath());
+			final long init = trace.writeState(PeerTrace.NONE, 42L);
+			final long succ = trace.writeState(init, 4711L);
+			final long other = PeerTrace.getLocation(1, 17);
+			final long remote = trace.writeState(other, -1L);
+
+			assertEquals(3, PeerTrace.getPeer(init));
+			assertEquals(0, PeerTrace.getIndex(init));
+			assertEquals(2, PeerTrace.getIndex(remote));
+			assertEquals(1, PeerTrace.getPeer(other));
+			assertEquals(17, PeerTrace.getIndex(other));
+
+			assertEquals(PeerTrace.NONE, trace.getEntry(init)[0]);
+			assertEquals(42L, trace.getEntry(init)[1]);
+			assertEquals(init, trace.getEntry(succ)[0]);
+			assertEquals(4711L, trace.getEntry(succ)[1]);
+			assertEquals(other, trace.getEntry(remote)[0]);
+			assertEquals(-1L, trace.getEntry(remote)[1]);
+
+			// Reading does not change where the next entry is written
+			assertEquals(3, PeerTrace.getIndex(trace.writeState(remote, 1L)));
+			trace.close();
+		} finally {
+			FileUtil.deleteDir(dir, true);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+import tlc2.tool.TLCState;
+import tlc2.tool.TLCStateVec;
+import tlc2.tool.queue.DummyTLCState;
+import tlc2.util.LongVec;
+import tlc2.value.IntValue;
+import tlc2.value.RecordValue;
+import tlc2.value.StringValue;
+import tlc2.value.TupleValue;
+import tlc2.value.Value;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+import util.UniqueString;
+import util.WrongInvocationException;
+
+public class StateBlockCodecTest extends TestCase {
+
+	private static final UniqueString[] NAMES = new UniqueString[] { UniqueString.uniqueStringOf("pc"),
+			UniqueString.uniqueStringOf("counter") };
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		// Decoding a state creates it via TLCState.Empty
+		new ValueTLCState(0, null);
+	}
+
+	public void testNextStateResult() throws Exception {
+		final TLCStateVec[] states = new TLCStateVec[3];
+		final LongVec[] fps = new LongVec[3];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = new TLCStateVec();
+			fps[i] = new LongVec();
+			for (int j = 0; j < 100 * i; j++) {
+				states[i].addElement(new ValueTLCState(j, value(j)));
+				fps[i].addElement(j * 31L + i);
+			}
+		}
+		final NextStateResult res = (NextStateResult) roundTrip(new NextStateResult(states, fps, 42L, 4711L));
+		assertEquals(42L, res.getComputationTime());
+		assertEquals(states.length, res.getNextStates().length);
+		for (int i = 0; i < states.length; i++) {
+			assertEquals(states[i].size(), res.getNextStates()[i].size());
+			assertEquals(fps[i].size(), res.getNextFingerprints()[i].size());
+			for (int j = 0; j < states[i].size(); j++) {
+				assertEquals(states[i].elementAt(j), res.getNextStates()[i].elementAt(j));
+				assertEquals(fps[i].elementAt(j), res.getNextFingerprints()[i].elementAt(j));
+			}
+		}
+	}
+
+	public void testStateBlock() throws Exception {
+		final TLCState[] states = new TLCState[500];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = new ValueTLCState(i, value(i));
+		}
+		final StateBlock block = (StateBlock) roundTrip(new StateBlock(states));
+		assertEquals(states.length, block.size());
+		for (int i = 0; i < states.length; i++) {
+			assertEquals(states[i], block.getStates()[i]);
+		}
+	}
+
+	public void testCompress() throws Exception {
+		final TLCState[][] blocks = new TLCState[1][1000];
+		for (int i = 0; i < blocks[0].length; i++) {
+			blocks[0][i] = new ValueTLCState(i, value(i % 10));
+		}
+		final byte[] compact = StateBlockCodec.encode(blocks, false);
+		final byte[] deflated = StateBlockCodec.encode(blocks, true);
+		assertTrue(deflated.length < compact.length);
+
+		final TLCState[][] decoded = StateBlockCodec.decode(deflated, true);
+		for (int i = 0; i < blocks[0].length; i++) {
+			assertEquals(blocks[0][i], decoded[0][i]);
+		}
+	}
+
+	// The codec has to be more compact than Java serialization
+	public void testSize() throws Exception {
+		final TLCState[][] blocks = new TLCState[1][1000];
+		for (int i = 0; i < blocks[0].length; i++) {
+			blocks[0][i] = new ValueTLCState(i, value(i));
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(blocks);
+		oos.close();
+		assertTrue(StateBlockCodec.encode(blocks, false).length * 2 < bytes.size());
+		assertTrue(StateBlockCodec.encode(blocks, true).length * 10 < bytes.size());
+	}
+
+	// A value that cannot be pickled falls back to Java serialization
+	public void testFallback() throws Exception {
+		final TLCState[] states = new TLCState[] { new ValueTLCState(1, value(1)), new ValueTLCState(2, null) };
+		final StateBlock block = (StateBlock) roundTrip(new StateBlock(states));
+		assertEquals(states[0], block.getStates()[0]);
+		assertEquals(states[1], block.getStates()[1]);
+	}
+
+	private static Value value(final int i) {
+		final Value[] values = new Value[] { new StringValue("label" + (i % 3)),
+				new TupleValue(new Value[] { IntValue.gen(i), IntValue.gen(-i) }) };
+		return new RecordValue(NAMES, values, false);
+	}
+
+	private static Object roundTrip(final Object o) throws IOException, ClassNotFoundException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(o);
+		oos.close();
+		final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		return ois.readObject();
+	}
+
+	@SuppressWarnings("serial")
+	private static class ValueTLCState extends DummyTLCState {
+
+		private Value value;
+
+		public ValueTLCState(long uid, Value value) {
+			this.uid = uid;
+			this.value = value;
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.queue.DummyTLCState#createEmpty()
+		 */
+		public TLCState createEmpty() {
+			final TLCState empty = TLCState.Empty;
+			final TLCState state = new ValueTLCState(-1, null);
+			// do not replace the template
+			TLCState.Empty = empty;
+			return state;
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.TLCState#read(tlc2.value.ValueInputStream)
+		 */
+		public void read(ValueInputStream vis) throws IOException {
+			super.read(vis);
+			this.value = vis.read();
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.TLCState#write(tlc2.value.ValueOutputStream)
+		 */
+		public void write(ValueOutputStream vos) throws IOException {
+			if (this.value == null) {
+				throw new WrongInvocationException("Can not pickle the value");
+			}
+			super.write(vos);
+			vos.write(this.value);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof ValueTLCState)) {
+				return false;
+			}
+			final ValueTLCState other = (ValueTLCState) o;
+			return this.uid == other.uid
+					&& (this.value == null ? other.value == null : this.value.equals(other.value));
+		}
+
+		public int hashCode() {
+			return (int) this.uid;
+		}
+	}
+}
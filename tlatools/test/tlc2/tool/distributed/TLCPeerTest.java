@@ -0,0 +1,139 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import util.FileUtil;
+
+/**
+ * Checks a small spec with a {@link DecentralizedTLCServer} and two
+ * {@link TLCPeer}s, each running in a VM of its own.
+ */
+public class TLCPeerTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE Peers ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y\n"
+			+ "Init == x = 0 /\\ y = 0\n"
+			+ "Next == \\/ x < 30 /\\ x' = x + 1 /\\ UNCHANGED y\n"
+			+ "        \\/ y < 30 /\\ y' = y + 1 /\\ UNCHANGED x\n"
+			+ "Inv == x + y < 50\n"
+			+ "====\n";
+
+	private File dir;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "TLCPeerTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Peers.tla", SPEC);
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testCompleteStateSpace() throws Exception {
+		write("Peers.cfg", "INIT Init\nNEXT Next\n");
+		final String out = check();
+		// (30 + 1) * (30 + 1) states
+		assertTrue(out, out.indexOf("961 distinct states found, 0 states left on queue.") >= 0);
+		assertTrue(out, out.indexOf("Model checking completed. No error has been found.") >= 0);
+	}
+
+	public void testInvariantViolation() throws Exception {
+		write("Peers.cfg", "INIT Init\nNEXT Next\nINVARIANT Inv\n");
+		final String out = check();
+		assertTrue(out, out.indexOf("Invariant Inv is violated.") >= 0);
+		// The trace starts in the initial state
+		assertTrue(out, out.indexOf("1: <Initial predicate>") >= 0);
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The output of the server
+	 */
+	private String check() throws Exception {
+		final ServerSocket socket = new ServerSocket(0);
+		final int port = socket.getLocalPort();
+		socket.close();
+
+		final Node server = launch(port, new String[] { "-D" + TLCServer.class.getName() + ".expectedPeerCount=2",
+				TLCServer.class.getName(), "-deadlock", new File(dir, "Peers").getAbsolutePath() });
+		final List<Node> peers = new ArrayList<Node>();
+		try {
+			for (int i = 0; i < 2; i++) {
+				peers.add(launch(port, new String[] { TLCPeer.class.getName(), "localhost" }));
+			}
+			server.output.join(TIMEOUT);
+			assertFalse(server.out.toString(), server.output.isAlive());
+			return server.out.toString();
+		} finally {
+			server.process.destroy();
+			for (int i = 0; i < peers.size(); i++) {
+				peers.get(i).process.destroy();
+			}
+		}
+	}
+
+	private Node launch(final int port, final String[] args) throws IOException {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + TLCServer.class.getName() + ".port=" + port);
+		cmd.add("-D" + DecentralizedTLCServer.class.getName() + ".poll=100");
+		for (int i = 0; i < args.length; i++) {
+			cmd.add(args[i]);
+		}
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		return new Node(pb.start());
+	}
+
+	private static class Node {
+		private final Process process;
+		private final StringBuffer out = new StringBuffer();
+		private final Thread output;
+
+		Node(final Process process) {
+			this.process = process;
+			// Drain the output so that the process never blocks on it
+			this.output = new Thread() {
+				public void run() {
+					try {
+						final BufferedReader reader = new BufferedReader(new InputStreamReader(
+								Node.this.process.getInputStream()));
+						String line;
+						while ((line = reader.readLine()) != null) {
+							out.append(line).append('\n');
+						}
+					} catch (IOException e) {
+						// The process has been destroyed
+					}
+				}
+			};
+			this.output.setDaemon(true);
+			this.output.start();
+		}
+	}
+}
@@ -64,7 +64,7 @@ public class TLCWorkerSmartProxyTest extends TestCase {
 		TLCWorkerSmartProxy proxy = new TLCWorkerSmartProxy(aWorker);
 
 		// let proxy calculate current network overhead
-		NextStateResult nsr = proxy.getNextStates(states);
+		NextStateResult nsr = proxy.getNextStates(new StateBlock(states));
 		assertNotNull(nsr);
 
 		double networkOverhead = proxy.getNetworkOverhead();
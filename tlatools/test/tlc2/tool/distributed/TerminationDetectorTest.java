@@ -0,0 +1,45 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed;
+
+import junit.framework.TestCase;
+
+public class TerminationDetectorTest extends TestCase {
+
+	public void testTwoIdenticalRounds() {
+		final TerminationDetector detector = new TerminationDetector();
+		final long[][] round = new long[][] { stats(true, 10, 5), stats(true, 5, 11) };
+		// The server sent one (initial) state
+		assertFalse(detector.isTerminated(round, 1));
+		assertTrue(detector.isTerminated(round, 1));
+	}
+
+	public void testBusyPeer() {
+		final TerminationDetector detector = new TerminationDetector();
+		final long[][] round = new long[][] { stats(true, 10, 5), stats(false, 5, 11) };
+		assertFalse(detector.isTerminated(round, 1));
+		assertFalse(detector.isTerminated(round, 1));
+	}
+
+	public void testStatesInTransit() {
+		final TerminationDetector detector = new TerminationDetector();
+		final long[][] round = new long[][] { stats(true, 10, 5), stats(true, 5, 10) };
+		assertFalse(detector.isTerminated(round, 1));
+		assertFalse(detector.isTerminated(round, 1));
+	}
+
+	// A peer has sent and received states between two rounds
+	public void testChangedCounters() {
+		final TerminationDetector detector = new TerminationDetector();
+		assertFalse(detector.isTerminated(new long[][] { stats(true, 10, 5), stats(true, 5, 11) }, 1));
+		assertFalse(detector.isTerminated(new long[][] { stats(true, 12, 6), stats(true, 6, 13) }, 1));
+		assertTrue(detector.isTerminated(new long[][] { stats(true, 12, 6), stats(true, 6, 13) }, 1));
+	}
+
+	private static long[] stats(final boolean idle, final long sent, final long received) {
+		final long[] stats = new long[TLCPeerRMI.LEVEL + 1];
+		stats[TLCPeerRMI.IDLE] = idle ? 1 : 0;
+		stats[TLCPeerRMI.SENT] = sent;
+		stats[TLCPeerRMI.RECEIVED] = received;
+		return stats;
+	}
+}
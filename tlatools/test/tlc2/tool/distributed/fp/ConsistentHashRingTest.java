@@ -0,0 +1,96 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.fp;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ConsistentHashRingTest extends TestCase {
+
+	private static final int FPS = 100000;
+
+	public void testEmpty() {
+		final ConsistentHashRing ring = new ConsistentHashRing(16);
+		assertTrue(ring.isEmpty());
+		assertEquals(-1, ring.getOwner(42L));
+	}
+
+	/**
+	 * Tests that all servers get a fair share of the fingerprints
+	 */
+	public void testBalance() {
+		ConsistentHashRing ring = new ConsistentHashRing(128);
+		for (int i = 0; i < 8; i++) {
+			ring = ring.add(i);
+		}
+		final int[] counts = count(ring, 8);
+		for (int i = 0; i < counts.length; i++) {
+			// Expected 12500 per server
+			assertTrue("Server " + i + " owns " + counts[i], counts[i] > 9000 && counts[i] < 16000);
+		}
+	}
+
+	/**
+	 * Tests that a joining server only takes over ranges and does so from
+	 * all other servers
+	 */
+	public void testAdd() {
+		ConsistentHashRing ring = new ConsistentHashRing(64);
+		for (int i = 0; i < 4; i++) {
+			ring = ring.add(i);
+		}
+		final ConsistentHashRing joined = ring.add(4);
+		final int[] takenFrom = new int[4];
+		final Random rnd = new Random(4711L);
+		for (int i = 0; i < FPS; i++) {
+			final long fp = rnd.nextLong();
+			final int before = ring.getOwner(fp);
+			final int after = joined.getOwner(fp);
+			if (before != after) {
+				assertEquals(4, after);
+				takenFrom[before]++;
+			}
+		}
+		for (int i = 0; i < takenFrom.length; i++) {
+			assertTrue(takenFrom[i] > 0);
+		}
+	}
+
+	/**
+	 * Tests that the ranges of a removed server are spread over all others
+	 * and no other range moves
+	 */
+	public void testRemove() {
+		ConsistentHashRing ring = new ConsistentHashRing(64);
+		for (int i = 0; i < 4; i++) {
+			ring = ring.add(i);
+		}
+		final ConsistentHashRing removed = ring.remove(1);
+		assertFalse(removed.contains(1));
+		final int[] takenBy = new int[4];
+		final Random rnd = new Random(4711L);
+		for (int i = 0; i < FPS; i++) {
+			final long fp = rnd.nextLong();
+			final int before = ring.getOwner(fp);
+			final int after = removed.getOwner(fp);
+			if (before == 1) {
+				takenBy[after]++;
+			} else {
+				assertEquals(before, after);
+			}
+		}
+		assertEquals(0, takenBy[1]);
+		assertTrue(takenBy[0] > 0);
+		assertTrue(takenBy[2] > 0);
+		assertTrue(takenBy[3] > 0);
+	}
+
+	private static int[] count(final ConsistentHashRing ring, final int servers) {
+		final int[] counts = new int[servers];
+		// Fingerprints of consecutive values must be spread as well
+		for (long fp = 0; fp < FPS; fp++) {
+			counts[ring.getOwner(fp)]++;
+		}
+		return counts;
+	}
+}
@@ -451,6 +451,162 @@ public class DynamicFPSetManagerTest extends TestCase {
 		}
 	}
 	
+	/**
+	 * Tests that a {@link DynamicFPSetManager} with a consistent hash ring
+	 * accepts an FPSet mid-run and still knows all fingerprints.
+	 */
+	public void testRebalanceJoin() throws Exception {
+		final DynamicFPSetManager dfm = new DynamicFPSetManager(2, 32);
+		final FPSet[] sets = new FPSet[] { new MemFPSet(), new MemFPSet(), new MemFPSet() };
+		dfm.register(sets[0], "TestFPSet0");
+		dfm.register(sets[1], "TestFPSet1");
+
+		final LongVec[] fps = new LongVec[] { new LongVec() };
+		for (long fp = 0; fp < 1000; fp++) {
+			fps[0].addElement(fp);
+		}
+		assertEquals(1000, dfm.putBlock(fps)[0].trueCnt());
+
+		// Exceeds the expected number of servers
+		dfm.register(sets[2], "TestFPSet2");
+		assertEquals(3, dfm.numOfAliveServers());
+		
+		// Known while the ranges are migrated
+		assertEquals(0, dfm.containsBlock(fps)[0].trueCnt());
+		dfm.awaitMigrations();
+
+		// The joined server stores its ranges
+		int owned = 0;
+		for (long fp = 0; fp < 1000; fp++) {
+			if (dfm.getIndex(fp) == 2) {
+				assertTrue(sets[2].contains(fp));
+				owned++;
+			}
+		}
+		assertTrue(owned > 0);
+		assertEquals(owned, sets[2].size());
+
+		// The previous owners are no longer consulted
+		final long seen = seen(sets);
+		final ExecutorService es = Executors.newCachedThreadPool();
+		try {
+			assertEquals(0, dfm.containsBlock(fps, es)[0].trueCnt());
+			assertEquals(0, dfm.putBlock(fps, es)[0].trueCnt());
+		} finally {
+			es.shutdown();
+		}
+		assertEquals(1000, seen(sets) - seen);
+
+		// Migrated fingerprints are not counted twice
+		assertEquals(1000, dfm.size());
+		
+		final LongVec[] unseen = new LongVec[] { new LongVec() };
+		unseen[0].addElement(1000L);
+		assertEquals(1, dfm.containsBlock(unseen)[0].trueCnt());
+		assertFalse(dfm.put(1000L));
+		assertTrue(dfm.contains(1000L));
+	}
+
+	private static long seen(final FPSet[] sets) throws RemoteException {
+		long seen = 0L;
+		for (int i = 0; i < sets.length; i++) {
+			seen += sets[i].getStatesSeen();
+		}
+		return seen;
+	}
+
+	/**
+	 * Tests that the size of a {@link DynamicFPSetManager} with a consistent
+	 * hash ring stays correct if a server fails after it handed over some of
+	 * its ranges to a joined server.
+	 */
+	public void testRebalanceJoinFailover() throws Exception {
+		final DynamicFPSetManager dfm = new DynamicFPSetManager(2, 32);
+		final BreakableFPSet broken = new BreakableFPSet();
+		dfm.register(broken, "TestFPSet0");
+		dfm.register(new MemFPSet(), "TestFPSet1");
+
+		final LongVec[] fps = new LongVec[] { new LongVec() };
+		for (long fp = 0; fp < 1000; fp++) {
+			fps[0].addElement(fp);
+		}
+		assertEquals(1000, dfm.putBlock(fps)[0].trueCnt());
+
+		dfm.register(new MemFPSet(), "TestFPSet2");
+		dfm.awaitMigrations();
+		assertEquals(1000, dfm.size());
+
+		// The fingerprints TestFPSet0 still owns are lost, the ones it handed
+		// over to TestFPSet2 are not.
+		int lost = 0;
+		for (long fp = 0; fp < 1000; fp++) {
+			if (dfm.getIndex(fp) == 0) {
+				lost++;
+			}
+		}
+		assertTrue(lost > 0);
+		broken.broken = true;
+		assertEquals(lost, dfm.containsBlock(fps)[0].trueCnt());
+		assertEquals(2, dfm.numOfAliveServers());
+		assertEquals(1000 - lost, dfm.size());
+	}
+
+	@SuppressWarnings("serial")
+	private static class BreakableFPSet extends MemFPSet {
+		private volatile boolean broken = false;
+
+		BreakableFPSet() throws RemoteException {
+			super();
+		}
+
+		private void check() {
+			if (broken) {
+				throw new RuntimeException("Test FPSet");
+			}
+		}
+
+		public synchronized boolean put(long fp) {
+			check();
+			return super.put(fp);
+		}
+
+		public synchronized boolean contains(long fp) {
+			check();
+			return super.contains(fp);
+		}
+	}
+
+	/**
+	 * Tests that a {@link DynamicFPSetManager} with a consistent hash ring
+	 * spreads the fingerprints of a failed FPSet over the remaining ones.
+	 */
+	public void testRebalanceFailover() throws RemoteException {
+		final DynamicFPSetManager dfm = new DynamicFPSetManager(3, 32);
+		dfm.register(new FaultyFPSet(), "TestFPSet");
+		dfm.register(new MemFPSet(), "RegularFPSet1");
+		dfm.register(new MemFPSet(), "RegularFPSet2");
+
+		long fp = 0;
+		while (dfm.getIndex(fp) != 0) {
+			fp++;
+		}
+		assertFalse(dfm.put(fp));
+		// TestFPSet fails and its fingerprints are lost
+		assertFalse(dfm.put(fp));
+		assertEquals(2, dfm.numOfAliveServers());
+		assertTrue(dfm.contains(fp));
+		assertTrue(dfm.getIndex(fp) != 0);
+
+		// All remaining servers take over ranges of TestFPSet
+		final boolean[] owners = new boolean[3];
+		for (long l = 0; l < 10000; l++) {
+			owners[dfm.getIndex(l)] = true;
+		}
+		assertFalse(owners[0]);
+		assertTrue(owners[1]);
+		assertTrue(owners[2]);
+	}
+
 	/**
 	 * Tests if the {@link FPSetManager} returns the BitVector[] with correct
 	 * order.
@@ -0,0 +1,71 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.distributed.selector;
+
+import junit.framework.TestCase;
+import tlc2.tool.distributed.TLCWorkerSmartProxy.Invocation;
+
+public class WorkerModelTest extends TestCase {
+
+	// 0.1ms per state computation, 10ms latency and 0.001ms per state transfer
+	private static Invocation invocation(final int states, final int nextStates) {
+		final long compute = states / 10;
+		final long network = 10 + states / 1000;
+		return new Invocation(states, nextStates, compute + network, compute, 0L);
+	}
+
+	public void testNoSamples() {
+		final WorkerModel model = new WorkerModel();
+		assertFalse(model.hasSamples());
+		assertFalse(model.update(null));
+		assertFalse(model.hasSamples());
+	}
+
+	public void testUpdateOnce() {
+		final WorkerModel model = new WorkerModel();
+		final Invocation invocation = invocation(1000, 1000);
+		assertTrue(model.update(invocation));
+		assertFalse(model.update(invocation));
+		assertTrue(model.hasSamples());
+	}
+
+	public void testRegression() {
+		final WorkerModel model = new WorkerModel();
+		model.update(invocation(1000, 1000));
+		model.update(invocation(2000, 2000));
+		model.update(invocation(4000, 4000));
+		
+		assertEquals(0.1d, model.getComputeTime(), 1e-9);
+		assertEquals(1d, model.getNextStatesPerState(), 1e-9);
+		assertEquals(10d, model.getLatency(), 1e-6);
+		assertEquals(0.001d, model.getTransferTime(), 1e-9);
+		
+		// 10 * 0.95 / (0.05 * 0.1 - 0.95 * 0.001) = 2345.67...
+		assertEquals(2346L, model.getBlockSize(0.05d, 8192));
+		assertEquals(1024L, model.getBlockSize(0.05d, 1024));
+	}
+
+	// Transfer time exceeding the overhead makes latency amortization the only goal
+	public void testTransferBound() {
+		final WorkerModel model = new WorkerModel();
+		model.update(invocation(1000, 1000));
+		model.update(invocation(2000, 2000));
+		assertEquals(8192L, model.getBlockSize(0.001d, 8192));
+	}
+
+	// Large results limit the block size
+	public void testResultBound() {
+		final WorkerModel model = new WorkerModel();
+		model.update(invocation(1000, 8000));
+		model.update(invocation(2000, 16000));
+		assertEquals(1024L, model.getBlockSize(0.05d, 8192));
+	}
+
+	// Equally sized blocks attribute all network time to the latency
+	public void testSameBlockSize() {
+		final WorkerModel model = new WorkerModel();
+		model.update(invocation(1000, 1000));
+		model.update(invocation(1000, 1000));
+		assertEquals(0d, model.getTransferTime(), 0d);
+		assertEquals(11d, model.getLatency(), 1e-9);
+	}
+}
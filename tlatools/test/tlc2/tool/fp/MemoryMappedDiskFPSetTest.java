@@ -0,0 +1,56 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.fp;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class MemoryMappedDiskFPSetTest extends AbstractFPSetTest {
+
+	private static final String MMAP_PROPERTY = DiskFPSet.class.getName() + ".mmap";
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.AbstractFPSetTest#getFPSet(tlc2.tool.fp.FPSetConfiguration)
+	 */
+	@SuppressWarnings("deprecation")
+	protected FPSet getFPSet(final FPSetConfiguration fpSetConfig) throws IOException {
+		// a tiny in-memory table forces frequent flushes to disk
+		final DummyFPSetConfiguration config = new DummyFPSetConfiguration();
+		config.setMemory(1L << 12);
+		System.setProperty(MMAP_PROPERTY, Boolean.TRUE.toString());
+		try {
+			return new MSBDiskFPSet(config);
+		} finally {
+			System.clearProperty(MMAP_PROPERTY);
+		}
+	}
+
+	public void testMappedLookup() throws IOException {
+		final DiskFPSet fpSet = (DiskFPSet) getFPSetInitialized();
+		assertFalse(fpSet.isMemoryMapped());
+
+		final int cnt = 1 << 16;
+		final Random rnd = new Random(RNG_SEED);
+		for (int i = 0; i < cnt; i++) {
+			// MSBDiskFPSet uses the msb itself
+			final long fp = rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL;
+			assertFalse(fpSet.put(fp));
+		}
+		assertTrue(fpSet.getFileCnt() > 0);
+		// Refused where a mapped file cannot be replaced
+		assertEquals(!DiskFPSet.LOCKS_MAPPED_FILES, fpSet.isMemoryMapped());
+
+		// every fp is found again, most of them on disk
+		rnd.setSeed(RNG_SEED);
+		for (int i = 0; i < cnt; i++) {
+			assertTrue(fpSet.contains(rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL));
+		}
+		assertTrue(fpSet.getDiskHitCnt() > 0);
+		// ...but no fp that has never been inserted
+		for (int i = 0; i < cnt; i++) {
+			assertFalse(fpSet.contains(rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL));
+		}
+		assertEquals(cnt, fpSet.size());
+		assertTrue(fpSet.checkInvariant());
+		fpSet.close();
+	}
+}
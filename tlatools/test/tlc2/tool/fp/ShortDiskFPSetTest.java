@@ -5,7 +5,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import tlc2.tool.distributed.fp.FPSetRMI.Filter;
 import tlc2.util.LongVec;
 
 public class ShortDiskFPSetTest extends AbstractFPSetTest {
@@ -525,4 +529,40 @@ public class ShortDiskFPSetTest extends AbstractFPSetTest {
 		// BitVector is false if fp is in set 
 		assertFalse(fpSet.putBlock(fpv).get(0));
 	}
+
+	/**
+	 * Tests that {@link DiskFPSet#getFingerprints(tlc2.tool.distributed.fp.FPSetRMI.Filter, long, int)}
+	 * pages through the fingerprints in memory and on disk.
+	 */
+	public void testGetFingerprints() throws IOException {
+		final DiskFPSet fpSet = (DiskFPSet) getFPSet(new FPSetConfiguration());
+		final Random rnd = new Random(RNG_SEED);
+		final SortedSet<Long> expected = new TreeSet<Long>();
+		for (int i = 0; i < 20000; i++) {
+			final long fp = rnd.nextLong();
+			fpSet.put(fp);
+			// Stored without the MSB
+			final long fp0 = fp & 0x7FFFFFFFFFFFFFFFL;
+			if (fp0 % 3 == 0) {
+				expected.add(fp0);
+			}
+		}
+		final Filter filter = new Filter() {
+			public boolean accept(long fp) {
+				return fp % 3 == 0;
+			}
+		};
+
+		final Iterator<Long> itr = expected.iterator();
+		long from = Long.MIN_VALUE;
+		LongVec page;
+		while ((page = fpSet.getFingerprints(filter, from, 1000)).size() > 0) {
+			assertTrue(page.size() <= 1000);
+			for (int i = 0; i < page.size(); i++) {
+				assertEquals(itr.next().longValue(), page.elementAt(i));
+			}
+			from = page.elementAt(page.size() - 1) + 1L;
+		}
+		assertFalse(itr.hasNext());
+	}
 }
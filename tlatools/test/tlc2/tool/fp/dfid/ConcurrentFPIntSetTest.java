@@ -0,0 +1,113 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.fp.dfid;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class ConcurrentFPIntSetTest extends TestCase {
+
+	/**
+	 * The status of the fingerprints has to evolve as with a
+	 * {@link MemFPIntSet}, including the zero fingerprint.
+	 */
+	public void testStatusLikeMemFPIntSet() throws Exception {
+		final ConcurrentFPIntSet set = new ConcurrentFPIntSet(1L << 20);
+		final MemFPIntSet expected = new MemFPIntSet();
+		final Random rnd = new Random(15041980L);
+		for (int i = 0; i < 100000; i++) {
+			// Repeat fingerprints often
+			final long fp = i % 1000 == 0 ? 0L : rnd.nextLong() % 20000L;
+			final int status = rnd.nextBoolean() ? FPIntSet.NEW : FPIntSet.DONE;
+			assertEquals(expected.getStatus(fp), set.getStatus(fp));
+			assertEquals(expected.setStatus(fp, status), set.setStatus(fp, status));
+			if (i % 7 == 0) {
+				expected.setLeveled(fp);
+				set.setLeveled(fp);
+			}
+		}
+		assertEquals(expected.size(), set.size());
+		assertEquals(expected.allLeveled(), set.allLeveled());
+	}
+
+	/**
+	 * Exactly one of the threads adding the same fingerprint adds it
+	 */
+	public void testConcurrentSetStatus() throws Exception {
+		final ConcurrentFPIntSet set = new ConcurrentFPIntSet(1L << 20);
+		final AtomicInteger added = new AtomicInteger(0);
+		final Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (long fp = 1; fp <= 10000; fp++) {
+						if (set.setStatus(fp * 0x9E3779B97F4A7C15L, FPIntSet.NEW) == FPIntSet.NEW) {
+							added.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(10000, added.get());
+		assertEquals(10000, set.size());
+	}
+
+	/**
+	 * A checkpoint can be recovered by a {@link ConcurrentFPIntSet} as well as
+	 * by a {@link MemFPIntSet}.
+	 */
+	public void testCheckpoint() throws Exception {
+		final File metadir = File.createTempFile("ConcurrentFPIntSetTest", null);
+		metadir.delete();
+		metadir.mkdirs();
+		try {
+			final ConcurrentFPIntSet set = new ConcurrentFPIntSet(1L << 20);
+			set.init(1, metadir.getAbsolutePath(), "chkpt");
+			for (long fp = -500; fp < 500; fp++) {
+				set.setStatus(fp, fp % 3 == 0 ? FPIntSet.DONE : FPIntSet.NEW);
+			}
+			set.beginChkpt();
+			set.commitChkpt();
+
+			final ConcurrentFPIntSet recovered = new ConcurrentFPIntSet(1L << 20);
+			recovered.init(1, metadir.getAbsolutePath(), "chkpt");
+			recovered.recover();
+			final MemFPIntSet mem = new MemFPIntSet();
+			mem.init(1, metadir.getAbsolutePath(), "chkpt");
+			mem.recover();
+
+			assertEquals(1000, recovered.size());
+			assertEquals(1000, mem.size());
+			for (long fp = -500; fp < 500; fp++) {
+				assertEquals(set.getStatus(fp), recovered.getStatus(fp));
+				assertEquals(set.getStatus(fp), mem.getStatus(fp));
+			}
+		} finally {
+			final File[] files = metadir.listFiles();
+			for (int i = 0; files != null && i < files.length; i++) {
+				files[i].delete();
+			}
+			metadir.delete();
+		}
+	}
+
+	public void testFull() throws Exception {
+		// The minimal capacity of 1024 slots
+		final ConcurrentFPIntSet set = new ConcurrentFPIntSet(0L);
+		try {
+			for (long fp = 1; fp <= 1024; fp++) {
+				set.setStatus(fp, FPIntSet.NEW);
+			}
+		} catch (OutOfMemoryError e) {
+			assertEquals(768, set.size());
+			return;
+		}
+		fail("A full set must run out of memory");
+	}
+}
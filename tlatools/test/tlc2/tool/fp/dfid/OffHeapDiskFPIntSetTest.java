@@ -0,0 +1,88 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.fp.dfid;
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class OffHeapDiskFPIntSetTest extends TestCase {
+
+	private File metadir;
+
+	protected void setUp() throws Exception {
+		metadir = File.createTempFile("OffHeapDiskFPIntSetTest", null);
+		metadir.delete();
+		metadir.mkdirs();
+	}
+
+	protected void tearDown() throws Exception {
+		final File[] files = metadir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		metadir.delete();
+	}
+
+	/**
+	 * The status of the fingerprints has to evolve as with a
+	 * {@link MemFPIntSet} while the set spills to disk many times.
+	 */
+	public void testStatusLikeMemFPIntSet() throws Exception {
+		// The minimal table of 1024 slots
+		final OffHeapDiskFPIntSet set = new OffHeapDiskFPIntSet(0L);
+		set.init(1, metadir.getAbsolutePath(), "spill");
+		final MemFPIntSet expected = new MemFPIntSet();
+		final Random rnd = new Random(15041980L);
+		for (int i = 0; i < 100000; i++) {
+			// Repeat fingerprints often
+			final long fp = i % 1000 == 0 ? 0L : rnd.nextLong() % 20000L;
+			final int status = rnd.nextBoolean() ? FPIntSet.NEW : FPIntSet.DONE;
+			assertEquals(expected.getStatus(fp), set.getStatus(fp));
+			assertEquals(expected.setStatus(fp, status), set.setStatus(fp, status));
+			if (i % 7 == 0) {
+				expected.setLeveled(fp);
+				set.setLeveled(fp);
+			}
+			if (i % 25000 == 0) {
+				assertEquals(expected.allLeveled(), set.allLeveled());
+				FPIntSet.incLevel();
+			}
+		}
+		assertEquals(expected.size(), set.size());
+		assertEquals(expected.allLeveled(), set.allLeveled());
+		assertTrue(new File(metadir, "spill.fpi").length() > 0L);
+		set.close();
+	}
+
+	/**
+	 * A checkpoint of a spilled set can be recovered by an
+	 * {@link OffHeapDiskFPIntSet} as well as by a {@link MemFPIntSet}.
+	 */
+	public void testCheckpoint() throws Exception {
+		final OffHeapDiskFPIntSet set = new OffHeapDiskFPIntSet(0L);
+		set.init(1, metadir.getAbsolutePath(), "chkpt");
+		for (long fp = -5000; fp < 5000; fp++) {
+			set.setStatus(fp, fp % 3 == 0 ? FPIntSet.DONE : FPIntSet.NEW);
+		}
+		set.beginChkpt();
+		set.commitChkpt();
+
+		final OffHeapDiskFPIntSet recovered = new OffHeapDiskFPIntSet(0L);
+		recovered.init(1, metadir.getAbsolutePath(), "recovered");
+		recovered.recover("chkpt");
+		final MemFPIntSet mem = new MemFPIntSet();
+		mem.init(1, metadir.getAbsolutePath(), "chkpt");
+		mem.recover();
+
+		assertEquals(10000, recovered.size());
+		assertEquals(10000, mem.size());
+		for (long fp = -5000; fp < 5000; fp++) {
+			assertEquals(set.getStatus(fp), recovered.getStatus(fp));
+			assertEquals(set.getStatus(fp), mem.getStatus(fp));
+		}
+		assertEquals(1.0d, recovered.checkFPs(), 0.0d);
+		set.close();
+		recovered.close();
+	}
+}
@@ -0,0 +1,237 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import tlc2.tool.Action;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.Tool;
+import tlc2.util.FP64;
+import tlc2.util.LongVec;
+import util.FileUtil;
+import util.SimpleFilenameToStream;
+import util.ToolIO;
+
+/**
+ * Checks that incremental liveness checking (see
+ * {@link LiveCheck#INCREMENTAL}) and the full check agree on each check of
+ * a partial behavior graph. {@link #main(String[])} explores a spec
+ * breadth-first and checks liveness after every few states, the way the
+ * model checker does periodically. Since {@link LiveCheck#INCREMENTAL} is
+ * fixed per VM, the test runs it in a VM of its own for each mode.
+ * <p>
+ * The specs consist of cycles of different lengths, so the shorter cycles
+ * are explored (and closed) while the longer ones are still growing. With a
+ * tableau, a check sees nodes which have been recorded but not yet expanded.
+ */
+public class IncrementalLiveCheckTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	/**
+	 * The number of states explored between two checks
+	 */
+	private static final int INTERVAL = 20;
+
+	private static final String SPEC = "---- MODULE Cycles ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES c, x\n"
+			+ "Init == c \\in 1..4 /\\ x = 0\n"
+			+ "Step == c' = c /\\ x < 100 /\\ x' = (x + 1) % (c * 25)\n"
+			// A state from which x never returns to 0
+			+ "Trap == c' = c /\\ c = 4 /\\ x = 70 /\\ x' = 200\n"
+			+ "Spec == Init /\\ [][Step]_<<c, x>> /\\ WF_<<c, x>>(Step)\n"
+			+ "TrapSpec == Init /\\ [][Step \\/ Trap]_<<c, x>> /\\ WF_<<c, x>>(Step \\/ Trap)\n"
+			// Checked without a tableau
+			+ "Infinitely == []<>(x = 0)\n"
+			// Checked with a tableau
+			+ "LeadsTo == (x = 1) ~> (x = 0)\n"
+			+ "====\n";
+
+	private File dir;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "IncrementalLiveCheckTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Cycles.tla", SPEC);
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testWithoutTableau() throws Exception {
+		write("Cycles.cfg", "SPECIFICATION Spec\nPROPERTY Infinitely\n");
+		assertSameChecks(false);
+	}
+
+	public void testWithoutTableauViolated() throws Exception {
+		write("Cycles.cfg", "SPECIFICATION TrapSpec\nPROPERTY Infinitely\n");
+		assertSameChecks(true);
+	}
+
+	public void testWithTableau() throws Exception {
+		write("Cycles.cfg", "SPECIFICATION Spec\nPROPERTY LeadsTo\n");
+		assertSameChecks(false);
+	}
+
+	public void testWithTableauViolated() throws Exception {
+		write("Cycles.cfg", "SPECIFICATION TrapSpec\nPROPERTY LeadsTo\n");
+		assertSameChecks(true);
+	}
+
+	private void assertSameChecks(final boolean violated) throws Exception {
+		final List<String> full = check(false);
+		final List<String> incremental = check(true);
+
+		// Several checks on the partial graph plus the final one
+		assertTrue(full.toString(), full.size() > 3);
+		assertEquals(full.size(), incremental.size());
+		boolean closed = false;
+		for (int i = 0; i < full.size(); i++) {
+			final String[] expected = full.get(i).split(" ");
+			final String[] actual = incremental.get(i).split(" ");
+			// Same number of explored states and same result
+			assertEquals(incremental.toString(), expected[1], actual[1]);
+			assertEquals(incremental.toString(), expected[2], actual[2]);
+			assertEquals(incremental.toString(), expected[3], actual[3]);
+			// The graph only grows, so fewer open nodes than before means that
+			// the check has closed some
+			closed |= i > 0 && Integer.parseInt(actual[4]) < Integer.parseInt(incremental.get(i - 1).split(" ")[4]);
+		}
+		assertTrue(incremental.toString(), closed);
+		assertEquals(full.toString(), violated, full.get(full.size() - 1).indexOf(" violated ") > 0);
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The lines printed by {@link #main(String[])} for each check
+	 */
+	private List<String> check(final boolean incremental) throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + LiveCheck.class.getName() + ".incremental=" + incremental);
+		cmd.add(IncrementalLiveCheckTest.class.getName());
+		cmd.add(dir.getAbsolutePath());
+		cmd.add("Cycles");
+		cmd.add(new File(dir, incremental ? "incremental" : "full").getAbsolutePath());
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final List<String> checks = new ArrayList<String>();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+				if (line.startsWith("Check ")) {
+					checks.add(line);
+				}
+			}
+			assertEquals(out.toString(), 0, process.waitFor());
+			return checks;
+		} finally {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Explores the given spec breadth-first and checks liveness after every
+	 * {@link #INTERVAL} states and at the end. Prints a line
+	 * "Check &lt;n&gt; &lt;explored states&gt; ok|violated &lt;open nodes&gt;"
+	 * for each check and stops at the first violation.
+	 * <p>
+	 * Usage: IncrementalLiveCheckTest dir spec metadir
+	 */
+	public static void main(final String[] args) throws Exception {
+		final String specDir = args[0] + File.separator;
+		ToolIO.setUserDir(specDir);
+		FP64.Init(0);
+		final Tool tool = new Tool(specDir, args[1], args[1], new SimpleFilenameToStream());
+		tool.init(true, null);
+		final Action[] actions = tool.getActions();
+		final File metadir = new File(args[2]);
+		metadir.mkdirs();
+		LiveCheck.init(tool, actions, metadir.getAbsolutePath());
+
+		final Set<Long> seen = new HashSet<Long>();
+		final LinkedList<TLCState> queue = new LinkedList<TLCState>();
+		final StateVec inits = tool.getInitStates();
+		for (int i = 0; i < inits.size(); i++) {
+			final TLCState state = inits.elementAt(i);
+			final long fp = state.fingerPrint();
+			if (tool.isInModel(state) && seen.add(Long.valueOf(fp))) {
+				LiveCheck.addInitState(state, fp);
+				queue.add(state);
+			}
+		}
+
+		int explored = 0;
+		int checks = 0;
+		while (!queue.isEmpty()) {
+			final TLCState curState = queue.removeFirst();
+			final long curFP = curState.fingerPrint();
+			final StateVec liveNextStates = new StateVec(2);
+			final LongVec liveNextFPs = new LongVec(2);
+			for (int i = 0; i < actions.length; i++) {
+				final StateVec nextStates = tool.getNextStates(actions[i], curState);
+				for (int j = 0; j < nextStates.size(); j++) {
+					final TLCState succState = nextStates.elementAt(j);
+					if (tool.isInModel(succState) && tool.isInActions(curState, succState)) {
+						final long fp = succState.fingerPrint();
+						if (seen.add(Long.valueOf(fp))) {
+							queue.add(succState);
+						}
+						liveNextStates.addElement(succState);
+						liveNextFPs.addElement(fp);
+					}
+				}
+			}
+			// The stuttering step
+			liveNextStates.addElement(curState);
+			liveNextFPs.addElement(curFP);
+			LiveCheck.addNextState(curState, curFP, liveNextStates, liveNextFPs);
+
+			if (++explored % INTERVAL == 0 && !check(++checks, explored)) {
+				System.exit(0);
+			}
+		}
+		check(++checks, explored);
+		System.exit(0);
+	}
+
+	private static boolean check(final int n, final int explored) throws Exception {
+		final boolean ok = LiveCheck.check();
+		// The full check leaves all nodes open
+		long open = LiveCheck.INCREMENTAL ? 0 : explored;
+		for (int i = 0; i < LiveCheck.dgraphs.length && LiveCheck.INCREMENTAL; i++) {
+			open += LiveCheck.dgraphs[i].getOpenNodeCnt();
+		}
+		System.out.println("Check " + n + " " + explored + " " + (ok ? "ok" : "violated") + " " + open);
+		return ok;
+	}
+}
@@ -0,0 +1,91 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import tlc2.util.BitVector;
+
+public class MappedNodeFileTest extends TestCase {
+
+	private File file;
+	private MappedNodeFile nodeFile;
+
+	protected void setUp() throws Exception {
+		file = File.createTempFile("nodes", null);
+		nodeFile = new MappedNodeFile(file.getAbsolutePath());
+	}
+
+	protected void tearDown() throws Exception {
+		nodeFile.close();
+		file.delete();
+	}
+
+	private static GraphNode node(final long fp, final int tidx, final long[] succs, final int[] tidxs,
+			final int checkCnt) {
+		final int[] nnodes = new int[3 * succs.length];
+		for (int i = 0; i < succs.length; i++) {
+			nnodes[3 * i] = (int) (succs[i] >>> 32);
+			nnodes[3 * i + 1] = (int) succs[i];
+			nnodes[3 * i + 2] = tidxs[i];
+		}
+		final BitVector checks = new BitVector(checkCnt);
+		for (int i = 0; i < checkCnt; i += 3) {
+			checks.set(i);
+		}
+		return new GraphNode(fp, tidx, nnodes, checks);
+	}
+
+	private void assertRead(final GraphNode expected, final long ptr) throws IOException {
+		final GraphNode actual = nodeFile.read(expected.stateFP, expected.tindex, ptr);
+		assertEquals(expected, actual);
+		assertEquals(expected.succSize(), actual.succSize());
+		for (int i = 0; i < expected.succSize(); i++) {
+			assertEquals(expected.getStateFP(i), actual.getStateFP(i));
+			assertEquals(expected.getTidx(i), actual.getTidx(i));
+		}
+		assertEquals(expected.checks, actual.checks);
+	}
+
+	public void testAppendRead() throws IOException {
+		final GraphNode empty = node(1L, -1, new long[0], new int[0], 0);
+		// The tableau successors of a state are consecutive
+		final GraphNode tableau = node(-42L, 7, new long[] { Long.MIN_VALUE, Long.MIN_VALUE, -1L, -1L, 3L },
+				new int[] { 0, Integer.MAX_VALUE, 2, 2, 5 }, 100);
+		final GraphNode noTableau = node(0L, -1, new long[] { 0L, 0L, 0x123456789ABCDEFL }, new int[] { -1, -1, -1 }, 7);
+
+		final long ptr0 = nodeFile.append(empty);
+		final long ptr1 = nodeFile.append(tableau);
+		final long ptr2 = nodeFile.append(noTableau);
+		assertEquals(0L, ptr0);
+		assertTrue(ptr0 < ptr1 && ptr1 < ptr2);
+		assertTrue(ptr2 < nodeFile.getFilePointer());
+
+		assertRead(noTableau, ptr2);
+		assertRead(empty, ptr0);
+		assertRead(tableau, ptr1);
+	}
+
+	public void testSegmentBoundary() throws IOException {
+		final GraphNode node = node(5L, 1, new long[] { 6L, 7L, 8L }, new int[] { 1, 2, 3 }, 130);
+		for (int i = 1; i < 40; i++) {
+			nodeFile.seek(MappedNodeFile.SEGMENT_SIZE - i);
+			final long ptr = nodeFile.append(node);
+			assertEquals(MappedNodeFile.SEGMENT_SIZE - i, ptr);
+			assertRead(node, ptr);
+		}
+	}
+
+	public void testSeek() throws IOException {
+		final GraphNode node0 = node(5L, -1, new long[] { 6L }, new int[] { -1 }, 2);
+		final GraphNode node1 = node(6L, -1, new long[] { 5L, 7L }, new int[] { -1, -1 }, 3);
+		nodeFile.append(node0);
+		final long ptr = nodeFile.getFilePointer();
+		nodeFile.append(node0);
+		// Discards the second node0
+		nodeFile.seek(ptr);
+		assertEquals(ptr, nodeFile.append(node1));
+		assertRead(node1, ptr);
+	}
+}
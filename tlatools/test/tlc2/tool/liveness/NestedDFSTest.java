@@ -0,0 +1,129 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import tlc2.TLC;
+import util.FileUtil;
+
+/**
+ * Checks specs with and without on-the-fly liveness checking (see
+ * {@link LiveCheck#ON_THE_FLY}), each in a VM of its own, and compares the
+ * results.
+ */
+public class NestedDFSTest extends TestCase {
+
+	private static final long TIMEOUT = 120 * 1000L;
+
+	private static final String SPEC = "---- MODULE Grid ----\n"
+			+ "EXTENDS Naturals\n"
+			+ "VARIABLES x, y\n"
+			+ "Init == x = 0 /\\ y = 0\n"
+			+ "Next == \\/ x < 20 /\\ x' = x + 1 /\\ UNCHANGED y\n"
+			+ "        \\/ y < 20 /\\ y' = y + 1 /\\ UNCHANGED x\n"
+			+ "Spec == Init /\\ [][Next]_<<x, y>>\n"
+			+ "Holds == (x = 5) ~> (x >= 5)\n"
+			// Violated by stuttering in any state with x = 5 and y < 20
+			+ "Violated == (x = 5) ~> (y = 20)\n"
+			+ "====\n";
+
+	private static final String VIOLATED = "Temporal properties were violated.";
+	private static final String NO_ERROR = "Model checking completed. No error has been found.";
+
+	private File dir;
+	private int runs = 0;
+
+	public void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "NestedDFSTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		write("Grid.tla", SPEC);
+	}
+
+	public void tearDown() {
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testNoViolation() throws Exception {
+		write("Grid.cfg", "SPECIFICATION Spec\nPROPERTY Holds\n");
+		assertTrue(check(false, null).indexOf(NO_ERROR) >= 0);
+
+		final String out = check(true, null);
+		assertTrue(out, out.indexOf(NO_ERROR) >= 0);
+		// The search has been completed (and the final check skipped)
+		assertTrue(out, out.indexOf("On-the-fly liveness checking found no violation in 1 of 1 behavior graphs.") >= 0);
+	}
+
+	public void testViolation() throws Exception {
+		write("Grid.cfg", "SPECIFICATION Spec\nPROPERTY Violated\n");
+		assertTrue(check(false, null).indexOf(VIOLATED) >= 0);
+
+		final String out = check(true, null);
+		assertTrue(out, out.indexOf(VIOLATED) >= 0);
+		assertTrue(out, out.indexOf("On-the-fly liveness checking found no violation") < 0);
+	}
+
+	public void testGiveUp() throws Exception {
+		// Without any memory, the search gives up and the final check decides
+		write("Grid.cfg", "SPECIFICATION Spec\nPROPERTY Holds\n");
+		String out = check(true, "0");
+		assertTrue(out, out.indexOf("On-the-fly liveness checking gave up") >= 0);
+		assertTrue(out, out.indexOf(NO_ERROR) >= 0);
+
+		write("Grid.cfg", "SPECIFICATION Spec\nPROPERTY Violated\n");
+		out = check(true, "0");
+		assertTrue(out, out.indexOf("On-the-fly liveness checking gave up") >= 0);
+		assertTrue(out, out.indexOf(VIOLATED) >= 0);
+	}
+
+	private void write(final String name, final String content) throws IOException {
+		final FileWriter writer = new FileWriter(new File(dir, name));
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @return The output of TLC
+	 */
+	private String check(final boolean onTheFly, final String maxMemory) throws Exception {
+		final List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add("-D" + LiveCheck.class.getName() + ".onTheFly=" + onTheFly);
+		if (maxMemory != null) {
+			cmd.add("-D" + NestedDFS.class.getName() + ".maxMemory=" + maxMemory);
+		}
+		cmd.add(TLC.class.getName());
+		cmd.add("-deadlock");
+		cmd.add("-metadir");
+		cmd.add(new File(dir, "states" + (runs++)).getAbsolutePath());
+		cmd.add("Grid");
+		final ProcessBuilder pb = new ProcessBuilder(cmd);
+		pb.directory(dir);
+		pb.redirectErrorStream(true);
+		final Process process = pb.start();
+		final long deadline = System.currentTimeMillis() + TIMEOUT;
+		try {
+			final StringBuffer out = new StringBuffer();
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = reader.readLine()) != null && System.currentTimeMillis() < deadline) {
+				out.append(line).append('\n');
+			}
+			return out.toString();
+		} finally {
+			process.destroy();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.liveness;
+
+import junit.framework.TestCase;
+
+public class OffHeapNodePtrTableTest extends TestCase {
+
+	public void testPutGet() {
+		final OffHeapNodePtrTable tbl = new OffHeapNodePtrTable(1);
+		assertEquals(-1L, tbl.get(42L, -1));
+		tbl.put(42L, -1, 0L);
+		tbl.put(42L, 3, 17L);
+		// 0 is a valid fingerprint
+		tbl.put(0L, 0, 23L);
+		assertEquals(0L, tbl.get(42L, -1));
+		assertEquals(17L, tbl.get(42L, 3));
+		assertEquals(23L, tbl.get(0L, 0));
+		assertEquals(-1L, tbl.get(42L, 0));
+		assertEquals(-1L, tbl.get(0L, -1));
+		assertEquals(3L, tbl.size());
+
+		tbl.put(42L, 3, DiskGraph.MAX_LINK);
+		assertEquals(DiskGraph.MAX_LINK, tbl.get(42L, 3));
+		assertEquals(3L, tbl.size());
+	}
+
+	public void testLoc() {
+		final OffHeapNodePtrTable tbl = new OffHeapNodePtrTable(16);
+		tbl.put(-7L, Integer.MAX_VALUE, 1L);
+		final long loc = tbl.getLoc(-7L, Integer.MAX_VALUE);
+		assertEquals(-1L, tbl.getLoc(-7L, Integer.MIN_VALUE));
+		assertEquals(-7L, tbl.getKeyByLoc(loc));
+		assertEquals(Integer.MAX_VALUE, tbl.getTidxByLoc(loc));
+		assertEquals(1L, tbl.getByLoc(loc));
+		tbl.putByLoc(DiskGraph.MAX_PTR, loc);
+		assertEquals(DiskGraph.MAX_PTR, tbl.get(-7L, Integer.MAX_VALUE));
+	}
+
+	public void testGrow() {
+		final OffHeapNodePtrTable tbl = new OffHeapNodePtrTable(1);
+		final int n = 100000;
+		for (int i = 0; i < n; i++) {
+			tbl.put(i * 31L, i % 3 - 1, i);
+		}
+		assertEquals(n, tbl.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, tbl.get(i * 31L, i % 3 - 1));
+			assertEquals(-1L, tbl.get(i * 31L, i % 3));
+		}
+	}
+}
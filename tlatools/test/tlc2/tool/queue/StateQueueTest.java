@@ -29,6 +29,26 @@ public class StateQueueTest extends TestCase {
 		assertNull(state);
 	}
 	
+	// dequeue available from empty
+	public void testsDequeueAvailableEmpty() {
+		assertNull(sQueue.sDequeueAvailable(1));
+	}
+
+	// dequeue available from not empty
+	public void testsDequeueAvailableNotEmpty() {
+		sQueue.sEnqueue(new TLCState[] {new DummyTLCState(), new DummyTLCState()});
+		final TLCState[] actual = sQueue.sDequeueAvailable(5);
+		assertEquals(2, actual.length);
+		assertEquals(0, sQueue.size());
+	}
+
+	// dequeue available from finished
+	public void testsDequeueAvailableFinished() {
+		sQueue.sEnqueue(new DummyTLCState());
+		sQueue.finishAll();
+		assertNull(sQueue.sDequeueAvailable(1));
+	}
+	
 	// dequeue from empty 
 	public void testDequeueEmpty() {
 		TLCState state = sQueue.dequeue();
@@ -0,0 +1,113 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import tlc2.tool.TLCState;
+import util.FileUtil;
+
+public class StripedDiskStateQueueTest extends TestCase {
+
+	private static final int BUF_SIZE = 16;
+
+	private File dir;
+	private StripedDiskStateQueue sQueue;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "StripedDiskStateQueueTest"
+				+ System.currentTimeMillis());
+		dir.mkdirs();
+		// Reading a state back from disk creates it via TLCState.Empty
+		new UidTLCState(0);
+		sQueue = new StripedDiskStateQueue(dir.getAbsolutePath(), 4, BUF_SIZE);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		sQueue.finishAll();
+		FileUtil.deleteDir(dir.getAbsolutePath(), true);
+		super.tearDown();
+	}
+
+	// states spilled to many pool files come back in FIFO order
+	public void testFIFO() {
+		final int cnt = BUF_SIZE * 100 + 3;
+		for (int i = 0; i < cnt; i++) {
+			sQueue.enqueue(new UidTLCState(i));
+		}
+		assertEquals(cnt, sQueue.size());
+		for (int i = 0; i < cnt; i++) {
+			assertEquals(i, sQueue.dequeue().uid);
+		}
+		assertTrue(sQueue.isEmpty());
+		assertNull(sQueue.dequeue());
+	}
+
+	// interleaving enqueue and dequeue as BFS does
+	public void testInterleaved() {
+		long next = 0L;
+		long expected = 0L;
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < BUF_SIZE * 3 + round; i++) {
+				sQueue.enqueue(new UidTLCState(next++));
+			}
+			for (int i = 0; i < BUF_SIZE * 2; i++) {
+				assertEquals(expected++, sQueue.dequeue().uid);
+			}
+		}
+		while (!sQueue.isEmpty()) {
+			assertEquals(expected++, sQueue.dequeue().uid);
+		}
+		assertEquals(next, expected);
+	}
+
+	// a queue recovered from a checkpoint continues where it left off
+	public void testCheckpointRecover() throws IOException {
+		final int cnt = BUF_SIZE * 10 + 5;
+		for (int i = 0; i < cnt; i++) {
+			sQueue.enqueue(new UidTLCState(i));
+		}
+		final int consumed = BUF_SIZE * 3 + 7;
+		for (int i = 0; i < consumed; i++) {
+			assertEquals(i, sQueue.dequeue().uid);
+		}
+		sQueue.beginChkpt();
+		sQueue.commitChkpt();
+		sQueue.finishAll();
+
+		sQueue = new StripedDiskStateQueue(dir.getAbsolutePath(), 4, BUF_SIZE);
+		sQueue.recover();
+		assertEquals(cnt - consumed, sQueue.size());
+		for (int i = consumed; i < cnt; i++) {
+			assertEquals(i, sQueue.dequeue().uid);
+		}
+		assertTrue(sQueue.isEmpty());
+	}
+
+	@SuppressWarnings("serial")
+	private static class UidTLCState extends DummyTLCState {
+
+		public UidTLCState(long uid) {
+			this.uid = uid;
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.queue.DummyTLCState#createEmpty()
+		 */
+		public TLCState createEmpty() {
+			final TLCState empty = TLCState.Empty;
+			final TLCState state = new UidTLCState(-1);
+			// do not replace the template
+			TLCState.Empty = empty;
+			return state;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.util;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import tla2sany.semantic.ASTConstants;
+import tla2sany.semantic.OpDeclNode;
+import tlc2.tool.TLCState;
+import tlc2.tool.queue.DummyTLCState;
+import tlc2.value.IntValue;
+import tlc2.value.StringValue;
+import tlc2.value.Value;
+import util.FileUtil;
+import util.UniqueString;
+
+/**
+ * Writes states from several workers with a {@link BinaryStateWriter} and
+ * reads them back with the {@link StateDumpReader}.
+ */
+public class BinaryStateWriterTest extends TestCase {
+
+	private static final UniqueString X = UniqueString.uniqueStringOf("x");
+	private static final UniqueString Y = UniqueString.uniqueStringOf("y");
+
+	/**
+	 * The number of index entries a segment sorts in memory, so that all but
+	 * the smallest segment merge several runs
+	 */
+	private static final int CHUNK_SIZE = 7;
+
+	/**
+	 * The states written by each worker
+	 */
+	private static final int[] STATES = { 100, 57, 5 };
+
+	/**
+	 * A state with x = i and y = "s" + i
+	 */
+	@SuppressWarnings("serial")
+	private static class TestState extends DummyTLCState {
+		private final int i;
+
+		TestState(final int i) {
+			this.i = i;
+		}
+
+		public Value lookup(final UniqueString var) {
+			return var == X ? (Value) IntValue.gen(this.i) : new StringValue("s" + this.i);
+		}
+
+		public long fingerPrint() {
+			// Not ordered like the states
+			return (this.i * 0x9E3779B97F4A7C15L) ^ (this.i >>> 3);
+		}
+	}
+
+	private File dir;
+	private TLCState empty;
+
+	protected void setUp() throws Exception {
+		dir = new File(System.getProperty("java.io.tmpdir") + File.separator + "BinaryStateWriterTest"
+				+ System.currentTimeMillis());
+		assertTrue(dir.mkdirs());
+		empty = TLCState.Empty;
+		TLCState.setVariables(new OpDeclNode[] {
+				new OpDeclNode(X, ASTConstants.VariableDeclKind, 1, 0, null, null, null),
+				new OpDeclNode(Y, ASTConstants.VariableDeclKind, 1, 0, null, null, null) });
+	}
+
+	protected void tearDown() throws Exception {
+		TLCState.setVariables(null);
+		TLCState.Empty = empty;
+		FileUtil.deleteDir(dir, true);
+	}
+
+	public void testRoundTrip() throws Exception {
+		final String fname = new File(dir, "states.dump").getAbsolutePath();
+		final BinaryStateWriter writer = new BinaryStateWriter(fname, CHUNK_SIZE);
+
+		// Each worker writes to a segment of its own
+		final Thread[] workers = new Thread[STATES.length];
+		int total = 0;
+		for (int w = 0; w < workers.length; w++) {
+			final int from = total;
+			final int to = total + STATES[w];
+			workers[w] = new Thread() {
+				public void run() {
+					for (int i = from; i < to; i++) {
+						writer.writeState(new TestState(i));
+					}
+				}
+			};
+			workers[w].start();
+			total = to;
+		}
+		for (int w = 0; w < workers.length; w++) {
+			workers[w].join();
+		}
+		writer.close();
+
+		for (int w = 0; w < workers.length; w++) {
+			assertFalse(new File(fname + "." + w + ".idx.tmp").exists());
+		}
+
+		final StateDumpReader reader = new StateDumpReader(fname);
+		try {
+			assertEquals(total, reader.size());
+			assertEquals("x", reader.getVariables()[0]);
+			assertEquals("y", reader.getVariables()[1]);
+
+			for (int i = 0; i < total; i++) {
+				final StateDumpReader.Record record = reader.getState(new TestState(i).fingerPrint());
+				assertNotNull("State " + i, record);
+				assertEquals(new TestState(i).fingerPrint(), record.fp);
+				assertEquals(IntValue.gen(i), record.values[0]);
+				assertEquals(new StringValue("s" + i), record.values[1]);
+			}
+			assertNull(reader.getState(new TestState(total).fingerPrint()));
+
+			final Set<Long> fps = new HashSet<Long>();
+			for (Iterator<StateDumpReader.Record> iter = reader.iterator(); iter.hasNext();) {
+				final StateDumpReader.Record record = iter.next();
+				assertEquals(new TestState(((IntValue) record.values[0]).val).fingerPrint(), record.fp);
+				assertTrue(fps.add(Long.valueOf(record.fp)));
+			}
+			assertEquals(total, fps.size());
+		} finally {
+			reader.close();
+		}
+	}
+
+	public void testSort() {
+		final long[] pairs = { 5L, 50L, -3L, 30L, 9L, 90L, 1L, 10L, 7L, 70L };
+		// Only the first four pairs
+		BinaryStateWriter.sort(pairs, 4);
+		final long[] expected = { -3L, 30L, 1L, 10L, 5L, 50L, 9L, 90L, 7L, 70L };
+		for (int i = 0; i < pairs.length; i++) {
+			assertEquals(expected[i], pairs[i]);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.util;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class SetAssociativeCacheTest extends TestCase {
+
+	// Fingerprints of the same set of a 1 MB cache
+	private static long fp(final int i) {
+		return ((long) i + 1) << 20 | 3L;
+	}
+
+	public void testHit() {
+		final SetAssociativeCache cache = new SetAssociativeCache(1);
+		assertEquals(0d, cache.getHitRatio(), 0d);
+		assertFalse(cache.hit(42L));
+		assertTrue(cache.hit(42L));
+		assertTrue(cache.hit(42L));
+		assertFalse(cache.hit(43L));
+		assertEquals(2L, cache.getHitRate());
+		assertEquals(2L, cache.getMissRate());
+		assertEquals(0.5d, cache.getHitRatio(), 0d);
+	}
+
+	// The reference mark must not make fingerprints that differ in the lowest
+	// bit only collide
+	public void testLowestBit() {
+		final SetAssociativeCache cache = new SetAssociativeCache(1);
+		assertFalse(cache.hit(42L));
+		assertFalse(cache.hit(43L));
+		assertTrue(cache.hit(42L));
+		assertTrue(cache.hit(43L));
+	}
+
+	public void testCapacity() {
+		assertEquals(1024 * 1024 / 8, new SetAssociativeCache(1).getCapacity());
+		assertEquals(2 * 1024 * 1024 / 8, new SetAssociativeCache(3).getCapacity());
+	}
+
+	public void testInvalidSize() {
+		try {
+			new SetAssociativeCache(0);
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+		fail();
+	}
+
+	// A fingerprint seen again survives the fingerprints seen once
+	public void testClockEviction() {
+		final SetAssociativeCache cache = new SetAssociativeCache(1);
+		for (int i = 0; i < SetAssociativeCache.WAYS; i++) {
+			assertFalse(cache.hit(fp(i)));
+		}
+		assertTrue(cache.hit(fp(0)));
+		for (int i = SetAssociativeCache.WAYS; i < 2 * SetAssociativeCache.WAYS - 1; i++) {
+			assertFalse(cache.hit(fp(i)));
+		}
+		assertTrue(cache.hit(fp(0)));
+		assertFalse(cache.hit(fp(1)));
+	}
+
+	public void testConcurrentHits() throws InterruptedException {
+		final SetAssociativeCache cache = new SetAssociativeCache(1);
+		final int threads = 4;
+		final int lookups = 10000;
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread() {
+				public void run() {
+					for (int j = 0; j < lookups; j++) {
+						cache.hit(j % 100);
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		latch.await();
+		assertEquals(threads * lookups, cache.getHitRate() + cache.getMissRate());
+		assertTrue(cache.getHitRatio() > 0.9d);
+	}
+}
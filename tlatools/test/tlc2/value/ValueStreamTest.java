@@ -0,0 +1,115 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package tlc2.value;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import tlc2.TLCGlobals;
+import util.UniqueString;
+
+public class ValueStreamTest extends TestCase {
+
+	private File file;
+	private boolean useGZIP;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+		useGZIP = TLCGlobals.useGZIP;
+		TLCGlobals.useGZIP = false;
+		file = File.createTempFile("ValueStreamTest", ".vos");
+		file.deleteOnExit();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		TLCGlobals.useGZIP = useGZIP;
+		file.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Equal strings represented by distinct {@link StringValue} objects are
+	 * written once and referenced by handle afterwards.
+	 */
+	public void testEqualStringsWrittenOnce() throws IOException {
+		final String str = "ValueStreamTestString";
+		final int cnt = 100;
+
+		final ValueOutputStream vos = new ValueOutputStream(file);
+		for (int i = 0; i < cnt; i++) {
+			vos.write(new StringValue(str));
+		}
+		vos.close();
+		// after the five byte codec header, the string is written once (kind,
+		// tok, loc, length and chars), each further occurrence as a three byte
+		// handle
+		assertEquals(5 + 1 + 12 + str.length() + 3 * (cnt - 1), file.length());
+
+		final ValueInputStream vis = new ValueInputStream(file);
+		final Value first = vis.read();
+		assertTrue(UniqueString.uniqueStringOf(str).equals(((StringValue) first).getVal()));
+		for (int i = 1; i < cnt; i++) {
+			assertSame(first, vis.read());
+		}
+		vis.close();
+	}
+
+	/**
+	 * Strings read back from disk are represented by distinct UniqueString
+	 * objects, which are still written once.
+	 */
+	public void testStringsReadBackWrittenOnce() throws IOException {
+		final String str = "ValueStreamTestReadBack";
+		ValueOutputStream vos = new ValueOutputStream(file);
+		vos.write(new StringValue(str));
+		vos.close();
+
+		ValueInputStream vis = new ValueInputStream(file);
+		final StringValue s1 = (StringValue) vis.read();
+		vis.close();
+		vis = new ValueInputStream(file);
+		final StringValue s2 = (StringValue) vis.read();
+		vis.close();
+		assertNotSame(s1.getVal(), s2.getVal());
+
+		vos = new ValueOutputStream(file);
+		vos.write(s1);
+		vos.write(s2);
+		vos.close();
+		assertEquals(5 + 1 + 12 + str.length() + 3, file.length());
+	}
+
+	/**
+	 * A string used as a record field name and as a string value keeps its
+	 * representation in both places.
+	 */
+	public void testFieldNameAndStringValue() throws IOException {
+		final UniqueString name = UniqueString.uniqueStringOf("ValueStreamTestField");
+		final RecordValue rcd = new RecordValue(new UniqueString[] { name },
+				new Value[] { new StringValue(name) }, true);
+
+		final ValueOutputStream vos = new ValueOutputStream(file);
+		vos.write(rcd);
+		vos.write(new StringValue(name));
+		vos.write(new RecordValue(new UniqueString[] { name },
+				new Value[] { new StringValue(name) }, true));
+		vos.close();
+
+		final ValueInputStream vis = new ValueInputStream(file);
+		final RecordValue r1 = (RecordValue) vis.read();
+		final StringValue s = (StringValue) vis.read();
+		final RecordValue r2 = (RecordValue) vis.read();
+		vis.close();
+
+		assertTrue(name.equals(r1.names[0]));
+		assertSame(s, r1.values[0]);
+		assertSame(r1.names[0], r2.names[0]);
+		assertSame(s, r2.values[0]);
+	}
+}
@@ -0,0 +1,138 @@
+// Copyright (c) 2026 Microsoft Corporation.  All rights reserved.
+package util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+public class CodecTest extends TestCase {
+
+	/**
+	 * @return Bytes that mix runs, repetitions at varying distances and noise
+	 */
+	private static byte[] bytes(final int len) {
+		final Random rnd = new Random(15041980L);
+		final byte[] bytes = new byte[len];
+		for (int i = 0; i < len; i++) {
+			switch (rnd.nextInt(4)) {
+			case 0:
+				bytes[i] = (byte) rnd.nextInt();
+				break;
+			case 1:
+				bytes[i] = 0;
+				break;
+			default:
+				bytes[i] = i > 300 ? bytes[i - 1 - rnd.nextInt(300)] : (byte) i;
+			}
+		}
+		return bytes;
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buf = new byte[777];
+		int n;
+		while ((n = in.read(buf)) >= 0) {
+			out.write(buf, 0, n);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	public void testLZCompressor() throws IOException {
+		final int[] lengths = { 1, 5, 12, 13, 16, 300, 4096, 100000 };
+		for (int i = 0; i < lengths.length; i++) {
+			final byte[] raw = bytes(lengths[i]);
+			final byte[] compressed = new byte[LZCompressor.maxCompressedLength(raw.length)];
+			final int len = LZCompressor.compress(raw, raw.length, compressed);
+			final byte[] decompressed = new byte[raw.length];
+			LZCompressor.decompress(compressed, len, decompressed, raw.length);
+			assertTrue(Arrays.equals(raw, decompressed));
+		}
+		// Long runs need long lengths
+		final byte[] zeros = new byte[1 << 16];
+		final byte[] compressed = new byte[LZCompressor.maxCompressedLength(zeros.length)];
+		final int len = LZCompressor.compress(zeros, zeros.length, compressed);
+		assertTrue(len < 300);
+		final byte[] decompressed = new byte[zeros.length];
+		LZCompressor.decompress(compressed, len, decompressed, zeros.length);
+		assertTrue(Arrays.equals(zeros, decompressed));
+	}
+
+	/**
+	 * The blocks compressed concurrently are written in order
+	 */
+	public void testParallelBlocks() throws IOException {
+		final byte[] raw = bytes(1 << 20);
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final OutputStream out = new LZBlockOutputStream(bytes, 1000, executor, 3);
+			for (int i = 0; i < raw.length; i += 4099) {
+				out.write(raw, i, Math.min(4099, raw.length - i));
+			}
+			out.write(42);
+			out.close();
+			final byte[] read = readFully(new LZBlockInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			assertEquals(raw.length + 1, read.length);
+			assertEquals(42, read[raw.length]);
+			assertTrue(Arrays.equals(raw, Arrays.copyOf(read, raw.length)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * A file is read with the codec it has been written with, regardless of
+	 * the legacy codec.
+	 */
+	public void testHeader() throws IOException {
+		final byte[] raw = bytes(500000);
+		final File file = File.createTempFile("CodecTest", null);
+		try {
+			final Codec[] codecs = { Codec.NONE, Codec.GZIP, Codec.LZ };
+			for (int i = 0; i < codecs.length; i++) {
+				final OutputStream out = codecs[i].newOutputStream(file);
+				out.write(raw);
+				out.close();
+				assertTrue(Arrays.equals(raw, readFully(Codec.newInputStream(file, Codec.GZIP))));
+				assertTrue(Arrays.equals(raw, readFully(Codec.newInputStream(file, Codec.NONE))));
+			}
+			assertTrue(file.length() < raw.length);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Files without a header are read with the legacy codec.
+	 */
+	public void testLegacy() throws IOException {
+		final byte[] raw = bytes(10000);
+		final File file = File.createTempFile("CodecTest", null);
+		try {
+			OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+			out.write(raw);
+			out.close();
+			assertTrue(Arrays.equals(raw, readFully(Codec.newInputStream(file, Codec.GZIP))));
+
+			out = new FileOutputStream(file);
+			out.write(raw, 0, 3);
+			out.close();
+			assertTrue(Arrays.equals(Arrays.copyOf(raw, 3), readFully(Codec.newInputStream(file, Codec.NONE))));
+		} finally {
+			file.delete();
+		}
+	}
+}